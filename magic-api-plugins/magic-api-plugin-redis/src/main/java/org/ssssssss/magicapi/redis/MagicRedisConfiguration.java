@@ -1,15 +1,20 @@
 package org.ssssssss.magicapi.redis;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.ssssssss.magicapi.core.config.Cache;
 import org.ssssssss.magicapi.core.config.MagicAPIProperties;
 import org.ssssssss.magicapi.core.config.MagicPluginConfiguration;
 import org.ssssssss.magicapi.core.config.Resource;
 import org.ssssssss.magicapi.core.model.Plugin;
+import org.ssssssss.magicapi.core.service.MagicNotifyService;
+import org.ssssssss.magicapi.modules.db.cache.DefaultSqlCache;
+import org.ssssssss.magicapi.modules.db.cache.SqlCache;
 
 @Configuration
 public class MagicRedisConfiguration implements MagicPluginConfiguration {
@@ -31,6 +36,17 @@ public class MagicRedisConfiguration implements MagicPluginConfiguration {
 		return new RedisResource(new StringRedisTemplate(connectionFactory), resource.getPrefix(), resource.isReadonly());
 	}
 
+	/**
+	 * 使用本地+Redis二级SQL缓存
+	 */
+	@Bean
+	@ConditionalOnMissingBean(SqlCache.class)
+	@ConditionalOnProperty(prefix = "magic-api", name = "cache.type", havingValue = "redis")
+	public SqlCache magicRedisSqlCache(RedisConnectionFactory connectionFactory, ObjectProvider<MagicNotifyService> magicNotifyServiceProvider) {
+		Cache cache = properties.getCache();
+		return new RedisSqlCache(new DefaultSqlCache(cache.getCapacity(), cache.getTtl()), connectionFactory, cache.getRedisPrefix(), cache.getTtl(), magicNotifyServiceProvider::getIfAvailable, properties.getInstanceId());
+	}
+
 	/**
 	 * 注入redis模块
 	 */
@@ -0,0 +1,213 @@
+package org.ssssssss.magicapi.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.ssssssss.magicapi.core.config.Constants;
+import org.ssssssss.magicapi.core.event.EventAction;
+import org.ssssssss.magicapi.core.event.SqlCacheEvent;
+import org.ssssssss.magicapi.core.model.MagicNotify;
+import org.ssssssss.magicapi.core.service.MagicNotifyService;
+import org.ssssssss.magicapi.modules.db.cache.SqlCache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 本地+Redis二级SQL缓存
+ * <p>
+ * 先读本地缓存，未命中时读取Redis并回填本地缓存；删除时同时删除Redis中的缓存并通知其它实例删除本地缓存。
+ * Redis不可用时只使用本地缓存，一段时间后再重试。
+ *
+ * @author mxd
+ */
+public class RedisSqlCache implements SqlCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(RedisSqlCache.class);
+
+	/**
+	 * Redis不可用后的重试间隔，单位为毫秒
+	 */
+	private static final long RETRY_INTERVAL = 30000;
+
+	/**
+	 * 记录缓存key到名称索引，索引的过期时间不小于其中最晚过期的缓存，有不过期的缓存时索引不过期。
+	 * 新建的索引没有过期时间，需与已有的不过期索引区分。
+	 */
+	private static final RedisScript<Long> INDEX_SCRIPT = new DefaultRedisScript<>(
+			"local existed = redis.call('exists', KEYS[1])\n" +
+			"redis.call('sadd', KEYS[1], ARGV[1])\n" +
+			"local ttl = tonumber(ARGV[2])\n" +
+			"if ttl <= 0 then\n" +
+			"  redis.call('persist', KEYS[1])\n" +
+			"  return 1\n" +
+			"end\n" +
+			"local current = redis.call('pttl', KEYS[1])\n" +
+			"if existed == 0 or (current >= 0 and current < ttl) then\n" +
+			"  redis.call('pexpire', KEYS[1], ttl)\n" +
+			"end\n" +
+			"return 1", Long.class);
+
+	/**
+	 * 删除名称下的全部缓存及其索引，读取索引与删除在同一脚本中完成，避免期间写入的缓存未被删除
+	 */
+	private static final RedisScript<Long> DELETE_SCRIPT = new DefaultRedisScript<>(
+			"local keys = redis.call('smembers', KEYS[1])\n" +
+			"for i = 1, #keys, 1000 do\n" +
+			"  redis.call('del', unpack(keys, i, math.min(i + 999, #keys)))\n" +
+			"end\n" +
+			"redis.call('del', KEYS[1])\n" +
+			"return #keys", Long.class);
+
+	private final SqlCache local;
+
+	private final RedisTemplate<String, byte[]> redisTemplate;
+
+	private final String prefix;
+
+	private final long expire;
+
+	private final Supplier<MagicNotifyService> magicNotifyServiceSupplier;
+
+	private final String instanceId;
+
+	/**
+	 * Redis不可用时，在此时间之前跳过Redis
+	 */
+	private volatile long unavailableUntil;
+
+	/**
+	 * @param local                      本地缓存
+	 * @param connectionFactory          Redis连接
+	 * @param prefix                     Redis key前缀
+	 * @param expire                     默认过期时间，单位为毫秒，-1为不过期
+	 * @param magicNotifyServiceSupplier 集群通知服务
+	 * @param instanceId                 当前实例ID
+	 */
+	public RedisSqlCache(SqlCache local, RedisConnectionFactory connectionFactory, String prefix, long expire, Supplier<MagicNotifyService> magicNotifyServiceSupplier, String instanceId) {
+		this.local = local;
+		this.prefix = prefix;
+		this.expire = expire;
+		this.magicNotifyServiceSupplier = magicNotifyServiceSupplier;
+		this.instanceId = instanceId;
+		this.redisTemplate = new RedisTemplate<>();
+		this.redisTemplate.setConnectionFactory(connectionFactory);
+		this.redisTemplate.setKeySerializer(RedisSerializer.string());
+		this.redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+		this.redisTemplate.afterPropertiesSet();
+	}
+
+	@Override
+	public void put(String name, String key, Object value) {
+		put(name, key, value, this.expire);
+	}
+
+	@Override
+	public void put(String name, String key, Object value, long ttl) {
+		local.put(name, key, value, ttl);
+		long effectiveTtl = ttl > 0 ? ttl : this.expire;
+		byte[] bytes = SqlCacheCodec.encode(value, effectiveTtl > 0 ? System.currentTimeMillis() + effectiveTtl : Long.MAX_VALUE);
+		if (bytes == null) {
+			return;
+		}
+		redis(() -> {
+			String redisKey = redisKey(name, key);
+			if (effectiveTtl > 0) {
+				redisTemplate.opsForValue().set(redisKey, bytes, effectiveTtl, TimeUnit.MILLISECONDS);
+			} else {
+				redisTemplate.opsForValue().set(redisKey, bytes);
+			}
+			redisTemplate.execute(INDEX_SCRIPT, Collections.singletonList(indexKey(name)), redisKey.getBytes(StandardCharsets.UTF_8), String.valueOf(effectiveTtl).getBytes(StandardCharsets.UTF_8));
+			return null;
+		});
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(String name, String key) {
+		Object value = local.get(name, key);
+		if (value != null) {
+			return (T) value;
+		}
+		return (T) redis(() -> load(name, key));
+	}
+
+	/**
+	 * 从Redis读取并回填本地缓存，数据无法解码时删除
+	 */
+	private Object load(String name, String key) {
+		String redisKey = redisKey(name, key);
+		byte[] bytes = redisTemplate.opsForValue().get(redisKey);
+		if (bytes == null) {
+			return null;
+		}
+		long expireTime = SqlCacheCodec.expireTime(bytes);
+		long now = System.currentTimeMillis();
+		if (expireTime <= now) {
+			return null;
+		}
+		Object value;
+		try {
+			value = SqlCacheCodec.decode(bytes);
+		} catch (IOException e) {
+			logger.warn("Redis缓存[{}]无法解码，已删除", redisKey, e);
+			redisTemplate.delete(redisKey);
+			return null;
+		}
+		if (value != null) {
+			// 回填本地缓存，过期时间与Redis一致
+			local.put(name, key, value, expireTime == Long.MAX_VALUE ? -1 : expireTime - now);
+		}
+		return value;
+	}
+
+	@Override
+	public void delete(String name) {
+		local.delete(name);
+		redis(() -> redisTemplate.execute(DELETE_SCRIPT, Collections.singletonList(indexKey(name))));
+		MagicNotifyService magicNotifyService = magicNotifyServiceSupplier.get();
+		if (magicNotifyService != null) {
+			magicNotifyService.sendNotify(new MagicNotify(instanceId, name, EventAction.DELETE, Constants.EVENT_TYPE_SQL_CACHE));
+		}
+	}
+
+	/**
+	 * 其它实例删除缓存时删除本地缓存
+	 */
+	@EventListener(condition = "#event.source == T(org.ssssssss.magicapi.core.config.Constants).EVENT_SOURCE_NOTIFY")
+	public void onSqlCacheEvent(SqlCacheEvent event) {
+		local.delete(event.getName());
+	}
+
+	private String redisKey(String name, String key) {
+		return prefix + name + ":" + key;
+	}
+
+	private String indexKey(String name) {
+		return prefix + "names:" + name;
+	}
+
+	/**
+	 * 执行Redis操作，出错时暂停使用Redis
+	 */
+	private <T> T redis(Supplier<T> supplier) {
+		if (unavailableUntil > System.currentTimeMillis()) {
+			return null;
+		}
+		try {
+			return supplier.get();
+		} catch (RuntimeException e) {
+			unavailableUntil = System.currentTimeMillis() + RETRY_INTERVAL;
+			logger.warn("Redis缓存不可用，{}ms内只使用本地缓存", RETRY_INTERVAL, e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package org.ssssssss.magicapi.redis;
+
+import org.ssssssss.magicapi.modules.db.cache.CachedValue;
+import org.ssssssss.magicapi.modules.db.model.ResultRow;
+import org.ssssssss.magicapi.modules.db.model.RowSchema;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * SQL缓存值的二进制编码
+ * <p>
+ * 支持查询结果中常见的类型，{@code List<Map<String, Object>>} 中各行列名一致时只写一次列名。
+ * 不支持的类型编码时返回 null，此时只缓存在本地。
+ *
+ * @author mxd
+ */
+class SqlCacheCodec {
+
+	private static final int VERSION = 1;
+
+	private static final int NULL = 0;
+	private static final int STRING = 1;
+	private static final int INT = 2;
+	private static final int LONG = 3;
+	private static final int DOUBLE = 4;
+	private static final int FLOAT = 5;
+	private static final int TRUE = 6;
+	private static final int FALSE = 7;
+	private static final int BIG_DECIMAL = 8;
+	private static final int BIG_INTEGER = 9;
+	private static final int DATE = 10;
+	private static final int TIMESTAMP = 11;
+	private static final int SQL_DATE = 12;
+	private static final int SQL_TIME = 13;
+	private static final int LOCAL_DATE_TIME = 14;
+	private static final int LOCAL_DATE = 15;
+	private static final int LOCAL_TIME = 16;
+	private static final int BYTES = 17;
+	private static final int LIST = 18;
+	private static final int MAP = 19;
+	private static final int ROWS = 20;
+	private static final int SHORT = 21;
+	private static final int BYTE = 22;
+	private static final int CACHED_VALUE = 23;
+
+	/**
+	 * 编码，不支持的类型返回 null
+	 *
+	 * @param expireTime 过期时间戳，Long.MAX_VALUE 为不过期
+	 */
+	static byte[] encode(Object value, long expireTime) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bos);
+		try {
+			out.writeByte(VERSION);
+			out.writeLong(expireTime);
+			write(out, value);
+			return bos.toByteArray();
+		} catch (UnsupportedTypeException e) {
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 读取过期时间戳，版本不一致时返回 -1
+	 */
+	static long expireTime(byte[] bytes) {
+		if (bytes.length < 9 || bytes[0] != VERSION) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = 1; i < 9; i++) {
+			value = (value << 8) | (bytes[i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * 解码，数据损坏时抛出 IOException
+	 */
+	static Object decode(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 9, bytes.length - 9));
+		try {
+			return read(in);
+		} catch (RuntimeException e) {
+			// 数据损坏时读出的长度、日期等可能不合法
+			throw new IOException("缓存数据已损坏", e);
+		}
+	}
+
+	private static void write(DataOutputStream out, Object value) throws IOException, UnsupportedTypeException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INT);
+			writeVarLong(out, (Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			writeVarLong(out, (Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte((Boolean) value ? TRUE : FALSE);
+		} else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) value);
+		} else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		} else if (value instanceof BigDecimal) {
+			BigDecimal decimal = (BigDecimal) value;
+			out.writeByte(BIG_DECIMAL);
+			writeVarLong(out, decimal.scale());
+			writeBytes(out, decimal.unscaledValue().toByteArray());
+		} else if (value instanceof BigInteger) {
+			out.writeByte(BIG_INTEGER);
+			writeBytes(out, ((BigInteger) value).toByteArray());
+		} else if (value instanceof java.sql.Timestamp) {
+			java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+			out.writeByte(TIMESTAMP);
+			writeVarLong(out, timestamp.getTime());
+			writeVarLong(out, timestamp.getNanos());
+		} else if (value instanceof java.sql.Date) {
+			out.writeByte(SQL_DATE);
+			writeVarLong(out, ((java.sql.Date) value).getTime());
+		} else if (value instanceof java.sql.Time) {
+			out.writeByte(SQL_TIME);
+			writeVarLong(out, ((java.sql.Time) value).getTime());
+		} else if (value.getClass() == Date.class) {
+			out.writeByte(DATE);
+			writeVarLong(out, ((Date) value).getTime());
+		} else if (value instanceof LocalDateTime) {
+			LocalDateTime dateTime = (LocalDateTime) value;
+			out.writeByte(LOCAL_DATE_TIME);
+			writeVarLong(out, dateTime.toLocalDate().toEpochDay());
+			writeVarLong(out, dateTime.toLocalTime().toNanoOfDay());
+		} else if (value instanceof LocalDate) {
+			out.writeByte(LOCAL_DATE);
+			writeVarLong(out, ((LocalDate) value).toEpochDay());
+		} else if (value instanceof LocalTime) {
+			out.writeByte(LOCAL_TIME);
+			writeVarLong(out, ((LocalTime) value).toNanoOfDay());
+		} else if (value instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeBytes(out, (byte[]) value);
+		} else if (value instanceof CachedValue) {
+			CachedValue cachedValue = (CachedValue) value;
+			out.writeByte(CACHED_VALUE);
+			writeVarLong(out, cachedValue.getRefreshTime());
+			writeVarLong(out, cachedValue.getLoadTime());
+			write(out, cachedValue.getValue());
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			String[] columns = columnsOf(list);
+			if (columns != null) {
+				writeRows(out, list, columns);
+			} else {
+				out.writeByte(LIST);
+				writeVarLong(out, list.size());
+				for (Object item : list) {
+					write(out, item);
+				}
+			}
+		} else if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			out.writeByte(MAP);
+			writeVarLong(out, map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				if (!(entry.getKey() instanceof String)) {
+					throw new UnsupportedTypeException();
+				}
+				writeString(out, (String) entry.getKey());
+				write(out, entry.getValue());
+			}
+		} else {
+			throw new UnsupportedTypeException();
+		}
+	}
+
+	/**
+	 * 所有元素都是列名相同（且顺序一致）的Map时返回列名，否则返回 null
+	 */
+	private static String[] columnsOf(List<?> list) {
+		if (list.isEmpty() || !(list.get(0) instanceof Map)) {
+			return null;
+		}
+		Map<?, ?> first = (Map<?, ?>) list.get(0);
+		String[] columns = new String[first.size()];
+		int index = 0;
+		for (Object key : first.keySet()) {
+			if (!(key instanceof String)) {
+				return null;
+			}
+			columns[index++] = (String) key;
+		}
+		for (Object item : list) {
+			if (!(item instanceof Map) || ((Map<?, ?>) item).size() != columns.length) {
+				return null;
+			}
+			index = 0;
+			for (Object key : ((Map<?, ?>) item).keySet()) {
+				if (!columns[index++].equals(key)) {
+					return null;
+				}
+			}
+		}
+		return columns;
+	}
+
+	private static void writeRows(DataOutputStream out, List<?> rows, String[] columns) throws IOException, UnsupportedTypeException {
+		out.writeByte(ROWS);
+		writeVarLong(out, columns.length);
+		for (String column : columns) {
+			writeString(out, column);
+		}
+		writeVarLong(out, rows.size());
+		for (Object row : rows) {
+			for (Object value : ((Map<?, ?>) row).values()) {
+				write(out, value);
+			}
+		}
+	}
+
+	private static Object read(DataInputStream in) throws IOException {
+		int type = in.readUnsignedByte();
+		switch (type) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(in);
+			case INT:
+				return (int) readVarLong(in);
+			case LONG:
+				return readVarLong(in);
+			case DOUBLE:
+				return in.readDouble();
+			case FLOAT:
+				return in.readFloat();
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case SHORT:
+				return in.readShort();
+			case BYTE:
+				return in.readByte();
+			case BIG_DECIMAL:
+				int scale = (int) readVarLong(in);
+				return new BigDecimal(new BigInteger(readBytes(in)), scale);
+			case BIG_INTEGER:
+				return new BigInteger(readBytes(in));
+			case TIMESTAMP:
+				java.sql.Timestamp timestamp = new java.sql.Timestamp(readVarLong(in));
+				timestamp.setNanos((int) readVarLong(in));
+				return timestamp;
+			case SQL_DATE:
+				return new java.sql.Date(readVarLong(in));
+			case SQL_TIME:
+				return new java.sql.Time(readVarLong(in));
+			case DATE:
+				return new Date(readVarLong(in));
+			case LOCAL_DATE_TIME:
+				return LocalDateTime.of(LocalDate.ofEpochDay(readVarLong(in)), LocalTime.ofNanoOfDay(readVarLong(in)));
+			case LOCAL_DATE:
+				return LocalDate.ofEpochDay(readVarLong(in));
+			case LOCAL_TIME:
+				return LocalTime.ofNanoOfDay(readVarLong(in));
+			case BYTES:
+				return readBytes(in);
+			case CACHED_VALUE:
+				long refreshTime = readVarLong(in);
+				long loadTime = readVarLong(in);
+				return new CachedValue(read(in), refreshTime, loadTime);
+			case LIST:
+				int size = (int) readVarLong(in);
+				List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(read(in));
+				}
+				return list;
+			case MAP:
+				return readMap(in, (int) readVarLong(in));
+			case ROWS:
+				String[] columns = new String[(int) readVarLong(in)];
+				for (int i = 0; i < columns.length; i++) {
+					columns[i] = readString(in);
+				}
+				int rowCount = (int) readVarLong(in);
+				RowSchema schema = new RowSchema(columns);
+				List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+				for (int i = 0; i < rowCount; i++) {
+					Object[] values = new Object[columns.length];
+					for (int j = 0; j < values.length; j++) {
+						values[j] = read(in);
+					}
+					rows.add(new ResultRow(schema, values));
+				}
+				return rows;
+			default:
+				throw new IOException("不支持的缓存数据类型:" + type);
+		}
+	}
+
+	private static Map<String, Object> readMap(DataInputStream in, int size) throws IOException {
+		Map<String, Object> map = new LinkedHashMap<>((int) (size / 0.75f) + 1);
+		for (int i = 0; i < size; i++) {
+			map.put(readString(in), read(in));
+		}
+		return map;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return new String(readBytes(in), StandardCharsets.UTF_8);
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[(int) readVarLong(in)];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * ZigZag + 变长编码
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		value = (value << 1) ^ (value >> 63);
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * 值中含有不支持编码的类型
+	 */
+	private static class UnsupportedTypeException extends Exception {
+
+		UnsupportedTypeException() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package org.ssssssss.magicapi.redis;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.modules.db.cache.CachedValue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SqlCacheCodecTest {
+
+	@Test
+	public void rows() throws IOException {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("id", (long) i);
+			row.put("name", "name" + i);
+			row.put("amount", new BigDecimal("12.50"));
+			row.put("created", LocalDateTime.of(2020, 1, 1, 12, 0, i));
+			row.put("remark", null);
+			rows.add(row);
+		}
+		byte[] bytes = SqlCacheCodec.encode(rows, 123456L);
+		assertNotNull(bytes);
+		assertEquals(123456L, SqlCacheCodec.expireTime(bytes));
+		assertEquals(rows, SqlCacheCodec.decode(bytes));
+	}
+
+	@Test
+	public void cachedValue() throws IOException {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("count", 10);
+		map.put("enabled", true);
+		CachedValue value = (CachedValue) SqlCacheCodec.decode(SqlCacheCodec.encode(new CachedValue(map, 1000, 20), Long.MAX_VALUE));
+		assertEquals(map, value.getValue());
+		assertEquals(1000, value.getRefreshTime());
+		assertEquals(20, value.getLoadTime());
+	}
+
+	@Test
+	public void unsupportedType() {
+		assertNull(SqlCacheCodec.encode(new Object(), 0));
+		assertNull(SqlCacheCodec.encode(Collections.singletonMap(1, "a"), 0));
+		assertNull(SqlCacheCodec.encode(Collections.singletonList(new Object()), 0));
+	}
+
+	@Test(expected = IOException.class)
+	public void corrupted() throws IOException {
+		byte[] bytes = SqlCacheCodec.encode(Arrays.asList("a", "b"), 0);
+		SqlCacheCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+	}
+
+	@Test(expected = IOException.class)
+	public void unknownType() throws IOException {
+		byte[] bytes = SqlCacheCodec.encode("a", 0);
+		bytes[9] = 127;
+		SqlCacheCodec.decode(bytes);
+	}
+
+	@Test
+	public void versionMismatch() {
+		byte[] bytes = SqlCacheCodec.encode("a", 0);
+		bytes[0] = 0;
+		assertEquals(-1, SqlCacheCodec.expireTime(bytes));
+	}
+}
@@ -2,6 +2,7 @@ package org.ssssssss.magicapi.servlet.jakarta;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.server.ServletServerHttpRequest;
@@ -42,6 +43,11 @@ public class MagicJakartaHttpServletRequest implements MagicHttpServletRequest {
 		return request.getHeaders(name);
 	}
 
+	@Override
+	public Enumeration<String> getHeaderNames() {
+		return request.getHeaderNames();
+	}
+
 	@Override
 	public String getRequestURI() {
 		return request.getRequestURI();
@@ -82,6 +88,12 @@ public class MagicJakartaHttpServletRequest implements MagicHttpServletRequest {
 		return new MagicJakartaHttpSession(request.getSession());
 	}
 
+	@Override
+	public MagicHttpSession getSession(boolean create) {
+		HttpSession session = request.getSession(create);
+		return session == null ? null : new MagicJakartaHttpSession(session);
+	}
+
 	@Override
 	public MagicCookie[] getCookies() {
 		Cookie[] cookies = request.getCookies();
@@ -62,6 +62,11 @@ public class MagicJakartaHttpServletResponse implements MagicHttpServletResponse
 		return response.getHeaderNames();
 	}
 
+	@Override
+	public Collection<String> getHeaders(String name) {
+		return response.getHeaders(name);
+	}
+
 	@Override
 	public <T> T getResponse() {
 		return (T) response;
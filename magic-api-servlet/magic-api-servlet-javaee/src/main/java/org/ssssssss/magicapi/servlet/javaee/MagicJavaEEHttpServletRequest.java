@@ -15,6 +15,7 @@ import org.ssssssss.magicapi.core.servlet.MagicHttpSession;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.Principal;
@@ -42,6 +43,11 @@ public class MagicJavaEEHttpServletRequest implements MagicHttpServletRequest {
 		return request.getHeaders(name);
 	}
 
+	@Override
+	public Enumeration<String> getHeaderNames() {
+		return request.getHeaderNames();
+	}
+
 	@Override
 	public String getRequestURI() {
 		return request.getRequestURI();
@@ -82,6 +88,12 @@ public class MagicJavaEEHttpServletRequest implements MagicHttpServletRequest {
 		return new MagicJavaEEHttpSession(request.getSession());
 	}
 
+	@Override
+	public MagicHttpSession getSession(boolean create) {
+		HttpSession session = request.getSession(create);
+		return session == null ? null : new MagicJavaEEHttpSession(session);
+	}
+
 	@Override
 	public MagicCookie[] getCookies() {
 		Cookie[] cookies = request.getCookies();
@@ -3,6 +3,7 @@ package org.ssssssss.magicapi.spring.boot.starter;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -52,6 +53,7 @@ import org.ssssssss.magicapi.core.service.impl.DefaultMagicAPIService;
 import org.ssssssss.magicapi.core.service.impl.DefaultMagicResourceService;
 import org.ssssssss.magicapi.core.service.impl.RequestMagicDynamicRegistry;
 import org.ssssssss.magicapi.core.servlet.MagicRequestContextHolder;
+import org.ssssssss.magicapi.core.web.MagicMonitorController;
 import org.ssssssss.magicapi.core.web.MagicResourceController;
 import org.ssssssss.magicapi.core.web.MagicWorkbenchController;
 import org.ssssssss.magicapi.core.web.RequestHandler;
@@ -61,6 +63,7 @@ import org.ssssssss.magicapi.datasource.web.MagicDataSourceController;
 import org.ssssssss.magicapi.function.service.FunctionMagicDynamicRegistry;
 import org.ssssssss.magicapi.jsr223.LanguageProvider;
 import org.ssssssss.magicapi.modules.DynamicModule;
+import org.ssssssss.magicapi.modules.db.cache.SqlCache;
 import org.ssssssss.magicapi.utils.Mapping;
 import org.ssssssss.magicapi.utils.WebUtils;
 import org.ssssssss.script.MagicResourceLoader;
@@ -74,8 +77,8 @@ import org.ssssssss.script.reflection.JavaReflection;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -87,10 +90,10 @@ import java.util.stream.Collectors;
 @Configuration
 @ConditionalOnClass({RequestMappingHandlerMapping.class})
 @EnableConfigurationProperties(MagicAPIProperties.class)
-@Import({MagicServletConfiguration.class, MagicJsonAutoConfiguration.class, ApplicationUriPrinter.class, MagicModuleConfiguration.class, MagicDynamicRegistryConfiguration.class})
+@Import({MagicServletConfiguration.class, MagicJsonAutoConfiguration.class, ApplicationUriPrinter.class, MagicModuleConfiguration.class, MagicDynamicRegistryConfiguration.class, MagicMetricsConfiguration.class})
 @EnableWebSocket
 @AutoConfigureAfter(MagicPluginConfiguration.class)
-public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketConfigurer {
+public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketConfigurer, DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(MagicAPIAutoConfiguration.class);
 
@@ -134,6 +137,13 @@ public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketCon
 
 	private boolean registerMapping = false;
 
+	/**
+	 * 接口异步执行线程池，首次异步执行时创建，容器关闭时关闭
+	 */
+	private volatile ExecutorService asyncExecutor;
+
+	private boolean destroyed = false;
+
 	private boolean registerWebsocket = false;
 
 	@Autowired
@@ -298,6 +308,7 @@ public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketCon
 												 MagicAPIService magicAPIService,
 												 MagicNotifyService magicNotifyService,
 												 RequestMagicDynamicRegistry requestMagicDynamicRegistry,
+												 MagicDynamicDataSource magicDynamicDataSource,
 												 @Autowired(required = false) MagicBackupService magicBackupService) throws NoSuchMethodException {
 		logger.info("magic-api工作目录:{}", magicResource);
 		AsyncCall.setThreadPoolExecutorSize(properties.getThreadPoolExecutorSize());
@@ -308,6 +319,7 @@ public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketCon
 		Constants.RESPONSE_CODE_SUCCESS = responseCodeConfig.getSuccess();
 		Constants.RESPONSE_CODE_INVALID = responseCodeConfig.getInvalid();
 		Constants.RESPONSE_CODE_EXCEPTION = responseCodeConfig.getException();
+		Constants.RESPONSE_CODE_REJECTED = responseCodeConfig.getRejected();
 		// 设置模块和扩展方法
 		setupMagicModules(extensionMethodsProvider.getIfAvailable(Collections::emptyList), languageProviders);
 		MagicConfiguration configuration = new MagicConfiguration();
@@ -317,6 +329,7 @@ public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketCon
 		configuration.setMagicResourceService(magicResourceService);
 		configuration.setMagicDynamicRegistries(magicDynamicRegistriesProvider.getObject());
 		configuration.setMagicBackupService(magicBackupService);
+		configuration.setMagicDynamicDataSource(magicDynamicDataSource);
 		Security security = properties.getSecurity();
 		configuration.setDebugTimeout(properties.getDebug().getTimeout());
 		configuration.setHttpMessageConverters(httpMessageConvertersProvider.getIfAvailable(Collections::emptyList));
@@ -325,6 +338,10 @@ public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketCon
 		configuration.setEditorConfig(properties.getEditorConfig());
 		configuration.setWorkspace(magicResource);
 		configuration.setAuthorizationInterceptor(authorizationInterceptorProvider.getObject());
+		Async async = properties.getAsync();
+		configuration.setAsyncExecutorSupplier(() -> getAsyncExecutor(async));
+		configuration.setAsyncEnabled(async.isEnable());
+		configuration.setAsyncTimeout(async.getTimeout());
 		// 注册函数
 		this.magicFunctionsProvider.getIfAvailable(Collections::emptyList).forEach(JavaReflection::registerFunction);
 		// 向页面传递配置信息时不传递用户名密码，增强安全性
@@ -342,7 +359,8 @@ public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketCon
 			mapping.registerController(magicWorkbenchController)
 					.registerController(new MagicResourceController(configuration))
 					.registerController(new MagicDataSourceController(configuration))
-					.registerController(new MagicBackupController(configuration));
+					.registerController(new MagicBackupController(configuration))
+					.registerController(new MagicMonitorController(configuration, requestMagicDynamicRegistry, applicationContext.getBeanProvider(SqlCache.class).getIfAvailable()));
 			pluginConfigurations.forEach(it -> it.controllerRegister().register(mapping, configuration));
 		}
 		// 注册接收推送的接口
@@ -379,6 +397,55 @@ public class MagicAPIAutoConfiguration implements WebMvcConfigurer, WebSocketCon
 		return configuration;
 	}
 
+	/**
+	 * 获取接口异步执行线程池，未开启异步的接口不会调用，因此不使用异步时不创建线程池。容器关闭后返回 null
+	 */
+	private ExecutorService getAsyncExecutor(Async async) {
+		ExecutorService executor = this.asyncExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				if (this.asyncExecutor == null && !this.destroyed) {
+					this.asyncExecutor = createAsyncExecutor(async);
+				}
+				executor = this.asyncExecutor;
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * 创建接口异步执行线程池，JDK 21 及以上优先使用虚拟线程
+	 */
+	private ExecutorService createAsyncExecutor(Async async) {
+		if (async.isVirtualThread()) {
+			try {
+				ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				logger.info("接口异步执行使用虚拟线程");
+				return executor;
+			} catch (ReflectiveOperationException ignored) {
+				// JDK 版本不支持虚拟线程
+			}
+		}
+		int size = async.getThreadPoolSize() > 0 ? async.getThreadPoolSize() : Runtime.getRuntime().availableProcessors() * 2;
+		AtomicInteger threadNumber = new AtomicInteger();
+		// 有界队列，队列已满时拒绝执行并返回 API_EXECUTE_REJECTED
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, async.getQueueCapacity())), r -> {
+			Thread thread = new Thread(r, "magic-api-async-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@Override
+	public synchronized void destroy() {
+		this.destroyed = true;
+		if (this.asyncExecutor != null) {
+			this.asyncExecutor.shutdown();
+		}
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public AuthorizationInterceptor authorizationInterceptor(MagicAPIProperties properties){
@@ -7,10 +7,12 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.ssssssss.magicapi.core.config.Bulkhead;
 import org.ssssssss.magicapi.core.config.MagicAPIProperties;
 import org.ssssssss.magicapi.core.interceptor.DefaultResultProvider;
 import org.ssssssss.magicapi.core.interceptor.ResultProvider;
 import org.ssssssss.magicapi.core.service.impl.ApiInfoMagicResourceStorage;
+import org.ssssssss.magicapi.core.service.impl.ApiResponseCache;
 import org.ssssssss.magicapi.core.service.impl.RequestMagicDynamicRegistry;
 import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource;
 import org.ssssssss.magicapi.datasource.service.DataSourceInfoMagicResourceStorage;
@@ -44,7 +46,12 @@ public class MagicDynamicRegistryConfiguration {
 	@Bean
 	@ConditionalOnMissingBean
 	public RequestMagicDynamicRegistry magicRequestMagicDynamicRegistry(ApiInfoMagicResourceStorage apiInfoMagicResourceStorage) throws NoSuchMethodException {
-		return new RequestMagicDynamicRegistry(apiInfoMagicResourceStorage, Mapping.create(requestMappingHandlerMapping, properties.getWeb()), properties.isAllowOverride(), properties.getPrefix());
+		RequestMagicDynamicRegistry registry = new RequestMagicDynamicRegistry(apiInfoMagicResourceStorage, Mapping.create(requestMappingHandlerMapping, properties.getWeb()), properties.isAllowOverride(), properties.getPrefix(), properties.isTreeRouter());
+		Bulkhead bulkhead = properties.getBulkhead();
+		registry.setConcurrencyLimit(bulkhead.getApiMaxConcurrent(), bulkhead.getApiMaxWaiting(), bulkhead.getWaitTimeout());
+		registry.setResponseCache(new ApiResponseCache(properties.getCache().getApiCapacity()));
+		registry.getApiMetrics().setEnabled(properties.isMetrics());
+		return registry;
 	}
 
 	@Bean
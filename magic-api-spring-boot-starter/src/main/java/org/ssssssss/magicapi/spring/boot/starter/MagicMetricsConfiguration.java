@@ -0,0 +1,91 @@
+package org.ssssssss.magicapi.spring.boot.starter;
+
+import io.micrometer.core.instrument.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.ssssssss.magicapi.core.service.impl.ApiMetrics;
+import org.ssssssss.magicapi.core.service.impl.ApiMetrics.ApiMetric;
+import org.ssssssss.magicapi.core.service.impl.ApiMetrics.Phase;
+import org.ssssssss.magicapi.core.service.impl.RequestMagicDynamicRegistry;
+import org.ssssssss.magicapi.utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 接口统计对接 Micrometer
+ *
+ * @author mxd
+ */
+@Configuration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(prefix = "magic-api", name = "metrics", havingValue = "true", matchIfMissing = true)
+public class MagicMetricsConfiguration {
+
+	@Bean
+	public SmartInitializingSingleton magicApiMetricsBinder(ObjectProvider<MeterRegistry> meterRegistryProvider, RequestMagicDynamicRegistry requestMagicDynamicRegistry) {
+		return () -> {
+			MeterRegistry meterRegistry = meterRegistryProvider.getIfUnique();
+			if (meterRegistry != null) {
+				requestMagicDynamicRegistry.getApiMetrics().addListener(new MicrometerListener(meterRegistry));
+			}
+		};
+	}
+
+	/**
+	 * 为每个接口注册调用次数及耗时指标，标签为 method、path、group
+	 */
+	static class MicrometerListener implements ApiMetrics.Listener {
+
+		private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+		private final MeterRegistry meterRegistry;
+
+		private final Map<String, List<Meter>> meters = new ConcurrentHashMap<>();
+
+		MicrometerListener(MeterRegistry meterRegistry) {
+			this.meterRegistry = meterRegistry;
+		}
+
+		@Override
+		public void onCreate(ApiMetric metric) {
+			Tags tags = Tags.of("method", metric.getMethod(), "path", metric.getPath(), "group", metric.getGroup());
+			List<Meter> list = new ArrayList<>();
+			list.add(FunctionCounter.builder("magic_api.requests", metric, ApiMetric::getCalls).tags(tags).register(meterRegistry));
+			list.add(FunctionCounter.builder("magic_api.errors", metric, ApiMetric::getErrors).tags(tags).register(meterRegistry));
+			list.add(FunctionCounter.builder("magic_api.validation_failures", metric, ApiMetric::getValidationFailures).tags(tags).register(meterRegistry));
+			registerLatency(list, metric.getLatency(), tags.and("phase", "total"));
+			for (Phase phase : Phase.values()) {
+				registerLatency(list, metric.getLatency(phase), tags.and("phase", phase.getValue()));
+			}
+			meters.put(metric.getId(), list);
+		}
+
+		private void registerLatency(List<Meter> list, LatencyHistogram histogram, Tags tags) {
+			for (double percentile : PERCENTILES) {
+				list.add(Gauge.builder("magic_api.latency", histogram, it -> it.getPercentile(percentile) / 1000.0)
+						.tags(tags.and("quantile", String.valueOf(percentile)))
+						.baseUnit("milliseconds")
+						.register(meterRegistry));
+			}
+			list.add(Gauge.builder("magic_api.latency.max", histogram, it -> it.getMax() / 1000.0)
+					.tags(tags)
+					.baseUnit("milliseconds")
+					.register(meterRegistry));
+		}
+
+		@Override
+		public void onRemove(ApiMetric metric) {
+			List<Meter> list = meters.remove(metric.getId());
+			if (list != null) {
+				list.forEach(meterRegistry::remove);
+			}
+		}
+	}
+}
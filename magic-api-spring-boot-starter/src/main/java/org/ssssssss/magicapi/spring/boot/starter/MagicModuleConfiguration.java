@@ -2,28 +2,37 @@ package org.ssssssss.magicapi.spring.boot.starter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.Environment;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartResolver;
+import org.ssssssss.magicapi.core.config.Bulkhead;
 import org.ssssssss.magicapi.core.config.Cache;
 import org.ssssssss.magicapi.core.config.MagicAPIProperties;
 import org.ssssssss.magicapi.core.config.Page;
+import org.ssssssss.magicapi.core.config.Replica;
+import org.ssssssss.magicapi.core.exception.MagicAPIException;
 import org.ssssssss.magicapi.core.interceptor.DefaultResultProvider;
 import org.ssssssss.magicapi.core.interceptor.ResultProvider;
+import org.ssssssss.magicapi.core.service.impl.RequestMagicDynamicRegistry;
 import org.ssssssss.magicapi.core.servlet.MagicRequestContextHolder;
 import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource;
 import org.ssssssss.magicapi.jsr223.JSR223LanguageProvider;
 import org.ssssssss.magicapi.modules.db.ColumnMapperAdapter;
+import org.ssssssss.magicapi.modules.db.PageCountExecutor;
 import org.ssssssss.magicapi.modules.db.SQLModule;
 import org.ssssssss.magicapi.modules.db.cache.DefaultSqlCache;
+import org.ssssssss.magicapi.modules.db.cache.ListenableSqlCache;
 import org.ssssssss.magicapi.modules.db.cache.SqlCache;
+import org.ssssssss.magicapi.modules.db.cache.SqlCacheLoader;
 import org.ssssssss.magicapi.modules.db.dialect.Dialect;
 import org.ssssssss.magicapi.modules.db.dialect.DialectAdapter;
 import org.ssssssss.magicapi.modules.db.inteceptor.DefaultSqlInterceptor;
@@ -43,7 +52,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class MagicModuleConfiguration {
+public class MagicModuleConfiguration implements DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(MagicModuleConfiguration.class);
 
@@ -75,6 +84,16 @@ public class MagicModuleConfiguration {
 	@Autowired(required = false)
 	private MultipartResolver multipartResolver;
 
+	/**
+	 * SQL缓存加载，关闭时停止后台刷新线程
+	 */
+	private SqlCacheLoader sqlCacheLoader;
+
+	/**
+	 * 分页总条数查询，关闭时关闭线程池
+	 */
+	private PageCountExecutor pageCountExecutor;
+
 	public MagicModuleConfiguration(MagicAPIProperties properties,
 									ObjectProvider<List<SQLInterceptor>> sqlInterceptorsProvider,
 									ObjectProvider<List<NamedTableInterceptor>> namedTableInterceptorsProvider,
@@ -96,6 +115,10 @@ public class MagicModuleConfiguration {
 	@ConditionalOnMissingBean(MagicDynamicDataSource.class)
 	public MagicDynamicDataSource magicDynamicDataSource(@Autowired(required = false) DataSource dataSource) {
 		MagicDynamicDataSource dynamicDataSource = new MagicDynamicDataSource();
+		Bulkhead bulkhead = properties.getBulkhead();
+		dynamicDataSource.setConcurrencyLimit(bulkhead.getDatasourceMaxConcurrent(), bulkhead.getDatasourceMaxWaiting(), bulkhead.getWaitTimeout());
+		Replica replica = properties.getReplica();
+		dynamicDataSource.setReplicaHealthCheck(replica.getHealthCheckInterval(), replica.getHealthCheckTimeout());
 		if (dataSource != null) {
 			dynamicDataSource.put(dataSource);
 		} else {
@@ -109,7 +132,7 @@ public class MagicModuleConfiguration {
 	public PageProvider pageProvider() {
 		Page pageConfig = properties.getPage();
 		logger.info("未找到分页实现,采用默认分页实现,分页配置:(页码={},页大小={},默认首页={},默认页大小={},最大页大小={})", pageConfig.getPage(), pageConfig.getSize(), pageConfig.getDefaultPage(), pageConfig.getDefaultSize(), pageConfig.getMaxPageSize());
-		return new DefaultPageProvider(pageConfig.getPage(), pageConfig.getSize(), pageConfig.getDefaultPage(), pageConfig.getDefaultSize(), pageConfig.getMaxPageSize());
+		return new DefaultPageProvider(pageConfig.getPage(), pageConfig.getSize(), pageConfig.getDefaultPage(), pageConfig.getDefaultSize(), pageConfig.getMaxPageSize(), pageConfig.getCursor());
 	}
 
 	/**
@@ -117,9 +140,10 @@ public class MagicModuleConfiguration {
 	 */
 	@Bean
 	@ConditionalOnMissingBean(SqlCache.class)
+	@ConditionalOnProperty(prefix = "magic-api", name = "cache.type", havingValue = "default", matchIfMissing = true)
 	public SqlCache sqlCache() {
 		Cache cacheConfig = properties.getCache();
-		logger.info("未找到SQL缓存实现，采用默认缓存实现(LRU+TTL)，缓存配置:(容量={},TTL={})", cacheConfig.getCapacity(), cacheConfig.getTtl());
+		logger.info("未找到SQL缓存实现，采用默认缓存实现(W-TinyLFU+TTL)，缓存配置:(容量={},TTL={})", cacheConfig.getCapacity(), cacheConfig.getTtl());
 		return new DefaultSqlCache(cacheConfig.getCapacity(), cacheConfig.getTtl());
 	}
 
@@ -131,7 +155,13 @@ public class MagicModuleConfiguration {
 	public SQLModule magicSqlModule(MagicDynamicDataSource dynamicDataSource,
 									ResultProvider resultProvider,
 									PageProvider pageProvider,
-									SqlCache sqlCache) {
+									ObjectProvider<SqlCache> sqlCacheProvider,
+									ObjectProvider<RequestMagicDynamicRegistry> requestMagicDynamicRegistryProvider) {
+		SqlCache sqlCache = sqlCacheProvider.getIfAvailable();
+		if (sqlCache == null) {
+			// 如 cache.type=redis 但未引入 magic-api-plugin-redis
+			throw new MagicAPIException(String.format("未找到 magic-api.cache.type=%s 对应的SQL缓存实现，请引入对应插件或改为 default", properties.getCache().getType()));
+		}
 		SQLModule sqlModule = new SQLModule(dynamicDataSource);
 		if (!dynamicDataSource.isEmpty()) {
 			sqlModule.setDataSourceNode(dynamicDataSource.getDataSource());
@@ -150,12 +180,22 @@ public class MagicModuleConfiguration {
 		sqlModule.setColumnMapperProvider(columnMapperAdapter);
 		sqlModule.setColumnMapRowMapper(columnMapperAdapter.getDefaultColumnMapRowMapper());
 		sqlModule.setRowMapColumnMapper(columnMapperAdapter.getDefaultRowMapColumnMapper());
-		sqlModule.setSqlCache(sqlCache);
+		// 删除SQL缓存时同时清除关联的接口响应缓存
+		Cache cacheConfig = properties.getCache();
+		this.sqlCacheLoader = new SqlCacheLoader(cacheConfig.getTtl(), cacheConfig.getStaleTtl(), cacheConfig.getEarlyRefresh(), cacheConfig.isTableAware(), cacheConfig.getLoadTimeout());
+		sqlModule.setSqlCacheLoader(this.sqlCacheLoader);
+		sqlModule.setSqlCache(new ListenableSqlCache(sqlCache, name -> requestMagicDynamicRegistryProvider.ifAvailable(registry -> registry.getResponseCache().invalidateByCacheName(name))));
 		DialectAdapter dialectAdapter = new DialectAdapter();
 		dialectsProvider.getIfAvailable(Collections::emptyList).forEach(dialectAdapter::add);
 		sqlModule.setDialectAdapter(dialectAdapter);
 		sqlModule.setLogicDeleteColumn(properties.getCrud().getLogicDeleteColumn());
 		sqlModule.setLogicDeleteValue(properties.getCrud().getLogicDeleteValue());
+		Page pageConfig = properties.getPage();
+		sqlModule.setCountOptimizeJoin(pageConfig.isCountOptimizeJoin());
+		if (pageConfig.isParallelCount() || pageConfig.getCountCacheTtl() > 0) {
+			this.pageCountExecutor = new PageCountExecutor(pageConfig.isParallelCount(), pageConfig.getCountThreads(), pageConfig.getCountCacheTtl());
+			sqlModule.setPageCountExecutor(this.pageCountExecutor);
+		}
 		return sqlModule;
 	}
 
@@ -213,4 +253,14 @@ public class MagicModuleConfiguration {
 		return restTemplate;
 	}
 
+	@Override
+	public void destroy() {
+		if (this.sqlCacheLoader != null) {
+			this.sqlCacheLoader.shutdown();
+		}
+		if (this.pageCountExecutor != null) {
+			this.pageCountExecutor.destroy();
+		}
+	}
+
 }
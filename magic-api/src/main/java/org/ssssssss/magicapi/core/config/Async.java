@@ -0,0 +1,74 @@
+package org.ssssssss.magicapi.core.config;
+
+/**
+ * 接口异步执行配置
+ *
+ * @author mxd
+ */
+public class Async {
+
+	/**
+	 * 是否默认异步执行接口，可通过接口选项单独开启或关闭
+	 */
+	private boolean enable = false;
+
+	/**
+	 * 运行在 JDK 21 及以上时是否使用虚拟线程执行
+	 */
+	private boolean virtualThread = true;
+
+	/**
+	 * 不使用虚拟线程时的线程数
+	 */
+	private int threadPoolSize = 200;
+
+	/**
+	 * 不使用虚拟线程时的排队数，队列已满时拒绝执行
+	 */
+	private int queueCapacity = 1000;
+
+	/**
+	 * 异步执行超时时间，单位为毫秒，<=0 时采用 Spring MVC 的默认配置
+	 */
+	private long timeout = -1;
+
+	public boolean isEnable() {
+		return enable;
+	}
+
+	public void setEnable(boolean enable) {
+		this.enable = enable;
+	}
+
+	public boolean isVirtualThread() {
+		return virtualThread;
+	}
+
+	public void setVirtualThread(boolean virtualThread) {
+		this.virtualThread = virtualThread;
+	}
+
+	public int getThreadPoolSize() {
+		return threadPoolSize;
+	}
+
+	public void setThreadPoolSize(int threadPoolSize) {
+		this.threadPoolSize = threadPoolSize;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+}
@@ -0,0 +1,74 @@
+package org.ssssssss.magicapi.core.config;
+
+/**
+ * 并发隔离配置，并发数为 0 时不限制
+ *
+ * @author mxd
+ */
+public class Bulkhead {
+
+	/**
+	 * 每个接口默认最大并发数，可通过接口选项单独配置
+	 */
+	private int apiMaxConcurrent = 0;
+
+	/**
+	 * 每个接口默认最大排队数
+	 */
+	private int apiMaxWaiting = 0;
+
+	/**
+	 * 每个数据源默认最大并发数，可通过数据源属性 maxConcurrent 单独配置
+	 */
+	private int datasourceMaxConcurrent = 0;
+
+	/**
+	 * 每个数据源默认最大排队数，可通过数据源属性 maxWaiting 单独配置
+	 */
+	private int datasourceMaxWaiting = 0;
+
+	/**
+	 * 排队超时时间，单位为毫秒，<=0 时一直等待
+	 */
+	private long waitTimeout = 1000;
+
+	public int getApiMaxConcurrent() {
+		return apiMaxConcurrent;
+	}
+
+	public void setApiMaxConcurrent(int apiMaxConcurrent) {
+		this.apiMaxConcurrent = apiMaxConcurrent;
+	}
+
+	public int getApiMaxWaiting() {
+		return apiMaxWaiting;
+	}
+
+	public void setApiMaxWaiting(int apiMaxWaiting) {
+		this.apiMaxWaiting = apiMaxWaiting;
+	}
+
+	public int getDatasourceMaxConcurrent() {
+		return datasourceMaxConcurrent;
+	}
+
+	public void setDatasourceMaxConcurrent(int datasourceMaxConcurrent) {
+		this.datasourceMaxConcurrent = datasourceMaxConcurrent;
+	}
+
+	public int getDatasourceMaxWaiting() {
+		return datasourceMaxWaiting;
+	}
+
+	public void setDatasourceMaxWaiting(int datasourceMaxWaiting) {
+		this.datasourceMaxWaiting = datasourceMaxWaiting;
+	}
+
+	public long getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	public void setWaitTimeout(long waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+}
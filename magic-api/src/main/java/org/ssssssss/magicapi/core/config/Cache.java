@@ -12,6 +12,16 @@ public class Cache {
 	 */
 	private boolean enable = false;
 
+	/**
+	 * 缓存类型，default 为本地缓存，redis 为本地+Redis二级缓存（需引入 magic-api-plugin-redis）
+	 */
+	private String type = "default";
+
+	/**
+	 * Redis缓存key前缀
+	 */
+	private String redisPrefix = "magic-api:sql-cache:";
+
 	/**
 	 * 默认缓存容量
 	 */
@@ -22,6 +32,31 @@ public class Cache {
 	 */
 	private long ttl = -1;
 
+	/**
+	 * 过期后仍可返回旧值的时间，单位为毫秒，期间后台刷新，0为不返回旧值
+	 */
+	private long staleTtl = 0;
+
+	/**
+	 * 提前刷新系数（XFetch），越大越早刷新，0为不提前刷新，一般为 1
+	 */
+	private double earlyRefresh = 0;
+
+	/**
+	 * 是否按SQL中的表名自动失效缓存，开启后执行 insert、update 等写入SQL时删除依赖相关表的缓存
+	 */
+	private boolean tableAware = false;
+
+	/**
+	 * 相同查询正在加载时等待其结果的最长时间，单位为毫秒，超时后直接查询，0为一直等待
+	 */
+	private long loadTimeout = 30000;
+
+	/**
+	 * 接口响应缓存中每个接口最多缓存的条数
+	 */
+	private int apiCapacity = 1000;
+
 	public int getCapacity() {
 		return capacity;
 	}
@@ -38,6 +73,62 @@ public class Cache {
 		this.ttl = ttl;
 	}
 
+	public long getStaleTtl() {
+		return staleTtl;
+	}
+
+	public void setStaleTtl(long staleTtl) {
+		this.staleTtl = staleTtl;
+	}
+
+	public double getEarlyRefresh() {
+		return earlyRefresh;
+	}
+
+	public void setEarlyRefresh(double earlyRefresh) {
+		this.earlyRefresh = earlyRefresh;
+	}
+
+	public boolean isTableAware() {
+		return tableAware;
+	}
+
+	public void setTableAware(boolean tableAware) {
+		this.tableAware = tableAware;
+	}
+
+	public long getLoadTimeout() {
+		return loadTimeout;
+	}
+
+	public void setLoadTimeout(long loadTimeout) {
+		this.loadTimeout = loadTimeout;
+	}
+
+	public int getApiCapacity() {
+		return apiCapacity;
+	}
+
+	public void setApiCapacity(int apiCapacity) {
+		this.apiCapacity = apiCapacity;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getRedisPrefix() {
+		return redisPrefix;
+	}
+
+	public void setRedisPrefix(String redisPrefix) {
+		this.redisPrefix = redisPrefix;
+	}
+
 	public boolean isEnable() {
 		return enable;
 	}
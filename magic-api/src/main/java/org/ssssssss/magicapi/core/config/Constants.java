@@ -94,6 +94,8 @@ public class Constants {
 
 	public static final String EVENT_TYPE_FILE = "file";
 
+	public static final String EVENT_TYPE_SQL_CACHE = "sql-cache";
+
 	public static final String EVENT_SOURCE_NOTIFY = "notify";
 
 	public static final String WEBSOCKET_ATTRIBUTE_FILE_ID = "fileId";
@@ -126,6 +128,11 @@ public class Constants {
 	 */
 	public static int RESPONSE_CODE_INVALID = 0;
 
+	/**
+	 * 超出并发限制被拒绝时的code值
+	 */
+	public static int RESPONSE_CODE_REJECTED = -1;
+
 	/**
 	 * 空数组
 	 */
@@ -84,6 +84,10 @@ public interface JsonCodeConstants {
 
 	JsonCode API_NOT_FOUND = new JsonCode(1035, "找不到接口");
 
+	JsonCode API_EXECUTE_TIMEOUT = new JsonCode(1037, "接口执行超时");
+
+	JsonCode API_EXECUTE_REJECTED = new JsonCode(1038, "服务繁忙，请稍后再试");
+
 	default void notNull(Object value, JsonCode jsonCode) {
 		if (value == null) {
 			throw new InvalidArgumentException(jsonCode);
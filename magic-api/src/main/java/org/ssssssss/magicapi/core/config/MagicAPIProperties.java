@@ -57,6 +57,18 @@ public class MagicAPIProperties {
 	 * @since 0.4.0
 	 */
 	private boolean allowOverride = false;
+	/**
+	 * 是否启用前缀树路由，启用后在接口前缀下注册统一入口，不再将每个接口注册到Spring，需配置prefix
+	 *
+	 * @since 2.3.0
+	 */
+	private boolean treeRouter = false;
+	/**
+	 * 是否记录接口调用次数及各阶段耗时
+	 *
+	 * @since 2.3.0
+	 */
+	private boolean metrics = true;
 	/**
 	 * SQL列名转换
 	 *
@@ -165,6 +177,15 @@ public class MagicAPIProperties {
 	@NestedConfigurationProperty
 	private Backup backup = new Backup();
 
+	@NestedConfigurationProperty
+	private Async async = new Async();
+
+	@NestedConfigurationProperty
+	private Bulkhead bulkhead = new Bulkhead();
+
+	@NestedConfigurationProperty
+	private Replica replica = new Replica();
+
 	public String getWeb() {
 		if (StringUtils.isBlank(web)) {
 			return null;
@@ -257,6 +278,22 @@ public class MagicAPIProperties {
 		this.allowOverride = allowOverride;
 	}
 
+	public boolean isTreeRouter() {
+		return treeRouter;
+	}
+
+	public void setTreeRouter(boolean treeRouter) {
+		this.treeRouter = treeRouter;
+	}
+
+	public boolean isMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(boolean metrics) {
+		this.metrics = metrics;
+	}
+
 	public int getThreadPoolExecutorSize() {
 		return threadPoolExecutorSize;
 	}
@@ -416,4 +453,28 @@ public class MagicAPIProperties {
 	public void setBackup(Backup backup) {
 		this.backup = backup;
 	}
+
+	public Async getAsync() {
+		return async;
+	}
+
+	public void setAsync(Async async) {
+		this.async = async;
+	}
+
+	public Bulkhead getBulkhead() {
+		return bulkhead;
+	}
+
+	public void setBulkhead(Bulkhead bulkhead) {
+		this.bulkhead = bulkhead;
+	}
+
+	public Replica getReplica() {
+		return replica;
+	}
+
+	public void setReplica(Replica replica) {
+		this.replica = replica;
+	}
 }
@@ -17,6 +17,8 @@ import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 public class MagicConfiguration {
 
@@ -67,6 +69,21 @@ public class MagicConfiguration {
 
 	private boolean enableWeb = false;
 
+	/**
+	 * 获取接口异步执行线程池，首次异步执行时才创建，为 null 时不支持异步执行
+	 */
+	private Supplier<ExecutorService> asyncExecutorSupplier;
+
+	/**
+	 * 是否默认异步执行接口
+	 */
+	private boolean asyncEnabled = false;
+
+	/**
+	 * 异步执行超时时间，单位为毫秒
+	 */
+	private long asyncTimeout = -1;
+
 	public void addRequestInterceptor(RequestInterceptor requestInterceptor) {
 		this.requestInterceptors.add(requestInterceptor);
 	}
@@ -123,6 +140,40 @@ public class MagicConfiguration {
 		this.enableWeb = enableWeb;
 	}
 
+	/**
+	 * 获取接口异步执行线程池，未创建时创建，不支持异步执行时返回 null
+	 */
+	public ExecutorService getAsyncExecutor() {
+		return asyncExecutorSupplier == null ? null : asyncExecutorSupplier.get();
+	}
+
+	public void setAsyncExecutor(ExecutorService asyncExecutor) {
+		this.asyncExecutorSupplier = asyncExecutor == null ? null : () -> asyncExecutor;
+	}
+
+	/**
+	 * 设置异步执行线程池的创建方法，由调用方保证只创建一次
+	 */
+	public void setAsyncExecutorSupplier(Supplier<ExecutorService> asyncExecutorSupplier) {
+		this.asyncExecutorSupplier = asyncExecutorSupplier;
+	}
+
+	public boolean isAsyncEnabled() {
+		return asyncEnabled;
+	}
+
+	public void setAsyncEnabled(boolean asyncEnabled) {
+		this.asyncEnabled = asyncEnabled;
+	}
+
+	public long getAsyncTimeout() {
+		return asyncTimeout;
+	}
+
+	public void setAsyncTimeout(long asyncTimeout) {
+		this.asyncTimeout = asyncTimeout;
+	}
+
 	public String getEditorConfig() {
 		return editorConfig;
 	}
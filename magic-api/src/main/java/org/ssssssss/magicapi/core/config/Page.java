@@ -32,6 +32,31 @@ public class Page {
 	 */
 	private long maxPageSize = -1;
 
+	/**
+	 * 默认游标表达式，用于游标分页
+	 */
+	private String cursor = "cursor";
+
+	/**
+	 * 是否并行查询总条数与分页数据，事务中或可用连接不足时仍顺序执行
+	 */
+	private boolean parallelCount = false;
+
+	/**
+	 * 并行查询总条数的线程数，小于等于0时为CPU核数
+	 */
+	private int countThreads = 0;
+
+	/**
+	 * 总条数缓存时间，单位为毫秒，0 为不缓存
+	 */
+	private long countCacheTtl = 0;
+
+	/**
+	 * 生成 count 语句时是否去掉未被引用的 LEFT JOIN，默认关闭，仅在关联均为一对一时开启
+	 */
+	private boolean countOptimizeJoin = false;
+
 	public String getPage() {
 		return page;
 	}
@@ -71,4 +96,44 @@ public class Page {
 	public void setMaxPageSize(long maxPageSize) {
 		this.maxPageSize = maxPageSize;
 	}
+
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
+	public boolean isParallelCount() {
+		return parallelCount;
+	}
+
+	public void setParallelCount(boolean parallelCount) {
+		this.parallelCount = parallelCount;
+	}
+
+	public int getCountThreads() {
+		return countThreads;
+	}
+
+	public void setCountThreads(int countThreads) {
+		this.countThreads = countThreads;
+	}
+
+	public long getCountCacheTtl() {
+		return countCacheTtl;
+	}
+
+	public void setCountCacheTtl(long countCacheTtl) {
+		this.countCacheTtl = countCacheTtl;
+	}
+
+	public boolean isCountOptimizeJoin() {
+		return countOptimizeJoin;
+	}
+
+	public void setCountOptimizeJoin(boolean countOptimizeJoin) {
+		this.countOptimizeJoin = countOptimizeJoin;
+	}
 }
@@ -0,0 +1,35 @@
+package org.ssssssss.magicapi.core.config;
+
+/**
+ * 读写分离从库配置，从库及负载均衡策略在数据源中配置
+ *
+ * @author mxd
+ */
+public class Replica {
+
+	/**
+	 * 从库健康检查间隔，单位为毫秒，<=0 时不检查
+	 */
+	private long healthCheckInterval = 10000;
+
+	/**
+	 * 从库健康检查超时时间，单位为秒
+	 */
+	private int healthCheckTimeout = 3;
+
+	public long getHealthCheckInterval() {
+		return healthCheckInterval;
+	}
+
+	public void setHealthCheckInterval(long healthCheckInterval) {
+		this.healthCheckInterval = healthCheckInterval;
+	}
+
+	public int getHealthCheckTimeout() {
+		return healthCheckTimeout;
+	}
+
+	public void setHealthCheckTimeout(int healthCheckTimeout) {
+		this.healthCheckTimeout = healthCheckTimeout;
+	}
+}
@@ -23,6 +23,11 @@ public class ResponseCode {
 	 */
 	private int exception = -1;
 
+	/**
+	 * 超出并发限制被拒绝时的code值
+	 */
+	private int rejected = -1;
+
 	public int getSuccess() {
 		return success;
 	}
@@ -46,4 +51,12 @@ public class ResponseCode {
 	public void setException(int exception) {
 		this.exception = exception;
 	}
+
+	public int getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(int rejected) {
+		this.rejected = rejected;
+	}
 }
@@ -6,20 +6,25 @@ import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
 import java.util.HashMap;
 
 /**
- * Cookie Context 用于脚本中获取cookie信息
+ * Cookie Context 用于脚本中获取cookie信息，首次读取时才解析 cookie
  *
  * @author mxd
  */
 public class CookieContext extends HashMap<String, String> {
 
-	private final MagicCookie[] cookies;
+	private final MagicHttpServletRequest request;
+
+	private MagicCookie[] cookies;
 
 	public CookieContext(MagicHttpServletRequest request) {
-		 this.cookies = request.getCookies();
+		this.request = request;
 	}
 
 	@Override
 	public String get(Object key) {
+		if (cookies == null) {
+			cookies = request.getCookies();
+		}
 		if (cookies != null) {
 			for (MagicCookie cookie : cookies) {
 				if (cookie.getName().equalsIgnoreCase("" + key)) {
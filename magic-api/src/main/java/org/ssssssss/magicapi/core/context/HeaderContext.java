@@ -0,0 +1,83 @@
+package org.ssssssss.magicapi.core.context;
+
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
+
+import java.util.AbstractMap;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Header Context 用于脚本中获取header信息（不区分大小写）
+ * <p>
+ * 按名称读取时直接从 request 中获取，只有遍历或修改时才复制全部 header。
+ *
+ * @author mxd
+ */
+public class HeaderContext extends AbstractMap<String, Object> {
+
+	private final MagicHttpServletRequest request;
+
+	private Map<String, Object> headers;
+
+	public HeaderContext(MagicHttpServletRequest request) {
+		this.request = request;
+	}
+
+	private Map<String, Object> headers() {
+		if (headers == null) {
+			Map<String, Object> headers = new LinkedCaseInsensitiveMap<>();
+			Enumeration<String> names = request.getHeaderNames();
+			if (names != null) {
+				while (names.hasMoreElements()) {
+					String name = names.nextElement();
+					headers.putIfAbsent(name, request.getHeader(name));
+				}
+			}
+			this.headers = headers;
+		}
+		return headers;
+	}
+
+	@Override
+	public Object get(Object key) {
+		if (headers == null) {
+			return key == null ? null : request.getHeader(key.toString());
+		}
+		return headers.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (headers == null) {
+			return key != null && request.getHeader(key.toString()) != null;
+		}
+		return headers.containsKey(key);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		return headers().put(key, value);
+	}
+
+	@Override
+	public Object remove(Object key) {
+		return headers().remove(key);
+	}
+
+	@Override
+	public void clear() {
+		headers().clear();
+	}
+
+	@Override
+	public int size() {
+		return headers().size();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return headers().entrySet();
+	}
+}
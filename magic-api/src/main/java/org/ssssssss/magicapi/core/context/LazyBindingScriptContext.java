@@ -0,0 +1,88 @@
+package org.ssssssss.magicapi.core.context;
+
+import org.ssssssss.script.MagicScriptContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 支持延迟绑定变量的脚本上下文
+ * <p>
+ * 通过 {@link #bind(String, Supplier)} 绑定的变量在脚本首次访问时才求值，之后通过 set 设置同名变量会覆盖绑定。
+ *
+ * @author mxd
+ */
+public class LazyBindingScriptContext extends MagicScriptContext {
+
+	private final Map<String, LazyValue> bindings = new ConcurrentHashMap<>(8);
+
+	/**
+	 * 绑定变量，上下文不支持延迟绑定时立即求值
+	 */
+	public static void bind(MagicScriptContext context, String name, Supplier<?> supplier) {
+		if (context instanceof LazyBindingScriptContext) {
+			((LazyBindingScriptContext) context).bind(name, supplier);
+		} else {
+			Object value = supplier.get();
+			if (value != null) {
+				context.set(name, value);
+			}
+		}
+	}
+
+	public void bind(String name, Supplier<?> supplier) {
+		bindings.put(name, new LazyValue(supplier));
+	}
+
+	@Override
+	public Object get(String name) {
+		if (!bindings.isEmpty()) {
+			LazyValue value = bindings.get(name);
+			if (value != null) {
+				return value.get();
+			}
+		}
+		return super.get(name);
+	}
+
+	@Override
+	public MagicScriptContext set(String name, Object value) {
+		bindings.remove(name);
+		return super.set(name, value);
+	}
+
+	@Override
+	public Map<String, Object> getRootVariables() {
+		if (!bindings.isEmpty()) {
+			// 需要完整变量时全部求值
+			bindings.forEach((name, value) -> {
+				Object result = value.get();
+				if (result != null) {
+					super.set(name, result);
+				}
+			});
+			bindings.clear();
+		}
+		return super.getRootVariables();
+	}
+
+	private static class LazyValue {
+
+		private Supplier<?> supplier;
+
+		private Object value;
+
+		LazyValue(Supplier<?> supplier) {
+			this.supplier = supplier;
+		}
+
+		synchronized Object get() {
+			if (supplier != null) {
+				value = supplier.get();
+				supplier = null;
+			}
+			return value;
+		}
+	}
+}
@@ -6,8 +6,14 @@ import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
 import org.ssssssss.magicapi.core.servlet.MagicHttpServletResponse;
 import org.ssssssss.script.MagicScriptContext;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * 请求信息
@@ -17,6 +23,7 @@ import java.util.UUID;
 public class RequestEntity {
 
 	private final Long requestTime = System.currentTimeMillis();
+	private final long requestNanoTime = System.nanoTime();
 	private final String requestId = UUID.randomUUID().toString().replace("-", "");
 	private ApiInfo apiInfo;
 	private MagicHttpServletRequest request;
@@ -26,7 +33,12 @@ public class RequestEntity {
 	private Map<String, Object> pathVariables;
 	private MagicScriptContext magicScriptContext;
 	private Object requestBody;
+	private Supplier<Object> requestBodySupplier;
 	private DebugRequest debugRequest;
+	private boolean coalesced;
+	private List<AutoCloseable> closeables;
+	private Set<String> writtenDataSources;
+	private final AtomicBoolean responseClaimed = new AtomicBoolean();
 
 	private Map<String, Object> headers;
 
@@ -101,6 +113,13 @@ public class RequestEntity {
 		return requestTime;
 	}
 
+	/**
+	 * 请求开始时的 {@link System#nanoTime()}，用于计算耗时
+	 */
+	public long getRequestNanoTime() {
+		return requestNanoTime;
+	}
+
 	public MagicScriptContext getMagicScriptContext() {
 		return magicScriptContext;
 	}
@@ -127,15 +146,97 @@ public class RequestEntity {
 	 * 获取 RequestBody
 	 */
 	public Object getRequestBody() {
+		if (this.requestBodySupplier != null) {
+			Supplier<Object> supplier = this.requestBodySupplier;
+			this.requestBodySupplier = null;
+			this.requestBody = supplier.get();
+		}
 		return this.requestBody;
 	}
 
 	public RequestEntity setRequestBody(Object requestBody) {
 		this.requestBody = requestBody;
+		this.requestBodySupplier = null;
+		return this;
+	}
+
+	/**
+	 * 设置 RequestBody 的读取方式，首次获取时才读取
+	 */
+	public RequestEntity requestBody(Supplier<Object> requestBodySupplier) {
+		this.requestBody = null;
+		this.requestBodySupplier = requestBodySupplier;
 		return this;
 	}
 
 	public DebugRequest getDebugRequest() {
 		return debugRequest;
 	}
+
+	/**
+	 * 是否与其它相同请求合并执行（共享其它请求的执行结果）
+	 */
+	public boolean isCoalesced() {
+		return coalesced;
+	}
+
+	public RequestEntity coalesced(boolean coalesced) {
+		this.coalesced = coalesced;
+		return this;
+	}
+
+	/**
+	 * 占用响应输出流，异步执行超时与流式输出只有一方可以写出响应
+	 *
+	 * @return 是否占用成功
+	 */
+	public boolean claimResponse() {
+		return responseClaimed.compareAndSet(false, true);
+	}
+
+	/**
+	 * 注册请求结束时需要关闭的资源，如流式查询的游标
+	 */
+	public synchronized void addCloseable(AutoCloseable closeable) {
+		if (this.closeables == null) {
+			this.closeables = new ArrayList<>();
+		}
+		this.closeables.add(closeable);
+	}
+
+	/**
+	 * 记录本次请求写入过的数据源，之后的查询使用主库
+	 */
+	public synchronized void markWritten(String dataSourceKey) {
+		if (this.writtenDataSources == null) {
+			this.writtenDataSources = new HashSet<>();
+		}
+		this.writtenDataSources.add(dataSourceKey);
+	}
+
+	/**
+	 * 本次请求是否写入过该数据源
+	 */
+	public synchronized boolean hasWritten(String dataSourceKey) {
+		return this.writtenDataSources != null && this.writtenDataSources.contains(dataSourceKey);
+	}
+
+	/**
+	 * 关闭请求中注册的资源
+	 */
+	public void closeResources() {
+		List<AutoCloseable> closeables;
+		synchronized (this) {
+			closeables = this.closeables;
+			this.closeables = null;
+		}
+		if (closeables != null) {
+			for (AutoCloseable closeable : closeables) {
+				try {
+					closeable.close();
+				} catch (Exception ignored) {
+				}
+			}
+		}
+	}
 }
@@ -1,29 +1,48 @@
 package org.ssssssss.magicapi.core.context;
 
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
 import org.ssssssss.magicapi.core.servlet.MagicHttpSession;
 
 import java.util.HashMap;
 
 /**
  * Session Context 用于脚本中获取Session信息
+ * <p>
+ * 通过 request 创建时，读取不会创建 Session，只有写入时才会创建。
  *
  * @author mxd
  */
 public class SessionContext extends HashMap<String, Object> {
 
-	private final MagicHttpSession session;
+	private final MagicHttpServletRequest request;
+
+	private MagicHttpSession session;
 
 	public SessionContext(MagicHttpSession session) {
+		this.request = null;
 		this.session = session;
 	}
 
+	public SessionContext(MagicHttpServletRequest request) {
+		this.request = request;
+	}
+
+	private MagicHttpSession getSession(boolean create) {
+		if (session == null && request != null) {
+			session = request.getSession(create);
+		}
+		return session;
+	}
+
 	@Override
 	public Object get(Object key) {
+		MagicHttpSession session = getSession(false);
 		return session != null ? session.getAttribute(key.toString()) : null;
 	}
 
 	@Override
 	public Object put(String key, Object value) {
+		MagicHttpSession session = getSession(true);
 		Object oldValue = session.getAttribute(key);
 		session.setAttribute(key, value);
 		return oldValue;
@@ -0,0 +1,25 @@
+package org.ssssssss.magicapi.core.event;
+
+import org.ssssssss.magicapi.core.config.Constants;
+
+/**
+ * SQL缓存删除事件，用于集群中同步删除各实例的本地缓存
+ *
+ * @author mxd
+ */
+public class SqlCacheEvent extends MagicEvent {
+
+	/**
+	 * 缓存名称
+	 */
+	private final String name;
+
+	public SqlCacheEvent(String name, String source) {
+		super(Constants.EVENT_TYPE_SQL_CACHE, EventAction.DELETE, source);
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,13 @@
+package org.ssssssss.magicapi.core.exception;
+
+/**
+ * 超出并发限制异常
+ *
+ * @author mxd
+ */
+public class ConcurrencyLimitException extends MagicAPIException {
+
+	public ConcurrencyLimitException(String message) {
+		super(message);
+	}
+}
@@ -56,6 +56,9 @@ public interface RequestInterceptor {
 
 	/**
 	 * 执行完毕之后执行
+	 * <p>
+	 * 开启接口响应缓存（cache_ttl）时缓存的是此方法处理后的结果，命中缓存时不再调用，
+	 * 按用户改写结果时需保持缓存按用户区分（默认行为）
 	 *
 	 * @param requestEntity 请求对象
 	 * @param returnValue   即将要返回到页面的值
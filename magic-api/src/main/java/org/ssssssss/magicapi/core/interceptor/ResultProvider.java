@@ -2,6 +2,7 @@ package org.ssssssss.magicapi.core.interceptor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.ssssssss.magicapi.modules.db.model.CursorPageResult;
 import org.ssssssss.magicapi.modules.db.model.Page;
 import org.ssssssss.magicapi.modules.db.model.PageResult;
 import org.ssssssss.magicapi.core.context.RequestEntity;
@@ -109,4 +110,18 @@ public interface ResultProvider {
 		return new PageResult<>(total, data);
 	}
 
+	/**
+	 * 构建不查询总数的分页结果
+	 *
+	 * @param requestEntity 请求相关信息
+	 * @param page          分页对象
+	 * @param hasMore       是否还有下一页
+	 * @param cursor        下一页的游标，非游标分页时为 null
+	 * @param data          数据内容
+	 * @since 2.2.2
+	 */
+	default Object buildPageResult(RequestEntity requestEntity, Page page, boolean hasMore, String cursor, List<Map<String, Object>> data) {
+		return new CursorPageResult<>(hasMore, cursor, data);
+	}
+
 }
@@ -0,0 +1,81 @@
+package org.ssssssss.magicapi.core.model;
+
+import org.ssssssss.magicapi.core.service.MagicResourceService;
+
+import java.util.*;
+
+/**
+ * 接口生效配置（不可变）
+ * <p>
+ * 预先合并分组继承的选项、路径变量以及脚本名称，接口或所在分组变化时重新生成，请求时无需再查找分组。
+ *
+ * @author mxd
+ */
+public class EffectiveApiInfo {
+
+	private final ApiInfo info;
+
+	/**
+	 * 合并分组后的接口选项，接口自身优先，其次由近及远的分组
+	 */
+	private final Map<String, String> options;
+
+	/**
+	 * 合并分组后的路径变量
+	 */
+	private final List<Path> paths;
+
+	/**
+	 * 脚本名称
+	 */
+	private final String scriptName;
+
+	private EffectiveApiInfo(ApiInfo info, Map<String, String> options, List<Path> paths, String scriptName) {
+		this.info = info;
+		this.options = options;
+		this.paths = paths;
+		this.scriptName = scriptName;
+	}
+
+	public static EffectiveApiInfo resolve(ApiInfo info, MagicResourceService resourceService) {
+		List<Group> groups = resourceService.getGroupsByFileId(info.getId());
+		Map<String, String> options = new HashMap<>();
+		info.getOptions().forEach(option -> putOption(options, option));
+		List<Path> paths = new ArrayList<>(info.getPaths());
+		for (Group group : groups) {
+			group.getOptions().forEach(option -> putOption(options, option));
+			group.getPaths().stream().filter(it -> !paths.contains(it)).forEach(paths::add);
+		}
+		return new EffectiveApiInfo(info, Collections.unmodifiableMap(options), Collections.unmodifiableList(paths), resourceService.getScriptName(info));
+	}
+
+	private static void putOption(Map<String, String> options, BaseDefinition option) {
+		if (option.getName() != null && !options.containsKey(option.getName())) {
+			options.put(option.getName(), Objects.toString(option.getValue(), null));
+		}
+	}
+
+	public ApiInfo getApiInfo() {
+		return info;
+	}
+
+	public String getOptionValue(Options option) {
+		return options.get(option.getValue());
+	}
+
+	public String getOptionValue(String key) {
+		return options.get(key);
+	}
+
+	public Map<String, String> getOptions() {
+		return options;
+	}
+
+	public List<Path> getPaths() {
+		return paths;
+	}
+
+	public String getScriptName() {
+		return scriptName;
+	}
+}
@@ -55,7 +55,65 @@ public enum Options {
 	/**
 	 * 禁止验证requestBody
 	 */
-	DISABLED_VALIDATE_REQUEST_BODY("禁止验证RequestBody", "disabled_validate_request_body", "false");
+	DISABLED_VALIDATE_REQUEST_BODY("禁止验证RequestBody", "disabled_validate_request_body", "false"),
+
+	/**
+	 * 异步执行接口，未配置时采用全局配置
+	 */
+	ASYNC("异步执行接口", "async", "true"),
+
+	/**
+	 * 最大并发数，未配置时采用全局配置，0 为不限制
+	 */
+	MAX_CONCURRENT("最大并发数", "max_concurrent"),
+
+	/**
+	 * 达到最大并发数时的最大排队数，未配置时采用全局配置
+	 */
+	MAX_WAITING("最大排队数", "max_waiting"),
+
+	/**
+	 * 接口响应缓存时间，单位为毫秒，只缓存 GET 请求。缓存的是执行 postHandle 拦截器后的响应，
+	 * 命中缓存时不再执行脚本及 postHandle，preHandle 与 afterCompletion 仍会执行
+	 */
+	CACHE_TTL("接口缓存时间(毫秒)", "cache_ttl"),
+
+	/**
+	 * 参与缓存key的参数，多个用,分隔，未配置时使用全部参数
+	 */
+	CACHE_KEY_PARAMETERS("缓存key参数(多个用,分隔)", "cache_key_parameters"),
+
+	/**
+	 * 参与缓存key的header，多个用,分隔
+	 */
+	CACHE_VARY_HEADERS("缓存key header(多个用,分隔)", "cache_vary_headers"),
+
+	/**
+	 * 关联的SQL缓存名称，多个用,分隔，对应的SQL缓存删除时同时清除接口缓存
+	 */
+	CACHE_DEPEND_NAMES("关联的SQL缓存名称(多个用,分隔)", "cache_depend_names"),
+
+	/**
+	 * 不同用户共享接口响应缓存，默认按 Authorization、Cookie 及名称包含 token 的 header 区分用户，
+	 * 只有响应与用户无关时才可开启
+	 */
+	CACHE_SHARED("不同用户共享缓存", "cache_shared", "true"),
+
+	/**
+	 * 合并相同的并发 GET 请求，只执行一次脚本并共享结果，key 规则与接口响应缓存一致，
+	 * 并区分 Authorization、Cookie 及名称包含 token 的 header，不同用户的请求不会合并
+	 */
+	COALESCE("合并相同请求", "coalesce", "true"),
+
+	/**
+	 * 合并请求时最多等待的请求数，超出时单独执行，未配置时为 100，0 为不限制
+	 */
+	COALESCE_MAX_WAITERS("合并请求最大等待数", "coalesce_max_waiters"),
+
+	/**
+	 * 合并请求时最长等待时间，单位为毫秒，超时后单独执行，未配置时为 10000
+	 */
+	COALESCE_TIMEOUT("合并请求最长等待时间", "coalesce_timeout");
 
 	private final String name;
 	private final String value;
@@ -0,0 +1,108 @@
+package org.ssssssss.magicapi.core.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式输出的结果，如脚本返回的查询游标
+ * <p>
+ * 输出为JSON时作为结果中的 data 逐行写出，输出为CSV时直接写出表格内容，不会一次性加载全部数据。
+ *
+ * @author mxd
+ */
+public class StreamingResult implements JsonSerializable, Closeable {
+
+	/**
+	 * 每写出多少行刷新一次输出流
+	 */
+	public static final int FLUSH_ROWS = 1000;
+
+	private final Iterable<Map<String, Object>> rows;
+
+	private final Format format;
+
+	private final String filename;
+
+	public StreamingResult(Iterable<Map<String, Object>> rows, Format format, String filename) {
+		this.rows = rows;
+		this.format = format;
+		this.filename = filename;
+	}
+
+	public static StreamingResult json(Iterable<Map<String, Object>> rows) {
+		return new StreamingResult(rows, Format.JSON, null);
+	}
+
+	public Iterable<Map<String, Object>> getRows() {
+		return rows;
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * 读取全部数据，用于结果需要被多个请求共享时
+	 */
+	public StreamingResult materialize() {
+		List<Map<String, Object>> list = new ArrayList<>();
+		try {
+			rows.forEach(list::add);
+		} finally {
+			close();
+		}
+		return new StreamingResult(list, format, filename);
+	}
+
+	@Override
+	public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+		gen.writeStartArray();
+		try {
+			int count = 0;
+			for (Map<String, Object> row : rows) {
+				serializers.defaultSerializeValue(row, gen);
+				if (++count % FLUSH_ROWS == 0) {
+					gen.flush();
+				}
+			}
+		} finally {
+			close();
+		}
+		gen.writeEndArray();
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+		// 数据行为普通的 Map，不输出类型信息
+		serialize(gen, serializers);
+	}
+
+	/**
+	 * 关闭数据来源（如游标），可重复调用
+	 */
+	@Override
+	public void close() {
+		if (rows instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) rows).close();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
+	public enum Format {
+		JSON, CSV
+	}
+}
@@ -0,0 +1,241 @@
+package org.ssssssss.magicapi.core.service.impl;
+
+import org.ssssssss.magicapi.core.config.MagicConfiguration;
+import org.ssssssss.magicapi.core.model.ApiInfo;
+import org.ssssssss.magicapi.core.service.MagicResourceService;
+import org.ssssssss.magicapi.utils.LatencyHistogram;
+import org.ssssssss.magicapi.utils.PathUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 接口调用统计，按接口ID记录调用次数及各阶段耗时
+ *
+ * @author mxd
+ */
+public class ApiMetrics {
+
+	private final Map<String, ApiMetric> metrics = new ConcurrentHashMap<>();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile boolean enabled = true;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+		metrics.values().forEach(listener::onCreate);
+	}
+
+	/**
+	 * 获取接口的统计，未启用时返回 null
+	 */
+	public ApiMetric get(ApiInfo info) {
+		if (!enabled || info == null) {
+			return null;
+		}
+		ApiMetric metric = metrics.get(info.getId());
+		if (metric == null) {
+			ApiMetric created = new ApiMetric(info);
+			metric = metrics.putIfAbsent(info.getId(), created);
+			if (metric == null) {
+				metric = created;
+				listeners.forEach(listener -> listener.onCreate(created));
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * 删除接口的统计
+	 */
+	public void remove(String id) {
+		ApiMetric metric = id == null ? null : metrics.remove(id);
+		if (metric != null) {
+			listeners.forEach(listener -> listener.onRemove(metric));
+		}
+	}
+
+	public List<Map<String, Object>> stats() {
+		return metrics.values().stream()
+				.sorted(Comparator.comparing(ApiMetric::getPath))
+				.map(ApiMetric::stats)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * 请求处理阶段
+	 */
+	public enum Phase {
+
+		/**
+		 * 参数验证
+		 */
+		VALIDATION("validation"),
+
+		/**
+		 * 前置拦截器
+		 */
+		PRE_HANDLE("preHandle"),
+
+		/**
+		 * 脚本执行
+		 */
+		SCRIPT("script"),
+
+		/**
+		 * 后置拦截器及结果包装
+		 */
+		POST_HANDLE("postHandle"),
+
+		/**
+		 * 结果序列化（仅缓存响应时在接口内序列化）
+		 */
+		SERIALIZATION("serialization");
+
+		private final String value;
+
+		Phase(String value) {
+			this.value = value;
+		}
+
+		public String getValue() {
+			return value;
+		}
+	}
+
+	/**
+	 * 统计创建或删除时的回调，用于对接外部监控系统
+	 */
+	public interface Listener {
+
+		void onCreate(ApiMetric metric);
+
+		void onRemove(ApiMetric metric);
+	}
+
+	/**
+	 * 单个接口的统计
+	 */
+	public static class ApiMetric {
+
+		private final String id;
+
+		private final String method;
+
+		private final String path;
+
+		private final String group;
+
+		private final LongAdder calls = new LongAdder();
+
+		private final LongAdder errors = new LongAdder();
+
+		private final LongAdder validationFailures = new LongAdder();
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+		ApiMetric(ApiInfo info) {
+			MagicResourceService resourceService = MagicConfiguration.getMagicResourceService();
+			this.id = info.getId();
+			this.method = info.getMethod();
+			this.path = PathUtils.replaceSlash("/" + Objects.toString(resourceService.getGroupPath(info.getGroupId()), "") + "/" + Objects.toString(info.getPath(), ""));
+			this.group = Objects.toString(resourceService.getGroupName(info.getGroupId()), "");
+			for (int i = 0; i < phases.length; i++) {
+				phases[i] = new LatencyHistogram();
+			}
+		}
+
+		/**
+		 * 记录一次调用
+		 *
+		 * @param nanos 总耗时，单位为纳秒
+		 * @param error 是否出错
+		 */
+		public void record(long nanos, boolean error) {
+			calls.increment();
+			if (error) {
+				errors.increment();
+			}
+			latency.record(nanos);
+		}
+
+		/**
+		 * 记录阶段耗时
+		 */
+		public void record(Phase phase, long nanos) {
+			phases[phase.ordinal()].record(nanos);
+		}
+
+		public void validationFailed() {
+			validationFailures.increment();
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public String getGroup() {
+			return group;
+		}
+
+		public long getCalls() {
+			return calls.sum();
+		}
+
+		public long getErrors() {
+			return errors.sum();
+		}
+
+		public long getValidationFailures() {
+			return validationFailures.sum();
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		public LatencyHistogram getLatency(Phase phase) {
+			return phases[phase.ordinal()];
+		}
+
+		public Map<String, Object> stats() {
+			Map<String, Object> stats = new LinkedHashMap<>();
+			stats.put("id", id);
+			stats.put("method", method);
+			stats.put("path", path);
+			stats.put("group", group);
+			stats.put("calls", getCalls());
+			stats.put("errors", getErrors());
+			stats.put("validationFailures", getValidationFailures());
+			stats.put("latency", latency.stats());
+			Map<String, Object> phaseStats = new LinkedHashMap<>();
+			for (Phase phase : Phase.values()) {
+				phaseStats.put(phase.getValue(), getLatency(phase).stats());
+			}
+			stats.put("phases", phaseStats);
+			return stats;
+		}
+	}
+}
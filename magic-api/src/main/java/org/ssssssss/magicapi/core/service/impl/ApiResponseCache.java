@@ -0,0 +1,184 @@
+package org.ssssssss.magicapi.core.service.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口响应缓存
+ * <p>
+ * 按接口ID分别保存已序列化的响应内容，每个接口按LRU淘汰，接口变化或关联的SQL缓存删除时清除。
+ *
+ * @author mxd
+ */
+public class ApiResponseCache {
+
+	/**
+	 * 每个接口最多缓存的条数
+	 */
+	private final int capacity;
+
+	private final Map<String, Entries> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * SQL缓存名称与接口ID的关联
+	 */
+	private final Map<String, Set<String>> dependencies = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	public ApiResponseCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * 获取缓存的响应，不存在或已过期时返回 null
+	 */
+	public CachedResponse get(String id, String key) {
+		Entries entries = cache.get(id);
+		CachedResponse response = entries == null ? null : entries.get(key);
+		if (response == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return response;
+	}
+
+	/**
+	 * 缓存响应
+	 *
+	 * @param cacheNames 关联的SQL缓存名称
+	 */
+	public void put(String id, String key, CachedResponse response, Collection<String> cacheNames) {
+		cache.computeIfAbsent(id, it -> new Entries(capacity)).put(key, response);
+		for (String cacheName : cacheNames) {
+			dependencies.computeIfAbsent(cacheName, it -> ConcurrentHashMap.newKeySet()).add(id);
+		}
+	}
+
+	/**
+	 * 清除接口的全部缓存
+	 */
+	public void invalidate(String id) {
+		Entries entries = id == null ? null : cache.remove(id);
+		if (entries != null) {
+			evictions.add(entries.size());
+		}
+	}
+
+	/**
+	 * 清除与SQL缓存名称关联的接口缓存
+	 */
+	public void invalidateByCacheName(String cacheName) {
+		Set<String> ids = cacheName == null ? null : dependencies.remove(cacheName);
+		if (ids != null) {
+			ids.forEach(this::invalidate);
+		}
+	}
+
+	public void clear() {
+		new ArrayList<>(cache.keySet()).forEach(this::invalidate);
+		dependencies.clear();
+	}
+
+	/**
+	 * 缓存统计信息
+	 */
+	public Map<String, Object> stats() {
+		long hitCount = hits.sum();
+		long missCount = misses.sum();
+		long total = hitCount + missCount;
+		Map<String, Object> stats = new HashMap<>(8);
+		stats.put("apis", cache.size());
+		stats.put("size", cache.values().stream().mapToInt(Entries::size).sum());
+		stats.put("hits", hitCount);
+		stats.put("misses", missCount);
+		stats.put("evictions", evictions.sum());
+		stats.put("hitRate", total == 0 ? 0 : (double) hitCount / total);
+		return stats;
+	}
+
+	/**
+	 * 单个接口的缓存，按访问顺序淘汰
+	 */
+	private class Entries extends LinkedHashMap<String, CachedResponse> {
+
+		private final int capacity;
+
+		Entries(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		synchronized CachedResponse get(String key) {
+			CachedResponse response = super.get(key);
+			if (response != null && response.isExpired()) {
+				super.remove(key);
+				evictions.increment();
+				return null;
+			}
+			return response;
+		}
+
+		@Override
+		public synchronized CachedResponse put(String key, CachedResponse value) {
+			return super.put(key, value);
+		}
+
+		@Override
+		public synchronized int size() {
+			return super.size();
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * 已序列化的响应
+	 */
+	public static class CachedResponse {
+
+		private final byte[] body;
+
+		private final String contentType;
+
+		private final String etag;
+
+		private final long expireTime;
+
+		public CachedResponse(byte[] body, String contentType, String etag, long ttl) {
+			this.body = body;
+			this.contentType = contentType;
+			this.etag = etag;
+			this.expireTime = System.currentTimeMillis() + ttl;
+		}
+
+		public byte[] getBody() {
+			return body;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		boolean isExpired() {
+			return expireTime < System.currentTimeMillis();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.ssssssss.magicapi.core.service.impl;
+
+import org.ssssssss.magicapi.core.model.ApiInfo;
+import org.ssssssss.script.MagicScript;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口脚本编译缓存
+ * <p>
+ * 按接口ID缓存已创建的 MagicScript，debug与非debug分开缓存，脚本内容变化时自动重建。
+ *
+ * @author mxd
+ */
+public class ApiScriptCache {
+
+	private final Map<String, CachedScript> cache = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * 获取接口对应的脚本
+	 *
+	 * @param info  接口信息
+	 * @param debug 是否为debug模式
+	 */
+	public MagicScript get(ApiInfo info, boolean debug) {
+		String script = info.getScript();
+		CachedScript cached = cache.get(info.getId());
+		if (cached == null || !cached.matches(script)) {
+			cached = new CachedScript(script);
+			cache.put(info.getId(), cached);
+		}
+		MagicScript magicScript = debug ? cached.debug : cached.normal;
+		if (magicScript != null) {
+			hits.increment();
+			return magicScript;
+		}
+		misses.increment();
+		magicScript = MagicScript.create((debug ? MagicScript.DEBUG_MARK : "") + script, null);
+		if (debug) {
+			cached.debug = magicScript;
+		} else {
+			cached.normal = magicScript;
+		}
+		return magicScript;
+	}
+
+	/**
+	 * 移除接口对应的脚本缓存
+	 */
+	public void invalidate(String id) {
+		if (id != null && cache.remove(id) != null) {
+			evictions.increment();
+		}
+	}
+
+	public void clear() {
+		evictions.add(cache.size());
+		cache.clear();
+	}
+
+	/**
+	 * 缓存统计信息
+	 */
+	public Map<String, Object> stats() {
+		long hitCount = hits.sum();
+		long missCount = misses.sum();
+		long total = hitCount + missCount;
+		Map<String, Object> stats = new HashMap<>(8);
+		stats.put("size", cache.size());
+		stats.put("hits", hitCount);
+		stats.put("misses", missCount);
+		stats.put("evictions", evictions.sum());
+		stats.put("hitRate", total == 0 ? 0 : (double) hitCount / total);
+		return stats;
+	}
+
+	private static class CachedScript {
+
+		private final String script;
+
+		private final int hash;
+
+		private volatile MagicScript normal;
+
+		private volatile MagicScript debug;
+
+		CachedScript(String script) {
+			this.script = script;
+			this.hash = Objects.hashCode(script);
+		}
+
+		boolean matches(String script) {
+			return this.script == script || (this.hash == Objects.hashCode(script) && Objects.equals(this.script, script));
+		}
+	}
+}
@@ -18,6 +18,7 @@ import org.ssssssss.magicapi.core.config.WebSocketSessionManager;
 import org.ssssssss.magicapi.core.context.RequestEntity;
 import org.ssssssss.magicapi.core.event.EventAction;
 import org.ssssssss.magicapi.core.event.MagicEvent;
+import org.ssssssss.magicapi.core.event.SqlCacheEvent;
 import org.ssssssss.magicapi.core.exception.MagicAPIException;
 import org.ssssssss.magicapi.core.handler.MagicWebSocketDispatcher;
 import org.ssssssss.magicapi.core.interceptor.ResultProvider;
@@ -84,6 +85,9 @@ public class DefaultMagicAPIService implements MagicAPIService, JsonCodeConstant
 		if (requestEntity != null) {
 			requestEntity.setMagicScriptContext(scriptContext);
 		}
+		if (info instanceof ApiInfo) {
+			return (T) requestMagicDynamicRegistry.getScriptCache().get((ApiInfo) info, false).execute(scriptContext);
+		}
 		return (T) ScriptManager.executeScript(info.getScript(), scriptContext);
 	}
 
@@ -180,6 +184,10 @@ public class DefaultMagicAPIService implements MagicAPIService, JsonCodeConstant
 			return false;
 		}
 		logger.debug("收到通知消息:{}", magicNotify);
+		if (Constants.EVENT_TYPE_SQL_CACHE.equals(magicNotify.getType())) {
+			publisher.publishEvent(new SqlCacheEvent(magicNotify.getId(), Constants.EVENT_SOURCE_NOTIFY));
+			return true;
+		}
 		switch (magicNotify.getAction()) {
 			case WS_C_S:
 				return processWebSocketMessageReceived(magicNotify.getClientId(), magicNotify.getContent());
@@ -0,0 +1,131 @@
+package org.ssssssss.magicapi.core.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 相同请求合并（single-flight）
+ * <p>
+ * key 相同的并发请求只执行一次，其余请求等待并共享执行结果，执行出错时所有等待的请求都会收到该异常。
+ * 等待超时或超出等待数限制的请求单独执行。
+ *
+ * @author mxd
+ */
+public class RequestCoalescer {
+
+	/**
+	 * 默认最大等待数
+	 */
+	public static final int DEFAULT_MAX_WAITERS = 100;
+
+	/**
+	 * 默认最长等待时间，单位为毫秒
+	 */
+	public static final long DEFAULT_TIMEOUT = 10000;
+
+	private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+	/**
+	 * 实际执行次数
+	 */
+	private final LongAdder executions = new LongAdder();
+
+	/**
+	 * 被合并的请求数
+	 */
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * 超出等待数限制而单独执行的请求数
+	 */
+	private final LongAdder overflows = new LongAdder();
+
+	/**
+	 * 等待超时而单独执行的请求数
+	 */
+	private final LongAdder timeouts = new LongAdder();
+
+	/**
+	 * 执行或等待相同 key 正在执行的结果
+	 *
+	 * @param key        请求key
+	 * @param maxWaiters 最大等待数，<=0 时不限制，超出时单独执行
+	 * @param timeout    最长等待时间，单位为毫秒，<=0 时一直等待，超时后单独执行
+	 * @param callable   执行逻辑，只有实际执行时才会调用
+	 */
+	public Object execute(String key, int maxWaiters, long timeout, Callable<Object> callable) throws Throwable {
+		Flight flight = new Flight();
+		Flight existing = flights.putIfAbsent(key, flight);
+		if (existing != null) {
+			if (existing.attach(maxWaiters)) {
+				try {
+					Object result = existing.await(timeout);
+					coalesced.increment();
+					return result;
+				} catch (TimeoutException e) {
+					existing.detach();
+					timeouts.increment();
+					return callable.call();
+				}
+			}
+			overflows.increment();
+			return callable.call();
+		}
+		executions.increment();
+		Object result;
+		try {
+			result = callable.call();
+		} catch (Throwable e) {
+			flights.remove(key, flight);
+			flight.future.completeExceptionally(e);
+			throw e;
+		}
+		flights.remove(key, flight);
+		flight.future.complete(result);
+		return result;
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new HashMap<>(8);
+		stats.put("inFlight", flights.size());
+		stats.put("executions", executions.sum());
+		stats.put("coalesced", coalesced.sum());
+		stats.put("overflows", overflows.sum());
+		stats.put("timeouts", timeouts.sum());
+		return stats;
+	}
+
+	private static class Flight {
+
+		private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+		private final AtomicInteger waiters = new AtomicInteger();
+
+		boolean attach(int maxWaiters) {
+			if (maxWaiters <= 0) {
+				waiters.incrementAndGet();
+				return true;
+			}
+			if (waiters.incrementAndGet() <= maxWaiters) {
+				return true;
+			}
+			waiters.decrementAndGet();
+			return false;
+		}
+
+		void detach() {
+			waiters.decrementAndGet();
+		}
+
+		Object await(long timeout) throws Throwable {
+			try {
+				return timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+			} catch (ExecutionException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
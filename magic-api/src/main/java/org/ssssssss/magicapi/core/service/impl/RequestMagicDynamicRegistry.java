@@ -1,6 +1,7 @@
 package org.ssssssss.magicapi.core.service.impl;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
@@ -10,16 +11,22 @@ import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import org.ssssssss.magicapi.core.config.MagicConfiguration;
 import org.ssssssss.magicapi.core.event.FileEvent;
 import org.ssssssss.magicapi.core.event.GroupEvent;
+import org.ssssssss.magicapi.core.event.SqlCacheEvent;
 import org.ssssssss.magicapi.core.exception.InvalidArgumentException;
 import org.ssssssss.magicapi.core.model.ApiInfo;
+import org.ssssssss.magicapi.core.model.EffectiveApiInfo;
+import org.ssssssss.magicapi.core.model.Options;
 import org.ssssssss.magicapi.core.service.AbstractMagicDynamicRegistry;
 import org.ssssssss.magicapi.core.service.MagicResourceStorage;
 import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
 import org.ssssssss.magicapi.core.servlet.MagicHttpServletResponse;
 import org.ssssssss.magicapi.core.web.RequestHandler;
+import org.ssssssss.magicapi.core.web.ResponseCachePolicy;
+import org.ssssssss.magicapi.core.web.ValidationPlan;
+import org.ssssssss.magicapi.utils.ConcurrencyLimiter;
 import org.ssssssss.magicapi.utils.Mapping;
 import org.ssssssss.magicapi.utils.PathUtils;
-import org.ssssssss.magicapi.utils.ScriptManager;
+import org.ssssssss.magicapi.utils.RadixTreeRouter;
 import org.ssssssss.script.MagicResourceLoader;
 import org.ssssssss.script.MagicScriptContext;
 import org.ssssssss.script.exception.MagicExitException;
@@ -27,9 +34,8 @@ import org.ssssssss.script.runtime.ExitValue;
 import org.ssssssss.script.runtime.function.MagicScriptLambdaFunction;
 
 import java.lang.reflect.Method;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.ssssssss.magicapi.core.config.JsonCodeConstants.REQUEST_PATH_CONFLICT;
 
@@ -39,7 +45,9 @@ public class RequestMagicDynamicRegistry extends AbstractMagicDynamicRegistry<Ap
 
 	private Object handler;
 
-	private final Method method = RequestHandler.class.getDeclaredMethod("invoke", MagicHttpServletRequest.class, MagicHttpServletResponse.class, Map.class, Map.class, Map.class);
+	private final Method method = RequestHandler.class.getDeclaredMethod("invoke", MagicHttpServletRequest.class, MagicHttpServletResponse.class, Map.class, Map.class);
+
+	private final Method routeMethod = RequestHandler.class.getDeclaredMethod("route", MagicHttpServletRequest.class, MagicHttpServletResponse.class, Map.class);
 
 	private static final Logger logger = LoggerFactory.getLogger(RequestMagicDynamicRegistry.class);
 
@@ -47,11 +55,74 @@ public class RequestMagicDynamicRegistry extends AbstractMagicDynamicRegistry<Ap
 
 	private final String prefix;
 
+	/**
+	 * 接口脚本编译缓存
+	 */
+	private final ApiScriptCache scriptCache = new ApiScriptCache();
+
+	/**
+	 * 接口生效配置
+	 */
+	private final Map<String, EffectiveApiInfo> effectiveApiInfos = new ConcurrentHashMap<>();
+
+	/**
+	 * 接口响应缓存
+	 */
+	private ApiResponseCache responseCache = new ApiResponseCache(1000);
+
+	/**
+	 * 接口调用统计
+	 */
+	private final ApiMetrics apiMetrics = new ApiMetrics();
+
+	/**
+	 * 相同请求合并
+	 */
+	private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+	/**
+	 * 接口响应缓存策略
+	 */
+	private final Map<String, ResponseCachePolicy> responseCachePolicies = new ConcurrentHashMap<>();
+
+	/**
+	 * 接口参数验证计划
+	 */
+	private final Map<String, ValidationPlan> validationPlans = new ConcurrentHashMap<>();
+
+	/**
+	 * 前缀树路由，未开启时为null
+	 */
+	private final RadixTreeRouter<String> router;
+
+	private final String routePrefix;
+
+	/**
+	 * 接口并发隔离
+	 */
+	private final Map<String, ConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+
+	private int defaultMaxConcurrent = 0;
+
+	private int defaultMaxWaiting = 0;
+
+	private long waitTimeout = 1000;
+
 	public RequestMagicDynamicRegistry(MagicResourceStorage<ApiInfo> magicResourceStorage, Mapping mapping, boolean allowOverride, String prefix) throws NoSuchMethodException {
+		this(magicResourceStorage, mapping, allowOverride, prefix, false);
+	}
+
+	public RequestMagicDynamicRegistry(MagicResourceStorage<ApiInfo> magicResourceStorage, Mapping mapping, boolean allowOverride, String prefix, boolean treeRouter) throws NoSuchMethodException {
 		super(magicResourceStorage);
 		this.mapping = mapping;
 		this.allowOverride = allowOverride;
 		this.prefix = StringUtils.defaultIfBlank(prefix, "") + "/";
+		this.routePrefix = PathUtils.replaceSlash(this.prefix);
+		if (treeRouter && "/".equals(this.routePrefix)) {
+			logger.warn("未配置接口前缀(magic-api.prefix)，无法启用前缀树路由，采用默认路由方式");
+			treeRouter = false;
+		}
+		this.router = treeRouter ? new RadixTreeRouter<>() : null;
 		MagicResourceLoader.addFunctionLoader(this::lookupLambdaFunction);
 	}
 
@@ -62,14 +133,14 @@ public class RequestMagicDynamicRegistry extends AbstractMagicDynamicRegistry<Ap
 			String path = name.substring(index + 1);
 			ApiInfo info = getMapping(method.toUpperCase() + ":" + PathUtils.replaceSlash(this.prefix + path));
 			if (info != null) {
-				String scriptName = MagicConfiguration.getMagicResourceService().getScriptName(info);
+				String scriptName = getEffectiveApiInfo(info).getScriptName();
 				return (MagicScriptLambdaFunction) (variables, args) -> {
 					MagicScriptContext newContext = new MagicScriptContext();
 					Map<String, Object> varMap = new LinkedHashMap<>(context.getRootVariables());
 					varMap.putAll(variables.getVariables(context));
 					newContext.setScriptName(scriptName);
 					newContext.putMapIntoContext(varMap);
-					Object value = ScriptManager.executeScript(info.getScript(), newContext);
+					Object value = scriptCache.get(info, false).execute(newContext);
 					if (value instanceof ExitValue) {
 						throw new MagicExitException((ExitValue) value);
 					}
@@ -82,21 +153,177 @@ public class RequestMagicDynamicRegistry extends AbstractMagicDynamicRegistry<Ap
 
 	public void setHandler(Object handler) {
 		this.handler = handler;
+		if (router != null) {
+			// 在接口前缀下注册统一入口，由前缀树分发
+			String pattern = routePrefix + "**";
+			logger.info("启用前缀树路由：{}", pattern);
+			mapping.register(mapping.paths(pattern).build(), handler, routeMethod);
+		}
+	}
+
+	/**
+	 * 前缀树路由查找，匹配成功时设置与 Spring 一致的 request 属性
+	 *
+	 * @return 路径变量，没有匹配的接口时返回 null
+	 */
+	public Map<String, Object> route(MagicHttpServletRequest request) {
+		String within = Objects.toString(request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE), "");
+		String path = within.startsWith("/") ? routePrefix + within.substring(1) : routePrefix + within;
+		RadixTreeRouter.Match<String> match = router.match(Objects.toString(request.getMethod(), "GET").toUpperCase(), path);
+		if (match == null) {
+			return null;
+		}
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, match.getPattern());
+		request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, match.getVariables());
+		return new HashMap<>(match.getVariables());
 	}
 
 	@EventListener(condition = "#event.type == 'api'")
 	public void onFileEvent(FileEvent event) {
 		processEvent(event);
+		invalidate(event.getEntity().getId());
+	}
+
+	/**
+	 * 其它实例删除SQL缓存时清除关联的接口响应缓存
+	 */
+	@EventListener(condition = "#event.source == T(org.ssssssss.magicapi.core.config.Constants).EVENT_SOURCE_NOTIFY")
+	public void onSqlCacheEvent(SqlCacheEvent event) {
+		responseCache.invalidateByCacheName(event.getName());
 	}
 
 	@EventListener(condition = "#event.type == 'api'")
 	public void onGroupEvent(GroupEvent event) {
 		processEvent(event);
+		event.getEntities().forEach(entity -> invalidate(entity.getId()));
+	}
+
+	public ApiScriptCache getScriptCache() {
+		return scriptCache;
+	}
+
+	public ApiResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	public void setResponseCache(ApiResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	public ApiMetrics getApiMetrics() {
+		return apiMetrics;
+	}
+
+	public RequestCoalescer getRequestCoalescer() {
+		return requestCoalescer;
+	}
+
+	/**
+	 * 获取接口的响应缓存策略，接口或所在分组变化后重新解析
+	 */
+	public ResponseCachePolicy getResponseCachePolicy(ApiInfo info) {
+		ResponseCachePolicy policy = responseCachePolicies.get(info.getId());
+		if (policy == null || policy.getApiInfo() != info) {
+			policy = ResponseCachePolicy.resolve(getEffectiveApiInfo(info));
+			responseCachePolicies.put(info.getId(), policy);
+		}
+		return policy;
+	}
+
+	/**
+	 * 获取接口的生效配置，接口或所在分组变化后重新生成
+	 */
+	public EffectiveApiInfo getEffectiveApiInfo(ApiInfo info) {
+		EffectiveApiInfo effectiveApiInfo = effectiveApiInfos.get(info.getId());
+		if (effectiveApiInfo == null || effectiveApiInfo.getApiInfo() != info) {
+			effectiveApiInfo = EffectiveApiInfo.resolve(info, MagicConfiguration.getMagicResourceService());
+			effectiveApiInfos.put(info.getId(), effectiveApiInfo);
+		}
+		return effectiveApiInfo;
+	}
+
+	/**
+	 * 获取接口的参数验证计划，接口或所在分组变化后重新编译
+	 */
+	public ValidationPlan getValidationPlan(ApiInfo info) {
+		ValidationPlan plan = validationPlans.get(info.getId());
+		if (plan == null || plan.getApiInfo() != info) {
+			EffectiveApiInfo effectiveApiInfo = getEffectiveApiInfo(info);
+			plan = new ValidationPlan(info, effectiveApiInfo.getPaths(), effectiveApiInfo.getScriptName());
+			validationPlans.put(info.getId(), plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * 设置接口并发隔离的默认配置
+	 *
+	 * @param maxConcurrent 默认最大并发数，0 为不限制
+	 * @param maxWaiting    默认最大排队数
+	 * @param waitTimeout   排队超时时间，单位为毫秒
+	 */
+	public void setConcurrencyLimit(int maxConcurrent, int maxWaiting, long waitTimeout) {
+		this.defaultMaxConcurrent = maxConcurrent;
+		this.defaultMaxWaiting = maxWaiting;
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * 获取接口的并发隔离，不限制时返回 null
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter(ApiInfo info) {
+		EffectiveApiInfo effectiveApiInfo = getEffectiveApiInfo(info);
+		int maxConcurrent = NumberUtils.toInt(effectiveApiInfo.getOptionValue(Options.MAX_CONCURRENT), defaultMaxConcurrent);
+		if (maxConcurrent <= 0) {
+			concurrencyLimiters.remove(info.getId());
+			return null;
+		}
+		int maxWaiting = NumberUtils.toInt(effectiveApiInfo.getOptionValue(Options.MAX_WAITING), defaultMaxWaiting);
+		ConcurrencyLimiter limiter = concurrencyLimiters.get(info.getId());
+		if (limiter != null && limiter.isSameConfig(maxConcurrent, maxWaiting, waitTimeout)) {
+			return limiter;
+		}
+		// 原子地创建或在配置变化后替换，并发请求共用同一个对象，已获取的许可仍归还到原对象
+		return concurrencyLimiters.compute(info.getId(), (id, current) -> current != null && current.isSameConfig(maxConcurrent, maxWaiting, waitTimeout) ? current : new ConcurrencyLimiter(maxConcurrent, maxWaiting, waitTimeout));
+	}
+
+	/**
+	 * 接口并发统计
+	 */
+	public List<Map<String, Object>> concurrencyStats() {
+		List<Map<String, Object>> stats = new ArrayList<>();
+		concurrencyLimiters.forEach((id, limiter) -> {
+			ApiInfo info = getMapping(id);
+			if (info != null) {
+				Map<String, Object> item = new LinkedHashMap<>();
+				item.put("id", id);
+				item.put("name", info.getName());
+				item.put("method", info.getMethod());
+				item.put("path", info.getPath());
+				item.putAll(limiter.stats());
+				stats.add(item);
+			}
+		});
+		return stats;
+	}
+
+	private void invalidate(String id) {
+		scriptCache.invalidate(id);
+		effectiveApiInfos.remove(id);
+		validationPlans.remove(id);
+		responseCachePolicies.remove(id);
+		responseCache.invalidate(id);
 	}
 
 	public ApiInfo getApiInfoFromRequest(MagicHttpServletRequest request) {
-		String mappingKey = Objects.toString(request.getMethod(), "GET").toUpperCase() + ":" + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
-		return getMapping(mappingKey);
+		String method = Objects.toString(request.getMethod(), "GET").toUpperCase();
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		ApiInfo info = getMapping(method + ":" + pattern);
+		if (info == null && "HEAD".equals(method)) {
+			// HEAD 请求由 GET 接口处理
+			info = getMapping("GET:" + pattern);
+		}
+		return info;
 	}
 
 	@Override
@@ -106,6 +333,7 @@ public class RequestMagicDynamicRegistry extends AbstractMagicDynamicRegistry<Ap
 		String requestMethod = mappingKey.substring(0, index);
 		String path = mappingKey.substring(index + 1);
 		RequestMappingInfo requestMappingInfo = mapping.paths(path).methods(RequestMethod.valueOf(requestMethod.toUpperCase())).build();
+		// 前缀树路由的入口优先级低于应用中的同名接口，同样需要检查冲突
 		if (mapping.getHandlerMethods().containsKey(requestMappingInfo)) {
 			if (!allowOverride) {
 				logger.error("接口[{}({})]与应用冲突，无法注册", mappingNode.getEntity().getName(), mappingKey);
@@ -115,6 +343,16 @@ public class RequestMagicDynamicRegistry extends AbstractMagicDynamicRegistry<Ap
 			// 取消注册原接口
 			mapping.unregister(requestMappingInfo);
 		}
+		if (router != null && RadixTreeRouter.supports(path)) {
+			String exists = router.register(requestMethod.toUpperCase(), path, mappingKey);
+			if (exists != null) {
+				logger.error("接口[{}({})]与[{}]冲突，无法注册", mappingNode.getEntity().getName(), mappingKey, exists);
+				throw new InvalidArgumentException(REQUEST_PATH_CONFLICT.format(mappingNode.getEntity().getName(), mappingKey));
+			}
+			logger.debug("注册接口[{}({})]", mappingNode.getEntity().getName(), mappingKey);
+			mappingNode.setMappingData(mappingKey);
+			return true;
+		}
 		logger.debug("注册接口[{}({})]", mappingNode.getEntity().getName(), mappingKey);
 		mapping.register(requestMappingInfo, handler, method);
 		mappingNode.setMappingData(requestMappingInfo);
@@ -124,7 +362,17 @@ public class RequestMagicDynamicRegistry extends AbstractMagicDynamicRegistry<Ap
 	@Override
 	protected void unregister(MappingNode<ApiInfo> mappingNode) {
 		logger.debug("取消注册接口[{}({})]", mappingNode.getEntity().getName(), mappingNode.getMappingKey());
-		mapping.unregister((RequestMappingInfo) mappingNode.getMappingData());
+		invalidate(mappingNode.getEntity().getId());
+		concurrencyLimiters.remove(mappingNode.getEntity().getId());
+		apiMetrics.remove(mappingNode.getEntity().getId());
+		Object mappingData = mappingNode.getMappingData();
+		if (mappingData instanceof RequestMappingInfo) {
+			mapping.unregister((RequestMappingInfo) mappingData);
+		} else if (router != null && mappingData != null) {
+			String mappingKey = mappingNode.getMappingKey();
+			int index = mappingKey.indexOf(":");
+			router.unregister(mappingKey.substring(0, index).toUpperCase(), mappingKey.substring(index + 1));
+		}
 	}
 
 }
@@ -14,6 +14,8 @@ public interface MagicHttpServletRequest {
 
 	Enumeration<String> getHeaders(String name);
 
+	Enumeration<String> getHeaderNames();
+
 	String getRequestURI();
 
 	String getMethod();
@@ -30,6 +32,11 @@ public interface MagicHttpServletRequest {
 
 	MagicHttpSession getSession();
 
+	/**
+	 * 获取 Session，create 为 false 且 Session 不存在时返回 null
+	 */
+	MagicHttpSession getSession(boolean create);
+
 	MagicCookie[] getCookies();
 
 	InputStream getInputStream() throws IOException;
@@ -3,6 +3,7 @@ package org.ssssssss.magicapi.core.servlet;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.Collections;
 
 public interface MagicHttpServletResponse {
 
@@ -22,5 +23,9 @@ public interface MagicHttpServletResponse {
 
 	public Collection<String> getHeaderNames();
 
+	public default Collection<String> getHeaders(String name) {
+		return Collections.emptyList();
+	}
+
 	public <T> T getResponse();
 }
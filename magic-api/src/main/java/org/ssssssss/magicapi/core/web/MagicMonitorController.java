@@ -0,0 +1,123 @@
+package org.ssssssss.magicapi.core.web;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.ssssssss.magicapi.core.config.MagicConfiguration;
+import org.ssssssss.magicapi.core.model.JsonBean;
+import org.ssssssss.magicapi.core.service.impl.RequestMagicDynamicRegistry;
+import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource;
+import org.ssssssss.magicapi.modules.db.cache.DefaultSqlCache;
+import org.ssssssss.magicapi.modules.db.cache.SqlCache;
+import org.ssssssss.magicapi.modules.db.mybatis.SqlTemplateCache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行状态监控
+ *
+ * @author mxd
+ */
+public class MagicMonitorController extends MagicController implements MagicExceptionHandler {
+
+	private final RequestMagicDynamicRegistry requestMagicDynamicRegistry;
+
+	/**
+	 * SQL缓存实现，未配置数据源时为 null
+	 */
+	private final SqlCache sqlCache;
+
+	public MagicMonitorController(MagicConfiguration configuration, RequestMagicDynamicRegistry requestMagicDynamicRegistry) {
+		this(configuration, requestMagicDynamicRegistry, null);
+	}
+
+	public MagicMonitorController(MagicConfiguration configuration, RequestMagicDynamicRegistry requestMagicDynamicRegistry, SqlCache sqlCache) {
+		super(configuration);
+		this.requestMagicDynamicRegistry = requestMagicDynamicRegistry;
+		this.sqlCache = sqlCache;
+	}
+
+	/**
+	 * 接口脚本编译缓存统计
+	 */
+	@GetMapping("/monitor/script-cache")
+	@ResponseBody
+	public JsonBean<Map<String, Object>> scriptCache() {
+		return new JsonBean<>(requestMagicDynamicRegistry.getScriptCache().stats());
+	}
+
+	/**
+	 * SQL模板解析缓存统计
+	 */
+	@GetMapping("/monitor/sql-template")
+	@ResponseBody
+	public JsonBean<Map<String, Object>> sqlTemplate() {
+		return new JsonBean<>(SqlTemplateCache.stats());
+	}
+
+	/**
+	 * SQL查询缓存统计，仅默认缓存实现提供统计信息
+	 */
+	@GetMapping("/monitor/sql-cache")
+	@ResponseBody
+	public JsonBean<Map<String, Object>> sqlCache() {
+		if (sqlCache instanceof DefaultSqlCache) {
+			return new JsonBean<>(((DefaultSqlCache) sqlCache).stats());
+		}
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("type", sqlCache == null ? null : sqlCache.getClass().getName());
+		return new JsonBean<>(result);
+	}
+
+	/**
+	 * 接口调用次数及耗时统计
+	 */
+	@GetMapping("/monitor/metrics")
+	@ResponseBody
+	public JsonBean<List<Map<String, Object>>> metrics() {
+		return new JsonBean<>(requestMagicDynamicRegistry.getApiMetrics().stats());
+	}
+
+	/**
+	 * 接口响应缓存统计
+	 */
+	@GetMapping("/monitor/response-cache")
+	@ResponseBody
+	public JsonBean<Map<String, Object>> responseCache() {
+		return new JsonBean<>(requestMagicDynamicRegistry.getResponseCache().stats());
+	}
+
+	/**
+	 * 相同请求合并统计
+	 */
+	@GetMapping("/monitor/coalesce")
+	@ResponseBody
+	public JsonBean<Map<String, Object>> coalesce() {
+		return new JsonBean<>(requestMagicDynamicRegistry.getRequestCoalescer().stats());
+	}
+
+	/**
+	 * 接口及数据源并发统计
+	 */
+	@GetMapping("/monitor/concurrency")
+	@ResponseBody
+	public JsonBean<Map<String, Object>> concurrency() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("api", requestMagicDynamicRegistry.concurrencyStats());
+		MagicDynamicDataSource dynamicDataSource = configuration.getMagicDynamicDataSource();
+		result.put("datasource", dynamicDataSource == null ? Collections.emptyList() : dynamicDataSource.concurrencyStats());
+		return new JsonBean<>(result);
+	}
+
+	/**
+	 * 从库状态统计
+	 */
+	@GetMapping("/monitor/replica")
+	@ResponseBody
+	public JsonBean<List<Map<String, Object>>> replica() {
+		MagicDynamicDataSource dynamicDataSource = configuration.getMagicDynamicDataSource();
+		return new JsonBean<>(dynamicDataSource == null ? Collections.emptyList() : dynamicDataSource.replicaStats());
+	}
+}
@@ -1,51 +1,68 @@
 package org.ssssssss.magicapi.core.web;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
 import org.ssssssss.magicapi.core.annotation.Valid;
-import org.ssssssss.magicapi.core.config.Constants;
 import org.ssssssss.magicapi.core.config.MagicConfiguration;
 import org.ssssssss.magicapi.core.config.WebSocketSessionManager;
 import org.ssssssss.magicapi.core.context.CookieContext;
+import org.ssssssss.magicapi.core.context.HeaderContext;
+import org.ssssssss.magicapi.core.context.LazyBindingScriptContext;
 import org.ssssssss.magicapi.core.context.RequestContext;
 import org.ssssssss.magicapi.core.context.RequestEntity;
 import org.ssssssss.magicapi.core.context.SessionContext;
+import org.ssssssss.magicapi.core.exception.ConcurrencyLimitException;
 import org.ssssssss.magicapi.core.exception.ValidateException;
 import org.ssssssss.magicapi.core.interceptor.RequestInterceptor;
 import org.ssssssss.magicapi.core.interceptor.ResultProvider;
 import org.ssssssss.magicapi.core.logging.MagicLoggerContext;
 import org.ssssssss.magicapi.core.model.*;
+import org.ssssssss.magicapi.core.service.impl.ApiMetrics.ApiMetric;
+import org.ssssssss.magicapi.core.service.impl.ApiMetrics.Phase;
+import org.ssssssss.magicapi.core.service.impl.ApiResponseCache.CachedResponse;
+import org.ssssssss.magicapi.core.service.impl.RequestCoalescer;
 import org.ssssssss.magicapi.core.service.impl.RequestMagicDynamicRegistry;
 import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
 import org.ssssssss.magicapi.core.servlet.MagicHttpServletResponse;
+import org.ssssssss.magicapi.modules.db.SqlCursor;
 import org.ssssssss.magicapi.modules.servlet.ResponseModule;
-import org.ssssssss.magicapi.utils.PatternUtils;
-import org.ssssssss.magicapi.utils.ScriptManager;
+import org.ssssssss.magicapi.utils.ConcurrencyLimiter;
+import org.ssssssss.script.MagicScript;
 import org.ssssssss.script.MagicScriptContext;
 import org.ssssssss.script.MagicScriptDebugContext;
 import org.ssssssss.script.exception.MagicScriptAssertException;
 import org.ssssssss.script.exception.MagicScriptException;
-import org.ssssssss.script.functions.ObjectConvertExtension;
 import org.ssssssss.script.parsing.Span;
-import org.ssssssss.script.parsing.ast.literal.BooleanLiteral;
-import org.ssssssss.script.reflection.JavaInvoker;
+import org.ssssssss.script.runtime.ExitValue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Method;
-import java.math.BigDecimal;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.springframework.http.HttpHeaders.*;
 import static org.ssssssss.magicapi.core.config.Constants.*;
@@ -59,7 +76,6 @@ import static org.ssssssss.magicapi.core.config.MessageType.EXCEPTION;
 public class RequestHandler extends MagicController {
 
 	private static final Logger logger = LoggerFactory.getLogger(RequestHandler.class);
-	private static final Map<String, Object> EMPTY_MAP = new HashMap<>();
 	private static final List<String> DEFAULT_ALLOW_READ_RESPONSE_HEADERS = Arrays.asList(
 			ACCESS_CONTROL_ALLOW_CREDENTIALS, ACCESS_CONTROL_ALLOW_HEADERS, ACCESS_CONTROL_ALLOW_METHODS, ACCESS_CONTROL_ALLOW_METHODS,
 			CONTENT_TYPE, DATE, SERVER, SET_COOKIE, CONNECTION, CONTENT_LENGTH, CONTENT_ENCODING, TRANSFER_ENCODING, VARY);
@@ -67,10 +83,13 @@ public class RequestHandler extends MagicController {
 
 	private final RequestMagicDynamicRegistry requestMagicDynamicRegistry;
 
+	private final StreamingResponseWriter streamingResponseWriter;
+
 	public RequestHandler(MagicConfiguration configuration, RequestMagicDynamicRegistry requestMagicDynamicRegistry) {
 		super(configuration);
 		this.requestMagicDynamicRegistry = requestMagicDynamicRegistry;
 		this.resultProvider = configuration.getResultProvider();
+		this.streamingResponseWriter = new StreamingResponseWriter(this.resultProvider, configuration);
 	}
 
 	/**
@@ -87,11 +106,8 @@ public class RequestHandler extends MagicController {
 	@Valid(requireLogin = false)
 	public Object invoke(MagicHttpServletRequest request, MagicHttpServletResponse response,
 						 @PathVariable(required = false) Map<String, Object> pathVariables,
-						 @RequestHeader(required = false) Map<String, Object> defaultHeaders,
 						 @RequestParam(required = false) Map<String, Object> parameters) throws Throwable {
 		String clientId = null;
-		Map<String, Object> headers = new LinkedCaseInsensitiveMap<>();
-		headers.putAll(defaultHeaders);
 		boolean requestedFromTest = configuration.isEnableWeb() && (clientId = request.getHeader(HEADER_REQUEST_CLIENT_ID)) != null && request.getHeader(HEADER_REQUEST_SCRIPT_ID) != null;
 		RequestEntity requestEntity = RequestEntity.create()
 				.info(requestMagicDynamicRegistry.getApiInfoFromRequest(request))
@@ -106,241 +122,296 @@ public class RequestHandler extends MagicController {
 			logger.error("{}找不到对应接口", request.getRequestURI());
 			return afterCompletion(requestEntity, buildResult(requestEntity, API_NOT_FOUND, "接口不存在"));
 		}
-		requestEntity.setHeaders(headers);
-		List<Path> paths = new ArrayList<>(info.getPaths());
-		MagicConfiguration.getMagicResourceService().getGroupsByFileId(info.getId())
-				.stream()
-				.flatMap(it -> it.getPaths().stream())
-				.filter(it -> !paths.contains(it))
-				.forEach(paths::add);
-		Object bodyValue = readRequestBody(requestEntity.getRequest());
-		requestEntity.setRequestBody(bodyValue);
-		String scriptName = MagicConfiguration.getMagicResourceService().getScriptName(info);
-		MagicScriptContext context = createMagicScriptContext(scriptName, requestEntity);
+		// header、RequestBody 均在首次使用时才读取
+		requestEntity.setHeaders(new HeaderContext(request));
+		requestEntity.requestBody(() -> readRequestBody(request));
+		ApiMetric metric = requestMagicDynamicRegistry.getApiMetrics().get(info);
+		EffectiveApiInfo effectiveApiInfo = requestMagicDynamicRegistry.getEffectiveApiInfo(info);
+		ValidationPlan validationPlan = requestMagicDynamicRegistry.getValidationPlan(info);
+		MagicScriptContext context = createMagicScriptContext(effectiveApiInfo.getScriptName(), requestEntity);
 		requestEntity.setMagicScriptContext(context);
 		try {
-			boolean disabledUnknownParameter = CONST_STRING_TRUE.equalsIgnoreCase(info.getOptionValue(Options.DISABLED_UNKNOWN_PARAMETER));
+			boolean disabledUnknownParameter = CONST_STRING_TRUE.equalsIgnoreCase(effectiveApiInfo.getOptionValue(Options.DISABLED_UNKNOWN_PARAMETER));
 			// 验证参数
-			doValidate(scriptName, "参数", info.getParameters(), parameters, PARAMETER_INVALID, disabledUnknownParameter);
+			validationPlan.validateParameters(parameters, disabledUnknownParameter);
 
-			Object wrap = requestEntity.getApiInfo().getOptionValue(Options.WRAP_REQUEST_PARAMETERS.getValue());
-			if (wrap != null && StringUtils.isNotBlank(wrap.toString())) {
-				context.set(wrap.toString(), requestEntity.getParameters());
+			String wrap = effectiveApiInfo.getOptionValue(Options.WRAP_REQUEST_PARAMETERS);
+			if (StringUtils.isNotBlank(wrap)) {
+				context.set(wrap, requestEntity.getParameters());
 			}
-			String defaultDataSourceValue = requestEntity.getApiInfo().getOptionValue(Options.DEFAULT_DATA_SOURCE.getValue());
+			String defaultDataSourceValue = effectiveApiInfo.getOptionValue(Options.DEFAULT_DATA_SOURCE);
 			if (defaultDataSourceValue != null) {
 				context.set(Options.DEFAULT_DATA_SOURCE.getValue(), defaultDataSourceValue);
 			}
 			context.putMapIntoContext(requestEntity.getParameters());
 			// 验证 path
-			doValidate(scriptName, "path", paths, requestEntity.getPathVariables(), PATH_VARIABLE_INVALID, disabledUnknownParameter);
+			validationPlan.validatePaths(requestEntity.getPathVariables(), disabledUnknownParameter);
 			context.putMapIntoContext(requestEntity.getPathVariables());
 			// 设置 cookie 变量
-			context.set(VAR_NAME_COOKIE, new CookieContext(requestEntity.getRequest()));
+			LazyBindingScriptContext.bind(context, VAR_NAME_COOKIE, () -> new CookieContext(request));
 			// 验证 header
-			doValidate(scriptName, "header", info.getHeaders(), headers, HEADER_INVALID, disabledUnknownParameter);
+			validationPlan.validateHeaders(requestEntity.getHeaders(), disabledUnknownParameter);
 			// 设置 header 变量
-			context.set(VAR_NAME_HEADER, headers);
-			// 设置 session 变量
-			context.set(VAR_NAME_SESSION, new SessionContext(requestEntity.getRequest().getSession()));
+			LazyBindingScriptContext.bind(context, VAR_NAME_HEADER, requestEntity::getHeaders);
+			// 设置 session 变量，只在写入时创建 Session
+			LazyBindingScriptContext.bind(context, VAR_NAME_SESSION, () -> new SessionContext(request));
 			// 设置 path 变量
-			context.set(VAR_NAME_PATH_VARIABLE, requestEntity.getPathVariables());
+			LazyBindingScriptContext.bind(context, VAR_NAME_PATH_VARIABLE, requestEntity::getPathVariables);
 			// 设置 body 变量
-			if (bodyValue != null) {
-				context.set(VAR_NAME_REQUEST_BODY, bodyValue);
-			}
-			BaseDefinition requestBody = info.getRequestBodyDefinition();
-			if (requestBody != null && !CONST_STRING_TRUE.equalsIgnoreCase(info.getOptionValue(Options.DISABLED_VALIDATE_REQUEST_BODY)) && !CollectionUtils.isEmpty(requestBody.getChildren())) {
-				requestBody.setName(StringUtils.defaultIfBlank(requestBody.getName(), "root"));
-				doValidate(scriptName, VAR_NAME_REQUEST_BODY, Collections.singletonList(requestBody), new HashMap<String, Object>() {{
-					put(requestBody.getName(), bodyValue);
-				}}, BODY_INVALID, disabledUnknownParameter);
+			LazyBindingScriptContext.bind(context, VAR_NAME_REQUEST_BODY, requestEntity::getRequestBody);
+			if (validationPlan.hasRequestBody() && !CONST_STRING_TRUE.equalsIgnoreCase(effectiveApiInfo.getOptionValue(Options.DISABLED_VALIDATE_REQUEST_BODY))) {
+				validationPlan.validateRequestBody(requestEntity.getRequestBody(), disabledUnknownParameter);
 			}
 		} catch (ValidateException e) {
+			if (metric != null) {
+				metric.validationFailed();
+			}
 			return afterCompletion(requestEntity, resultProvider.buildResult(requestEntity, RESPONSE_CODE_INVALID, e.getMessage()));
 		} catch (Throwable root) {
 			return processException(requestEntity, root);
 		}
+		long mark = record(metric, Phase.VALIDATION, requestEntity.getRequestNanoTime());
 		RequestContext.setRequestEntity(requestEntity);
 		Object value;
 		// 执行前置拦截器
-		if ((value = doPreHandle(requestEntity)) != null) {
+		value = doPreHandle(requestEntity);
+		record(metric, Phase.PRE_HANDLE, mark);
+		if (value != null) {
 			return afterCompletion(requestEntity, value);
 		}
-		if (requestedFromTest) {
-			DebugRequest debugRequest = requestEntity.getDebugRequest();
-			String sessionAndScriptId = debugRequest.getRequestedClientId() + debugRequest.getRequestedScriptId();
-			try {
-				if (context instanceof MagicScriptDebugContext) {
-					WebSocketSessionManager.addMagicScriptContext(sessionAndScriptId, (MagicScriptDebugContext) context);
+		if (!requestedFromTest) {
+			clientId = null;
+		}
+		// 接口响应缓存及相同请求合并
+		SharedRequest sharedRequest = null;
+		if (!requestedFromTest && "GET".equalsIgnoreCase(request.getMethod())) {
+			ResponseCachePolicy policy = requestMagicDynamicRegistry.getResponseCachePolicy(info);
+			boolean coalesce = CONST_STRING_TRUE.equalsIgnoreCase(effectiveApiInfo.getOptionValue(Options.COALESCE));
+			if (policy.isEnabled() || coalesce) {
+				String key = policy.buildKey(request, requestEntity.getParameters());
+				if (policy.isEnabled()) {
+					CachedResponse cached = requestMagicDynamicRegistry.getResponseCache().get(info.getId(), key);
+					if (cached != null) {
+						RequestContext.remove();
+						return afterCompletion(requestEntity, toResponseEntity(requestEntity, cached));
+					}
 				}
-				MagicLoggerContext.SESSION.set(clientId);
-				return invokeRequest(requestEntity);
-			} finally {
-				MagicLoggerContext.remove();
-				WebSocketSessionManager.removeMagicScriptContext(sessionAndScriptId);
+				int maxWaiters = coalesce ? NumberUtils.toInt(effectiveApiInfo.getOptionValue(Options.COALESCE_MAX_WAITERS), RequestCoalescer.DEFAULT_MAX_WAITERS) : -1;
+				long coalesceTimeout = NumberUtils.toLong(effectiveApiInfo.getOptionValue(Options.COALESCE_TIMEOUT), RequestCoalescer.DEFAULT_TIMEOUT);
+				String coalesceKey = coalesce ? policy.buildCoalesceKey(request, key) : null;
+				sharedRequest = new SharedRequest(policy.isEnabled() ? policy : null, key, response.getHeaderNames().size(), maxWaiters, coalesceKey, coalesceTimeout);
 			}
-		} else {
-			return invokeRequest(requestEntity);
 		}
-	}
-
-	private Object buildResult(RequestEntity requestEntity, JsonCode code, Object data) {
-		return resultProvider.buildResult(requestEntity, code.getCode(), code.getMessage(), data);
-	}
-
-	private void removeUnknownKey(Map<String, Object> src, List<? extends BaseDefinition> definitions) {
-		if (!src.isEmpty()) {
-			Map<String, Object> newMap = new HashMap<>(definitions.size());
-			for (BaseDefinition definition : definitions) {
-				newMap.put(definition.getName(), src.get(definition.getName()));
+		// 并发隔离
+		ConcurrencyLimiter limiter = requestMagicDynamicRegistry.getConcurrencyLimiter(info);
+		if (limiter != null && !limiter.tryAcquire()) {
+			RequestContext.remove();
+			logger.warn("接口{}超出并发限制", request.getRequestURI());
+			return afterCompletion(requestEntity, resultProvider.buildResult(requestEntity, RESPONSE_CODE_REJECTED, API_EXECUTE_REJECTED.getMessage()));
+		}
+		if (isAsync(effectiveApiInfo)) {
+			RequestContext.remove();
+			return invokeAsync(requestEntity, clientId, sharedRequest, limiter);
+		}
+		try {
+			return invokeRequest(requestEntity, clientId, sharedRequest);
+		} finally {
+			if (limiter != null) {
+				limiter.release();
 			}
-			src.clear();
-			src.putAll(newMap);
 		}
 	}
 
-
-	private boolean doValidateBody(String comment, BaseDefinition parameter, Map<String, Object> parameters, JsonCode jsonCode, Class<?> target) {
-		if (!parameter.isRequired() && parameters.isEmpty()) {
-			return true;
-		}
-		if (parameter.isRequired() && !BooleanLiteral.isTrue(parameters.get(parameter.getName()))) {
-			throw new ValidateException(jsonCode, StringUtils.defaultIfBlank(parameter.getError(), String.format("%s[%s]为必填项", comment, parameter.getName())));
-		}
-		Object value = parameters.get(parameter.getName());
-		if (value != null && !target.isAssignableFrom(value.getClass())) {
-			throw new ValidateException(jsonCode, StringUtils.defaultIfBlank(parameter.getError(), String.format("%s[%s]数据类型错误", comment, parameter.getName())));
+	/**
+	 * 判断接口是否异步执行，接口选项优先于全局配置
+	 */
+	private boolean isAsync(EffectiveApiInfo effectiveApiInfo) {
+		String async = effectiveApiInfo.getOptionValue(Options.ASYNC);
+		if (!(StringUtils.isBlank(async) ? configuration.isAsyncEnabled() : CONST_STRING_TRUE.equalsIgnoreCase(async))) {
+			return false;
 		}
-		return false;
+		// 线程池在首次异步执行时创建
+		return configuration.getAsyncExecutor() != null;
 	}
 
-	private Map<String, Object> doValidate(String scriptName, String comment, List<? extends BaseDefinition> validateParameters, Map<String, Object> parameters, JsonCode jsonCode, boolean disabledUnknownParameter) {
-		parameters = parameters != null ? parameters : EMPTY_MAP;
-		if (CollectionUtils.isEmpty(validateParameters)) {
-			return parameters;
-		}
-		if (disabledUnknownParameter) {
-			removeUnknownKey(parameters, validateParameters);
+	/**
+	 * 在异步线程池中执行接口，返回 DeferredResult 释放容器线程
+	 */
+	private Object invokeAsync(RequestEntity requestEntity, String clientId, SharedRequest sharedRequest, ConcurrencyLimiter limiter) {
+		Long timeout = null;
+		if (requestEntity.isRequestedFromDebug()) {
+			// 断点调试时不超时
+			timeout = 0L;
+		} else if (configuration.getAsyncTimeout() > 0) {
+			timeout = configuration.getAsyncTimeout();
 		}
-		for (BaseDefinition parameter : validateParameters) {
-			if (parameter.getDataType() == DataType.Any) {
-				continue;
-			}
-			// 针对requestBody多层级的情况
-			if (DataType.Object == parameter.getDataType()) {
-				if (doValidateBody(comment, parameter, parameters, jsonCode, Map.class)) {
-					continue;
-				}
-				doValidate(scriptName, VAR_NAME_REQUEST_BODY, parameter.getChildren(), (Map) parameters.get(parameter.getName()), jsonCode, disabledUnknownParameter);
-			} else if (DataType.Array == parameter.getDataType()) {
-				if (doValidateBody(comment, parameter, parameters, jsonCode, List.class)) {
-					continue;
-				}
-				List<Object> list = (List) parameters.get(parameter.getName());
-				if (list != null) {
-					List<Map<String, Object>> newList = list.stream().map(it -> doValidate(scriptName, VAR_NAME_REQUEST_BODY, parameter.getChildren(), new HashMap<String, Object>() {{
-						put(Constants.EMPTY, it);
-					}}, jsonCode, disabledUnknownParameter)).collect(Collectors.toList());
-					for (int i = 0, size = newList.size(); i < size; i++) {
-						list.set(i, newList.get(i).get(Constants.EMPTY));
-					}
-				}
-
-			} else if (StringUtils.isNotBlank(parameter.getName()) || parameters.containsKey(parameter.getName())) {
-				boolean isFile = parameter.getDataType() == DataType.MultipartFile || parameter.getDataType() == DataType.MultipartFiles;
-				String requestValue = StringUtils.defaultIfBlank(Objects.toString(parameters.get(parameter.getName()), Constants.EMPTY), Objects.toString(parameter.getDefaultValue(), Constants.EMPTY));
-				if (StringUtils.isBlank(requestValue) && !isFile) {
-					if (!parameter.isRequired()) {
-						continue;
-					}
-					throw new ValidateException(jsonCode, StringUtils.defaultIfBlank(parameter.getError(), String.format("%s[%s]为必填项", comment, parameter.getName())));
+		DeferredResult<Object> deferredResult = new DeferredResult<>(timeout);
+		// 任务开始执行或超时取消，二者只会有一个成功，用于保证并发许可只归还一次
+		AtomicBoolean claimed = new AtomicBoolean();
+		// request 模块等通过 RequestContextHolder 获取当前请求，需传递到异步线程
+		RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+		Future<?> future;
+		try {
+			future = configuration.getAsyncExecutor().submit(() -> {
+				if (!claimed.compareAndSet(false, true)) {
+					return;
 				}
+				RequestContext.setRequestEntity(requestEntity);
+				RequestContextHolder.setRequestAttributes(requestAttributes);
 				try {
-					Object value = convertValue(parameter.getDataType(), parameter.getName(), requestValue);
-					if (isFile && parameter.isRequired()) {
-						if (value == null || (parameter.getDataType() == DataType.MultipartFiles && ((List<?>) value).isEmpty())) {
-							throw new ValidateException(jsonCode, StringUtils.defaultIfBlank(parameter.getError(), String.format("%s[%s]为必填项", comment, parameter.getName())));
-						}
-					}
-					// 正则验证
-					if (VALIDATE_TYPE_PATTERN.equals(parameter.getValidateType())) {
-						String expression = parameter.getExpression();
-						if (StringUtils.isNotBlank(expression) && !PatternUtils.match(Objects.toString(value, Constants.EMPTY), expression)) {
-							throw new ValidateException(jsonCode, StringUtils.defaultIfBlank(parameter.getError(), String.format("%s[%s]不满足正则表达式", comment, parameter.getName())));
-						}
+					deferredResult.setResult(invokeRequest(requestEntity, clientId, sharedRequest));
+				} catch (Throwable e) {
+					deferredResult.setErrorResult(e);
+				} finally {
+					RequestContext.remove();
+					RequestContextHolder.resetRequestAttributes();
+					MagicLoggerContext.remove();
+					if (limiter != null) {
+						limiter.release();
 					}
-					parameters.put(parameter.getName(), value);
-				} catch (ValidateException ve) {
-					throw ve;
-				} catch (Exception e) {
-					throw new ValidateException(jsonCode, StringUtils.defaultIfBlank(parameter.getError(), String.format("%s[%s]不合法", comment, parameter.getName())));
 				}
+			});
+		} catch (RejectedExecutionException e) {
+			if (limiter != null) {
+				limiter.release();
 			}
+			logger.warn("接口{}异步执行被拒绝", requestEntity.getRequest().getRequestURI());
+			return afterCompletion(requestEntity, resultProvider.buildResult(requestEntity, RESPONSE_CODE_REJECTED, API_EXECUTE_REJECTED.getMessage()));
 		}
-		// 取出表达式验证的参数
-		List<BaseDefinition> validates = validateParameters.stream().filter(it -> VALIDATE_TYPE_EXPRESSION.equals(it.getValidateType()) && StringUtils.isNotBlank(it.getExpression())).collect(Collectors.toList());
-		for (BaseDefinition parameter : validates) {
-			MagicScriptContext context = new MagicScriptContext();
-			// 将其他参数也放置脚本中，以实现“依赖”的情况
-			context.putMapIntoContext(parameters);
-			Object value = parameters.get(parameter.getName());
-			if (value != null) {
-				context.setScriptName(scriptName);
-				// 设置自身变量
-				context.set(EXPRESSION_DEFAULT_VAR_NAME, value);
-				if (!BooleanLiteral.isTrue(ScriptManager.executeExpression(parameter.getExpression(), context))) {
-					throw new ValidateException(jsonCode, StringUtils.defaultIfBlank(parameter.getError(), String.format("%s[%s]不满足表达式", comment, parameter.getName())));
+		deferredResult.onTimeout(() -> {
+			logger.warn("接口{}执行超时", requestEntity.getRequest().getRequestURI());
+			if (claimed.compareAndSet(false, true)) {
+				// 尚未开始执行，由超时回调完成请求
+				future.cancel(false);
+				if (limiter != null) {
+					limiter.release();
+				}
+				RequestContext.setRequestEntity(requestEntity);
+				try {
+					requestEntity.claimResponse();
+					Object value = buildResult(requestEntity, API_EXECUTE_TIMEOUT, null);
+					deferredResult.setResult(afterCompletion(requestEntity, value, new TimeoutException(API_EXECUTE_TIMEOUT.getMessage())));
+				} finally {
+					RequestContext.remove();
+				}
+			} else if (requestEntity.claimResponse()) {
+				// 执行中，中断执行并返回超时结果，afterCompletion 由执行线程完成
+				future.cancel(true);
+				deferredResult.setResult(buildResult(requestEntity, API_EXECUTE_TIMEOUT, null));
+			} else {
+				// 已开始流式输出，响应由执行线程写出，不能再写入超时结果，等待其写完
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException ignored) {
 				}
 			}
-		}
-		return parameters;
+		});
+		return deferredResult;
 	}
 
 	/**
-	 * 转换参数类型
+	 * 执行接口，在线调试时注册调试上下文
 	 */
-	private Object convertValue(DataType dataType, String name, String value) {
-		if (dataType == null) {
-			return value;
+	private Object invokeRequest(RequestEntity requestEntity, String clientId, SharedRequest sharedRequest) throws Throwable {
+		if (clientId == null) {
+			return invokeRequest(requestEntity, sharedRequest);
 		}
+		DebugRequest debugRequest = requestEntity.getDebugRequest();
+		MagicScriptContext context = requestEntity.getMagicScriptContext();
+		String sessionAndScriptId = debugRequest.getRequestedClientId() + debugRequest.getRequestedScriptId();
 		try {
-			if (dataType.isNumber()) {
-				BigDecimal decimal = ObjectConvertExtension.asDecimal(value, null);
-				if (decimal == null) {
-					throw new IllegalArgumentException();
-				}
-				return dataType.getInvoker().invoke0(decimal, null, EMPTY_OBJECT_ARRAY);
-			} else {
-				JavaInvoker<Method> invoker = dataType.getInvoker();
-				if (invoker != null) {
-					List<Object> params = new ArrayList<>();
-					if (dataType.isNeedName()) {
-						params.add(name);
-					}
-					if (dataType.isNeedValue()) {
-						params.add(value);
-					}
-					return invoker.invoke0(null, null, params.toArray());
-				}
+			if (context instanceof MagicScriptDebugContext) {
+				WebSocketSessionManager.addMagicScriptContext(sessionAndScriptId, (MagicScriptDebugContext) context);
 			}
-			return value;
-		} catch (Throwable throwable) {
-			throw new IllegalArgumentException(throwable);
+			MagicLoggerContext.SESSION.set(clientId);
+			return invokeRequest(requestEntity, null);
+		} finally {
+			MagicLoggerContext.remove();
+			WebSocketSessionManager.removeMagicScriptContext(sessionAndScriptId);
 		}
 	}
 
-	private Object invokeRequest(RequestEntity requestEntity) throws Throwable {
+	/**
+	 * 前缀树路由模式下的统一入口，没有匹配的接口时与默认路由一致返回 404
+	 *
+	 * @param request    HttpServletRequest
+	 * @param response   HttpServletResponse
+	 * @param parameters 表单参数&URL参数
+	 * @return 返回请求结果
+	 * @throws Throwable 处理失败抛出的异常
+	 */
+	@ResponseBody
+	@Valid(requireLogin = false)
+	public Object route(MagicHttpServletRequest request, MagicHttpServletResponse response,
+						@RequestParam(required = false) Map<String, Object> parameters) throws Throwable {
+		Map<String, Object> pathVariables = requestMagicDynamicRegistry.route(request);
+		if (pathVariables == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+		}
+		return invoke(request, response, pathVariables, parameters);
+	}
+
+	private Object buildResult(RequestEntity requestEntity, JsonCode code, Object data) {
+		return resultProvider.buildResult(requestEntity, code.getCode(), code.getMessage(), data);
+	}
+
+	private Object invokeRequest(RequestEntity requestEntity, SharedRequest sharedRequest) throws Throwable {
+		ApiMetric metric = requestMagicDynamicRegistry.getApiMetrics().get(requestEntity.getApiInfo());
 		try {
 			MagicScriptContext context = requestEntity.getMagicScriptContext();
-			Object result = ScriptManager.executeScript(requestEntity.getApiInfo().getScript(), context);
+			long mark = System.nanoTime();
+			MagicScript script = requestMagicDynamicRegistry.getScriptCache().get(requestEntity.getApiInfo(), context instanceof MagicScriptDebugContext);
+			Object result;
+			if (sharedRequest != null && sharedRequest.maxWaiters >= 0) {
+				// 合并相同请求，实际执行时再标记为未合并
+				requestEntity.coalesced(true);
+				MagicHttpServletResponse response = requestEntity.getResponse();
+				CoalescedResult coalesced = (CoalescedResult) requestMagicDynamicRegistry.getRequestCoalescer().execute(requestEntity.getApiInfo().getId() + ":" + sharedRequest.coalesceKey, sharedRequest.maxWaiters, sharedRequest.coalesceTimeout, () -> {
+					requestEntity.coalesced(false);
+					Set<String> headerNames = new HashSet<>(response.getHeaderNames());
+					// 游标只能读取一次，合并执行时需读取全部数据后共享
+					Object value = materialize(script.execute(context));
+					return new CoalescedResult(value, collectHeaders(response, headerNames));
+				});
+				if (requestEntity.isCoalesced()) {
+					// 共享脚本设置的 header 及 cookie
+					coalesced.headers.forEach((name, values) -> values.forEach(it -> response.addHeader(name, it)));
+				}
+				result = coalesced.value;
+			} else {
+				result = script.execute(context);
+			}
+			mark = record(metric, Phase.SCRIPT, mark);
 			Object value = result;
 			// 执行后置拦截器
 			if ((value = doPostHandle(requestEntity, value)) != null) {
+				record(metric, Phase.POST_HANDLE, mark);
+				return afterCompletion(requestEntity, value);
+			}
+			if (result instanceof SqlCursor) {
+				result = StreamingResult.json((SqlCursor) result);
+			}
+			if (result instanceof StreamingResult) {
+				if (!requestEntity.claimResponse()) {
+					// 异步执行已超时并返回了超时结果
+					((StreamingResult) result).close();
+					return afterCompletion(requestEntity, null);
+				}
+				// 流式输出，不缓存响应
+				value = streamingResponseWriter.write(requestEntity, (StreamingResult) result);
+				record(metric, Phase.SERIALIZATION, mark);
 				return afterCompletion(requestEntity, value);
 			}
 			// 对返回结果包装处理
-			return afterCompletion(requestEntity, response(requestEntity, result));
+			value = response(requestEntity, result);
+			mark = record(metric, Phase.POST_HANDLE, mark);
+			if (sharedRequest != null && sharedRequest.policy != null && !(result instanceof ExitValue)) {
+				value = cacheResponse(requestEntity, sharedRequest, value);
+				record(metric, Phase.SERIALIZATION, mark);
+			}
+			return afterCompletion(requestEntity, value);
 		} catch (Throwable root) {
 			return processException(requestEntity, root);
 		} finally {
@@ -348,6 +419,44 @@ public class RequestHandler extends MagicController {
 		}
 	}
 
+	/**
+	 * 收集脚本执行过程中新设置的 header
+	 */
+	private Map<String, List<String>> collectHeaders(MagicHttpServletResponse response, Set<String> before) {
+		Map<String, List<String>> headers = new LinkedHashMap<>();
+		for (String name : response.getHeaderNames()) {
+			if (!before.contains(name)) {
+				headers.put(name, new ArrayList<>(response.getHeaders(name)));
+			}
+		}
+		return headers;
+	}
+
+	/**
+	 * 合并执行的结果及脚本设置的 header
+	 */
+	private static class CoalescedResult {
+
+		private final Object value;
+
+		private final Map<String, List<String>> headers;
+
+		CoalescedResult(Object value, Map<String, List<String>> headers) {
+			this.value = value;
+			this.headers = headers;
+		}
+	}
+
+	private Object materialize(Object value) {
+		if (value instanceof SqlCursor) {
+			return ((SqlCursor) value).toList();
+		}
+		if (value instanceof StreamingResult) {
+			return ((StreamingResult) value).materialize();
+		}
+		return value;
+	}
+
 	private Object processException(RequestEntity requestEntity, Throwable root) throws Throwable {
 		MagicScriptException se = null;
 		Throwable parent = root;
@@ -356,6 +465,10 @@ public class RequestHandler extends MagicController {
 				MagicScriptAssertException sae = (MagicScriptAssertException) parent;
 				return afterCompletion(requestEntity, resultProvider.buildResult(requestEntity, sae.getCode(), sae.getMessage()), root);
 			}
+			if (parent instanceof ConcurrencyLimitException) {
+				logger.warn("接口{}请求被拒绝：{}", requestEntity.getRequest().getRequestURI(), parent.getMessage());
+				return afterCompletion(requestEntity, resultProvider.buildResult(requestEntity, RESPONSE_CODE_REJECTED, parent.getMessage()), root);
+			}
 			if (parent instanceof MagicScriptException) {
 				se = (MagicScriptException) parent;
 			}
@@ -379,7 +492,7 @@ public class RequestHandler extends MagicController {
 	/**
 	 * 读取RequestBody
 	 */
-	private Object readRequestBody(MagicHttpServletRequest request) throws IOException {
+	private Object readRequestBody(MagicHttpServletRequest request) {
 		if (configuration.getHttpMessageConverters() != null && request.getContentType() != null) {
 			MediaType mediaType = MediaType.valueOf(request.getContentType());
 			Class clazz = Object.class;
@@ -391,6 +504,8 @@ public class RequestHandler extends MagicController {
 				}
 			} catch (HttpMessageNotReadableException ignored) {
 				return null;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
 		}
 		return null;
@@ -408,7 +523,7 @@ public class RequestHandler extends MagicController {
 		if (requestEntity.isRequestedFromDebug() && breakpoints.size() > 0) {
 			context = debugRequest.createMagicScriptContext(configuration.getDebugTimeout());
 		} else {
-			context = new MagicScriptContext();
+			context = new LazyBindingScriptContext();
 		}
 		context.setScriptName(scriptName);
 		return context;
@@ -427,6 +542,145 @@ public class RequestHandler extends MagicController {
 		return resultProvider.buildResult(requestEntity, value);
 	}
 
+	/**
+	 * 按 Accept 协商的媒体类型序列化并缓存响应结果，缓存key已区分 Accept。脚本自行处理响应、设置了 header 或无法协商时不缓存
+	 */
+	@SuppressWarnings("unchecked")
+	private Object cacheResponse(RequestEntity requestEntity, SharedRequest sharedRequest, Object value) throws IOException {
+		if (value == null || value instanceof ResponseEntity || requestEntity.getResponse().getHeaderNames().size() != sharedRequest.headerCount) {
+			return value;
+		}
+		MediaType mediaType = negotiateMediaType(requestEntity.getRequest(), value.getClass());
+		if (mediaType == null) {
+			return value;
+		}
+		for (HttpMessageConverter<?> converter : configuration.getHttpMessageConverters()) {
+			if (converter.canWrite(value.getClass(), mediaType)) {
+				ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+				HttpHeaders headers = new HttpHeaders();
+				((HttpMessageConverter<Object>) converter).write(value, mediaType, new HttpOutputMessage() {
+					@Override
+					public OutputStream getBody() {
+						return body;
+					}
+
+					@Override
+					public HttpHeaders getHeaders() {
+						return headers;
+					}
+				});
+				byte[] bytes = body.toByteArray();
+				MediaType contentType = headers.getContentType();
+				String etag = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+				CachedResponse cached = new CachedResponse(bytes, Objects.toString(contentType, mediaType.toString()), etag, sharedRequest.policy.getTtl());
+				requestMagicDynamicRegistry.getResponseCache().put(requestEntity.getApiInfo().getId(), sharedRequest.key, cached, sharedRequest.policy.getCacheNames());
+				return toResponseEntity(requestEntity, cached);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * 与 Spring MVC 一致地按 Accept 及可写出的媒体类型协商响应的媒体类型，无法协商时返回 null
+	 */
+	private MediaType negotiateMediaType(MagicHttpServletRequest request, Class<?> valueClass) {
+		List<MediaType> acceptableTypes;
+		try {
+			String accept = request.getHeader(HttpHeaders.ACCEPT);
+			acceptableTypes = StringUtils.isBlank(accept) ? Collections.singletonList(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+		} catch (InvalidMediaTypeException e) {
+			return null;
+		}
+		List<MediaType> producibleTypes = new ArrayList<>();
+		for (HttpMessageConverter<?> converter : configuration.getHttpMessageConverters()) {
+			if (converter.canWrite(valueClass, null)) {
+				producibleTypes.addAll(converter.getSupportedMediaTypes());
+			}
+		}
+		List<MediaType> compatibleTypes = new ArrayList<>();
+		for (MediaType acceptableType : acceptableTypes) {
+			for (MediaType producibleType : producibleTypes) {
+				if (acceptableType.isCompatibleWith(producibleType)) {
+					// 取两者中更具体的类型，保留 Accept 中的权重
+					MediaType mediaType = producibleType.isWildcardType() || producibleType.isWildcardSubtype() ? acceptableType : producibleType.copyQualityValue(acceptableType);
+					compatibleTypes.add(mediaType);
+				}
+			}
+		}
+		// 权重高的优先，权重相同时具体的类型优先
+		compatibleTypes.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed().thenComparing(mediaType -> mediaType.isConcrete() ? 0 : 1));
+		for (MediaType mediaType : compatibleTypes) {
+			if (mediaType.isConcrete()) {
+				return mediaType.removeQualityValue();
+			}
+			if (mediaType.isWildcardType() || ("application".equals(mediaType.getType()) && mediaType.isWildcardSubtype())) {
+				return MediaType.APPLICATION_JSON;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 构建缓存的响应，If-None-Match 与 ETag 一致时返回 304
+	 */
+	private ResponseEntity<byte[]> toResponseEntity(RequestEntity requestEntity, CachedResponse cached) {
+		String ifNoneMatch = requestEntity.getRequest().getHeader(IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			for (String etag : ifNoneMatch.split(",")) {
+				etag = etag.trim();
+				if (etag.startsWith("W/")) {
+					etag = etag.substring(2);
+				}
+				if ("*".equals(etag) || cached.getEtag().equals(etag)) {
+					return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.getEtag()).build();
+				}
+			}
+		}
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(cached.getContentType())).eTag(cached.getEtag()).body(cached.getBody());
+	}
+
+	/**
+	 * 本次请求的响应缓存及请求合并信息
+	 */
+	private static class SharedRequest {
+
+		/**
+		 * 响应缓存策略，为 null 时不缓存
+		 */
+		private final ResponseCachePolicy policy;
+
+		private final String key;
+
+		/**
+		 * 执行前响应中 header 的数量
+		 */
+		private final int headerCount;
+
+		/**
+		 * 合并请求时的最大等待数，<0 时不合并
+		 */
+		private final int maxWaiters;
+
+		/**
+		 * 合并请求的key，区分用户身份
+		 */
+		private final String coalesceKey;
+
+		/**
+		 * 合并请求时的最长等待时间
+		 */
+		private final long coalesceTimeout;
+
+		SharedRequest(ResponseCachePolicy policy, String key, int headerCount, int maxWaiters, String coalesceKey, long coalesceTimeout) {
+			this.policy = policy;
+			this.key = key;
+			this.headerCount = headerCount;
+			this.maxWaiters = maxWaiters;
+			this.coalesceKey = coalesceKey;
+			this.coalesceTimeout = coalesceTimeout;
+		}
+	}
+
 	/**
 	 * 执行后置拦截器
 	 */
@@ -434,7 +688,7 @@ public class RequestHandler extends MagicController {
 		for (RequestInterceptor requestInterceptor : configuration.getRequestInterceptors()) {
 			Object target = requestInterceptor.postHandle(requestEntity, value);
 			if (target != null) {
-				return afterCompletion(requestEntity, target);
+				return target;
 			}
 		}
 		return null;
@@ -445,6 +699,12 @@ public class RequestHandler extends MagicController {
 	}
 
 	private Object afterCompletion(RequestEntity requestEntity, Object returnValue, Throwable throwable) {
+		// 关闭脚本中未读取完的游标等资源
+		requestEntity.closeResources();
+		ApiMetric metric = requestMagicDynamicRegistry.getApiMetrics().get(requestEntity.getApiInfo());
+		if (metric != null) {
+			metric.record(System.nanoTime() - requestEntity.getRequestNanoTime(), throwable != null);
+		}
 		for (RequestInterceptor requestInterceptor : configuration.getRequestInterceptors()) {
 			try {
 				requestInterceptor.afterCompletion(requestEntity, returnValue, throwable);
@@ -467,6 +727,20 @@ public class RequestHandler extends MagicController {
 		return returnValue;
 	}
 
+	/**
+	 * 记录阶段耗时
+	 *
+	 * @param start 阶段开始时间
+	 * @return 当前时间，作为下一阶段的开始时间
+	 */
+	private long record(ApiMetric metric, Phase phase, long start) {
+		long now = System.nanoTime();
+		if (metric != null) {
+			metric.record(phase, now - start);
+		}
+		return now;
+	}
+
 	/**
 	 * 执行前置拦截器
 	 */
@@ -0,0 +1,164 @@
+package org.ssssssss.magicapi.core.web;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.ssssssss.magicapi.core.model.ApiInfo;
+import org.ssssssss.magicapi.core.model.EffectiveApiInfo;
+import org.ssssssss.magicapi.core.model.Options;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
+
+import java.util.*;
+
+/**
+ * 接口响应缓存策略，根据接口选项预先解析
+ *
+ * @author mxd
+ */
+public class ResponseCachePolicy {
+
+	private static final String ACCEPT = "Accept";
+
+	private final ApiInfo info;
+
+	/**
+	 * 缓存时间，单位为毫秒，<=0 时不缓存
+	 */
+	private final long ttl;
+
+	/**
+	 * 参与缓存key的参数，为 null 时使用全部参数
+	 */
+	private final String[] keyParameters;
+
+	/**
+	 * 参与缓存key的header
+	 */
+	private final String[] varyHeaders;
+
+	/**
+	 * 关联的SQL缓存名称
+	 */
+	private final List<String> cacheNames;
+
+	/**
+	 * 不同用户是否共享缓存
+	 */
+	private final boolean shared;
+
+	private ResponseCachePolicy(ApiInfo info, long ttl, String[] keyParameters, String[] varyHeaders, List<String> cacheNames, boolean shared) {
+		this.info = info;
+		this.ttl = ttl;
+		this.keyParameters = keyParameters;
+		this.varyHeaders = varyHeaders;
+		this.cacheNames = cacheNames;
+		this.shared = shared;
+	}
+
+	public static ResponseCachePolicy resolve(EffectiveApiInfo effectiveApiInfo) {
+		long ttl = NumberUtils.toLong(effectiveApiInfo.getOptionValue(Options.CACHE_TTL), 0);
+		String keyParameters = effectiveApiInfo.getOptionValue(Options.CACHE_KEY_PARAMETERS);
+		return new ResponseCachePolicy(effectiveApiInfo.getApiInfo(), ttl,
+				StringUtils.isBlank(keyParameters) ? null : split(keyParameters),
+				split(effectiveApiInfo.getOptionValue(Options.CACHE_VARY_HEADERS)),
+				Collections.unmodifiableList(Arrays.asList(split(effectiveApiInfo.getOptionValue(Options.CACHE_DEPEND_NAMES)))),
+				"true".equalsIgnoreCase(effectiveApiInfo.getOptionValue(Options.CACHE_SHARED)));
+	}
+
+	private static String[] split(String value) {
+		if (StringUtils.isBlank(value)) {
+			return new String[0];
+		}
+		return Arrays.stream(value.split(",")).map(String::trim).filter(StringUtils::isNotBlank).distinct().sorted().toArray(String[]::new);
+	}
+
+	/**
+	 * 解析时所使用的接口信息
+	 */
+	public ApiInfo getApiInfo() {
+		return info;
+	}
+
+	public boolean isEnabled() {
+		return ttl > 0;
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	public List<String> getCacheNames() {
+		return cacheNames;
+	}
+
+	/**
+	 * 根据请求方法、路径、参数及header生成缓存key，按 Accept 区分，不同媒体类型的响应分别缓存。
+	 * 未开启共享时按用户身份区分，不同用户不会命中彼此的缓存
+	 */
+	public String buildKey(MagicHttpServletRequest request, Map<String, Object> parameters) {
+		StringBuilder builder = new StringBuilder(128);
+		builder.append(request.getMethod()).append(' ').append(request.getRequestURI());
+		if (parameters != null && !parameters.isEmpty()) {
+			if (keyParameters == null) {
+				new TreeMap<>(parameters).forEach((key, value) -> append(builder, '&', key, value));
+			} else {
+				for (String name : keyParameters) {
+					append(builder, '&', name, parameters.get(name));
+				}
+			}
+		}
+		for (String name : varyHeaders) {
+			append(builder, '|', name, request.getHeader(name));
+		}
+		append(builder, '^', ACCEPT, request.getHeader(ACCEPT));
+		if (!shared) {
+			appendIdentity(builder, request);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 生成合并请求的key，在缓存key的基础上区分用户身份，避免不同用户共享执行结果
+	 */
+	public String buildCoalesceKey(MagicHttpServletRequest request, String cacheKey) {
+		if (!shared) {
+			// 缓存key已区分用户身份
+			return cacheKey;
+		}
+		StringBuilder builder = new StringBuilder(cacheKey);
+		appendIdentity(builder, request);
+		return builder.toString();
+	}
+
+	/**
+	 * 追加 Authorization、Cookie 及名称包含 token 的 header
+	 */
+	private static void appendIdentity(StringBuilder builder, MagicHttpServletRequest request) {
+		Enumeration<String> headerNames = request.getHeaderNames();
+		if (headerNames != null) {
+			List<String> names = new ArrayList<>();
+			while (headerNames.hasMoreElements()) {
+				String name = headerNames.nextElement();
+				if (isIdentityHeader(name)) {
+					names.add(name.toLowerCase());
+				}
+			}
+			Collections.sort(names);
+			for (String name : names) {
+				append(builder, '#', name, request.getHeader(name));
+			}
+		}
+	}
+
+	private static boolean isIdentityHeader(String name) {
+		String lowerName = name.toLowerCase();
+		return "authorization".equals(lowerName) || "proxy-authorization".equals(lowerName) || "cookie".equals(lowerName) || lowerName.contains("token");
+	}
+
+	private static void append(StringBuilder builder, char separator, String name, Object value) {
+		builder.append(separator).append(name.length()).append(':').append(name).append('=');
+		if (value != null) {
+			String text = value.toString();
+			builder.append(text.length()).append(':').append(text);
+		}
+	}
+}
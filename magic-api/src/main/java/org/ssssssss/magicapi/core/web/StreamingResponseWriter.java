@@ -0,0 +1,146 @@
+package org.ssssssss.magicapi.core.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.ssssssss.magicapi.core.config.MagicConfiguration;
+import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.core.interceptor.ResultProvider;
+import org.ssssssss.magicapi.core.model.StreamingResult;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletResponse;
+import org.ssssssss.magicapi.modules.db.SqlCursor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将 {@link StreamingResult} 直接写入响应输出流
+ * <p>
+ * JSON 按配置的结果格式包装，data 部分逐行序列化；CSV 直接输出表格。未设置 Content-Length，
+ * 由容器使用分块传输，每 {@link StreamingResult#FLUSH_ROWS} 行刷新一次。
+ *
+ * @author mxd
+ */
+class StreamingResponseWriter {
+
+	private static final String CSV_CONTENT_TYPE = "text/csv;charset=UTF-8";
+
+	private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+	private final ResultProvider resultProvider;
+
+	private final MagicConfiguration configuration;
+
+	StreamingResponseWriter(ResultProvider resultProvider, MagicConfiguration configuration) {
+		this.resultProvider = resultProvider;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * 写出结果
+	 *
+	 * @return 无法流式输出时返回需要按普通结果处理的值，已写出时返回 null
+	 */
+	Object write(RequestEntity requestEntity, StreamingResult result) throws IOException {
+		MagicHttpServletResponse response = requestEntity.getResponse();
+		try {
+			if (result.getFormat() == StreamingResult.Format.CSV) {
+				writeCsv(response, result);
+				return null;
+			}
+			ObjectMapper objectMapper = getObjectMapper();
+			if (objectMapper == null) {
+				// 没有可用的 Jackson 转换器，读取全部数据后按普通结果输出
+				return resultProvider.buildResult(requestEntity, result.materialize().getRows());
+			}
+			Object value = resultProvider.buildResult(requestEntity, result);
+			response.setContentType(JSON_CONTENT_TYPE);
+			OutputStream out = response.getOutputStream();
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+				objectMapper.writeValue(generator, value);
+			}
+			return null;
+		} finally {
+			result.close();
+		}
+	}
+
+	private ObjectMapper getObjectMapper() {
+		List<HttpMessageConverter<?>> httpMessageConverters = configuration.getHttpMessageConverters();
+		if (httpMessageConverters != null) {
+			for (HttpMessageConverter<?> converter : httpMessageConverters) {
+				if (converter instanceof AbstractJackson2HttpMessageConverter) {
+					return ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper();
+				}
+			}
+		}
+		return null;
+	}
+
+	private void writeCsv(MagicHttpServletResponse response, StreamingResult result) throws IOException {
+		response.setContentType(CSV_CONTENT_TYPE);
+		if (result.getFilename() != null) {
+			response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment").filename(result.getFilename(), StandardCharsets.UTF_8).build().toString());
+		}
+		Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 8192);
+		Iterable<Map<String, Object>> rows = result.getRows();
+		Iterator<Map<String, Object>> iterator = rows.iterator();
+		int count = 0;
+		boolean header = true;
+		while (iterator.hasNext()) {
+			Map<String, Object> row = iterator.next();
+			if (header) {
+				writeCsvLine(writer, row.keySet());
+				header = false;
+			}
+			writeCsvLine(writer, row.values());
+			if (++count % StreamingResult.FLUSH_ROWS == 0) {
+				writer.flush();
+			}
+		}
+		if (header && rows instanceof SqlCursor) {
+			// 没有数据时仍输出表头
+			writeCsvLine(writer, ((SqlCursor) rows).getColumns());
+		}
+		writer.flush();
+	}
+
+	private void writeCsvLine(Writer writer, Iterable<?> values) throws IOException {
+		boolean first = true;
+		for (Object value : values) {
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+			if (value != null) {
+				writeCsvValue(writer, value.toString());
+			}
+		}
+		writer.write("\r\n");
+	}
+
+	/**
+	 * 包含逗号、引号或换行时用双引号包裹，引号转义为两个引号
+	 */
+	private void writeCsvValue(Writer writer, String value) throws IOException {
+		boolean quote = false;
+		for (int i = 0, len = value.length(); i < len && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quote) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+}
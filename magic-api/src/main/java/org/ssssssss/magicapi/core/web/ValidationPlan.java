@@ -0,0 +1,377 @@
+package org.ssssssss.magicapi.core.web;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.CollectionUtils;
+import org.ssssssss.magicapi.core.config.Constants;
+import org.ssssssss.magicapi.core.config.JsonCodeConstants;
+import org.ssssssss.magicapi.core.exception.ValidateException;
+import org.ssssssss.magicapi.core.model.*;
+import org.ssssssss.magicapi.modules.servlet.RequestModule;
+import org.ssssssss.magicapi.utils.ScriptManager;
+import org.ssssssss.script.MagicScript;
+import org.ssssssss.script.MagicScriptContext;
+import org.ssssssss.script.functions.ObjectConvertExtension;
+import org.ssssssss.script.parsing.ast.literal.BooleanLiteral;
+import org.ssssssss.script.reflection.JavaInvoker;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.ssssssss.magicapi.core.config.Constants.*;
+
+/**
+ * 接口参数验证计划
+ * <p>
+ * 根据接口的参数、路径变量、header、RequestBody定义预先编译，类型转换、正则及验证表达式只解析一次，请求时直接执行。
+ *
+ * @author mxd
+ */
+public class ValidationPlan implements JsonCodeConstants {
+
+	private final ApiInfo info;
+
+	private final String scriptName;
+
+	private final DefinitionGroup parameters;
+
+	private final DefinitionGroup paths;
+
+	private final DefinitionGroup headers;
+
+	private final DefinitionGroup requestBody;
+
+	private final String requestBodyName;
+
+	public ValidationPlan(ApiInfo info, List<Path> paths, String scriptName) {
+		this.info = info;
+		this.scriptName = scriptName;
+		this.parameters = DefinitionGroup.compile("参数", info.getParameters(), PARAMETER_INVALID);
+		this.paths = DefinitionGroup.compile("path", paths, PATH_VARIABLE_INVALID);
+		this.headers = DefinitionGroup.compile("header", info.getHeaders(), HEADER_INVALID);
+		BaseDefinition definition = info.getRequestBodyDefinition();
+		if (definition != null && !CollectionUtils.isEmpty(definition.getChildren())) {
+			definition.setName(StringUtils.defaultIfBlank(definition.getName(), "root"));
+			this.requestBody = DefinitionGroup.compile(VAR_NAME_REQUEST_BODY, Collections.singletonList(definition), BODY_INVALID);
+			this.requestBodyName = definition.getName();
+		} else {
+			this.requestBody = null;
+			this.requestBodyName = null;
+		}
+	}
+
+	/**
+	 * 编译时所使用的接口信息
+	 */
+	public ApiInfo getApiInfo() {
+		return info;
+	}
+
+	public void validateParameters(Map<String, Object> values, boolean disabledUnknownParameter) {
+		parameters.validate(scriptName, values, disabledUnknownParameter);
+	}
+
+	public void validatePaths(Map<String, Object> values, boolean disabledUnknownParameter) {
+		paths.validate(scriptName, values, disabledUnknownParameter);
+	}
+
+	public void validateHeaders(Map<String, Object> values, boolean disabledUnknownParameter) {
+		headers.validate(scriptName, values, disabledUnknownParameter);
+	}
+
+	public boolean hasRequestBody() {
+		return requestBody != null;
+	}
+
+	public void validateRequestBody(Object body, boolean disabledUnknownParameter) {
+		if (requestBody != null) {
+			Map<String, Object> values = new HashMap<>(2);
+			values.put(requestBodyName, body);
+			requestBody.validate(scriptName, values, disabledUnknownParameter);
+		}
+	}
+
+	/**
+	 * 同一层级的参数定义
+	 */
+	private static class DefinitionGroup {
+
+		private static final DefinitionGroup EMPTY = new DefinitionGroup(new String[0], new Rule[0], new Rule[0]);
+
+		private final String[] names;
+
+		private final Rule[] rules;
+
+		private final Rule[] expressionRules;
+
+		private DefinitionGroup(String[] names, Rule[] rules, Rule[] expressionRules) {
+			this.names = names;
+			this.rules = rules;
+			this.expressionRules = expressionRules;
+		}
+
+		static DefinitionGroup compile(String comment, List<? extends BaseDefinition> definitions, JsonCode jsonCode) {
+			if (CollectionUtils.isEmpty(definitions)) {
+				return EMPTY;
+			}
+			int size = definitions.size();
+			String[] names = new String[size];
+			List<Rule> rules = new ArrayList<>(size);
+			List<Rule> expressionRules = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				BaseDefinition definition = definitions.get(i);
+				names[i] = definition.getName();
+				Rule rule = new Rule(comment, definition, jsonCode);
+				rules.add(rule);
+				if (VALIDATE_TYPE_EXPRESSION.equals(definition.getValidateType()) && StringUtils.isNotBlank(definition.getExpression())) {
+					expressionRules.add(rule);
+				}
+			}
+			return new DefinitionGroup(names, rules.toArray(new Rule[0]), expressionRules.toArray(new Rule[0]));
+		}
+
+		Map<String, Object> validate(String scriptName, Map<String, Object> values, boolean disabledUnknownParameter) {
+			if (rules.length == 0) {
+				return values;
+			}
+			if (values == null) {
+				values = new HashMap<>();
+			}
+			if (disabledUnknownParameter && !values.isEmpty()) {
+				Map<String, Object> known = new HashMap<>(names.length);
+				for (String name : names) {
+					known.put(name, values.get(name));
+				}
+				values.clear();
+				values.putAll(known);
+			}
+			for (Rule rule : rules) {
+				rule.validate(scriptName, values, disabledUnknownParameter);
+			}
+			for (Rule rule : expressionRules) {
+				Object value = values.get(rule.name);
+				if (value != null) {
+					MagicScriptContext context = new MagicScriptContext();
+					// 将其他参数也放置脚本中，以实现“依赖”的情况
+					context.putMapIntoContext(values);
+					context.setScriptName(scriptName);
+					// 设置自身变量
+					context.set(EXPRESSION_DEFAULT_VAR_NAME, value);
+					if (!BooleanLiteral.isTrue(rule.expression().execute(context))) {
+						throw new ValidateException(rule.jsonCode, rule.expressionMessage);
+					}
+				}
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * 单个参数的验证规则
+	 */
+	private static class Rule {
+
+		private final String name;
+
+		private final DataType dataType;
+
+		private final boolean required;
+
+		private final boolean isFile;
+
+		private final String defaultValue;
+
+		private final JsonCode jsonCode;
+
+		private final DefinitionGroup children;
+
+		private final ValueConverter converter;
+
+		private final String expressionSource;
+
+		private final Pattern pattern;
+
+		private final boolean invalidPattern;
+
+		private final String requiredMessage;
+
+		private final String typeMessage;
+
+		private final String patternMessage;
+
+		private final String invalidMessage;
+
+		private final String expressionMessage;
+
+		private volatile MagicScript expression;
+
+		Rule(String comment, BaseDefinition definition, JsonCode jsonCode) {
+			this.name = definition.getName();
+			this.dataType = definition.getDataType();
+			this.required = definition.isRequired();
+			this.isFile = dataType == DataType.MultipartFile || dataType == DataType.MultipartFiles;
+			this.defaultValue = Objects.toString(definition.getDefaultValue(), Constants.EMPTY);
+			this.jsonCode = jsonCode;
+			this.children = dataType == DataType.Object || dataType == DataType.Array ? DefinitionGroup.compile(VAR_NAME_REQUEST_BODY, definition.getChildren(), jsonCode) : null;
+			this.converter = resolveConverter(dataType);
+			String error = definition.getError();
+			this.requiredMessage = StringUtils.defaultIfBlank(error, String.format("%s[%s]为必填项", comment, name));
+			this.typeMessage = StringUtils.defaultIfBlank(error, String.format("%s[%s]数据类型错误", comment, name));
+			this.patternMessage = StringUtils.defaultIfBlank(error, String.format("%s[%s]不满足正则表达式", comment, name));
+			this.invalidMessage = StringUtils.defaultIfBlank(error, String.format("%s[%s]不合法", comment, name));
+			this.expressionMessage = StringUtils.defaultIfBlank(error, String.format("%s[%s]不满足表达式", comment, name));
+			this.expressionSource = definition.getExpression();
+			Pattern compiled = null;
+			boolean invalid = false;
+			if (VALIDATE_TYPE_PATTERN.equals(definition.getValidateType()) && StringUtils.isNotBlank(expressionSource)) {
+				try {
+					compiled = Pattern.compile(expressionSource);
+				} catch (PatternSyntaxException e) {
+					invalid = true;
+				}
+			}
+			this.pattern = compiled;
+			this.invalidPattern = invalid;
+		}
+
+		/**
+		 * 验证表达式在首次使用时编译，以保持编译出错时的处理与之前一致
+		 */
+		MagicScript expression() {
+			MagicScript script = expression;
+			if (script == null) {
+				expression = script = ScriptManager.createExpression(expressionSource);
+			}
+			return script;
+		}
+
+		@SuppressWarnings("unchecked")
+		void validate(String scriptName, Map<String, Object> values, boolean disabledUnknownParameter) {
+			if (dataType == DataType.Any) {
+				return;
+			}
+			// 针对requestBody多层级的情况
+			if (dataType == DataType.Object) {
+				if (validateBody(values, Map.class)) {
+					return;
+				}
+				children.validate(scriptName, (Map<String, Object>) values.get(name), disabledUnknownParameter);
+			} else if (dataType == DataType.Array) {
+				if (validateBody(values, List.class)) {
+					return;
+				}
+				List<Object> list = (List<Object>) values.get(name);
+				if (list != null && !list.isEmpty()) {
+					// 数组元素逐个包装验证，包装用的Map复用
+					Map<String, Object> element = new HashMap<>(4);
+					for (int i = 0, size = list.size(); i < size; i++) {
+						element.clear();
+						element.put(Constants.EMPTY, list.get(i));
+						list.set(i, children.validate(scriptName, element, disabledUnknownParameter).get(Constants.EMPTY));
+					}
+				}
+			} else if (StringUtils.isNotBlank(name) || values.containsKey(name)) {
+				String requestValue = StringUtils.defaultIfBlank(Objects.toString(values.get(name), Constants.EMPTY), defaultValue);
+				if (StringUtils.isBlank(requestValue) && !isFile) {
+					if (!required) {
+						return;
+					}
+					throw new ValidateException(jsonCode, requiredMessage);
+				}
+				try {
+					Object value = converter.convert(name, requestValue);
+					if (isFile && required) {
+						if (value == null || (dataType == DataType.MultipartFiles && ((List<?>) value).isEmpty())) {
+							throw new ValidateException(jsonCode, requiredMessage);
+						}
+					}
+					// 正则验证
+					if (invalidPattern) {
+						throw new IllegalArgumentException();
+					}
+					if (pattern != null && !pattern.matcher(Objects.toString(value, Constants.EMPTY)).find()) {
+						throw new ValidateException(jsonCode, patternMessage);
+					}
+					values.put(name, value);
+				} catch (ValidateException ve) {
+					throw ve;
+				} catch (Throwable e) {
+					throw new ValidateException(jsonCode, invalidMessage);
+				}
+			}
+		}
+
+		private boolean validateBody(Map<String, Object> values, Class<?> target) {
+			if (!required && values.isEmpty()) {
+				return true;
+			}
+			Object value = values.get(name);
+			if (required && !BooleanLiteral.isTrue(value)) {
+				throw new ValidateException(jsonCode, requiredMessage);
+			}
+			if (value != null && !target.isAssignableFrom(value.getClass())) {
+				throw new ValidateException(jsonCode, typeMessage);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * 类型转换，编译时按数据类型确定
+	 */
+	@FunctionalInterface
+	private interface ValueConverter {
+
+		Object convert(String name, String value) throws Throwable;
+	}
+
+	private static BigDecimal requireDecimal(String value) {
+		BigDecimal decimal = ObjectConvertExtension.asDecimal(value, null);
+		if (decimal == null) {
+			throw new IllegalArgumentException();
+		}
+		return decimal;
+	}
+
+	private static ValueConverter resolveConverter(DataType dataType) {
+		switch (dataType) {
+			case Integer:
+				return (name, value) -> requireDecimal(value).intValue();
+			case Long:
+				return (name, value) -> requireDecimal(value).longValue();
+			case Double:
+				return (name, value) -> requireDecimal(value).doubleValue();
+			case Float:
+				return (name, value) -> requireDecimal(value).floatValue();
+			case Byte:
+				return (name, value) -> requireDecimal(value).byteValue();
+			case Short:
+				return (name, value) -> requireDecimal(value).shortValue();
+			case Boolean:
+				return (name, value) -> Boolean.valueOf(value);
+			case Date:
+				return (name, value) -> DataType.parseDate(value);
+			case MultipartFile:
+				return (name, value) -> RequestModule.getFile(name);
+			case MultipartFiles:
+				return (name, value) -> RequestModule.getFiles(name);
+			default:
+				JavaInvoker<Method> invoker = dataType.getInvoker();
+				if (invoker == null) {
+					return (name, value) -> value;
+				}
+				return (name, value) -> {
+					List<Object> params = new ArrayList<>(2);
+					if (dataType.isNeedName()) {
+						params.add(name);
+					}
+					if (dataType.isNeedValue()) {
+						params.add(value);
+					}
+					return invoker.invoke0(null, null, params.toArray());
+				};
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package org.ssssssss.magicapi.datasource.model;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.ssssssss.magicapi.core.exception.ConcurrencyLimitException;
+import org.ssssssss.magicapi.utils.ConcurrencyLimiter;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 限制并发连接数的数据源，获取连接前先获取许可，连接关闭时归还
+ *
+ * @author mxd
+ */
+class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+	private final String name;
+
+	private final ConcurrencyLimiter limiter;
+
+	ConcurrencyLimitedDataSource(DataSource targetDataSource, String name, ConcurrencyLimiter limiter) {
+		super(targetDataSource);
+		this.name = name;
+		this.limiter = limiter;
+	}
+
+	ConcurrencyLimiter getLimiter() {
+		return limiter;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		try {
+			return wrap(super.getConnection());
+		} catch (SQLException | RuntimeException e) {
+			limiter.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		try {
+			return wrap(super.getConnection(username, password));
+		} catch (SQLException | RuntimeException e) {
+			limiter.release();
+			throw e;
+		}
+	}
+
+	private void acquire() {
+		if (!limiter.tryAcquire()) {
+			throw new ConcurrencyLimitException(String.format("数据源[%s]超出并发限制", name));
+		}
+	}
+
+	private Connection wrap(Connection target) {
+		AtomicBoolean closed = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[]{ConnectionProxy.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getTargetConnection":
+					return target;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "close":
+					if (closed.compareAndSet(false, true)) {
+						try {
+							target.close();
+						} finally {
+							limiter.release();
+						}
+					}
+					return null;
+				case "isClosed":
+					if (closed.get()) {
+						return true;
+					}
+					break;
+				default:
+					break;
+			}
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		});
+	}
+}
@@ -2,6 +2,11 @@ package org.ssssssss.magicapi.datasource.model;
 
 import org.ssssssss.magicapi.core.model.MagicEntity;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class DataSourceInfo extends MagicEntity {
 
 	/**
@@ -39,6 +44,16 @@ public class DataSourceInfo extends MagicEntity {
 	 */
 	private String type;
 
+	/**
+	 * 从库，每项为连接池属性，如 url、username、password，未配置的属性与主库相同
+	 */
+	private List<Map<String, Object>> replicas;
+
+	/**
+	 * 从库负载均衡策略：round-robin、least-in-flight、latency，默认为 round-robin
+	 */
+	private String loadBalance;
+
 	public String getUrl() {
 		return url;
 	}
@@ -95,6 +110,22 @@ public class DataSourceInfo extends MagicEntity {
 		this.type = type;
 	}
 
+	public List<Map<String, Object>> getReplicas() {
+		return replicas;
+	}
+
+	public void setReplicas(List<Map<String, Object>> replicas) {
+		this.replicas = replicas;
+	}
+
+	public String getLoadBalance() {
+		return loadBalance;
+	}
+
+	public void setLoadBalance(String loadBalance) {
+		this.loadBalance = loadBalance;
+	}
+
 	@Override
 	public MagicEntity simple() {
 		DataSourceInfo dataSourceInfo = new DataSourceInfo();
@@ -114,6 +145,12 @@ public class DataSourceInfo extends MagicEntity {
 		dataSourceInfo.setType(this.type);
 		dataSourceInfo.setMaxRows(this.maxRows);
 		dataSourceInfo.setKey(this.key);
+		if (this.replicas != null) {
+			List<Map<String, Object>> replicas = new ArrayList<>();
+			this.replicas.forEach(it -> replicas.add(new LinkedHashMap<>(it)));
+			dataSourceInfo.setReplicas(replicas);
+		}
+		dataSourceInfo.setLoadBalance(this.loadBalance);
 		return dataSourceInfo;
 	}
 }
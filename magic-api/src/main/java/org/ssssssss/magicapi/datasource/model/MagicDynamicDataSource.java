@@ -10,11 +10,15 @@ import org.ssssssss.magicapi.modules.db.dialect.DialectAdapter;
 import org.ssssssss.magicapi.core.exception.MagicAPIException;
 import org.ssssssss.magicapi.modules.db.dialect.Dialect;
 import org.ssssssss.magicapi.utils.Assert;
+import org.ssssssss.magicapi.utils.ConcurrencyLimiter;
 import org.ssssssss.magicapi.utils.IoUtils;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 动态数据源对象
@@ -27,6 +31,54 @@ public class MagicDynamicDataSource {
 
 	private final Map<String, MagicDynamicDataSource.DataSourceNode> dataSourceMap = new HashMap<>();
 
+	/**
+	 * 数据源默认最大并发数，0 为不限制
+	 */
+	private int defaultMaxConcurrent = 0;
+
+	private int defaultMaxWaiting = 0;
+
+	private long waitTimeout = 1000;
+
+	/**
+	 * 从库健康检查间隔，单位为毫秒，<=0 时不检查
+	 */
+	private long healthCheckInterval = 10000;
+
+	/**
+	 * 从库健康检查超时时间，单位为秒
+	 */
+	private int healthCheckTimeout = 3;
+
+	/**
+	 * 注册从库后启动
+	 */
+	private ScheduledExecutorService healthCheckExecutor;
+
+	/**
+	 * 设置数据源并发隔离的默认配置，对之后注册的数据源生效
+	 *
+	 * @param maxConcurrent 默认最大并发数，0 为不限制
+	 * @param maxWaiting    默认最大排队数
+	 * @param waitTimeout   排队超时时间，单位为毫秒
+	 */
+	public void setConcurrencyLimit(int maxConcurrent, int maxWaiting, long waitTimeout) {
+		this.defaultMaxConcurrent = maxConcurrent;
+		this.defaultMaxWaiting = maxWaiting;
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * 设置从库健康检查，需在注册从库前设置
+	 *
+	 * @param interval 检查间隔，单位为毫秒，<=0 时不检查
+	 * @param timeout  超时时间，单位为秒
+	 */
+	public void setReplicaHealthCheck(long interval, int timeout) {
+		this.healthCheckInterval = interval;
+		this.healthCheckTimeout = timeout;
+	}
+
 	/**
 	 * 注册默认数据源
 	 */
@@ -61,11 +113,54 @@ public class MagicDynamicDataSource {
 	 * @param datasourceName 数据源名称
 	 */
 	public void put(String id, String dataSourceKey, String datasourceName, DataSource dataSource, int maxRows) {
+		put(id, dataSourceKey, datasourceName, dataSource, maxRows, -1, -1);
+	}
+
+	/**
+	 * 注册数据源（可以运行时注册）
+	 *
+	 * @param id             数据源ID
+	 * @param dataSourceKey  数据源Key
+	 * @param datasourceName 数据源名称
+	 * @param maxConcurrent  最大并发数，小于0时采用默认配置，0 为不限制
+	 * @param maxWaiting     最大排队数，小于0时采用默认配置
+	 */
+	public void put(String id, String dataSourceKey, String datasourceName, DataSource dataSource, int maxRows, int maxConcurrent, int maxWaiting) {
+		put(id, dataSourceKey, datasourceName, dataSource, maxRows, maxConcurrent, maxWaiting, Collections.emptyList(), null);
+	}
+
+	/**
+	 * 注册主库及从库（可以运行时注册），查询按负载均衡策略使用从库，写入及事务使用主库
+	 *
+	 * @param id             数据源ID
+	 * @param dataSourceKey  数据源Key
+	 * @param datasourceName 数据源名称
+	 * @param maxConcurrent  最大并发数，每个从库单独计算，小于0时采用默认配置，0 为不限制
+	 * @param maxWaiting     最大排队数，小于0时采用默认配置
+	 * @param replicas       从库
+	 * @param loadBalance    负载均衡策略，为 null 时轮询
+	 */
+	public void put(String id, String dataSourceKey, String datasourceName, DataSource dataSource, int maxRows, int maxConcurrent, int maxWaiting, List<DataSource> replicas, ReplicaSet.LoadBalance loadBalance) {
 		if (dataSourceKey == null) {
 			dataSourceKey = "";
 		}
-		logger.info("注册数据源：{}", StringUtils.isNotBlank(dataSourceKey) ? dataSourceKey : "default");
-		DataSourceNode node = this.dataSourceMap.put(dataSourceKey, new DataSourceNode(dataSource, dataSourceKey, datasourceName, id, maxRows));
+		String displayKey = StringUtils.isNotBlank(dataSourceKey) ? dataSourceKey : "default";
+		maxConcurrent = maxConcurrent < 0 ? defaultMaxConcurrent : maxConcurrent;
+		maxWaiting = maxWaiting < 0 ? defaultMaxWaiting : maxWaiting;
+		DataSourceNode dataSourceNode = new DataSourceNode(dataSource, dataSourceKey, datasourceName, id, maxRows, createLimiter(maxConcurrent, maxWaiting));
+		if (replicas != null && !replicas.isEmpty()) {
+			logger.info("注册数据源：{}，从库数：{}", displayKey, replicas.size());
+			List<DataSourceNode> replicaNodes = new ArrayList<>(replicas.size());
+			for (int i = 0; i < replicas.size(); i++) {
+				String replicaKey = displayKey + ":replica" + (i + 1);
+				replicaNodes.add(new DataSourceNode(replicas.get(i), replicaKey, datasourceName, null, maxRows, createLimiter(maxConcurrent, maxWaiting), true));
+			}
+			dataSourceNode.replicaSet = new ReplicaSet(replicaNodes, loadBalance == null ? ReplicaSet.LoadBalance.ROUND_ROBIN : loadBalance);
+			startHealthCheck();
+		} else {
+			logger.info("注册数据源：{}", displayKey);
+		}
+		DataSourceNode node = this.dataSourceMap.put(dataSourceKey, dataSourceNode);
 		if (node != null) {
 			node.close();
 		}
@@ -81,6 +176,34 @@ public class MagicDynamicDataSource {
 		}
 	}
 
+	private ConcurrencyLimiter createLimiter(int maxConcurrent, int maxWaiting) {
+		return maxConcurrent > 0 ? new ConcurrencyLimiter(maxConcurrent, maxWaiting, waitTimeout) : null;
+	}
+
+	private synchronized void startHealthCheck() {
+		if (this.healthCheckExecutor != null || this.healthCheckInterval <= 0) {
+			return;
+		}
+		this.healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "magic-api-replica-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.healthCheckExecutor.scheduleWithFixedDelay(this::checkReplicas, healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+	}
+
+	private void checkReplicas() {
+		try {
+			new ArrayList<>(this.dataSourceMap.values()).stream()
+					.map(DataSourceNode::getReplicaSet)
+					.filter(Objects::nonNull)
+					.forEach(it -> it.checkHealth(healthCheckTimeout));
+		} catch (Exception e) {
+			// 检查期间注册或删除数据源时跳过本次检查
+			logger.warn("从库健康检查失败", e);
+		}
+	}
+
 	/**
 	 * 获取全部数据源
 	 */
@@ -99,6 +222,37 @@ public class MagicDynamicDataSource {
 		return this.dataSourceMap.values();
 	}
 
+	/**
+	 * 数据源并发统计
+	 */
+	public List<Map<String, Object>> concurrencyStats() {
+		List<Map<String, Object>> stats = new ArrayList<>();
+		this.dataSourceMap.values().stream().filter(it -> it.getConcurrencyLimiter() != null).forEach(it -> {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("key", StringUtils.defaultIfEmpty(it.getKey(), "default"));
+			item.put("name", it.getName());
+			item.putAll(it.getConcurrencyLimiter().stats());
+			stats.add(item);
+		});
+		return stats;
+	}
+
+	/**
+	 * 从库统计
+	 */
+	public List<Map<String, Object>> replicaStats() {
+		List<Map<String, Object>> stats = new ArrayList<>();
+		this.dataSourceMap.values().stream().filter(it -> it.getReplicaSet() != null).forEach(it -> {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("key", StringUtils.defaultIfEmpty(it.getKey(), "default"));
+			item.put("name", it.getName());
+			item.put("loadBalance", it.getReplicaSet().getLoadBalance());
+			item.put("replicas", it.getReplicaSet().stats());
+			stats.add(item);
+		});
+		return stats;
+	}
+
 	/**
 	 * 删除数据源
 	 *
@@ -181,15 +335,40 @@ public class MagicDynamicDataSource {
 
 		private final DataSource dataSource;
 
+		private final ConcurrencyLimiter concurrencyLimiter;
+
+		/**
+		 * 作为从库时统计连接使用情况，主库为 null
+		 */
+		private final ReplicaDataSource replicaDataSource;
+
+		/**
+		 * 主库下的从库，没有从库时为 null
+		 */
+		private ReplicaSet replicaSet;
+
 		private Dialect dialect;
 
 		DataSourceNode(DataSource dataSource, String key, String name, String id, int maxRows) {
+			this(dataSource, key, name, id, maxRows, null);
+		}
+
+		DataSourceNode(DataSource dataSource, String key, String name, String id, int maxRows, ConcurrencyLimiter concurrencyLimiter) {
+			this(dataSource, key, name, id, maxRows, concurrencyLimiter, false);
+		}
+
+		DataSourceNode(DataSource dataSource, String key, String name, String id, int maxRows, ConcurrencyLimiter concurrencyLimiter, boolean replica) {
 			this.dataSource = dataSource;
 			this.key = key;
 			this.name = name;
 			this.id = id;
-			this.dataSourceTransactionManager = new DataSourceTransactionManager(this.dataSource);
-			this.jdbcTemplate = new JdbcTemplate(dataSource);
+			this.concurrencyLimiter = concurrencyLimiter;
+			this.replicaDataSource = replica ? new ReplicaDataSource(dataSource) : null;
+			DataSource target = replica ? this.replicaDataSource : dataSource;
+			// 脚本执行 SQL 及事务通过限流后的数据源获取连接
+			target = concurrencyLimiter == null ? target : new ConcurrencyLimitedDataSource(target, StringUtils.defaultIfEmpty(key, "default"), concurrencyLimiter);
+			this.dataSourceTransactionManager = new DataSourceTransactionManager(target);
+			this.jdbcTemplate = new JdbcTemplate(target);
 			this.jdbcTemplate.setMaxRows(maxRows);
 		}
 
@@ -235,8 +414,59 @@ public class MagicDynamicDataSource {
 			return dataSource;
 		}
 
+		/**
+		 * 从库，没有从库时返回 null
+		 */
+		public ReplicaSet getReplicaSet() {
+			return replicaSet;
+		}
+
+		ReplicaDataSource getReplicaDataSource() {
+			return replicaDataSource;
+		}
+
+		/**
+		 * 并发隔离，不限制时返回 null
+		 */
+		public ConcurrencyLimiter getConcurrencyLimiter() {
+			return concurrencyLimiter;
+		}
+
+		/**
+		 * 估算当前可用的连接数，取并发隔离剩余数与连接池剩余数（支持 Hikari、Druid）的较小值，无法获知时返回 -1
+		 */
+		public int getAvailableConnections() {
+			int available = -1;
+			if (concurrencyLimiter != null) {
+				available = concurrencyLimiter.getMaxConcurrent() - concurrencyLimiter.getInFlight();
+			}
+			int poolAvailable = -1;
+			try {
+				Class<?> clazz = dataSource.getClass();
+				if (clazz.getName().equals("com.zaxxer.hikari.HikariDataSource")) {
+					Object pool = clazz.getMethod("getHikariPoolMXBean").invoke(dataSource);
+					if (pool != null) {
+						int max = (Integer) clazz.getMethod("getMaximumPoolSize").invoke(dataSource);
+						poolAvailable = max - (Integer) pool.getClass().getMethod("getActiveConnections").invoke(pool);
+					}
+				} else if (clazz.getName().equals("com.alibaba.druid.pool.DruidDataSource")) {
+					int max = (Integer) clazz.getMethod("getMaxActive").invoke(dataSource);
+					poolAvailable = max - (Integer) clazz.getMethod("getActiveCount").invoke(dataSource);
+				}
+			} catch (Exception ignored) {
+				// 连接池版本不一致时按未知处理
+			}
+			if (poolAvailable < 0) {
+				return available;
+			}
+			return available < 0 ? poolAvailable : Math.min(available, poolAvailable);
+		}
+
 		public void close() {
 			IoUtils.closeDataSource(this.dataSource);
+			if (this.replicaSet != null) {
+				this.replicaSet.close();
+			}
 		}
 	}
 }
@@ -0,0 +1,178 @@
+package org.ssssssss.magicapi.datasource.model;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 从库数据源，统计正在使用的连接数及连接占用时间，用于负载均衡
+ * <p>
+ * 连接级错误（SQLState 为 08 开头）或连续多次获取连接失败时标记为不可用，由健康检查恢复，
+ * 连接池获取超时等偶发错误不会直接摘除从库。
+ *
+ * @author mxd
+ */
+class ReplicaDataSource extends DelegatingDataSource {
+
+	/**
+	 * 连接占用时间的指数平均权重
+	 */
+	private static final double LATENCY_WEIGHT = 0.2;
+
+	/**
+	 * 连续获取连接失败多少次后标记为不可用
+	 */
+	private static final int FAILURE_THRESHOLD = 3;
+
+	/**
+	 * 连接级错误的 SQLState 前缀
+	 */
+	private static final String CONNECTION_EXCEPTION_STATE = "08";
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger failures = new AtomicInteger();
+
+	/**
+	 * 平均连接占用时间，单位为毫秒，未统计时为 0
+	 */
+	private volatile double latency;
+
+	private volatile boolean healthy = true;
+
+	ReplicaDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	int getInFlight() {
+		return inFlight.get();
+	}
+
+	double getLatency() {
+		return latency;
+	}
+
+	boolean isHealthy() {
+		return healthy;
+	}
+
+	void setHealthy(boolean healthy) {
+		if (healthy) {
+			failures.set(0);
+		}
+		this.healthy = healthy;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		inFlight.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			Connection connection = super.getConnection();
+			failures.set(0);
+			return wrap(connection, start);
+		} catch (SQLException e) {
+			inFlight.decrementAndGet();
+			onFailure(e);
+			throw e;
+		} catch (RuntimeException e) {
+			inFlight.decrementAndGet();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		inFlight.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			Connection connection = super.getConnection(username, password);
+			failures.set(0);
+			return wrap(connection, start);
+		} catch (SQLException e) {
+			inFlight.decrementAndGet();
+			onFailure(e);
+			throw e;
+		} catch (RuntimeException e) {
+			inFlight.decrementAndGet();
+			throw e;
+		}
+	}
+
+	private void onFailure(SQLException e) {
+		if (isConnectionFailure(e) || failures.incrementAndGet() >= FAILURE_THRESHOLD) {
+			this.healthy = false;
+		}
+	}
+
+	/**
+	 * 是否为无法连接数据库的错误，连接池会把最近一次的连接错误作为 cause
+	 */
+	private static boolean isConnectionFailure(SQLException e) {
+		Throwable cause = e;
+		while (cause != null) {
+			if (cause instanceof SQLNonTransientConnectionException) {
+				return true;
+			}
+			if (cause instanceof SQLException) {
+				String state = ((SQLException) cause).getSQLState();
+				if (state != null && state.startsWith(CONNECTION_EXCEPTION_STATE)) {
+					return true;
+				}
+			}
+			cause = cause.getCause() == cause ? null : cause.getCause();
+		}
+		return false;
+	}
+
+	private void release(long start) {
+		inFlight.decrementAndGet();
+		double elapsed = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1000.0;
+		double current = this.latency;
+		this.latency = current == 0 ? elapsed : current + LATENCY_WEIGHT * (elapsed - current);
+	}
+
+	private Connection wrap(Connection target, long start) {
+		AtomicBoolean closed = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[]{ConnectionProxy.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getTargetConnection":
+					return target;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "close":
+					if (closed.compareAndSet(false, true)) {
+						try {
+							target.close();
+						} finally {
+							release(start);
+						}
+					}
+					return null;
+				case "isClosed":
+					if (closed.get()) {
+						return true;
+					}
+					break;
+				default:
+					break;
+			}
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		});
+	}
+}
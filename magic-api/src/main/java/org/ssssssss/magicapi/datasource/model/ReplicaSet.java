@@ -0,0 +1,174 @@
+package org.ssssssss.magicapi.datasource.model;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.ssssssss.magicapi.core.exception.MagicAPIException;
+import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource.DataSourceNode;
+
+import java.sql.Connection;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 主库下的从库，查询时按负载均衡策略选择可用的从库
+ *
+ * @author mxd
+ */
+public class ReplicaSet {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplicaSet.class);
+
+	/**
+	 * 负载均衡策略
+	 */
+	public enum LoadBalance {
+		/**
+		 * 轮询
+		 */
+		ROUND_ROBIN,
+		/**
+		 * 正在使用的连接数最少
+		 */
+		LEAST_IN_FLIGHT,
+		/**
+		 * 按平均连接占用时间加权随机，耗时越短权重越大
+		 */
+		LATENCY;
+
+		/**
+		 * 解析策略名称，如：round-robin、least-in-flight、latency，为空时轮询
+		 */
+		public static LoadBalance of(String name) {
+			if (StringUtils.isBlank(name)) {
+				return ROUND_ROBIN;
+			}
+			try {
+				return valueOf(name.trim().replace('-', '_').toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new MagicAPIException("不支持的负载均衡策略：" + name);
+			}
+		}
+	}
+
+	private final List<DataSourceNode> replicas;
+
+	private final LoadBalance loadBalance;
+
+	private final AtomicInteger counter = new AtomicInteger();
+
+	ReplicaSet(List<DataSourceNode> replicas, LoadBalance loadBalance) {
+		this.replicas = replicas;
+		this.loadBalance = loadBalance;
+	}
+
+	public LoadBalance getLoadBalance() {
+		return loadBalance;
+	}
+
+	public List<DataSourceNode> getReplicas() {
+		return replicas;
+	}
+
+	/**
+	 * 选择从库，没有可用的从库时返回 null
+	 */
+	public DataSourceNode choose() {
+		if (loadBalance == LoadBalance.LATENCY) {
+			return chooseByLatency();
+		}
+		int size = replicas.size();
+		// 从轮询位置开始查找，连接数相同时依次分配
+		int start = Math.floorMod(counter.getAndIncrement(), size);
+		DataSourceNode selected = null;
+		int minInFlight = Integer.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			DataSourceNode node = replicas.get((start + i) % size);
+			ReplicaDataSource replica = node.getReplicaDataSource();
+			if (!replica.isHealthy()) {
+				continue;
+			}
+			if (loadBalance == LoadBalance.ROUND_ROBIN) {
+				return node;
+			}
+			int inFlight = replica.getInFlight();
+			if (inFlight < minInFlight) {
+				minInFlight = inFlight;
+				selected = node;
+			}
+		}
+		return selected;
+	}
+
+	private DataSourceNode chooseByLatency() {
+		double[] weights = new double[replicas.size()];
+		double total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			ReplicaDataSource replica = replicas.get(i).getReplicaDataSource();
+			if (replica.isHealthy()) {
+				// 未统计过的从库权重最大，尽快获得统计值
+				weights[i] = 1 / (replica.getLatency() + 1);
+				total += weights[i];
+			}
+		}
+		if (total == 0) {
+			return null;
+		}
+		double random = ThreadLocalRandom.current().nextDouble(total);
+		for (int i = 0; i < weights.length; i++) {
+			random -= weights[i];
+			if (weights[i] > 0 && random < 0) {
+				return replicas.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 检查从库是否可用
+	 *
+	 * @param timeout 超时时间，单位为秒
+	 */
+	void checkHealth(int timeout) {
+		for (DataSourceNode node : replicas) {
+			boolean healthy;
+			// 直接使用连接池，不占用并发数
+			try (Connection connection = node.getDataSource().getConnection()) {
+				healthy = connection.isValid(timeout);
+			} catch (Exception e) {
+				healthy = false;
+			}
+			ReplicaDataSource replica = node.getReplicaDataSource();
+			if (replica.isHealthy() != healthy) {
+				if (healthy) {
+					logger.info("从库{}已恢复", node.getKey());
+				} else {
+					logger.warn("从库{}不可用", node.getKey());
+				}
+				replica.setHealthy(healthy);
+			}
+		}
+	}
+
+	/**
+	 * 从库统计
+	 */
+	public List<Map<String, Object>> stats() {
+		List<Map<String, Object>> stats = new ArrayList<>();
+		for (DataSourceNode node : replicas) {
+			ReplicaDataSource replica = node.getReplicaDataSource();
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("key", node.getKey());
+			item.put("healthy", replica.isHealthy());
+			item.put("inFlight", replica.getInFlight());
+			item.put("latency", Math.round(replica.getLatency() * 100) / 100.0);
+			stats.add(item);
+		}
+		return stats;
+	}
+
+	void close() {
+		replicas.forEach(DataSourceNode::close);
+	}
+}
@@ -1,6 +1,7 @@
 package org.ssssssss.magicapi.datasource.service;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
@@ -17,13 +18,16 @@ import org.ssssssss.magicapi.core.config.Constants;
 import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource;
 import org.ssssssss.magicapi.core.event.FileEvent;
 import org.ssssssss.magicapi.datasource.model.DataSourceInfo;
+import org.ssssssss.magicapi.datasource.model.ReplicaSet;
 import org.ssssssss.magicapi.core.service.AbstractMagicDynamicRegistry;
 import org.ssssssss.magicapi.core.service.MagicResourceStorage;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class DataSourceMagicDynamicRegistry extends AbstractMagicDynamicRegistry<DataSourceInfo> {
@@ -58,6 +62,9 @@ public class DataSourceMagicDynamicRegistry extends AbstractMagicDynamicRegistry
 	protected boolean register(MappingNode<DataSourceInfo> mappingNode) {
 		DataSourceInfo info = mappingNode.getEntity();
 		Map<String, Object> properties = new HashMap<>(info.getProperties());
+		// 并发隔离配置，不传递给连接池
+		int maxConcurrent = NumberUtils.toInt(Objects.toString(properties.remove("maxConcurrent"), null), -1);
+		int maxWaiting = NumberUtils.toInt(Objects.toString(properties.remove("maxWaiting"), null), -1);
 		if(Constants.ES_DRIVER.equals(info.getDriverClassName())){
 			properties.put("defaultReadOnly", true);
 		}
@@ -70,8 +77,23 @@ public class DataSourceMagicDynamicRegistry extends AbstractMagicDynamicRegistry
 		} else {
 			properties.put("driverClassName", info.getDriverClassName());
 		}
-		DataSource datasource = createDataSource(getDataSourceType(info.getType()), properties);
-		magicDynamicDataSource.put(info.getId(), info.getKey(), info.getName(), datasource, info.getMaxRows());
+		ReplicaSet.LoadBalance loadBalance = ReplicaSet.LoadBalance.of(info.getLoadBalance());
+		Class<? extends DataSource> dataSourceType = getDataSourceType(info.getType());
+		DataSource datasource = createDataSource(dataSourceType, properties);
+		List<DataSource> replicas = new ArrayList<>();
+		if (info.getReplicas() != null) {
+			for (Map<String, Object> replica : info.getReplicas()) {
+				// 从库未配置的属性与主库相同
+				Map<String, Object> replicaProperties = new HashMap<>(properties);
+				replica.forEach((key, value) -> {
+					if (value != null && !"".equals(value) && !"maxConcurrent".equals(key) && !"maxWaiting".equals(key)) {
+						replicaProperties.put(key, value);
+					}
+				});
+				replicas.add(createDataSource(dataSourceType, replicaProperties));
+			}
+		}
+		magicDynamicDataSource.put(info.getId(), info.getKey(), info.getName(), datasource, info.getMaxRows(), maxConcurrent, maxWaiting, replicas, loadBalance);
 		return true;
 	}
 
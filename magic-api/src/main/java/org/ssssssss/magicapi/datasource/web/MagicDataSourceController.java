@@ -1,5 +1,6 @@
 package org.ssssssss.magicapi.datasource.web;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -11,6 +12,9 @@ import org.ssssssss.magicapi.core.web.MagicController;
 import org.ssssssss.magicapi.utils.JdbcUtils;
 
 import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class MagicDataSourceController extends MagicController implements MagicExceptionHandler {
 
@@ -27,6 +31,26 @@ public class MagicDataSourceController extends MagicController implements MagicE
 		} catch (Exception e) {
 			return new JsonBean<>(e.getMessage());
 		}
+		List<Map<String, Object>> replicas = properties.getReplicas();
+		if (replicas != null) {
+			// 从库未配置的属性与主库相同
+			for (int i = 0; i < replicas.size(); i++) {
+				Map<String, Object> replica = replicas.get(i);
+				try {
+					Connection connection = JdbcUtils.getConnection(properties.getDriverClassName(),
+							getOrDefault(replica, "url", properties.getUrl()),
+							getOrDefault(replica, "username", properties.getUsername()),
+							getOrDefault(replica, "password", properties.getPassword()));
+					JdbcUtils.close(connection);
+				} catch (Exception e) {
+					return new JsonBean<>("从库" + (i + 1) + "：" + e.getMessage());
+				}
+			}
+		}
 		return new JsonBean<>("ok");
 	}
+
+	private String getOrDefault(Map<String, Object> replica, String key, String defaultValue) {
+		return StringUtils.defaultIfEmpty(Objects.toString(replica.get(key), null), defaultValue);
+	}
 }
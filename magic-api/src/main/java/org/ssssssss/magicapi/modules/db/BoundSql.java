@@ -5,13 +5,14 @@ import org.springframework.jdbc.core.SqlParameter;
 import org.ssssssss.magicapi.core.context.RequestContext;
 import org.ssssssss.magicapi.core.context.RequestEntity;
 import org.ssssssss.magicapi.modules.db.inteceptor.SQLInterceptor;
-import org.ssssssss.magicapi.modules.db.mybatis.MybatisParser;
 import org.ssssssss.magicapi.modules.db.mybatis.SqlNode;
+import org.ssssssss.magicapi.modules.db.mybatis.SqlTemplateCache;
 import org.ssssssss.magicapi.modules.db.mybatis.TextSqlNode;
 import org.ssssssss.script.runtime.RuntimeContext;
 
 import java.sql.Types;
 import java.util.*;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -25,8 +26,6 @@ public class BoundSql {
 
 	private static final Pattern REPLACE_MULTI_WHITE_LINE = Pattern.compile("(\r?\n(\\s*\r?\n)+)");
 
-	private static final List<String> MYBATIS_TAGS = Arrays.asList("</where>", "</if>", "</trim>", "</set>", "</foreach>");
-
 	private String sqlOrXml;
 
 	private List<Object> parameters = new ArrayList<>();
@@ -76,10 +75,11 @@ public class BoundSql {
 		} else {
 			varMap.putAll(runtimeContext.getVarMap());
 		}
-		if (MYBATIS_TAGS.stream().anyMatch(it -> this.sqlOrXml.contains(it))) {
-			SqlNode sqlNode = MybatisParser.parse(this.sqlOrXml);
-			this.sqlOrXml = sqlNode.getSql(varMap);
-			this.parameters = sqlNode.getParameters();
+		SqlNode sqlNode = SqlTemplateCache.getMybatisNode(this.sqlOrXml);
+		if (sqlNode != null) {
+			List<Object> parameters = new ArrayList<>();
+			this.sqlOrXml = sqlNode.getSql(varMap, parameters);
+			this.parameters = parameters;
 		} else {
 			normal(varMap);
 		}
@@ -182,13 +182,8 @@ public class BoundSql {
 			return supplier.get();
 		}
 		String cacheKey = sqlModule.getSqlCache().buildSqlCacheKey(sql, params);
-		Object cacheValue = sqlModule.getSqlCache().get(sqlModule.getCacheName(), cacheKey);
-		if (cacheValue != null) {
-			return (T) cacheValue;
-		}
-		T value = supplier.get();
-		sqlModule.getSqlCache().put(sqlModule.getCacheName(), cacheKey, value, sqlModule.getTtl());
-		return value;
+		sqlModule.getSqlCacheLoader().dependOn(sqlModule.getCacheName(), sql);
+		return sqlModule.getSqlCacheLoader().get(sqlModule.getSqlCache(), sqlModule.getCacheName(), cacheKey, sqlModule.getTtl(), sqlModule.getCacheStaleTtl(), sqlModule.getCacheEarlyRefresh(), supplier);
 	}
 
 	/**
@@ -219,4 +214,18 @@ public class BoundSql {
 	<T> T execute(List<SQLInterceptor> interceptors, Supplier<T> supplier) {
 		return execute(interceptors, supplier, true);
 	}
+
+	/**
+	 * 打开流式查询游标，打开前调用拦截器的 preHandle，postHandle 由游标对每一行调用
+	 */
+	SqlCursor stream(List<SQLInterceptor> interceptors, Function<RequestEntity, SqlCursor> opener) {
+		RequestEntity requestEntity = RequestContext.getRequestEntity();
+		interceptors.forEach(interceptor -> interceptor.preHandle(this, requestEntity));
+		try {
+			return opener.apply(requestEntity);
+		} catch (Throwable e) {
+			interceptors.forEach(interceptor -> interceptor.handleException(this, e, requestEntity));
+			throw e;
+		}
+	}
 }
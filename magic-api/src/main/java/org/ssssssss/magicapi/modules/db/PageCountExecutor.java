@@ -0,0 +1,114 @@
+package org.ssssssss.magicapi.modules.db;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.ssssssss.magicapi.core.context.RequestContext;
+import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.core.logging.MagicLoggerContext;
+import org.ssssssss.magicapi.modules.db.cache.TinyLFUCache;
+import org.ssssssss.magicapi.utils.MD5Utils;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分页查询总条数的并行执行与缓存
+ * <p>
+ * 开启并行后总条数查询提交到有界线程池，与分页数据查询同时执行，线程池已满时由调用方在当前线程执行。
+ * 总条数按数据源、SQL及参数短时间缓存，连续翻页时不必每页都重新查询总条数。容器关闭时关闭线程池。
+ *
+ * @author mxd
+ */
+public class PageCountExecutor implements DisposableBean {
+
+	private static final int CACHE_CAPACITY = 1024;
+
+	/**
+	 * 未开启并行时为 null
+	 */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * 未开启缓存时为 null
+	 */
+	private final TinyLFUCache cache;
+
+	/**
+	 * @param parallel 是否并行查询总条数
+	 * @param threads  线程数，小于等于0时为CPU核数
+	 * @param cacheTtl 总条数缓存时间，单位为毫秒，小于等于0时不缓存
+	 */
+	public PageCountExecutor(boolean parallel, int threads, long cacheTtl) {
+		if (parallel) {
+			int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+			AtomicInteger threadNumber = new AtomicInteger();
+			this.executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(size * 4), r -> {
+				Thread thread = new Thread(r, "magic-api-page-count-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.executor.allowCoreThreadTimeOut(true);
+		} else {
+			this.executor = null;
+		}
+		this.cache = cacheTtl > 0 ? new TinyLFUCache(CACHE_CAPACITY, cacheTtl) : null;
+	}
+
+	public boolean isParallel() {
+		return executor != null;
+	}
+
+	/**
+	 * 提交总条数查询，执行时恢复调用方的请求上下文及在线调试的日志会话
+	 *
+	 * @return 未开启并行或线程池已满时返回 null，由调用方顺序执行
+	 */
+	public Future<Integer> submit(Callable<Integer> task) {
+		if (executor == null) {
+			return null;
+		}
+		RequestEntity requestEntity = RequestContext.getRequestEntity();
+		String loggerSession = MagicLoggerContext.SESSION.get();
+		try {
+			return executor.submit(() -> {
+				RequestContext.setRequestEntity(requestEntity);
+				MagicLoggerContext.SESSION.set(loggerSession);
+				try {
+					return task.call();
+				} finally {
+					RequestContext.remove();
+					MagicLoggerContext.remove();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 获取缓存的总条数，未开启缓存或未命中时返回 null
+	 */
+	public Integer getCachedCount(String dataSourceKey, String sql, Object[] params) {
+		return cache == null ? null : (Integer) cache.get(dataSourceKey, buildKey(sql, params));
+	}
+
+	public void cacheCount(String dataSourceKey, String sql, Object[] params, int count) {
+		if (cache != null) {
+			cache.put(dataSourceKey, buildKey(sql, params), count);
+		}
+	}
+
+	/**
+	 * 关闭线程池，已提交的查询继续执行完成
+	 */
+	@Override
+	public void destroy() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	private String buildKey(String sql, Object[] params) {
+		return MD5Utils.encrypt(sql + ":" + Arrays.toString(params));
+	}
+}
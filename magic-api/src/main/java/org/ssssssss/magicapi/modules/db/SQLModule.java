@@ -1,24 +1,32 @@
 package org.ssssssss.magicapi.modules.db;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.*;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.ssssssss.magicapi.core.annotation.MagicModule;
 import org.ssssssss.magicapi.core.context.RequestContext;
 import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.core.exception.MagicAPIException;
 import org.ssssssss.magicapi.core.interceptor.ResultProvider;
 import org.ssssssss.magicapi.core.model.Options;
 import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource;
 import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource.DataSourceNode;
+import org.ssssssss.magicapi.datasource.model.ReplicaSet;
 import org.ssssssss.magicapi.modules.DynamicModule;
 import org.ssssssss.magicapi.modules.db.cache.SqlCache;
+import org.ssssssss.magicapi.modules.db.cache.SqlCacheLoader;
 import org.ssssssss.magicapi.modules.db.dialect.Dialect;
 import org.ssssssss.magicapi.modules.db.dialect.DialectAdapter;
 import org.ssssssss.magicapi.modules.db.inteceptor.NamedTableInterceptor;
 import org.ssssssss.magicapi.modules.db.inteceptor.SQLInterceptor;
+import org.ssssssss.magicapi.modules.db.model.Keyset;
 import org.ssssssss.magicapi.modules.db.model.Page;
 import org.ssssssss.magicapi.modules.db.model.SqlTypes;
 import org.ssssssss.magicapi.modules.db.provider.PageProvider;
+import org.ssssssss.magicapi.modules.db.provider.ResultRowMapper;
 import org.ssssssss.magicapi.modules.db.table.NamedTable;
 import org.ssssssss.magicapi.utils.ScriptManager;
 import org.ssssssss.script.MagicScriptContext;
@@ -30,7 +38,10 @@ import org.ssssssss.script.runtime.RuntimeContext;
 import java.beans.Transient;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * 数据库查询模块
@@ -39,6 +50,12 @@ import java.util.function.Function;
  */
 @MagicModule("db")
 public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, DynamicModule<SQLModule> {
+
+	/**
+	 * 流式查询默认每次读取的条数
+	 */
+	private static final int DEFAULT_FETCH_SIZE = 500;
+
 	static {
 		try {
 			ClassConverter.register("sql", (value, params) -> {
@@ -69,13 +86,18 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	private RowMapper<Map<String, Object>> columnMapRowMapper;
 	private Function<String, String> rowMapColumnMapper;
 	private SqlCache sqlCache;
+	private SqlCacheLoader sqlCacheLoader = SqlCacheLoader.DEFAULT;
 	private String cacheName;
+	private long cacheStaleTtl = -1;
+	private double cacheEarlyRefresh = -1;
 	private List<SQLInterceptor> sqlInterceptors;
 	private List<NamedTableInterceptor> namedTableInterceptors;
 	private long ttl;
+	private PageCountExecutor pageCountExecutor;
+	private boolean usePrimary;
+	private boolean countOptimizeJoin;
 	private String logicDeleteColumn;
 	private String logicDeleteValue;
-    public static List<SqlParameter> params;
 
 	public SQLModule() {
 
@@ -90,6 +112,11 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		this.pageProvider = pageProvider;
 	}
 
+	@Transient
+	public PageProvider getPageProvider() {
+		return pageProvider;
+	}
+
 	@Transient
 	public void setResultProvider(ResultProvider resultProvider) {
 		this.resultProvider = resultProvider;
@@ -155,6 +182,36 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		this.ttl = ttl;
 	}
 
+	@Transient
+	public long getCacheStaleTtl() {
+		return cacheStaleTtl;
+	}
+
+	@Transient
+	public void setCacheStaleTtl(long cacheStaleTtl) {
+		this.cacheStaleTtl = cacheStaleTtl;
+	}
+
+	@Transient
+	public double getCacheEarlyRefresh() {
+		return cacheEarlyRefresh;
+	}
+
+	@Transient
+	public void setCacheEarlyRefresh(double cacheEarlyRefresh) {
+		this.cacheEarlyRefresh = cacheEarlyRefresh;
+	}
+
+	@Transient
+	public SqlCacheLoader getSqlCacheLoader() {
+		return sqlCacheLoader;
+	}
+
+	@Transient
+	public void setSqlCacheLoader(SqlCacheLoader sqlCacheLoader) {
+		this.sqlCacheLoader = sqlCacheLoader;
+	}
+
 	@Transient
 	public String getLogicDeleteColumn() {
 		return logicDeleteColumn;
@@ -185,6 +242,45 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		this.sqlCache = sqlCache;
 	}
 
+	@Transient
+	public PageCountExecutor getPageCountExecutor() {
+		return pageCountExecutor;
+	}
+
+	/**
+	 * 设置分页总条数的并行执行与缓存，为 null 时顺序执行且不缓存
+	 */
+	@Transient
+	public void setPageCountExecutor(PageCountExecutor pageCountExecutor) {
+		this.pageCountExecutor = pageCountExecutor;
+	}
+
+	@Transient
+	public boolean isCountOptimizeJoin() {
+		return countOptimizeJoin;
+	}
+
+	/**
+	 * 设置生成 count 语句时是否去掉未被引用的 LEFT JOIN，存在一对多关联时不可开启
+	 */
+	@Transient
+	public void setCountOptimizeJoin(boolean countOptimizeJoin) {
+		this.countOptimizeJoin = countOptimizeJoin;
+	}
+
+	@Transient
+	public boolean isUsePrimary() {
+		return usePrimary;
+	}
+
+	/**
+	 * 设置查询是否只使用主库，不使用从库
+	 */
+	@Transient
+	public void setUsePrimary(boolean usePrimary) {
+		this.usePrimary = usePrimary;
+	}
+
 	@Transient
 	public SQLModule cloneSQLModule() {
 		SQLModule sqlModule = new SQLModule();
@@ -197,15 +293,71 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		sqlModule.setSqlCache(this.sqlCache);
 		sqlModule.setTtl(this.ttl);
 		sqlModule.setCacheName(this.cacheName);
+		sqlModule.setSqlCacheLoader(this.sqlCacheLoader);
+		sqlModule.setCacheStaleTtl(this.cacheStaleTtl);
+		sqlModule.setCacheEarlyRefresh(this.cacheEarlyRefresh);
 		sqlModule.setResultProvider(this.resultProvider);
 		sqlModule.setDialectAdapter(this.dialectAdapter);
 		sqlModule.setSqlInterceptors(this.sqlInterceptors);
 		sqlModule.setLogicDeleteValue(this.logicDeleteValue);
 		sqlModule.setLogicDeleteColumn(this.logicDeleteColumn);
 		sqlModule.setNamedTableInterceptors(this.namedTableInterceptors);
+		sqlModule.setPageCountExecutor(this.pageCountExecutor);
+		sqlModule.setUsePrimary(this.usePrimary);
+		sqlModule.setCountOptimizeJoin(this.countOptimizeJoin);
+		return sqlModule;
+	}
+
+	/**
+	 * 查询使用主库
+	 */
+	@Comment("之后的查询使用主库，不使用从库，如：db.primary().select(...)")
+	public SQLModule primary() {
+		SQLModule sqlModule = cloneSQLModule();
+		sqlModule.setUsePrimary(true);
 		return sqlModule;
 	}
 
+	/**
+	 * 选择查询使用的数据源，结果会写入缓存时使用主库
+	 */
+	DataSourceNode getReadDataSourceNode() {
+		return getReadDataSourceNode(cacheName != null);
+	}
+
+	/**
+	 * 选择查询使用的数据源：事务中、本次请求已写入、指定使用主库或结果会写入缓存时使用主库，否则按负载均衡策略选择从库，没有可用的从库时使用主库
+	 * <p>
+	 * 从库存在同步延迟，写入后立即从从库读取并缓存会使旧数据在整个缓存有效期内可见，因此缓存查询不使用从库。
+	 *
+	 * @param cacheable 查询结果是否会写入缓存
+	 */
+	private DataSourceNode getReadDataSourceNode(boolean cacheable) {
+		ReplicaSet replicaSet = dataSourceNode.getReplicaSet();
+		// 无法判断事务所属的数据源，有事务时一律使用主库
+		if (replicaSet == null || usePrimary || cacheable || TransactionSynchronizationManager.isActualTransactionActive()) {
+			return dataSourceNode;
+		}
+		RequestEntity requestEntity = RequestContext.getRequestEntity();
+		if (requestEntity != null && requestEntity.hasWritten(dataSourceNode.getKey())) {
+			return dataSourceNode;
+		}
+		DataSourceNode replica = replicaSet.choose();
+		return replica == null ? dataSourceNode : replica;
+	}
+
+	/**
+	 * 记录本次请求已写入，之后的查询使用主库，避免读到从库未同步的数据
+	 */
+	private void markWritten() {
+		if (dataSourceNode.getReplicaSet() != null) {
+			RequestEntity requestEntity = RequestContext.getRequestEntity();
+			if (requestEntity != null) {
+				requestEntity.markWritten(dataSourceNode.getKey());
+			}
+		}
+	}
+
 	/**
 	 * 开启事务，在一个回调中进行操作
 	 *
@@ -251,6 +403,25 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		return sqlModule;
 	}
 
+	/**
+	 * 使用缓存，并指定过期后返回旧值及提前刷新的配置
+	 *
+	 * @param cacheName 缓存名
+	 * @param ttl       过期时间
+	 * @param options   staleTtl：过期后仍可返回旧值的时间（毫秒），earlyRefresh：提前刷新系数
+	 */
+	@Comment("使用缓存，可配置过期后返回旧值及提前刷新")
+	public SQLModule cache(@Comment(name = "cacheName", value = "缓存名") String cacheName,
+						   @Comment(name = "ttl", value = "过期时间") long ttl,
+						   @Comment(name = "options", value = "缓存选项，如：{staleTtl: 5000, earlyRefresh: 1}") Map<String, Object> options) {
+		SQLModule sqlModule = cache(cacheName, ttl);
+		if (sqlModule != this && options != null) {
+			sqlModule.setCacheStaleTtl(NumberUtils.toLong(Objects.toString(options.get("staleTtl"), null), -1));
+			sqlModule.setCacheEarlyRefresh(NumberUtils.toDouble(Objects.toString(options.get("earlyRefresh"), null), -1));
+		}
+		return sqlModule;
+	}
+
 	/**
 	 * 使用缓存（采用默认缓存时间）
 	 *
@@ -336,13 +507,77 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	}
 
 	private List<Map<String, Object>> queryForList(BoundSql boundSql) {
-		List<Map<String, Object>> list = dataSourceNode.getJdbcTemplate().query(boundSql.getSql(), this.columnMapRowMapper, boundSql.getParameters());
+		if (this.columnMapRowMapper instanceof ResultRowMapper) {
+			// 列名转换及排除列在结果集级别处理，每行只保存值
+			ResultRowMapper rowMapper = (ResultRowMapper) this.columnMapRowMapper;
+			return getReadDataSourceNode().getJdbcTemplate().query(boundSql.getSql(), rowMapper.listExtractor(boundSql.getExcludeColumns()), boundSql.getParameters());
+		}
+		List<Map<String, Object>> list = getReadDataSourceNode().getJdbcTemplate().query(boundSql.getSql(), this.columnMapRowMapper, boundSql.getParameters());
 		if (boundSql.getExcludeColumns() != null) {
 			list.forEach(row -> boundSql.getExcludeColumns().forEach(row::remove));
 		}
 		return list;
 	}
 
+	/**
+	 * 流式查询
+	 */
+	@Comment("流式查询SQL，返回游标，遍历时逐批读取")
+	public SqlCursor stream(RuntimeContext runtimeContext,
+							@Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml) {
+		return stream(runtimeContext, sqlOrXml, null);
+	}
+
+	/**
+	 * 流式查询，并传入变量信息
+	 */
+	@Comment("流式查询SQL，并传入变量信息，返回游标，遍历时逐批读取")
+	public SqlCursor stream(RuntimeContext runtimeContext,
+							@Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+							@Comment(name = "params", value = "变量信息") Map<String, Object> params) {
+		return stream(runtimeContext, sqlOrXml, params, DEFAULT_FETCH_SIZE);
+	}
+
+	/**
+	 * 流式查询，并传入变量信息及每次读取条数
+	 */
+	@Comment("流式查询SQL，并传入变量信息及每次读取条数，返回游标")
+	public SqlCursor stream(RuntimeContext runtimeContext,
+							@Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+							@Comment(name = "params", value = "变量信息") Map<String, Object> params,
+							@Comment(name = "fetchSize", value = "每次从数据库读取的条数") int fetchSize) {
+		return stream(new BoundSql(runtimeContext, sqlOrXml, params, this), fetchSize);
+	}
+
+	@Transient
+	public SqlCursor stream(BoundSql boundSql, int fetchSize) {
+		assertDatasourceNotNull();
+		Dialect dialect = dataSourceNode.getDialect(dialectAdapter);
+		JdbcTemplate jdbcTemplate = getReadDataSourceNode(false).getJdbcTemplate();
+		return boundSql.stream(this.sqlInterceptors, requestEntity -> new SqlCursor(boundSql, jdbcTemplate, dialect, this.columnMapRowMapper, fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE, this.sqlInterceptors, requestEntity));
+	}
+
+	/**
+	 * 流式查询并逐行回调
+	 */
+	@Comment("流式查询SQL并逐行回调，回调返回false时停止，返回遍历的行数")
+	public long each(RuntimeContext runtimeContext,
+					 @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+					 @Comment(name = "function", value = "回调函数，如：(row)=>{....}") Function<Object, Object> function) {
+		return each(runtimeContext, sqlOrXml, null, function);
+	}
+
+	/**
+	 * 流式查询并逐行回调，并传入变量信息
+	 */
+	@Comment("流式查询SQL并逐行回调，并传入变量信息，回调返回false时停止，返回遍历的行数")
+	public long each(RuntimeContext runtimeContext,
+					 @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+					 @Comment(name = "params", value = "变量信息") Map<String, Object> params,
+					 @Comment(name = "function", value = "回调函数，如：(row)=>{....}") Function<Object, Object> function) {
+		return stream(runtimeContext, sqlOrXml, params).each(function);
+	}
+
 	private void assertDatasourceNotNull() {
 		if (dataSourceNode == null) {
 			throw new NullPointerException("当前数据源未设置");
@@ -371,9 +606,10 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	@Transient
 	public int update(BoundSql boundSql) {
 		assertDatasourceNotNull();
+		markWritten();
 		return (int)boundSql.execute(sqlInterceptors, () -> {
 			Object value = dataSourceNode.getJdbcTemplate().update(boundSql.getSql(), boundSql.getParameters());
-			deleteCache(this.cacheName);
+			invalidateCache(boundSql.getSql());
 			return value;
 		});
 	}
@@ -420,12 +656,13 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 
 	void insert(BoundSql boundSql, MagicKeyHolder keyHolder) {
 		assertDatasourceNotNull();
+		markWritten();
 		dataSourceNode.getJdbcTemplate().update(con -> {
 			PreparedStatement ps = keyHolder.createPrepareStatement(con, boundSql.getSql());
 			new ArgumentPreparedStatementSetter(boundSql.getParameters()).setValues(ps);
 			return ps;
 		}, keyHolder);
-		deleteCache(this.cacheName);
+		invalidateCache(boundSql.getSql());
 	}
 
 	/**
@@ -434,10 +671,11 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	@Comment("批量执行操作，返回受影响的行数")
 	public int batchUpdate(RuntimeContext runtimeContext, String sql, List<Object[]> args) {
 		assertDatasourceNotNull();
+		markWritten();
 		BoundSql boundSql = new BoundSql(runtimeContext, sql, new ArrayList<>(args), this);
 		return boundSql.execute(sqlInterceptors, () -> {
 			int[] values = dataSourceNode.getJdbcTemplate().batchUpdate(boundSql.getSql(), boundSql.getBatchParameters());
-			deleteCache(this.cacheName);
+			invalidateCache(boundSql.getSql());
 			return Arrays.stream(values).sum();
 		});
 	}
@@ -448,6 +686,16 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		return dataSourceNode.getJdbcTemplate();
 	}
 
+	/**
+	 * 写入后删除当前缓存名称及依赖相关表的缓存
+	 */
+	private void invalidateCache(String... sqls) {
+		deleteCache(this.cacheName);
+		for (String sql : sqls) {
+			sqlCacheLoader.tablesChanged(sqlCache, sql);
+		}
+	}
+
 	@Comment("删除`SQL`缓存")
 	public SQLModule deleteCache(@Comment("缓存名称") String name) {
 		if (StringUtils.isNotBlank(name)) {
@@ -463,6 +711,7 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	@Comment("批量执行操作，返回受影响的行数")
 	public int batchUpdate(RuntimeContext runtimeContext, String sql, int batchSize, List<Object[]> args) {
 		assertDatasourceNotNull();
+		markWritten();
 		BoundSql boundSql = new BoundSql(runtimeContext, sql, new ArrayList<>(args), this);
 		return boundSql.execute(sqlInterceptors, () -> {
 			int[][] values = dataSourceNode.getJdbcTemplate().batchUpdate(boundSql.getSql(), boundSql.getBatchParameters(), batchSize, (ps, arguments) -> {
@@ -476,7 +725,7 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 					}
 				}
 			});
-			deleteCache(this.cacheName);
+			invalidateCache(boundSql.getSql());
 			int count = 0;
 			for (int[] value : values) {
 				count += Arrays.stream(value).sum();
@@ -486,14 +735,167 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 
 	}
 
+	/**
+	 * 批量插入，按方言选择导入方式：数据库专有的导入（如 PostgreSQL COPY）、多行 VALUES 语句或 JDBC 批处理。
+	 * 数据逐行读取，每批插入后回调 listener，整个过程使用同一连接。COPY 方式不经过 SQL 拦截器，注册了拦截器时不使用。
+	 *
+	 * @param columns   插入的列
+	 * @param rows      各行的值，与 columns 对应
+	 * @param chunkSize 每批插入的行数
+	 * @param listener  每批插入后回调，参数为本批行数，可为 null
+	 * @return 插入的行数
+	 */
+	@Transient
+	public int bulkInsert(RuntimeContext runtimeContext, String tableName, List<String> columns, Iterator<Object[]> rows, int chunkSize, IntConsumer listener) {
+		assertDatasourceNotNull();
+		markWritten();
+		Dialect dialect = getDialect();
+		int batchSize = Math.max(1, chunkSize);
+		IntConsumer chunkListener = listener == null ? count -> {
+		} : listener;
+		Long total = dataSourceNode.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> insertRows(runtimeContext, connection, dialect, tableName, columns, rows, batchSize, chunkListener));
+		invalidateCache(dialect.getBulkInsertSql(tableName, columns, 1));
+		return total == null ? 0 : total.intValue();
+	}
+
+	/**
+	 * 批量插入各项列和值，每次读取 chunkSize 行，其中列相同的行（不要求连续）使用同一语句插入，
+	 * 整个过程使用同一连接，插入完成后清除一次缓存。
+	 *
+	 * @param rows      各项列和值，key 为列名
+	 * @param chunkSize 每批读取的行数
+	 * @param listener  每批插入后回调，参数为本批行数，可为 null
+	 * @return 插入的行数
+	 */
+	@Transient
+	public int bulkInsert(RuntimeContext runtimeContext, String tableName, Iterator<Map<String, Object>> rows, int chunkSize, IntConsumer listener) {
+		assertDatasourceNotNull();
+		markWritten();
+		Dialect dialect = getDialect();
+		int batchSize = Math.max(1, chunkSize);
+		IntConsumer chunkListener = listener == null ? count -> {
+		} : listener;
+		String[] insertSql = new String[1];
+		Long total = dataSourceNode.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+			long count = 0;
+			while (rows.hasNext()) {
+				Map<Set<String>, List<Map<String, Object>>> groups = new LinkedHashMap<>();
+				for (int i = 0; i < batchSize && rows.hasNext(); i++) {
+					Map<String, Object> row = rows.next();
+					if (row.isEmpty()) {
+						throw new MagicAPIException("要插入的列不能为空");
+					}
+					groups.computeIfAbsent(row.keySet(), key -> new ArrayList<>()).add(row);
+				}
+				for (List<Map<String, Object>> group : groups.values()) {
+					List<String> columns = new ArrayList<>(group.get(0).keySet());
+					if (insertSql[0] == null) {
+						insertSql[0] = dialect.getBulkInsertSql(tableName, columns, 1);
+					}
+					Iterator<Object[]> values = group.stream().map(row -> columns.stream().map(row::get).toArray()).iterator();
+					count += insertRows(runtimeContext, connection, dialect, tableName, columns, values, batchSize, chunkListener);
+				}
+			}
+			return count;
+		});
+		if (insertSql[0] != null) {
+			invalidateCache(insertSql[0]);
+		}
+		return total == null ? 0 : total.intValue();
+	}
+
+	/**
+	 * 使用数据库专有的导入方式或按批插入，COPY 等方式不经过 SQL 拦截器，注册了拦截器时不使用
+	 */
+	private long insertRows(RuntimeContext runtimeContext, Connection connection, Dialect dialect, String tableName, List<String> columns, Iterator<Object[]> rows, int batchSize, IntConsumer listener) throws SQLException {
+		if (sqlInterceptors.isEmpty()) {
+			long copied = dialect.copyIn(connection, tableName, columns, rows, batchSize, listener);
+			if (copied >= 0) {
+				return copied;
+			}
+		}
+		String insertSql = dialect.getBulkInsertSql(tableName, columns, 1);
+		int rowsPerStatement = Math.min(batchSize, dialect.getBulkInsertRows(connection, columns.size()));
+		long count = 0;
+		List<Object[]> chunk = new ArrayList<>(batchSize);
+		while (rows.hasNext()) {
+			chunk.add(rows.next());
+			if (chunk.size() == batchSize || !rows.hasNext()) {
+				count += insertChunk(runtimeContext, connection, dialect, tableName, columns, chunk, rowsPerStatement, insertSql);
+				listener.accept(chunk.size());
+				chunk = new ArrayList<>(batchSize);
+			}
+		}
+		return count;
+	}
+
+	private int insertChunk(RuntimeContext runtimeContext, Connection connection, Dialect dialect, String tableName, List<String> columns, List<Object[]> chunk, int rowsPerStatement, String insertSql) {
+		if (rowsPerStatement <= 1) {
+			BoundSql boundSql = new BoundSql(runtimeContext, insertSql, new ArrayList<>(chunk), this);
+			return boundSql.execute(sqlInterceptors, () -> executeBulk(connection, boundSql.getSql(), boundSql.getBatchParameters()), false);
+		}
+		int count = 0;
+		for (int from = 0, size = chunk.size(); from < size; from += rowsPerStatement) {
+			List<Object[]> group = chunk.subList(from, Math.min(size, from + rowsPerStatement));
+			List<Object> parameters = new ArrayList<>(group.size() * columns.size());
+			group.forEach(row -> parameters.addAll(Arrays.asList(row)));
+			BoundSql boundSql = new BoundSql(runtimeContext, dialect.getBulkInsertSql(tableName, columns, group.size()), parameters, this);
+			count += boundSql.execute(sqlInterceptors, () -> executeBulk(connection, boundSql.getSql(), Collections.singletonList(boundSql.getParameters())), false);
+		}
+		return count;
+	}
+
+	/**
+	 * 只有一组参数时直接执行，否则使用批处理
+	 */
+	private int executeBulk(Connection connection, String sql, List<Object[]> batch) {
+		JdbcTemplate jdbcTemplate = dataSourceNode.getJdbcTemplate();
+		try (PreparedStatement ps = connection.prepareStatement(sql)) {
+			if (jdbcTemplate.getQueryTimeout() > 0) {
+				ps.setQueryTimeout(jdbcTemplate.getQueryTimeout());
+			}
+			if (batch.size() == 1) {
+				setParameterValues(ps, batch.get(0));
+				return ps.executeUpdate();
+			}
+			for (Object[] arguments : batch) {
+				setParameterValues(ps, arguments);
+				ps.addBatch();
+			}
+			int count = 0;
+			for (int value : ps.executeBatch()) {
+				// 驱动改写批处理时返回 SUCCESS_NO_INFO
+				count += value == Statement.SUCCESS_NO_INFO ? 1 : Math.max(value, 0);
+			}
+			return count;
+		} catch (SQLException e) {
+			DataAccessException exception = jdbcTemplate.getExceptionTranslator().translate("BulkInsert", sql, e);
+			throw exception == null ? new MagicAPIException("批量插入失败", e) : exception;
+		}
+	}
+
+	private void setParameterValues(PreparedStatement ps, Object[] arguments) throws SQLException {
+		int colIndex = 1;
+		for (Object value : arguments) {
+			if (value instanceof SqlParameterValue) {
+				SqlParameterValue paramValue = (SqlParameterValue) value;
+				StatementCreatorUtils.setParameterValue(ps, colIndex++, paramValue, paramValue.getValue());
+			} else {
+				StatementCreatorUtils.setParameterValue(ps, colIndex++, StatementCreatorUtils.javaTypeToSqlParameterType(value == null ? null : value.getClass()), value);
+			}
+		}
+	}
+
 	/**
 	 * 插入并返回主键
 	 */
 	@Comment("批量执行操作，返回受影响的行数")
 	public int batchUpdate(@Comment(name = "sqls", value = "`SQL`语句") List<String> sqls) {
 		assertDatasourceNotNull();
-		int[] values = dataSourceNode.getJdbcTemplate().batchUpdate(sqls.toArray(new String[0]));
-		deleteCache(this.cacheName);
+		markWritten();
+		String[] sqlArray = sqls.toArray(new String[0]);
+		int[] values = dataSourceNode.getJdbcTemplate().batchUpdate(sqlArray);
+		invalidateCache(sqlArray);
 		return Arrays.stream(values).sum();
 	}
 
@@ -502,7 +904,6 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		return boundSql.execute(sqlInterceptors, () -> {
 			MagicKeyHolder keyHolder = new MagicKeyHolder(primary);
 			insert(boundSql, keyHolder);
-			deleteCache(this.cacheName);
 			return keyHolder.getObjectKey();
 		}, false);
 	}
@@ -556,6 +957,15 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 		return page(boundSql, page);
 	}
 
+	/**
+	 * 获取当前数据源的方言
+	 */
+	@Transient
+	public Dialect getDialect() {
+		assertDatasourceNotNull();
+		return dataSourceNode.getDialect(dialectAdapter);
+	}
+
 	@Transient
 	public String getDataSourceName() {
 		return this.dataSourceNode == null ? "unknown" : dataSourceNode.getName();
@@ -616,9 +1026,166 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	public Object page(BoundSql boundSql, Page page) {
 		assertDatasourceNotNull();
 		Dialect dialect = dataSourceNode.getDialect(dialectAdapter);
-		BoundSql countBoundSql = boundSql.copy(dialect.getCountSql(boundSql.getSql()));
-		int count = selectInt(countBoundSql);
-		return page(count, boundSql, page, dialect);
+		BoundSql countBoundSql = boundSql.copy(dialect.getCountSql(boundSql.getSql(), countOptimizeJoin));
+		if (pageCountExecutor == null) {
+			return page(selectInt(countBoundSql), boundSql, page, dialect);
+		}
+		String dataSourceKey = dataSourceNode.getKey();
+		Object[] countParameters = countBoundSql.getParameters();
+		Integer count = pageCountExecutor.getCachedCount(dataSourceKey, countBoundSql.getSql(), countParameters);
+		if (count != null) {
+			return page(count, boundSql, page, dialect);
+		}
+		// 先选定执行总条数查询的数据源，按该数据源的可用连接判断是否并行
+		DataSourceNode countNode = getReadDataSourceNode();
+		Future<Integer> future = isParallelCountAvailable(countNode) ? submitCount(countBoundSql, countNode) : null;
+		if (future == null) {
+			count = selectInt(countBoundSql, countNode);
+			pageCountExecutor.cacheCount(dataSourceKey, countBoundSql.getSql(), countParameters, count);
+			return page(count, boundSql, page, dialect);
+		}
+		// 分页语句会追加参数，使用单独的参数列表，避免影响正在执行的总条数查询
+		BoundSql dataBoundSql = boundSql.copy(boundSql.getSql());
+		dataBoundSql.setParameters(new ArrayList<>(Arrays.asList(countParameters)));
+		BoundSql pageBoundSql = buildPageBoundSql(dialect, dataBoundSql, page.getOffset(), page.getLimit());
+		List<Map<String, Object>> list;
+		try {
+			list = pageBoundSql.execute(this.sqlInterceptors, () -> queryForList(pageBoundSql));
+		} catch (RuntimeException e) {
+			future.cancel(true);
+			throw e;
+		}
+		count = awaitCount(future);
+		pageCountExecutor.cacheCount(dataSourceKey, countBoundSql.getSql(), countParameters, count);
+		return resultProvider.buildPageResult(RequestContext.getRequestEntity(), page, count, count > 0 ? list : null);
+	}
+
+	/**
+	 * 事务中必须使用同一连接，可用连接不足时并行反而需要等待，此时顺序执行
+	 * <p>
+	 * 总条数查询可能在从库执行，分页数据查询会另外选择数据源，因此只要求执行总条数查询的数据源至少还有两个可用连接。
+	 *
+	 * @param countNode 执行总条数查询的数据源
+	 */
+	boolean isParallelCountAvailable(DataSourceNode countNode) {
+		if (!pageCountExecutor.isParallel() || TransactionSynchronizationManager.isActualTransactionActive()) {
+			return false;
+		}
+		int available = countNode.getAvailableConnections();
+		return available < 0 || available > 1;
+	}
+
+	private Future<Integer> submitCount(BoundSql countBoundSql, DataSourceNode countNode) {
+		return pageCountExecutor.submit(() -> selectInt(countBoundSql, countNode));
+	}
+
+	private int awaitCount(Future<Integer> future) {
+		try {
+			Integer count = future.get();
+			return count == null ? 0 : count;
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new MagicAPIException("查询总条数被中断", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new MagicAPIException("查询总条数失败", cause);
+		}
+	}
+
+	/**
+	 * 分页查询，不查询总条数
+	 */
+	@Comment("执行分页查询，不查询总条数，多查询一条判断是否有下一页")
+	public Object pageWithoutCount(RuntimeContext runtimeContext,
+								   @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml) {
+		return pageWithoutCount(runtimeContext, sqlOrXml, null);
+	}
+
+	/**
+	 * 分页查询，不查询总条数，并传入变量信息
+	 */
+	@Comment("执行分页查询，并传入变量信息，不查询总条数，多查询一条判断是否有下一页")
+	public Object pageWithoutCount(RuntimeContext runtimeContext,
+								   @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+								   @Comment(name = "params", value = "变量信息") Map<String, Object> params) {
+		BoundSql boundSql = new BoundSql(runtimeContext, sqlOrXml, params, this);
+		return pageWithoutCount(boundSql, pageProvider.getPage(runtimeContext));
+	}
+
+	@Transient
+	public Object pageWithoutCount(BoundSql boundSql, Page page) {
+		assertDatasourceNotNull();
+		Dialect dialect = dataSourceNode.getDialect(dialectAdapter);
+		BoundSql pageBoundSql = buildPageBoundSql(dialect, boundSql, page.getOffset(), page.getLimit() + 1);
+		List<Map<String, Object>> list = pageBoundSql.execute(this.sqlInterceptors, () -> queryForList(pageBoundSql));
+		boolean hasMore = list.size() > page.getLimit();
+		if (hasMore) {
+			list = new ArrayList<>(list.subList(0, (int) page.getLimit()));
+		}
+		return resultProvider.buildPageResult(RequestContext.getRequestEntity(), page, hasMore, null, list);
+	}
+
+	/**
+	 * 游标分页查询
+	 */
+	@Comment("执行游标分页查询，按排序列的值定位下一页，游标参数自动获取")
+	public Object keysetPage(RuntimeContext runtimeContext,
+							 @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+							 @Comment(name = "orderColumns", value = "排序列，需唯一确定一行且值不为null，如：`create_time desc, id desc`") String orderColumns) {
+		return keysetPage(runtimeContext, sqlOrXml, orderColumns, null);
+	}
+
+	/**
+	 * 游标分页查询，并传入变量信息
+	 */
+	@Comment("执行游标分页查询，并传入变量信息，游标参数自动获取")
+	public Object keysetPage(RuntimeContext runtimeContext,
+							 @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+							 @Comment(name = "orderColumns", value = "排序列，需唯一确定一行且值不为null，如：`create_time desc, id desc`") String orderColumns,
+							 @Comment(name = "params", value = "变量信息") Map<String, Object> params) {
+		BoundSql boundSql = new BoundSql(runtimeContext, sqlOrXml, params, this);
+		return keysetPage(boundSql, orderColumns, pageProvider.getPage(runtimeContext));
+	}
+
+	/**
+	 * 游标分页查询（手动传入limit和游标）
+	 */
+	@Comment("执行游标分页查询，并传入变量信息，条数和游标手动传入")
+	public Object keysetPage(RuntimeContext runtimeContext,
+							 @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml,
+							 @Comment(name = "orderColumns", value = "排序列，需唯一确定一行且值不为null，如：`create_time desc, id desc`") String orderColumns,
+							 @Comment(name = "limit", value = "限制条数") long limit,
+							 @Comment(name = "cursor", value = "上一页返回的游标，首页为null") String cursor,
+							 @Comment(name = "params", value = "变量信息") Map<String, Object> params) {
+		BoundSql boundSql = new BoundSql(runtimeContext, sqlOrXml, params, this);
+		Page page = new Page(limit, 0);
+		page.setCursor(cursor);
+		return keysetPage(boundSql, orderColumns, page);
+	}
+
+	@Transient
+	public Object keysetPage(BoundSql boundSql, String orderColumns, Page page) {
+		assertDatasourceNotNull();
+		Keyset keyset = Keyset.parse(orderColumns);
+		Object[] values = keyset.decodeCursor(page.getCursor());
+		Dialect dialect = dataSourceNode.getDialect(dialectAdapter);
+		BoundSql keysetBoundSql = boundSql.copy(boundSql.getSql());
+		keysetBoundSql.setParameters(new ArrayList<>(Arrays.asList(boundSql.getParameters())));
+		keysetBoundSql.setSql(dialect.getKeysetSql(boundSql.getSql(), keysetBoundSql, keyset, values));
+		BoundSql pageBoundSql = buildPageBoundSql(dialect, keysetBoundSql, 0, page.getLimit() + 1);
+		List<Map<String, Object>> list = pageBoundSql.execute(this.sqlInterceptors, () -> queryForList(pageBoundSql));
+		boolean hasMore = list.size() > page.getLimit();
+		String cursor = null;
+		if (hasMore) {
+			list = new ArrayList<>(list.subList(0, (int) page.getLimit()));
+			Function<String, String> keyMapper = this.columnMapRowMapper instanceof ResultRowMapper ? ((ResultRowMapper) this.columnMapRowMapper)::getColumnKey : Function.identity();
+			cursor = keyset.encodeCursor(list.get(list.size() - 1), keyMapper);
+		}
+		return resultProvider.buildPageResult(RequestContext.getRequestEntity(), page, hasMore, cursor, list);
 	}
 
 	/**
@@ -639,7 +1206,7 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 							 @Comment(name = "params", value = "变量信息") Map<String, Object> params) {
 		BoundSql boundSql = new BoundSql(runtimeContext, sqlOrXml, params, this);
 		Dialect dialect = dataSourceNode.getDialect(dialectAdapter);
-		BoundSql countBoundSql = boundSql.copy(dialect.getCountSql(boundSql.getSql()));
+		BoundSql countBoundSql = boundSql.copy(dialect.getCountSql(boundSql.getSql(), countOptimizeJoin));
 		return selectInt(countBoundSql);
 	}
 
@@ -665,7 +1232,14 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	@Transient
 	public Integer selectInt(BoundSql boundSql) {
 		assertDatasourceNotNull();
-		return boundSql.execute(this.sqlInterceptors, () -> dataSourceNode.getJdbcTemplate().query(boundSql.getSql(), new SingleRowResultSetExtractor<>(Integer.class), boundSql.getParameters()));
+		return boundSql.execute(this.sqlInterceptors, () -> getReadDataSourceNode().getJdbcTemplate().query(boundSql.getSql(), new SingleRowResultSetExtractor<>(Integer.class), boundSql.getParameters()));
+	}
+
+	/**
+	 * 在指定的数据源上查询int值
+	 */
+	private Integer selectInt(BoundSql boundSql, DataSourceNode node) {
+		return boundSql.execute(this.sqlInterceptors, () -> node.getJdbcTemplate().query(boundSql.getSql(), new SingleRowResultSetExtractor<>(Integer.class), boundSql.getParameters()));
 	}
 
 	/**
@@ -691,7 +1265,11 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 	public Map<String, Object> selectOne(BoundSql boundSql) {
 		assertDatasourceNotNull();
 		return boundSql.execute(this.sqlInterceptors, () -> {
-			Map<String, Object> row = dataSourceNode.getJdbcTemplate().query(boundSql.getSql(), new SingleRowResultSetExtractor<>(this.columnMapRowMapper), boundSql.getParameters());
+			if (this.columnMapRowMapper instanceof ResultRowMapper) {
+				ResultRowMapper rowMapper = (ResultRowMapper) this.columnMapRowMapper;
+				return getReadDataSourceNode().getJdbcTemplate().query(boundSql.getSql(), rowMapper.singleRowExtractor(boundSql.getExcludeColumns()), boundSql.getParameters());
+			}
+			Map<String, Object> row = getReadDataSourceNode().getJdbcTemplate().query(boundSql.getSql(), new SingleRowResultSetExtractor<>(this.columnMapRowMapper), boundSql.getParameters());
 			if (row != null && boundSql.getExcludeColumns() != null) {
 				boundSql.getExcludeColumns().forEach(row::remove);
 			}
@@ -717,7 +1295,7 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
 							  @Comment(name = "params", value = "变量信息") Map<String, Object> params) {
 		assertDatasourceNotNull();
 		BoundSql boundSql = new BoundSql(runtimeContext, sqlOrXml, params, this);
-		return boundSql.execute(this.sqlInterceptors, () -> dataSourceNode.getJdbcTemplate().query(boundSql.getSql(), new SingleRowResultSetExtractor<>(Object.class), boundSql.getParameters()));
+		return boundSql.execute(this.sqlInterceptors, () -> getReadDataSourceNode().getJdbcTemplate().query(boundSql.getSql(), new SingleRowResultSetExtractor<>(Object.class), boundSql.getParameters()));
 	}
 
 	@Comment("指定table，进行单表操作")
@@ -780,6 +1358,7 @@ public class SQLModule implements DynamicAttribute<SQLModule, SQLModule>, Dynami
     public Object call(RuntimeContext runtimeContext,
                                             @Comment(name = "sqlOrXml", value = "`SQL`语句或`xml`") String sqlOrXml) {
 		assertDatasourceNotNull();
+		markWritten();
 		BoundSql boundSql = new BoundSql(runtimeContext, sqlOrXml, Collections.emptyMap(), this);
 		return boundSql.execute(this.sqlInterceptors, () -> this.dataSourceNode.getJdbcTemplate().call(
 				con -> {
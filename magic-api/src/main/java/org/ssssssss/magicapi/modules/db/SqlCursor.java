@@ -0,0 +1,291 @@
+package org.ssssssss.magicapi.modules.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.core.exception.MagicAPIException;
+import org.ssssssss.magicapi.modules.db.dialect.Dialect;
+import org.ssssssss.magicapi.modules.db.inteceptor.SQLInterceptor;
+import org.ssssssss.magicapi.modules.db.model.RowSchema;
+import org.ssssssss.magicapi.modules.db.provider.ResultRowMapper;
+import org.ssssssss.script.annotation.Comment;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 流式查询游标
+ * <p>
+ * 遍历时才从数据库逐批读取，连接只在遍历期间占用。读取完毕、出错或调用 {@link #close()} 时释放连接，
+ * 在接口请求中打开的游标最迟在请求结束时关闭。
+ * <p>
+ * SQL拦截器的 postHandle 对每一行调用，参数为单行的 Map，返回 null 时跳过该行。
+ *
+ * @author mxd
+ */
+public class SqlCursor implements Iterator<Map<String, Object>>, Iterable<Map<String, Object>>, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SqlCursor.class);
+
+	private final BoundSql boundSql;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final DataSource dataSource;
+
+	private final RowMapper<Map<String, Object>> rowMapper;
+
+	private final List<SQLInterceptor> interceptors;
+
+	private final RequestEntity requestEntity;
+
+	private Connection connection;
+
+	private PreparedStatement statement;
+
+	private ResultSet resultSet;
+
+	private RowSchema schema;
+
+	/**
+	 * 打开游标时关闭了自动提交，关闭游标时需恢复
+	 */
+	private boolean restoreAutoCommit;
+
+	private Map<String, Object> nextRow;
+
+	private int rowNum;
+
+	private boolean closed;
+
+	SqlCursor(BoundSql boundSql, JdbcTemplate jdbcTemplate, Dialect dialect, RowMapper<Map<String, Object>> rowMapper, int fetchSize,
+			  List<SQLInterceptor> interceptors, RequestEntity requestEntity) {
+		this.boundSql = boundSql;
+		this.jdbcTemplate = jdbcTemplate;
+		this.dataSource = jdbcTemplate.getDataSource();
+		this.rowMapper = rowMapper;
+		this.interceptors = interceptors;
+		this.requestEntity = requestEntity;
+		if (requestEntity != null) {
+			requestEntity.addCloseable(this);
+		}
+		try {
+			this.connection = DataSourceUtils.getConnection(dataSource);
+			if (dialect.isStreamingRequiresTransaction() && !DataSourceUtils.isConnectionTransactional(connection, dataSource) && connection.getAutoCommit()) {
+				connection.setAutoCommit(false);
+				this.restoreAutoCommit = true;
+			}
+			this.statement = connection.prepareStatement(boundSql.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			dialect.prepareStreaming(connection, statement, fetchSize);
+			if (jdbcTemplate.getQueryTimeout() > 0) {
+				statement.setQueryTimeout(jdbcTemplate.getQueryTimeout());
+			}
+			new ArgumentPreparedStatementSetter(boundSql.getParameters()).setValues(statement);
+			this.resultSet = statement.executeQuery();
+		} catch (SQLException e) {
+			close();
+			throw translate(e);
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	@Comment("是否还有下一行")
+	public boolean hasNext() {
+		if (nextRow != null) {
+			return true;
+		}
+		if (closed) {
+			return false;
+		}
+		try {
+			while (resultSet.next()) {
+				Map<String, Object> row = postHandle(mapRow());
+				if (row != null) {
+					nextRow = row;
+					return true;
+				}
+			}
+			if (schema == null && rowNum == 0) {
+				// 没有数据时也记录列信息，用于输出表头
+				schema = createSchema();
+			}
+		} catch (SQLException e) {
+			close();
+			throw handleException(translate(e));
+		} catch (RuntimeException e) {
+			close();
+			throw handleException(e);
+		}
+		close();
+		return false;
+	}
+
+	@Override
+	@Comment("读取下一行")
+	public Map<String, Object> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Map<String, Object> row = nextRow;
+		nextRow = null;
+		return row;
+	}
+
+	@Override
+	public Iterator<Map<String, Object>> iterator() {
+		return this;
+	}
+
+	/**
+	 * 逐行回调，回调返回 false 时停止遍历，遍历结束后关闭游标
+	 *
+	 * @return 遍历的行数
+	 */
+	@Comment("逐行回调，回调返回false时停止，遍历结束后关闭游标")
+	public long each(@Comment(name = "function", value = "回调函数，如：(row)=>{....}") Function<Object, Object> function) {
+		long count = 0;
+		try {
+			while (hasNext()) {
+				count++;
+				if (Boolean.FALSE.equals(function.apply(next()))) {
+					break;
+				}
+			}
+		} finally {
+			close();
+		}
+		return count;
+	}
+
+	/**
+	 * 读取剩余的行为 List
+	 */
+	@Comment("读取剩余的全部行")
+	public List<Map<String, Object>> toList() {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		forEachRemaining(rows::add);
+		return rows;
+	}
+
+	/**
+	 * 查询结果的列名，没有数据时也可获取
+	 */
+	@Comment("获取查询结果的列名")
+	public List<String> getColumns() {
+		if (schema == null && resultSet != null) {
+			try {
+				schema = createSchema();
+			} catch (SQLException e) {
+				close();
+				throw translate(e);
+			}
+		}
+		if (schema == null) {
+			return Collections.emptyList();
+		}
+		List<String> columns = new ArrayList<>(schema.size());
+		for (int i = 0; i < schema.size(); i++) {
+			columns.add(schema.getColumn(i));
+		}
+		return columns;
+	}
+
+	@Comment("游标是否已关闭")
+	public boolean isClosed() {
+		return closed && nextRow == null;
+	}
+
+	/**
+	 * 关闭游标并释放连接，可重复调用
+	 */
+	@Override
+	@Comment("关闭游标，释放数据库连接")
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		JdbcUtils.closeResultSet(resultSet);
+		JdbcUtils.closeStatement(statement);
+		resultSet = null;
+		statement = null;
+		if (connection != null) {
+			if (restoreAutoCommit) {
+				try {
+					// 只读查询，提交即可结束服务端游标
+					connection.commit();
+					connection.setAutoCommit(true);
+				} catch (SQLException e) {
+					logger.warn("恢复连接自动提交失败", e);
+				}
+			}
+			DataSourceUtils.releaseConnection(connection, dataSource);
+			connection = null;
+		}
+	}
+
+	private Map<String, Object> mapRow() throws SQLException {
+		if (rowMapper instanceof ResultRowMapper) {
+			if (schema == null) {
+				schema = createSchema();
+			}
+			return schema.readRow(resultSet);
+		}
+		Set<String> excludeColumns = boundSql.getExcludeColumns();
+		Map<String, Object> row = rowMapper.mapRow(resultSet, rowNum++);
+		if (row != null && excludeColumns != null) {
+			excludeColumns.forEach(row::remove);
+		}
+		return row;
+	}
+
+	/**
+	 * 对单行依次调用拦截器的 postHandle，返回 null 时跳过该行
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> postHandle(Map<String, Object> row) {
+		Object result = row;
+		for (SQLInterceptor interceptor : interceptors) {
+			if (result == null) {
+				return null;
+			}
+			result = interceptor.postHandle(boundSql, result, requestEntity);
+		}
+		if (result == null || result instanceof Map) {
+			return (Map<String, Object>) result;
+		}
+		throw new MagicAPIException("流式查询时SQL拦截器的postHandle需返回Map，实际为：" + result.getClass().getName());
+	}
+
+	private RuntimeException handleException(RuntimeException e) {
+		interceptors.forEach(interceptor -> interceptor.handleException(boundSql, e, requestEntity));
+		return e;
+	}
+
+	private RowSchema createSchema() throws SQLException {
+		Set<String> excludeColumns = boundSql.getExcludeColumns();
+		if (rowMapper instanceof ResultRowMapper) {
+			return ((ResultRowMapper) rowMapper).createSchema(resultSet, excludeColumns);
+		}
+		return RowSchema.of(resultSet, Function.identity(), excludeColumns);
+	}
+
+	private RuntimeException translate(SQLException e) {
+		RuntimeException exception = jdbcTemplate.getExceptionTranslator().translate("StreamQuery", boundSql.getSql(), e);
+		return exception == null ? new IllegalStateException(e) : exception;
+	}
+}
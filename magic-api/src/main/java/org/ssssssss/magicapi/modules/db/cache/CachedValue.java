@@ -0,0 +1,41 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+/**
+ * 带刷新时间的缓存值，用于提前刷新及过期后返回旧值
+ * <p>
+ * 缓存自身的过期时间为刷新时间加上允许返回旧值的时间。
+ *
+ * @author mxd
+ */
+public class CachedValue {
+
+	private final Object value;
+
+	/**
+	 * 需要刷新的时间戳
+	 */
+	private final long refreshTime;
+
+	/**
+	 * 加载耗时，单位为毫秒
+	 */
+	private final long loadTime;
+
+	public CachedValue(Object value, long refreshTime, long loadTime) {
+		this.value = value;
+		this.refreshTime = refreshTime;
+		this.loadTime = loadTime;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	public long getRefreshTime() {
+		return refreshTime;
+	}
+
+	public long getLoadTime() {
+		return loadTime;
+	}
+}
@@ -1,5 +1,7 @@
 package org.ssssssss.magicapi.modules.db.cache;
 
+import java.util.Map;
+
 /**
  * 默认SQL缓存实现
  *
@@ -7,10 +9,10 @@ package org.ssssssss.magicapi.modules.db.cache;
  */
 public class DefaultSqlCache implements SqlCache {
 
-	private final LRUCache cache;
+	private final TinyLFUCache cache;
 
 	public DefaultSqlCache(int capacity, long expire) {
-		this.cache = new LRUCache(capacity, expire);
+		this.cache = new TinyLFUCache(capacity, expire);
 	}
 
 	@Override
@@ -33,5 +35,11 @@ public class DefaultSqlCache implements SqlCache {
 		cache.delete(name);
 	}
 
+	/**
+	 * 缓存统计信息
+	 */
+	public Map<String, Object> stats() {
+		return cache.stats();
+	}
 
 }
@@ -0,0 +1,98 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 访问频率估算（Count-Min Sketch，4bit 计数器）
+ * <p>
+ * 用于 TinyLFU 的准入判断，计数达到采样数后全部减半以淘汰历史热度。计数器通过 CAS 更新，并发时不会溢出到相邻计数器。
+ *
+ * @author mxd
+ */
+class FrequencySketch {
+
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private final AtomicLongArray table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	FrequencySketch(int capacity) {
+		int length = Integer.highestOneBit(Math.max(Math.min(capacity, 1 << 24), 16) - 1) << 1;
+		this.table = new AtomicLongArray(length);
+		this.tableMask = length - 1;
+		this.sampleSize = 10 * length;
+	}
+
+	/**
+	 * 估算访问频率，最大为15
+	 */
+	int frequency(int hash) {
+		int frequency = 15;
+		for (int i = 0; i < 4; i++) {
+			int offset = offsetOf(hash, i);
+			frequency = Math.min(frequency, (int) ((table.get(indexOf(hash, i)) >>> offset) & 0xF));
+		}
+		return frequency;
+	}
+
+	void increment(int hash) {
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = offsetOf(hash, i);
+			added |= incrementAt(index, offset);
+		}
+		if (added && size.incrementAndGet() >= sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * 计数器未达到上限时加1
+	 */
+	private boolean incrementAt(int index, int offset) {
+		for (; ; ) {
+			long value = table.get(index);
+			if (((value >>> offset) & 0xF) == 0xF) {
+				return false;
+			}
+			if (table.compareAndSet(index, value, value + (1L << offset))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 全部计数减半，只由将采样数减半的线程处理
+	 */
+	private void reset() {
+		int current = size.get();
+		if (current < sampleSize || !size.compareAndSet(current, current >>> 1)) {
+			return;
+		}
+		for (int i = 0; i < table.length(); i++) {
+			long value;
+			do {
+				value = table.get(i);
+			} while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+		}
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return (int) h & tableMask;
+	}
+
+	private int offsetOf(int hash, int i) {
+		return ((hash >>> (i << 3)) & 0xF) << 2;
+	}
+}
@@ -9,7 +9,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * LRU缓存实现
  *
  * @author mxd
+ * @deprecated 全局锁且删除时全量扫描，默认实现已改为 {@link TinyLFUCache}
  */
+@Deprecated
 public class LRUCache extends LinkedHashMap<String, LRUCache.ExpireNode<Object>> {
 
 	private final String separator = ":";
@@ -0,0 +1,53 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 可监听删除事件的SQL缓存
+ *
+ * @author mxd
+ */
+public class ListenableSqlCache implements SqlCache {
+
+	private final SqlCache delegate;
+
+	/**
+	 * 缓存删除后的回调，参数为缓存名称
+	 */
+	private final Consumer<String> deleteListener;
+
+	public ListenableSqlCache(SqlCache delegate, Consumer<String> deleteListener) {
+		this.delegate = delegate;
+		this.deleteListener = deleteListener;
+	}
+
+	public SqlCache getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public String buildSqlCacheKey(String sql, Object[] params) {
+		return delegate.buildSqlCacheKey(sql, params);
+	}
+
+	@Override
+	public void put(String name, String key, Object value) {
+		delegate.put(name, key, value);
+	}
+
+	@Override
+	public void put(String name, String key, Object value, long ttl) {
+		delegate.put(name, key, value, ttl);
+	}
+
+	@Override
+	public <T> T get(String name, String key) {
+		return delegate.get(name, key);
+	}
+
+	@Override
+	public void delete(String name) {
+		delegate.delete(name);
+		deleteListener.accept(name);
+	}
+}
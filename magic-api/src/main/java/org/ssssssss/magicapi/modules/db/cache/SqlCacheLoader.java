@@ -0,0 +1,317 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * SQL缓存加载，防止缓存击穿
+ * <p>
+ * 同一个key同时只有一个线程执行查询，其余线程等待其结果。开启提前刷新（XFetch）或过期后返回旧值时，
+ * 缓存中保存 {@link CachedValue}，到期前按概率或到期后在后台刷新，刷新期间返回旧值。
+ *
+ * @author mxd
+ */
+public class SqlCacheLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(SqlCacheLoader.class);
+
+	/**
+	 * 不开启提前刷新及返回旧值的默认实现
+	 */
+	public static final SqlCacheLoader DEFAULT = new SqlCacheLoader(-1, 0, 0, false);
+
+	/**
+	 * 默认等待其它线程加载的最长时间，单位为毫秒
+	 */
+	public static final long DEFAULT_LOAD_TIMEOUT = 30000;
+
+	private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+	/**
+	 * 默认过期时间，单位为毫秒，-1为不过期
+	 */
+	private final long expire;
+
+	/**
+	 * 默认过期后仍可返回旧值的时间，单位为毫秒，0为不返回旧值
+	 */
+	private final long staleTtl;
+
+	/**
+	 * 默认提前刷新系数，0为不提前刷新
+	 */
+	private final double earlyRefresh;
+
+	/**
+	 * 是否按SQL中的表名自动失效缓存
+	 */
+	private final boolean tableAware;
+
+	/**
+	 * 等待其它线程加载的最长时间，单位为毫秒，超时后直接查询，<=0为一直等待
+	 */
+	private final long loadTimeout;
+
+	/**
+	 * 表名与依赖该表的缓存名称
+	 */
+	private final Map<String, Set<String>> tableDependencies = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+	private volatile ExecutorService executor;
+
+	/**
+	 * @param expire       默认过期时间，单位为毫秒，-1为不过期
+	 * @param staleTtl     过期后仍可返回旧值的时间，单位为毫秒，0为不返回旧值
+	 * @param earlyRefresh 提前刷新系数，越大越早刷新，0为不提前刷新，一般为 1
+	 * @param tableAware   是否按SQL中的表名自动失效缓存
+	 */
+	public SqlCacheLoader(long expire, long staleTtl, double earlyRefresh, boolean tableAware) {
+		this(expire, staleTtl, earlyRefresh, tableAware, DEFAULT_LOAD_TIMEOUT);
+	}
+
+	/**
+	 * @param loadTimeout 等待其它线程加载的最长时间，单位为毫秒，超时后直接查询，<=0为一直等待
+	 */
+	public SqlCacheLoader(long expire, long staleTtl, double earlyRefresh, boolean tableAware, long loadTimeout) {
+		this.expire = expire;
+		this.staleTtl = staleTtl;
+		this.earlyRefresh = earlyRefresh;
+		this.tableAware = tableAware;
+		this.loadTimeout = loadTimeout;
+	}
+
+	public boolean isTableAware() {
+		return tableAware;
+	}
+
+	/**
+	 * 记录缓存名称依赖查询SQL中的表
+	 */
+	public void dependOn(String name, String sql) {
+		if (tableAware) {
+			for (String table : SqlTableExtractor.extract(sql)) {
+				Set<String> names = tableDependencies.get(table);
+				if (names == null) {
+					names = tableDependencies.computeIfAbsent(table, it -> ConcurrentHashMap.newKeySet());
+				}
+				names.add(name);
+			}
+		}
+	}
+
+	/**
+	 * 写入SQL执行后，删除依赖其中表的缓存
+	 */
+	public void tablesChanged(SqlCache cache, String sql) {
+		if (tableAware && !tableDependencies.isEmpty()) {
+			Set<String> names = new HashSet<>();
+			for (String table : SqlTableExtractor.extract(sql)) {
+				Set<String> dependencies = tableDependencies.get(table);
+				if (dependencies != null) {
+					names.addAll(dependencies);
+				}
+			}
+			names.forEach(cache::delete);
+		}
+	}
+
+	public long getStaleTtl() {
+		return staleTtl;
+	}
+
+	public double getEarlyRefresh() {
+		return earlyRefresh;
+	}
+
+	/**
+	 * 从缓存中获取，不存在时加载
+	 *
+	 * @param ttl          过期时间，<=0 时使用默认值
+	 * @param staleTtl     过期后仍可返回旧值的时间，<0 时使用默认值
+	 * @param earlyRefresh 提前刷新系数，<0 时使用默认值
+	 * @param loader       加载逻辑
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(SqlCache cache, String name, String key, long ttl, long staleTtl, double earlyRefresh, Supplier<T> loader) {
+		Load load = new Load(cache, name, key, ttl > 0 ? ttl : expire, staleTtl < 0 ? this.staleTtl : staleTtl, earlyRefresh < 0 ? this.earlyRefresh : earlyRefresh, (Supplier<Object>) loader);
+		Object cached = cache.get(name, key);
+		if (cached instanceof CachedValue) {
+			CachedValue cachedValue = (CachedValue) cached;
+			long now = System.currentTimeMillis();
+			if (now >= cachedValue.getRefreshTime() || shouldRefreshEarly(cachedValue, now, load.earlyRefresh)) {
+				refreshAsync(load);
+			}
+			return (T) cachedValue.getValue();
+		}
+		if (cached != null) {
+			return (T) cached;
+		}
+		return (T) load(load);
+	}
+
+	/**
+	 * XFetch：剩余时间越短、加载越慢，越可能提前刷新
+	 */
+	private boolean shouldRefreshEarly(CachedValue cachedValue, long now, double earlyRefresh) {
+		return earlyRefresh > 0 && now - cachedValue.getLoadTime() * earlyRefresh * Math.log(ThreadLocalRandom.current().nextDouble()) >= cachedValue.getRefreshTime();
+	}
+
+	/**
+	 * 加载，相同key正在加载时等待其结果
+	 */
+	private Object load(Load load) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> existing = loading.putIfAbsent(load.flightKey, future);
+		if (existing != null) {
+			return await(existing, load);
+		}
+		try {
+			// 等待锁期间其它线程可能已加载完成
+			Object cached = load.cache.get(load.name, load.key);
+			Object value = cached instanceof CachedValue ? ((CachedValue) cached).getValue() : cached;
+			if (value == null) {
+				value = load.execute();
+			}
+			future.complete(value);
+			return value;
+		} catch (Throwable e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(load.flightKey, future);
+		}
+	}
+
+	/**
+	 * 后台刷新，同一个key同时只有一个刷新任务
+	 * <p>
+	 * 刷新在请求结束后仍可能执行，此时请求对象已被容器回收，因此不传递当前请求，
+	 * 刷新时 SQL 拦截器中 {@code RequestContext.getRequestEntity()} 为 null。
+	 */
+	private void refreshAsync(Load load) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		if (loading.putIfAbsent(load.flightKey, future) != null) {
+			return;
+		}
+		try {
+			executor().execute(() -> {
+				try {
+					future.complete(load.execute());
+				} catch (Throwable e) {
+					logger.warn("刷新SQL缓存[{}]失败", load.name, e);
+					future.completeExceptionally(e);
+				} finally {
+					loading.remove(load.flightKey, future);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			loading.remove(load.flightKey, future);
+			future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * 等待其它线程的加载结果，超时后直接查询，不写入缓存
+	 */
+	private Object await(CompletableFuture<Object> future, Load load) {
+		try {
+			return loadTimeout > 0 ? future.get(loadTimeout, TimeUnit.MILLISECONDS) : future.get();
+		} catch (TimeoutException e) {
+			logger.warn("等待SQL缓存[{}]加载超时，直接查询", load.name);
+			return load.loader.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return load.loader.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * 关闭后台刷新线程池，已提交的刷新任务仍会执行
+	 */
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	private ExecutorService executor() {
+		if (executor == null) {
+			synchronized (this) {
+				if (executor == null) {
+					int size = Math.max(2, Runtime.getRuntime().availableProcessors());
+					ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1024), runnable -> {
+						Thread thread = new Thread(runnable, "magic-sql-cache-refresh-" + THREAD_INDEX.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+					threadPoolExecutor.allowCoreThreadTimeOut(true);
+					executor = threadPoolExecutor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	private static class Load {
+
+		private final SqlCache cache;
+
+		private final String name;
+
+		private final String key;
+
+		private final String flightKey;
+
+		private final long ttl;
+
+		private final long staleTtl;
+
+		private final double earlyRefresh;
+
+		private final Supplier<Object> loader;
+
+		Load(SqlCache cache, String name, String key, long ttl, long staleTtl, double earlyRefresh, Supplier<Object> loader) {
+			this.cache = cache;
+			this.name = name;
+			this.key = key;
+			this.flightKey = name + ":" + key;
+			this.ttl = ttl;
+			this.staleTtl = staleTtl;
+			this.earlyRefresh = earlyRefresh;
+			this.loader = loader;
+		}
+
+		/**
+		 * 执行查询并存入缓存
+		 */
+		Object execute() {
+			long start = System.currentTimeMillis();
+			Object value = loader.get();
+			long now = System.currentTimeMillis();
+			if (ttl > 0 && (staleTtl > 0 || earlyRefresh > 0)) {
+				cache.put(name, key, new CachedValue(value, now + ttl, now - start), ttl + Math.max(staleTtl, 0));
+			} else {
+				cache.put(name, key, value, ttl);
+			}
+			return value;
+		}
+	}
+}
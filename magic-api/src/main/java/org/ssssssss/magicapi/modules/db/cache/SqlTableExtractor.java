@@ -0,0 +1,170 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 从SQL中提取表名
+ * <p>
+ * 只做词法分析，识别 FROM、JOIN、INTO、UPDATE、USING、TABLE 之后的表名，忽略字符串及注释，结果按SQL缓存。
+ * 可能会多识别出一些名称（如 CTE 名称），用于缓存失效时只会多清除缓存。
+ *
+ * @author mxd
+ */
+public class SqlTableExtractor {
+
+	private static final int MAX_CACHED = 4096;
+
+	private static final Set<String> TABLE_KEYWORDS = new HashSet<>(Arrays.asList("from", "join", "into", "update", "using", "table"));
+
+	/**
+	 * 表名之后出现时表示表名列表结束的关键字
+	 */
+	private static final Set<String> STOP_KEYWORDS = new HashSet<>(Arrays.asList(
+			"where", "join", "inner", "left", "right", "full", "cross", "natural", "outer", "on", "group", "order", "having",
+			"limit", "offset", "union", "intersect", "except", "minus", "set", "values", "select", "for", "fetch", "window",
+			"lateral", "with", "returning", "when", "then", "connect", "start", "partition", "straight_join"));
+
+	private static final Map<String, Set<String>> CACHE = new ConcurrentHashMap<>();
+
+	/**
+	 * 提取SQL中的表名（小写，不含schema）
+	 */
+	public static Set<String> extract(String sql) {
+		if (sql == null) {
+			return Collections.emptySet();
+		}
+		Set<String> tables = CACHE.get(sql);
+		if (tables == null) {
+			tables = Collections.unmodifiableSet(parse(sql));
+			if (CACHE.size() >= MAX_CACHED) {
+				CACHE.clear();
+			}
+			CACHE.put(sql, tables);
+		}
+		return tables;
+	}
+
+	private static Set<String> parse(String sql) {
+		List<Token> tokens = tokenize(sql);
+		Set<String> tables = new LinkedHashSet<>();
+		for (int i = 0, size = tokens.size(); i < size; i++) {
+			Token token = tokens.get(i);
+			if (token.type != Token.WORD || !TABLE_KEYWORDS.contains(token.text)) {
+				continue;
+			}
+			if ("update".equals(token.text) && i > 0 && ("for".equals(tokens.get(i - 1).text) || "key".equals(tokens.get(i - 1).text))) {
+				// FOR UPDATE、ON DUPLICATE KEY UPDATE
+				continue;
+			}
+			boolean list = "from".equals(token.text) || "using".equals(token.text);
+			int index = i + 1;
+			while (index < size) {
+				int end = readTable(tokens, index, tables);
+				if (end < 0) {
+					break;
+				}
+				index = end;
+				// 跳过别名
+				if (index < size && tokens.get(index).type == Token.WORD && "as".equals(tokens.get(index).text)) {
+					index++;
+				}
+				if (index < size && tokens.get(index).type != Token.SYMBOL && !STOP_KEYWORDS.contains(tokens.get(index).text)) {
+					index++;
+				}
+				if (list && index < size && ",".equals(tokens.get(index).text)) {
+					index++;
+					continue;
+				}
+				break;
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * 读取 [schema.]table，返回下一个token的位置，不是表名时返回 -1
+	 */
+	private static int readTable(List<Token> tokens, int index, Set<String> tables) {
+		Token token = tokens.get(index);
+		if (token.type == Token.SYMBOL || (token.type == Token.WORD && (STOP_KEYWORDS.contains(token.text) || TABLE_KEYWORDS.contains(token.text)))) {
+			return -1;
+		}
+		String name = token.text;
+		index++;
+		while (index + 1 < tokens.size() && ".".equals(tokens.get(index).text) && tokens.get(index + 1).type != Token.SYMBOL) {
+			name = tokens.get(index + 1).text;
+			index += 2;
+		}
+		tables.add(name);
+		return index;
+	}
+
+	private static List<Token> tokenize(String sql) {
+		List<Token> tokens = new ArrayList<>();
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				i = indexOf(sql, "\n", i + 2);
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				i = indexOf(sql, "*/", i + 2) + 2;
+			} else if (c == '\'') {
+				// 字符串，'' 为转义
+				i++;
+				while (i < length) {
+					if (sql.charAt(i) == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				i++;
+			} else if (c == '"' || c == '`' || c == '[') {
+				char close = c == '[' ? ']' : c;
+				int end = indexOf(sql, String.valueOf(close), i + 1);
+				tokens.add(new Token(Token.QUOTED, sql.substring(i + 1, Math.min(end, length)).toLowerCase()));
+				i = end + 1;
+			} else if (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#') {
+				int start = i;
+				while (i < length && (Character.isLetterOrDigit(c = sql.charAt(i)) || c == '_' || c == '$' || c == '#')) {
+					i++;
+				}
+				tokens.add(new Token(Token.WORD, sql.substring(start, i).toLowerCase()));
+			} else {
+				tokens.add(new Token(Token.SYMBOL, String.valueOf(c)));
+				i++;
+			}
+		}
+		return tokens;
+	}
+
+	private static int indexOf(String sql, String str, int from) {
+		int index = sql.indexOf(str, from);
+		return index < 0 ? sql.length() : index;
+	}
+
+	private static class Token {
+
+		static final int WORD = 0;
+
+		static final int QUOTED = 1;
+
+		static final int SYMBOL = 2;
+
+		private final int type;
+
+		private final String text;
+
+		Token(int type, String text) {
+			this.type = type;
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段并发缓存，采用 W-TinyLFU 淘汰策略
+ * <p>
+ * 按key的hash分段加锁，每段由窗口区（LRU，约1%容量）和主区（LRU）组成，新数据先进入窗口区，
+ * 窗口区溢出的数据需要比主区最久未访问的数据访问频率更高才能进入主区。
+ * 按缓存名称维护key索引，删除名称时只处理该名称下的key；过期数据通过时间轮按秒清理，读写时推进，不再全量扫描。
+ *
+ * @author mxd
+ */
+public class TinyLFUCache {
+
+	/**
+	 * 时间轮的刻度，单位为毫秒
+	 */
+	private static final long TICK = 1000;
+
+	private static final int WHEEL_SIZE = 256;
+
+	private final long expire;
+
+	private final Segment[] segments;
+
+	private final int segmentMask;
+
+	private final FrequencySketch sketch;
+
+	/**
+	 * 缓存名称与key的索引
+	 */
+	private final Map<String, Set<CacheKey>> names = new ConcurrentHashMap<>();
+
+	/**
+	 * 时间轮，按过期时间所在的秒分桶
+	 */
+	@SuppressWarnings("unchecked")
+	private final Set<Node>[] wheel = new Set[WHEEL_SIZE];
+
+	private final AtomicLong lastTick = new AtomicLong(System.currentTimeMillis() / TICK);
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder puts = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * @param capacity 容量
+	 * @param expire   默认过期时间，单位为毫秒，-1为不过期
+	 */
+	public TinyLFUCache(int capacity, long expire) {
+		capacity = Math.max(capacity, 1);
+		this.expire = expire;
+		int concurrency = Runtime.getRuntime().availableProcessors() * 4;
+		int segmentCount = 1;
+		while (segmentCount < concurrency && segmentCount < 64 && (segmentCount << 1) * 16 <= capacity) {
+			segmentCount <<= 1;
+		}
+		this.segments = new Segment[segmentCount];
+		this.segmentMask = segmentCount - 1;
+		int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(segmentCapacity);
+		}
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = ConcurrentHashMap.newKeySet();
+		}
+		this.sketch = new FrequencySketch(capacity);
+	}
+
+	public void put(String name, String key, Object value) {
+		put(name, key, value, this.expire);
+	}
+
+	public void put(String name, String key, Object value, long ttl) {
+		long now = System.currentTimeMillis();
+		long expireTime = ttl > 0 ? (now + ttl) : (this.expire > -1 ? now + this.expire : Long.MAX_VALUE);
+		CacheKey cacheKey = new CacheKey(name, key);
+		Node node = new Node(cacheKey, value, expireTime);
+		sketch.increment(cacheKey.hash);
+		Segment segment = segmentFor(cacheKey);
+		segment.lock.lock();
+		try {
+			segment.put(node);
+		} finally {
+			segment.lock.unlock();
+		}
+		puts.increment();
+		expire(now);
+	}
+
+	public Object get(String name, String key) {
+		CacheKey cacheKey = new CacheKey(name, key);
+		sketch.increment(cacheKey.hash);
+		Segment segment = segmentFor(cacheKey);
+		long now = System.currentTimeMillis();
+		Node node;
+		segment.lock.lock();
+		try {
+			node = segment.get(cacheKey);
+			if (node != null && node.expireTime < now) {
+				// 惰性删除过期的
+				segment.remove(node);
+				expirations.increment();
+				node = null;
+			}
+		} finally {
+			segment.lock.unlock();
+		}
+		expire(now);
+		if (node == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return node.value;
+	}
+
+	/**
+	 * 删除名称下的全部缓存
+	 */
+	public void delete(String name) {
+		Set<CacheKey> keys = names.remove(name);
+		if (keys != null) {
+			for (CacheKey cacheKey : keys) {
+				Segment segment = segmentFor(cacheKey);
+				segment.lock.lock();
+				try {
+					Node node = segment.get(cacheKey);
+					if (node != null) {
+						segment.remove(node);
+					}
+				} finally {
+					segment.lock.unlock();
+				}
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * 缓存统计信息
+	 */
+	public Map<String, Object> stats() {
+		long hitCount = hits.sum();
+		long missCount = misses.sum();
+		long total = hitCount + missCount;
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("size", size());
+		stats.put("names", names.size());
+		stats.put("hits", hitCount);
+		stats.put("misses", missCount);
+		stats.put("hitRate", total == 0 ? 0 : (double) hitCount / total);
+		stats.put("puts", puts.sum());
+		stats.put("evictions", evictions.sum());
+		stats.put("expirations", expirations.sum());
+		return stats;
+	}
+
+	/**
+	 * 推进时间轮，清理已经过去的刻度中过期的数据，每个刻度只由一个线程处理。
+	 * 上次处理的刻度当时尚未结束，需要重新检查
+	 */
+	private void expire(long now) {
+		long currentTick = now / TICK;
+		long last = lastTick.get();
+		if (currentTick <= last || !lastTick.compareAndSet(last, currentTick)) {
+			return;
+		}
+		for (long tick = Math.max(last, currentTick - WHEEL_SIZE + 1); tick <= currentTick; tick++) {
+			for (Node node : wheel[(int) (tick & (WHEEL_SIZE - 1))]) {
+				if (node.expireTime <= now) {
+					Segment segment = segmentFor(node.key);
+					segment.lock.lock();
+					try {
+						if (segment.get(node.key) == node) {
+							segment.remove(node);
+							expirations.increment();
+						} else {
+							unschedule(node);
+						}
+					} finally {
+						segment.lock.unlock();
+					}
+				}
+			}
+		}
+	}
+
+	private Segment segmentFor(CacheKey cacheKey) {
+		return segments[(cacheKey.hash ^ (cacheKey.hash >>> 16)) & segmentMask];
+	}
+
+	private void index(CacheKey cacheKey) {
+		names.compute(cacheKey.name, (name, keys) -> {
+			if (keys == null) {
+				keys = ConcurrentHashMap.newKeySet();
+			}
+			keys.add(cacheKey);
+			return keys;
+		});
+	}
+
+	private void unindex(CacheKey cacheKey) {
+		names.computeIfPresent(cacheKey.name, (name, keys) -> {
+			keys.remove(cacheKey);
+			return keys.isEmpty() ? null : keys;
+		});
+	}
+
+	private void schedule(Node node) {
+		if (node.expireTime != Long.MAX_VALUE) {
+			wheel[(int) ((node.expireTime / TICK) & (WHEEL_SIZE - 1))].add(node);
+		}
+	}
+
+	private void unschedule(Node node) {
+		if (node.expireTime != Long.MAX_VALUE) {
+			wheel[(int) ((node.expireTime / TICK) & (WHEEL_SIZE - 1))].remove(node);
+		}
+	}
+
+	/**
+	 * 缓存段，所有操作需持有锁
+	 */
+	private class Segment {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final int windowCapacity;
+
+		private final int mainCapacity;
+
+		private final LinkedHashMap<CacheKey, Node> window;
+
+		private final LinkedHashMap<CacheKey, Node> main;
+
+		Segment(int capacity) {
+			this.windowCapacity = Math.max(capacity / 100, 1);
+			this.mainCapacity = Math.max(capacity - windowCapacity, 0);
+			this.window = new LinkedHashMap<>(16, 0.75f, true);
+			this.main = new LinkedHashMap<>(16, 0.75f, true);
+		}
+
+		Node get(CacheKey cacheKey) {
+			Node node = window.get(cacheKey);
+			return node != null ? node : main.get(cacheKey);
+		}
+
+		void put(Node node) {
+			Node old = window.get(node.key);
+			if (old != null) {
+				window.put(node.key, node);
+			} else if ((old = main.get(node.key)) != null) {
+				main.put(node.key, node);
+			} else {
+				window.put(node.key, node);
+				index(node.key);
+			}
+			if (old != null) {
+				unschedule(old);
+			}
+			schedule(node);
+			if (window.size() > windowCapacity) {
+				Iterator<Node> iterator = window.values().iterator();
+				Node candidate = iterator.next();
+				iterator.remove();
+				admit(candidate);
+			}
+		}
+
+		/**
+		 * 窗口区淘汰的数据尝试进入主区，与主区最久未访问的数据比较访问频率
+		 */
+		private void admit(Node candidate) {
+			if (main.size() < mainCapacity) {
+				main.put(candidate.key, candidate);
+				return;
+			}
+			if (mainCapacity > 0) {
+				Iterator<Node> iterator = main.values().iterator();
+				Node victim = iterator.next();
+				if (sketch.frequency(candidate.key.hash) > sketch.frequency(victim.key.hash)) {
+					iterator.remove();
+					main.put(candidate.key, candidate);
+					candidate = victim;
+				}
+			}
+			evict(candidate);
+		}
+
+		private void evict(Node node) {
+			unindex(node.key);
+			unschedule(node);
+			evictions.increment();
+		}
+
+		void remove(Node node) {
+			if (window.remove(node.key) == null) {
+				main.remove(node.key);
+			}
+			unindex(node.key);
+			unschedule(node);
+		}
+
+		int size() {
+			lock.lock();
+			try {
+				return window.size() + main.size();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private static class CacheKey {
+
+		private final String name;
+
+		private final String key;
+
+		private final int hash;
+
+		CacheKey(String name, String key) {
+			this.name = name;
+			this.key = key;
+			this.hash = 31 * Objects.hashCode(name) + Objects.hashCode(key);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) o;
+			return Objects.equals(name, other.name) && Objects.equals(key, other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static class Node {
+
+		private final CacheKey key;
+
+		private final Object value;
+
+		private final long expireTime;
+
+		Node(CacheKey key, Object value, long expireTime) {
+			this.key = key;
+			this.value = value;
+			this.expireTime = expireTime;
+		}
+	}
+}
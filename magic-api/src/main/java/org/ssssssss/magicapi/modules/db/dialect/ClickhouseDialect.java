@@ -1,5 +1,10 @@
 package org.ssssssss.magicapi.modules.db.dialect;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
 /**
  * ClickHouse方言
  *
@@ -11,4 +16,25 @@ public class ClickhouseDialect extends MySQLDialect {
 	public boolean match(String jdbcUrl) {
 		return jdbcUrl.contains(":clickhouse:");
 	}
+
+	@Override
+	public void prepareStreaming(Connection connection, Statement statement, int fetchSize) throws SQLException {
+		statement.setFetchSize(fetchSize);
+	}
+
+	/**
+	 * ClickHouse 没有按主键更新的语句，直接插入会产生重复行或以默认值覆盖未传入的列，不支持 upsert
+	 */
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		return null;
+	}
+
+	/**
+	 * 驱动会将批处理按列式格式整批发送，不需要拼接多行语句
+	 */
+	@Override
+	public int getBulkInsertRows(Connection connection, int columnCount) {
+		return 1;
+	}
 }
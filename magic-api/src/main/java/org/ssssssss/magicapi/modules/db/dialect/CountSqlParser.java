@@ -0,0 +1,579 @@
+package org.ssssssss.magicapi.modules.db.dialect;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分页查询总条数SQL的改写
+ * <p>
+ * 只做词法分析并按括号划分层级，不依赖完整的SQL语法：
+ * <ul>
+ *     <li>没有 DISTINCT、GROUP BY、聚合函数时，查询列替换为 count(*)，否则包装为子查询</li>
+ *     <li>去掉各层未配合 LIMIT/TOP 等使用的 ORDER BY</li>
+ *     <li>开启时去掉别名在其余部分未被引用的 LEFT JOIN（假定为一对一关联），其余部分出现无法确定来源的列名时不去掉</li>
+ * </ul>
+ * 被去掉的部分含有 ? 参数时保留原样，保证参数位置不变。无法识别的SQL返回 null，由调用方按原有方式处理。结果按SQL缓存。
+ * <p>
+ * 通过 {@link #of(boolean)} 获取实例。
+ *
+ * @author mxd
+ */
+public class CountSqlParser {
+
+	private static final int MAX_CACHED = 4096;
+
+	/**
+	 * 缓存无法改写的SQL
+	 */
+	private static final String UNSUPPORTED = "";
+
+	private static final Set<String> AGGREGATE_FUNCTIONS = new HashSet<>(Arrays.asList(
+			"count", "sum", "avg", "min", "max", "group_concat", "string_agg", "listagg", "array_agg", "json_arrayagg",
+			"json_objectagg", "json_agg", "wm_concat", "xmlagg", "stddev", "variance", "median", "bit_and", "bit_or",
+			"bit_xor", "bool_and", "bool_or", "every", "any_value", "grouping", "groupuniqarray", "grouparray", "uniq"));
+
+	/**
+	 * 出现在同一层时表示 ORDER BY 会影响结果行数
+	 */
+	private static final Set<String> LIMIT_KEYWORDS = new HashSet<>(Arrays.asList("limit", "offset", "fetch", "top"));
+
+	private static final Set<String> SET_OPERATORS = new HashSet<>(Arrays.asList("union", "intersect", "except", "minus"));
+
+	/**
+	 * FROM 子句结束的关键字
+	 */
+	private static final Set<String> FROM_END_KEYWORDS = new HashSet<>(Arrays.asList(
+			"where", "group", "having", "order", "limit", "offset", "fetch", "for", "union", "intersect", "except", "minus",
+			"window", "connect", "start", "qualify", "settings", "format"));
+
+	/**
+	 * ON 条件结束的关键字
+	 */
+	private static final Set<String> JOIN_KEYWORDS = new HashSet<>(Arrays.asList(
+			"join", "inner", "left", "right", "full", "cross", "natural", "straight_join", "outer"));
+
+	/**
+	 * 写在 LEFT JOIN 之前的修饰词，如 ClickHouse 的 ANY LEFT JOIN，出现时不去掉该 JOIN
+	 */
+	private static final Set<String> JOIN_MODIFIERS = new HashSet<>(Arrays.asList("natural", "global", "any", "all", "asof", "semi", "anti", "array"));
+
+	/**
+	 * 条件中不是列名的关键字、常量及函数，其余未带表别名的单词视为无法确定来源的列名
+	 */
+	private static final Set<String> SQL_KEYWORDS = new HashSet<>(Arrays.asList(
+			"select", "from", "where", "and", "or", "not", "in", "is", "null", "like", "ilike", "between", "exists", "case",
+			"when", "then", "else", "end", "as", "on", "using", "group", "by", "having", "order", "asc", "desc", "nulls",
+			"first", "last", "true", "false", "unknown", "escape", "distinct", "all", "any", "some", "limit", "offset",
+			"fetch", "next", "rows", "row", "only", "for", "update", "share", "of", "nowait", "skip", "locked", "lock",
+			"mode", "with", "ties", "union", "intersect", "except", "minus", "join", "inner", "left", "right", "full",
+			"cross", "outer", "natural", "regexp", "rlike", "similar", "to", "glob", "collate", "binary", "interval",
+			"year", "month", "day", "hour", "minute", "second", "date", "time", "timestamp", "div", "mod", "xor",
+			"current_date", "current_time", "current_timestamp", "localtime", "localtimestamp", "sysdate", "prior",
+			"window", "qualify", "settings", "format", "connect", "start"));
+
+	private static final CountSqlParser DEFAULT = new CountSqlParser(false);
+
+	private static final CountSqlParser REMOVE_LEFT_JOIN = new CountSqlParser(true);
+
+	private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * 是否去掉未引用的 LEFT JOIN，关联表为一对多时去掉后总条数会变少
+	 */
+	private final boolean removeLeftJoin;
+
+	private CountSqlParser(boolean removeLeftJoin) {
+		this.removeLeftJoin = removeLeftJoin;
+	}
+
+	/**
+	 * 获取解析器
+	 *
+	 * @param removeLeftJoin 是否去掉未引用的 LEFT JOIN，仅在关联均为一对一时可开启
+	 */
+	public static CountSqlParser of(boolean removeLeftJoin) {
+		return removeLeftJoin ? REMOVE_LEFT_JOIN : DEFAULT;
+	}
+
+	/**
+	 * 改写为查询总条数的SQL，无法改写时返回 null
+	 */
+	public String parse(String sql) {
+		if (sql == null) {
+			return null;
+		}
+		String countSql = cache.get(sql);
+		if (countSql == null) {
+			try {
+				countSql = rewrite(sql);
+			} catch (RuntimeException e) {
+				countSql = null;
+			}
+			if (countSql == null) {
+				countSql = UNSUPPORTED;
+			}
+			if (cache.size() >= MAX_CACHED) {
+				cache.clear();
+			}
+			cache.put(sql, countSql);
+		}
+		return countSql.isEmpty() ? null : countSql;
+	}
+
+	private String rewrite(String sql) {
+		List<Token> tokens = tokenize(sql);
+		if (tokens == null || tokens.isEmpty() || !tokens.get(0).isWord("select")) {
+			return null;
+		}
+		int size = tokens.size();
+		int[] match = matchParentheses(tokens);
+		if (match == null) {
+			return null;
+		}
+		List<int[]> removals = new ArrayList<>();
+		collectOrderBy(sql, tokens, match, 0, size, removals);
+		// 分析最外层
+		boolean wrap = false;
+		int fromIndex = -1;
+		for (int i = 0; i < size; i = next(tokens, match, i)) {
+			Token token = tokens.get(i);
+			if (token.type != Token.WORD) {
+				continue;
+			}
+			if ("into".equals(token.text)) {
+				return null;
+			}
+			if (fromIndex < 0 && "from".equals(token.text)) {
+				fromIndex = i;
+			}
+			if (LIMIT_KEYWORDS.contains(token.text) || SET_OPERATORS.contains(token.text) || "group".equals(token.text) || "having".equals(token.text)) {
+				wrap = true;
+			}
+		}
+		if (fromIndex < 0) {
+			return null;
+		}
+		if (size > 1 && tokens.get(1).type == Token.WORD && ("distinct".equals(tokens.get(1).text) || "unique".equals(tokens.get(1).text) || "distinctrow".equals(tokens.get(1).text))) {
+			wrap = true;
+		}
+		for (int i = 1; i < fromIndex && !wrap; i++) {
+			Token token = tokens.get(i);
+			if (token.isSymbol("?")) {
+				// 查询列中的参数需保留
+				wrap = true;
+			} else if (token.depth == 0 && token.type == Token.WORD && AGGREGATE_FUNCTIONS.contains(token.text) && i + 1 < fromIndex && tokens.get(i + 1).isSymbol("(")) {
+				wrap = true;
+			}
+		}
+		if (wrap) {
+			return "select count(*) from ( \n" + applyRemovals(sql, 0, removals) + "\n ) count_";
+		}
+		if (removeLeftJoin) {
+			collectLeftJoin(sql, tokens, match, fromIndex, removals);
+		}
+		return "select count(*) " + applyRemovals(sql, tokens.get(fromIndex).start, removals);
+	}
+
+	/**
+	 * 收集各层可以去掉的 ORDER BY
+	 *
+	 * @param from 当前层的第一个token
+	 * @param to   当前层结束的位置（右括号或末尾）
+	 */
+	private static void collectOrderBy(String sql, List<Token> tokens, int[] match, int from, int to, List<int[]> removals) {
+		boolean query = from < to && tokens.get(from).isWord("select");
+		int orderIndex = -1;
+		boolean limited = false;
+		for (int i = from; i < to; i = next(tokens, match, i)) {
+			Token token = tokens.get(i);
+			if (token.isSymbol("(")) {
+				collectOrderBy(sql, tokens, match, i + 1, match[i], removals);
+			} else if (token.type == Token.WORD) {
+				if (LIMIT_KEYWORDS.contains(token.text)) {
+					limited = true;
+				} else if (orderIndex < 0 && "order".equals(token.text) && i + 1 < to && tokens.get(i + 1).isWord("by")) {
+					orderIndex = i;
+				}
+			}
+		}
+		if (!query || limited || orderIndex < 0) {
+			return;
+		}
+		int end = orderIndex + 2;
+		while (end < to) {
+			Token token = tokens.get(end);
+			if (token.type == Token.WORD && ("for".equals(token.text) || SET_OPERATORS.contains(token.text))) {
+				break;
+			}
+			end = next(tokens, match, end);
+		}
+		if (!containsParameter(tokens, orderIndex, end)) {
+			removals.add(new int[]{tokens.get(orderIndex).start, position(sql, tokens, end)});
+		}
+	}
+
+	/**
+	 * 收集别名未被引用的 LEFT JOIN，去掉一个后可能使前面的 JOIN 也不再被引用，因此重复直到没有变化
+	 */
+	private static void collectLeftJoin(String sql, List<Token> tokens, int[] match, int fromIndex, List<int[]> removals) {
+		int size = tokens.size();
+		int fromEnd = fromIndex + 1;
+		while (fromEnd < size && !(tokens.get(fromEnd).type == Token.WORD && FROM_END_KEYWORDS.contains(tokens.get(fromEnd).text))) {
+			fromEnd = next(tokens, match, fromEnd);
+		}
+		boolean[] tableTokens = markTableTokens(tokens, match, fromIndex, fromEnd);
+		List<int[]> joins = new ArrayList<>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = fromIndex + 1; i < fromEnd; i = next(tokens, match, i)) {
+				if (!tokens.get(i).isWord("left") || contains(joins, i) || (tokens.get(i - 1).type == Token.WORD && JOIN_MODIFIERS.contains(tokens.get(i - 1).text))) {
+					continue;
+				}
+				int[] join = readLeftJoin(tokens, match, i, fromEnd);
+				if (join == null || containsParameter(tokens, join[0], join[1])) {
+					continue;
+				}
+				String alias = tokens.get(join[2]).text;
+				if (!isReferenced(tokens, fromIndex, alias, join, joins, removals) && !hasUnqualifiedColumn(tokens, fromIndex, tableTokens, join, joins, removals)) {
+					joins.add(join);
+					changed = true;
+				}
+			}
+		}
+		for (int[] join : joins) {
+			removals.add(new int[]{tokens.get(join[0]).start, position(sql, tokens, join[1])});
+		}
+	}
+
+	/**
+	 * 读取 left [outer] join table [as] alias on ...
+	 *
+	 * @return [起始token, 结束位置, 别名token]，不是可去掉的 JOIN 时返回 null
+	 */
+	private static int[] readLeftJoin(List<Token> tokens, int[] match, int index, int fromEnd) {
+		int i = index + 1;
+		if (i < fromEnd && tokens.get(i).isWord("outer")) {
+			i++;
+		}
+		if (i >= fromEnd || !tokens.get(i).isWord("join")) {
+			return null;
+		}
+		i++;
+		if (i >= fromEnd) {
+			return null;
+		}
+		int alias = -1;
+		if (tokens.get(i).isSymbol("(")) {
+			// 子查询，必须有别名
+			i = match[i] + 1;
+		} else if (tokens.get(i).type != Token.SYMBOL) {
+			alias = i++;
+			while (i + 1 < fromEnd && tokens.get(i).isSymbol(".") && tokens.get(i + 1).type != Token.SYMBOL) {
+				alias = i + 1;
+				i += 2;
+			}
+			if (i < fromEnd && tokens.get(i).isSymbol("(")) {
+				// 表函数
+				return null;
+			}
+		} else {
+			return null;
+		}
+		if (i < fromEnd && tokens.get(i).isWord("as")) {
+			i++;
+		}
+		if (i < fromEnd && (tokens.get(i).type == Token.QUOTED || (tokens.get(i).type == Token.WORD && !"on".equals(tokens.get(i).text) && !JOIN_KEYWORDS.contains(tokens.get(i).text)))) {
+			alias = i++;
+		}
+		if (alias < 0 || i >= fromEnd || !tokens.get(i).isWord("on")) {
+			return null;
+		}
+		i++;
+		while (i < fromEnd) {
+			Token token = tokens.get(i);
+			if (token.isSymbol(",") || (token.type == Token.WORD && JOIN_KEYWORDS.contains(token.text))) {
+				break;
+			}
+			i = next(tokens, match, i);
+		}
+		return new int[]{index, i, alias};
+	}
+
+	/**
+	 * 别名是否在 FROM 之后（不含本身、已去掉的 JOIN 及 ORDER BY）以 alias. 的形式被引用
+	 */
+	private static boolean isReferenced(List<Token> tokens, int fromIndex, String alias, int[] join, List<int[]> joins, List<int[]> removals) {
+		for (int i = fromIndex + 1, size = tokens.size() - 1; i < size; i++) {
+			if (i >= join[0] && i < join[1]) {
+				i = join[1] - 1;
+				continue;
+			}
+			Token token = tokens.get(i);
+			if (token.type != Token.SYMBOL && alias.equals(token.text) && tokens.get(i + 1).isSymbol(".") && !contains(joins, i) && !isRemoved(removals, token.start)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * FROM 之后（不含本身、已去掉的 JOIN、ORDER BY 及表名别名）是否有未带表别名的列名，此时无法判断是否来自关联表
+	 */
+	private static boolean hasUnqualifiedColumn(List<Token> tokens, int fromIndex, boolean[] tableTokens, int[] join, List<int[]> joins, List<int[]> removals) {
+		for (int i = fromIndex + 1, size = tokens.size(); i < size; i++) {
+			if (i >= join[0] && i < join[1]) {
+				i = join[1] - 1;
+				continue;
+			}
+			if (!tableTokens[i] && isUnqualifiedColumn(tokens, i) && !contains(joins, i) && !isRemoved(removals, tokens.get(i).start)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isUnqualifiedColumn(List<Token> tokens, int index) {
+		Token token = tokens.get(index);
+		if (token.type != Token.WORD && token.type != Token.QUOTED) {
+			return false;
+		}
+		Token prev = tokens.get(index - 1);
+		Token next = index + 1 < tokens.size() ? tokens.get(index + 1) : null;
+		if (prev.isSymbol(".") || (next != null && next.isSymbol("."))) {
+			return false;
+		}
+		if (token.type == Token.QUOTED) {
+			return true;
+		}
+		if (SQL_KEYWORDS.contains(token.text) || Character.isDigit(token.text.charAt(0)) || prev.isSymbol(":") || prev.isWord("as")) {
+			// 关键字、数字、类型转换
+			return false;
+		}
+		// 函数名及 date '...' 形式的常量
+		return next == null || !(next.isSymbol("(") || next.type == Token.STRING);
+	}
+
+	/**
+	 * 标记 FROM 子句中的表名、别名及派生表（不含 ON 条件），LATERAL 子查询可引用其它表，不标记
+	 */
+	private static boolean[] markTableTokens(List<Token> tokens, int[] match, int fromIndex, int fromEnd) {
+		boolean[] tableTokens = new boolean[tokens.size()];
+		boolean condition = false;
+		for (int i = fromIndex + 1; i < fromEnd; i = next(tokens, match, i)) {
+			Token token = tokens.get(i);
+			if (token.isWord("on") || token.isWord("using")) {
+				condition = true;
+			} else if (token.isSymbol(",") || (token.type == Token.WORD && JOIN_KEYWORDS.contains(token.text))) {
+				condition = false;
+			}
+			if (condition) {
+				continue;
+			}
+			if (token.isSymbol("(") && !tokens.get(i - 1).isWord("lateral")) {
+				Arrays.fill(tableTokens, i, match[i] + 1, true);
+			} else {
+				tableTokens[i] = true;
+			}
+		}
+		return tableTokens;
+	}
+
+	private static boolean isRemoved(List<int[]> removals, int position) {
+		for (int[] removal : removals) {
+			if (position >= removal[0] && position < removal[1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean contains(List<int[]> joins, int index) {
+		for (int[] join : joins) {
+			if (index >= join[0] && index < join[1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean containsParameter(List<Token> tokens, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (tokens.get(i).isSymbol("?")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 同一层的下一个token，跳过括号内的内容
+	 */
+	private static int next(List<Token> tokens, int[] match, int index) {
+		return tokens.get(index).isSymbol("(") ? match[index] : index + 1;
+	}
+
+	/**
+	 * token 在SQL中的起始位置，超出时为SQL长度
+	 */
+	private static int position(String sql, List<Token> tokens, int index) {
+		return index < tokens.size() ? tokens.get(index).start : sql.length();
+	}
+
+	private static String applyRemovals(String sql, int from, List<int[]> removals) {
+		removals.sort(Comparator.comparingInt(it -> it[0]));
+		StringBuilder builder = new StringBuilder(sql.length() - from);
+		int position = from;
+		for (int[] removal : removals) {
+			if (removal[1] <= position) {
+				continue;
+			}
+			if (removal[0] > position) {
+				builder.append(sql, position, removal[0]);
+			}
+			builder.append(' ');
+			position = removal[1];
+		}
+		builder.append(sql, position, sql.length());
+		return builder.toString().trim();
+	}
+
+	/**
+	 * 记录每个括号对应的括号位置，括号不匹配时返回 null
+	 */
+	private static int[] matchParentheses(List<Token> tokens) {
+		int[] match = new int[tokens.size()];
+		Deque<Integer> stack = new ArrayDeque<>();
+		for (int i = 0; i < tokens.size(); i++) {
+			if (tokens.get(i).isSymbol("(")) {
+				stack.push(i);
+			} else if (tokens.get(i).isSymbol(")")) {
+				if (stack.isEmpty()) {
+					return null;
+				}
+				int open = stack.pop();
+				match[open] = i;
+				match[i] = open;
+			}
+		}
+		return stack.isEmpty() ? match : null;
+	}
+
+	/**
+	 * 分词，忽略注释，字符串中含有反斜杠转义或出现多条语句时返回 null
+	 */
+	private static List<Token> tokenize(String sql) {
+		List<Token> tokens = new ArrayList<>();
+		int length = sql.length();
+		int depth = 0;
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				i = indexOf(sql, "\n", i + 2);
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				i = indexOf(sql, "*/", i + 2) + 2;
+			} else if (c == '\'') {
+				int start = i++;
+				while (i < length) {
+					char ch = sql.charAt(i);
+					if (ch == '\\') {
+						return null;
+					}
+					if (ch == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				if (i >= length) {
+					return null;
+				}
+				tokens.add(new Token(Token.STRING, "", start, depth));
+				i++;
+			} else if (c == '"' || c == '`' || c == '[') {
+				char close = c == '[' ? ']' : c;
+				int end = sql.indexOf(close, i + 1);
+				if (end < 0) {
+					return null;
+				}
+				tokens.add(new Token(Token.QUOTED, sql.substring(i + 1, end).toLowerCase(), i, depth));
+				i = end + 1;
+			} else if (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#') {
+				int start = i;
+				while (i < length && (Character.isLetterOrDigit(c = sql.charAt(i)) || c == '_' || c == '$' || c == '#')) {
+					i++;
+				}
+				String word = sql.substring(start, i).toLowerCase();
+				if (word.startsWith("$$") || word.endsWith("$")) {
+					// PostgreSQL 的 $$ 字符串
+					return null;
+				}
+				tokens.add(new Token(Token.WORD, word, start, depth));
+			} else {
+				if (c == ';') {
+					return null;
+				}
+				if (c == ')') {
+					depth--;
+				}
+				tokens.add(new Token(Token.SYMBOL, String.valueOf(c), i, depth));
+				if (c == '(') {
+					depth++;
+				}
+				i++;
+			}
+		}
+		return tokens;
+	}
+
+	private static int indexOf(String sql, String str, int from) {
+		int index = sql.indexOf(str, from);
+		return index < 0 ? sql.length() : index;
+	}
+
+	private static class Token {
+
+		static final int WORD = 0;
+
+		static final int QUOTED = 1;
+
+		static final int STRING = 2;
+
+		static final int SYMBOL = 3;
+
+		private final int type;
+
+		private final String text;
+
+		/**
+		 * 在SQL中的起始位置
+		 */
+		private final int start;
+
+		/**
+		 * 括号层级，括号本身属于外层
+		 */
+		private final int depth;
+
+		Token(int type, String text, int start, int depth) {
+			this.type = type;
+			this.text = text;
+			this.start = start;
+			this.depth = depth;
+		}
+
+		boolean isWord(String word) {
+			return type == Token.WORD && word.equals(text);
+		}
+
+		boolean isSymbol(String symbol) {
+			return type == Token.SYMBOL && symbol.equals(text);
+		}
+	}
+}
@@ -3,6 +3,8 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
 
+import java.util.List;
+
 /**
  * DB2方言
  *
@@ -21,4 +23,14 @@ public class DB2Dialect implements Dialect {
 		return "SELECT * FROM (SELECT TMP_PAGE.*,ROWNUMBER() OVER() AS ROW_ID FROM ( \n" + sql +
 				"\n ) AS TMP_PAGE) TMP_PAGE WHERE ROW_ID BETWEEN ? AND ?";
 	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
+
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		return UpsertSqlBuilder.merge(tableName, primary, columns, updateColumns, false).toString();
+	}
 }
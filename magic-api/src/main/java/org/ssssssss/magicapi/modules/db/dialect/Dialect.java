@@ -2,9 +2,14 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
+import org.ssssssss.magicapi.modules.db.model.Keyset;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
 
 /**
@@ -44,9 +49,35 @@ public interface Dialect {
 	 * @return 分页 count SQL
 	 */
 	default String getCountSql(String sql) {
+		return getCountSql(sql, false);
+	}
+
+	/**
+	 * 获取查总数的sql
+	 *
+	 * @param sql          原始SQL
+	 * @param optimizeJoin 是否去掉未被引用的 LEFT JOIN，仅在关联均为一对一时可开启
+	 * @return 分页 count SQL
+	 */
+	default String getCountSql(String sql, boolean optimizeJoin) {
+		if (isSupportCountSqlOptimize()) {
+			String countSql = CountSqlParser.of(optimizeJoin).parse(sql);
+			if (countSql != null) {
+				return countSql;
+			}
+		}
 		return "select count(1) from ( \n" + REPLACE_ORDER_BY.matcher(sql).replaceAll("") + "\n ) count_";
 	}
 
+	/**
+	 * 是否通过 {@link CountSqlParser} 改写 count SQL，无法改写时仍包装为子查询
+	 *
+	 * @return 是否支持
+	 */
+	default boolean isSupportCountSqlOptimize() {
+		return false;
+	}
+
 	/**
 	 * 获取分页sql
 	 *
@@ -57,4 +88,144 @@ public interface Dialect {
 	 * @return 返回分页SQL
 	 */
 	String getPageSql(String sql, BoundSql boundSql, long offset, long limit);
+
+	/**
+	 * 获取游标（keyset）分页的SQL，原始SQL被包装为子查询，按排序列过滤并排序，再通过 {@link #getPageSql} 限制条数
+	 *
+	 * @param sql      原始SQL
+	 * @param boundSql boundSql对象，游标中的值追加到参数中
+	 * @param keyset   排序列
+	 * @param values   上一页最后一行排序列的值，首页为 null
+	 * @return 游标分页SQL（未限制条数）
+	 */
+	default String getKeysetSql(String sql, BoundSql boundSql, Keyset keyset, Object[] values) {
+		StringBuilder builder = new StringBuilder("select * from ( \n");
+		builder.append(REPLACE_ORDER_BY.matcher(sql).replaceAll(""));
+		builder.append("\n ) keyset_");
+		if (values != null) {
+			builder.append(" where ");
+			if (isSupportRowValueComparison() && keyset.isSameDirection()) {
+				// (a, b) > (?, ?)
+				StringBuilder placeholders = new StringBuilder();
+				builder.append("(");
+				for (int i = 0; i < keyset.size(); i++) {
+					if (i > 0) {
+						builder.append(", ");
+						placeholders.append(", ");
+					}
+					builder.append(keyset.getColumn(i));
+					placeholders.append("?");
+					boundSql.addParameter(values[i]);
+				}
+				builder.append(keyset.isDescending(0) ? ") < (" : ") > (").append(placeholders).append(")");
+			} else {
+				// (a > ?) or (a = ? and b > ?)
+				builder.append("(");
+				for (int i = 0; i < keyset.size(); i++) {
+					if (i > 0) {
+						builder.append(" or ");
+					}
+					builder.append("(");
+					for (int j = 0; j < i; j++) {
+						builder.append(keyset.getColumn(j)).append(" = ? and ");
+						boundSql.addParameter(values[j]);
+					}
+					builder.append(keyset.getColumn(i)).append(keyset.isDescending(i) ? " < ?" : " > ?").append(")");
+					boundSql.addParameter(values[i]);
+				}
+				builder.append(")");
+			}
+		}
+		builder.append(" order by ").append(keyset.getOrderBy());
+		return builder.toString();
+	}
+
+	/**
+	 * 获取按主键插入或更新（upsert）的SQL，参数依次为 columns 对应的值及 updateColumns 对应的值，
+	 * 插入与更新的值分别绑定，可以不同
+	 *
+	 * @param tableName     表名
+	 * @param primary       主键列
+	 * @param columns       插入的列，包含主键
+	 * @param updateColumns 主键已存在时更新的列，不包含主键
+	 * @return upsert SQL，不支持时返回 null
+	 */
+	default String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		return null;
+	}
+
+	/**
+	 * 批量插入时单条语句插入的最大行数，大于1时使用多行 VALUES 语句，否则使用 JDBC 批处理
+	 *
+	 * @param connection  jdbc连接，用于读取驱动配置
+	 * @param columnCount 插入的列数
+	 * @return 单条语句的最大行数
+	 * @throws SQLException 读取驱动配置失败时抛出的异常
+	 */
+	default int getBulkInsertRows(Connection connection, int columnCount) throws SQLException {
+		return 1;
+	}
+
+	/**
+	 * 获取多行插入的SQL，如 insert into table(a,b) values (?,?),(?,?)
+	 *
+	 * @param tableName 表名
+	 * @param columns   插入的列
+	 * @param rows      行数
+	 * @return 多行插入SQL
+	 */
+	default String getBulkInsertSql(String tableName, List<String> columns, int rows) {
+		StringBuilder builder = UpsertSqlBuilder.insert(tableName, columns);
+		String values = builder.substring(builder.lastIndexOf("("));
+		for (int i = 1; i < rows; i++) {
+			builder.append(",").append(values);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 使用数据库专有的导入方式（如 PostgreSQL 的 COPY）批量插入
+	 *
+	 * @param connection jdbc连接
+	 * @param tableName  表名
+	 * @param columns    插入的列
+	 * @param rows       各行的值，与 columns 对应
+	 * @param chunkSize  每批写入的行数
+	 * @param listener   每批写入后回调，参数为本批行数
+	 * @return 插入的行数，不支持时返回 -1 且不读取 rows
+	 * @throws SQLException 导入失败时抛出的异常
+	 */
+	default long copyIn(Connection connection, String tableName, List<String> columns, Iterator<Object[]> rows, int chunkSize, IntConsumer listener) throws SQLException {
+		return -1;
+	}
+
+	/**
+	 * 是否支持行值比较，如 (a, b) &gt; (?, ?)
+	 *
+	 * @return 是否支持
+	 */
+	default boolean isSupportRowValueComparison() {
+		return false;
+	}
+
+	/**
+	 * 设置流式查询的读取方式
+	 *
+	 * @param connection jdbc连接
+	 * @param statement  查询语句
+	 * @param fetchSize  每次从数据库读取的条数
+	 * @throws SQLException 设置失败时抛出的异常
+	 */
+	default void prepareStreaming(Connection connection, Statement statement, int fetchSize) throws SQLException {
+		statement.setFetchSize(fetchSize);
+	}
+
+	/**
+	 * 流式查询是否需要关闭自动提交，关闭后驱动才会按 fetchSize 分批读取
+	 *
+	 * @return 是否需要关闭自动提交
+	 */
+	default boolean isStreamingRequiresTransaction() {
+		return false;
+	}
 }
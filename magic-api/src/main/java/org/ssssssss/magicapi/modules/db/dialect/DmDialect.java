@@ -2,6 +2,8 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
 
+import java.util.List;
+
 /**
  * @description: 达梦数据库方言
  * @author: qijiantuoluowang
@@ -22,5 +24,15 @@ public class DmDialect implements Dialect {
 		return "SELECT * FROM ( SELECT TMP.*, ROWNUM ROW_ID FROM ( \n" +
 				sql + "\n ) TMP WHERE ROWNUM <= ? ) WHERE ROW_ID > ?";
 	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
+
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		return UpsertSqlBuilder.merge(tableName, primary, columns, updateColumns, true).toString();
+	}
 }
 
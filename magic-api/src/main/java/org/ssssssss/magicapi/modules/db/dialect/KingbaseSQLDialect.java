@@ -3,6 +3,9 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
 
+import java.sql.Connection;
+import java.util.List;
+
 /**
  * 人大金仓kingbase方言
  *
@@ -21,4 +24,37 @@ public class KingbaseSQLDialect implements Dialect {
 		boundSql.addParameter(offset);
 		return sql + "\n limit ? offset ?";
 	}
+
+	@Override
+	public boolean isStreamingRequiresTransaction() {
+		return true;
+	}
+
+	@Override
+	public boolean isSupportRowValueComparison() {
+		return true;
+	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
+
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		StringBuilder builder = UpsertSqlBuilder.insert(tableName, columns);
+		builder.append(" on conflict (").append(primary).append(")");
+		if (updateColumns.isEmpty()) {
+			builder.append(" do nothing");
+		} else {
+			builder.append(" do update set ");
+			builder.append(UpsertSqlBuilder.updateSet(updateColumns));
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public int getBulkInsertRows(Connection connection, int columnCount) {
+		return Math.max(1, 32767 / columnCount);
+	}
 }
@@ -3,6 +3,11 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
 /**
  * mysql 方言
  *
@@ -21,4 +26,48 @@ public class MySQLDialect implements Dialect {
 		boundSql.addParameter(limit);
 		return sql + "\n limit ?,?";
 	}
+
+	/**
+	 * 开启 useCursorFetch 时按 fetchSize 读取，否则使用 Integer.MIN_VALUE 逐行读取
+	 */
+	@Override
+	public void prepareStreaming(Connection connection, Statement statement, int fetchSize) throws SQLException {
+		String url = connection.getMetaData().getURL();
+		statement.setFetchSize(url != null && url.contains("useCursorFetch=true") ? fetchSize : Integer.MIN_VALUE);
+	}
+
+	@Override
+	public boolean isSupportRowValueComparison() {
+		return true;
+	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
+
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		StringBuilder builder = UpsertSqlBuilder.insert(tableName, columns);
+		builder.append(" on duplicate key update ");
+		if (updateColumns.isEmpty()) {
+			builder.append(primary).append(" = ").append(primary);
+		} else {
+			// 更新的值单独绑定，不使用 8.0.20 起已废弃的 values(col)
+			builder.append(UpsertSqlBuilder.updateSet(updateColumns));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 开启 rewriteBatchedStatements 时驱动会将批处理改写为多行插入，否则按参数上限拼接多行插入语句
+	 */
+	@Override
+	public int getBulkInsertRows(Connection connection, int columnCount) throws SQLException {
+		String url = connection.getMetaData().getURL();
+		if (url != null && url.contains("rewriteBatchedStatements=true")) {
+			return 1;
+		}
+		return Math.max(1, 65535 / columnCount);
+	}
 }
@@ -3,6 +3,8 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
 
+import java.util.List;
+
 /**
  * Oracle方言
  *
@@ -23,4 +25,14 @@ public class OracleDialect implements Dialect {
 		return "SELECT * FROM ( SELECT TMP.*, ROWNUM ROW_ID FROM ( \n" +
 				sql + "\n ) TMP WHERE ROWNUM <= ? ) WHERE ROW_ID > ?";
 	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
+
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		return UpsertSqlBuilder.merge(tableName, primary, columns, updateColumns, true).toString();
+	}
 }
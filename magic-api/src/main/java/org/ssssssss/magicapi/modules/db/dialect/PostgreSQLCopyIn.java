@@ -0,0 +1,137 @@
+package org.ssssssss.magicapi.modules.db.dialect;
+
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.util.ClassUtils;
+import org.ssssssss.magicapi.utils.JsonUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * 通过 PostgreSQL 驱动的 CopyManager 执行 COPY FROM STDIN
+ * <p>
+ * 驱动为可选依赖，通过反射调用，数据按 CSV 格式逐批写入。
+ *
+ * @author mxd
+ */
+class PostgreSQLCopyIn {
+
+	private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+
+	private static final String COPY_MANAGER = "org.postgresql.copy.CopyManager";
+
+	private static final String COPY_IN = "org.postgresql.copy.CopyIn";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private PostgreSQLCopyIn() {
+	}
+
+	/**
+	 * @return 插入的行数，驱动不支持时返回 -1
+	 */
+	static long copyIn(Connection connection, String tableName, List<String> columns, Iterator<Object[]> rows, int chunkSize, IntConsumer listener) throws SQLException {
+		ClassLoader classLoader = PostgreSQLCopyIn.class.getClassLoader();
+		if (!ClassUtils.isPresent(PG_CONNECTION, classLoader)) {
+			return -1;
+		}
+		Class<?> pgConnectionClass = ClassUtils.resolveClassName(PG_CONNECTION, classLoader);
+		if (!connection.isWrapperFor(pgConnectionClass)) {
+			return -1;
+		}
+		Object copyIn = null;
+		try {
+			Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(connection.unwrap(pgConnectionClass));
+			String sql = "copy " + tableName + " (" + String.join(",", columns) + ") from stdin with csv";
+			copyIn = ClassUtils.resolveClassName(COPY_MANAGER, classLoader).getMethod("copyIn", String.class).invoke(copyManager, sql);
+			Class<?> copyInClass = ClassUtils.resolveClassName(COPY_IN, classLoader);
+			Method writeToCopy = copyInClass.getMethod("writeToCopy", byte[].class, int.class, int.class);
+			StringBuilder builder = new StringBuilder();
+			int count = 0;
+			while (rows.hasNext()) {
+				appendRow(builder, rows.next());
+				if (++count == chunkSize || !rows.hasNext()) {
+					byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+					writeToCopy.invoke(copyIn, bytes, 0, bytes.length);
+					builder.setLength(0);
+					listener.accept(count);
+					count = 0;
+				}
+			}
+			Object result = copyInClass.getMethod("endCopy").invoke(copyIn);
+			copyIn = null;
+			return ((Number) result).longValue();
+		} catch (InvocationTargetException e) {
+			Throwable target = e.getTargetException();
+			if (target instanceof SQLException) {
+				throw (SQLException) target;
+			}
+			throw new SQLException(target.getMessage(), target);
+		} catch (ReflectiveOperationException e) {
+			throw new SQLException("调用 CopyManager 失败", e);
+		} finally {
+			if (copyIn != null) {
+				cancel(copyIn, classLoader);
+			}
+		}
+	}
+
+	private static void cancel(Object copyIn, ClassLoader classLoader) {
+		try {
+			Class<?> copyInClass = ClassUtils.resolveClassName(COPY_IN, classLoader);
+			if (Boolean.TRUE.equals(copyInClass.getMethod("isActive").invoke(copyIn))) {
+				copyInClass.getMethod("cancelCopy").invoke(copyIn);
+			}
+		} catch (Exception ignored) {
+		}
+	}
+
+	/**
+	 * 不加引号的空值为 NULL，其余值均加引号
+	 */
+	private static void appendRow(StringBuilder builder, Object[] row) {
+		for (int i = 0; i < row.length; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			String value = format(row[i]);
+			if (value != null) {
+				builder.append('"').append(value.replace("\"", "\"\"")).append('"');
+			}
+		}
+		builder.append('\n');
+	}
+
+	private static String format(Object value) {
+		if (value instanceof SqlParameterValue) {
+			value = ((SqlParameterValue) value).getValue();
+		}
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof byte[]) {
+			byte[] bytes = (byte[]) value;
+			char[] chars = new char[bytes.length * 2 + 2];
+			chars[0] = '\\';
+			chars[1] = 'x';
+			for (int i = 0; i < bytes.length; i++) {
+				chars[i * 2 + 2] = HEX[(bytes[i] >> 4) & 0xF];
+				chars[i * 2 + 3] = HEX[bytes[i] & 0xF];
+			}
+			return new String(chars);
+		}
+		if (value instanceof Date && !(value instanceof java.sql.Date || value instanceof java.sql.Time || value instanceof Timestamp)) {
+			return new Timestamp(((Date) value).getTime()).toString();
+		}
+		if (value instanceof Map || value instanceof Collection || value instanceof Object[]) {
+			return JsonUtils.toJsonStringWithoutPretty(value);
+		}
+		return value.toString();
+	}
+}
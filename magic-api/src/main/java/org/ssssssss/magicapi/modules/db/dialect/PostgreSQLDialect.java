@@ -3,6 +3,12 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntConsumer;
+
 /**
  * PostgreSQL 方言
  *
@@ -20,4 +26,49 @@ public class PostgreSQLDialect implements Dialect {
 		boundSql.addParameter(offset);
 		return sql + "\n limit ? offset ?";
 	}
+
+	@Override
+	public boolean isStreamingRequiresTransaction() {
+		return true;
+	}
+
+	@Override
+	public boolean isSupportRowValueComparison() {
+		return true;
+	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
+
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		StringBuilder builder = UpsertSqlBuilder.insert(tableName, columns);
+		builder.append(" on conflict (").append(primary).append(")");
+		if (updateColumns.isEmpty()) {
+			builder.append(" do nothing");
+		} else {
+			builder.append(" do update set ");
+			builder.append(UpsertSqlBuilder.updateSet(updateColumns));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 开启 reWriteBatchedInserts 时驱动会将批处理改写为多行插入，否则按参数上限拼接多行插入语句
+	 */
+	@Override
+	public int getBulkInsertRows(Connection connection, int columnCount) throws SQLException {
+		String url = connection.getMetaData().getURL();
+		if (url != null && url.contains("reWriteBatchedInserts=true")) {
+			return 1;
+		}
+		return Math.max(1, 32767 / columnCount);
+	}
+
+	@Override
+	public long copyIn(Connection connection, String tableName, List<String> columns, Iterator<Object[]> rows, int chunkSize, IntConsumer listener) throws SQLException {
+		return PostgreSQLCopyIn.copyIn(connection, tableName, columns, rows, chunkSize, listener);
+	}
 }
@@ -64,4 +64,9 @@ public class SQLServer2005Dialect implements Dialect {
 			return "";
 		}
 	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
 }
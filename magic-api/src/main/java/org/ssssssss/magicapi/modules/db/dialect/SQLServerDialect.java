@@ -3,6 +3,9 @@ package org.ssssssss.magicapi.modules.db.dialect;
 
 import org.ssssssss.magicapi.modules.db.BoundSql;
 
+import java.sql.Connection;
+import java.util.List;
+
 /**
  * SQL Server 方言
  *
@@ -20,4 +23,25 @@ public class SQLServerDialect implements Dialect {
 		boundSql.addParameter(limit);
 		return sql + "\n OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
 	}
+
+	@Override
+	public boolean isSupportCountSqlOptimize() {
+		return true;
+	}
+
+	/**
+	 * SQLServer 2008 起支持 MERGE，语句需以分号结束
+	 */
+	@Override
+	public String getUpsertSql(String tableName, String primary, List<String> columns, List<String> updateColumns) {
+		return UpsertSqlBuilder.merge(tableName, primary, columns, updateColumns, false).append(";").toString();
+	}
+
+	/**
+	 * 单条语句最多 2100 个参数，VALUES 最多 1000 行
+	 */
+	@Override
+	public int getBulkInsertRows(Connection connection, int columnCount) {
+		return Math.max(1, Math.min(1000, 2000 / columnCount));
+	}
 }
@@ -0,0 +1,68 @@
+package org.ssssssss.magicapi.modules.db.dialect;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 生成 insert、upsert 语句，upsert 的参数依次为插入列及更新列对应的值
+ *
+ * @author mxd
+ */
+class UpsertSqlBuilder {
+
+	private UpsertSqlBuilder() {
+	}
+
+	/**
+	 * insert into table(a,b) values (?,?)
+	 */
+	static StringBuilder insert(String tableName, List<String> columns) {
+		StringBuilder builder = new StringBuilder("insert into ");
+		builder.append(tableName);
+		builder.append("(");
+		builder.append(String.join(",", columns));
+		builder.append(") values (");
+		builder.append(StringUtils.join(Collections.nCopies(columns.size(), "?"), ","));
+		builder.append(")");
+		return builder;
+	}
+
+	/**
+	 * 更新列，如：a = ?,b = ?
+	 */
+	static String updateSet(List<String> updateColumns) {
+		return updateColumns.stream().map(it -> it + " = ?").collect(Collectors.joining(","));
+	}
+
+	/**
+	 * merge into table t_ using (...) s_ on (t_.primary = s_.primary)
+	 * when matched then update set ... when not matched then insert (...) values (...)
+	 *
+	 * @param fromDual 源数据是否使用 select ? a from dual，否则使用 values (?) s_ (a)
+	 */
+	static StringBuilder merge(String tableName, String primary, List<String> columns, List<String> updateColumns, boolean fromDual) {
+		StringBuilder builder = new StringBuilder("merge into ");
+		builder.append(tableName).append(" t_ using (");
+		if (fromDual) {
+			builder.append("select ");
+			builder.append(columns.stream().map(it -> "? " + it).collect(Collectors.joining(",")));
+			builder.append(" from dual) s_");
+		} else {
+			builder.append("values (");
+			builder.append(StringUtils.join(Collections.nCopies(columns.size(), "?"), ","));
+			builder.append(")) s_ (").append(String.join(",", columns)).append(")");
+		}
+		builder.append(" on (t_.").append(primary).append(" = s_.").append(primary).append(")");
+		if (!updateColumns.isEmpty()) {
+			builder.append(" when matched then update set ");
+			builder.append(updateColumns.stream().map(it -> "t_." + it + " = ?").collect(Collectors.joining(",")));
+		}
+		builder.append(" when not matched then insert (").append(String.join(",", columns)).append(") values (");
+		builder.append(columns.stream().map(it -> "s_." + it).collect(Collectors.joining(",")));
+		builder.append(")");
+		return builder;
+	}
+}
@@ -37,14 +37,11 @@ public class DefaultSqlInterceptor implements SQLInterceptor {
 		}
 	}
 
+	/**
+	 * 执行前打印，流式查询的 postHandle 逐行调用，不在其中打印
+	 */
 	@Override
-	public Object postHandle(BoundSql boundSql, Object result, RequestEntity requestEntity) {
-		handleLog(boundSql, requestEntity);
-		return result;
-	}
-
-	@Override
-	public void handleException(BoundSql boundSql, Throwable throwable, RequestEntity requestEntity) {
+	public void preHandle(BoundSql boundSql, RequestEntity requestEntity) {
 		handleLog(boundSql, requestEntity);
 	}
 }
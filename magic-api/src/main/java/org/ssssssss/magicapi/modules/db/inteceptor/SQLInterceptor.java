@@ -22,6 +22,8 @@ public interface SQLInterceptor {
 	}
 
 	/**
+	 * 流式查询（db.stream、db.each）时对每一行调用，result 为单行的 Map，需返回 Map，返回 null 时跳过该行
+	 *
 	 * @since 1.7.2
 	 * @param boundSql	SQL信息
 	 * @param result	执行结果
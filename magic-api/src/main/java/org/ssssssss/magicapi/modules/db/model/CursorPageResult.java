@@ -0,0 +1,59 @@
+package org.ssssssss.magicapi.modules.db.model;
+
+import java.util.List;
+
+/**
+ * 不查询总数的分页执行结果
+ *
+ * @author mxd
+ */
+public class CursorPageResult<T> {
+
+	/**
+	 * 是否还有下一页
+	 */
+	private boolean hasMore;
+
+	/**
+	 * 下一页的游标，非游标分页时为 null
+	 */
+	private String cursor;
+
+	/**
+	 * 数据项
+	 */
+	private List<T> list;
+
+	public CursorPageResult(boolean hasMore, String cursor, List<T> list) {
+		this.hasMore = hasMore;
+		this.cursor = cursor;
+		this.list = list;
+	}
+
+	public CursorPageResult() {
+	}
+
+	public boolean isHasMore() {
+		return hasMore;
+	}
+
+	public void setHasMore(boolean hasMore) {
+		this.hasMore = hasMore;
+	}
+
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
+	public List<T> getList() {
+		return list;
+	}
+
+	public void setList(List<T> list) {
+		this.list = list;
+	}
+}
@@ -0,0 +1,256 @@
+package org.ssssssss.magicapi.modules.db.model;
+
+import org.apache.commons.lang3.StringUtils;
+import org.ssssssss.magicapi.core.exception.MagicAPIException;
+import org.ssssssss.magicapi.utils.JsonUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 游标（keyset）分页的排序列
+ * <p>
+ * 下一页从上一页最后一行的排序列的值之后开始读取，游标为这些值的 JSON 数组经 Base64 编码后的字符串。
+ * 每个值以 类型:值 的形式保存，解析后还原为原来的类型（LocalDateTime 等还原为对应的 java.sql 类型），
+ * 排序列的值不能为 null。
+ *
+ * @author mxd
+ */
+public class Keyset {
+
+	private static final Pattern VALID_COLUMN = Pattern.compile("^[\\w.`\"\\[\\]]+$");
+
+	private static final char TYPE_SEPARATOR = ':';
+
+	private final List<String> columns;
+
+	private final List<Boolean> descending;
+
+	private Keyset(List<String> columns, List<Boolean> descending) {
+		this.columns = columns;
+		this.descending = descending;
+	}
+
+	/**
+	 * 解析排序列，如：create_time desc, id desc
+	 */
+	public static Keyset parse(String orderColumns) {
+		if (StringUtils.isBlank(orderColumns)) {
+			throw new MagicAPIException("游标分页的排序列不能为空");
+		}
+		List<String> columns = new ArrayList<>();
+		List<Boolean> descending = new ArrayList<>();
+		for (String item : orderColumns.split(",")) {
+			String[] parts = item.trim().split("\\s+");
+			if (parts.length > 2 || !VALID_COLUMN.matcher(parts[0]).matches()) {
+				throw new MagicAPIException("游标分页的排序列不合法：" + item.trim());
+			}
+			boolean desc = false;
+			if (parts.length == 2) {
+				if ("desc".equalsIgnoreCase(parts[1])) {
+					desc = true;
+				} else if (!"asc".equalsIgnoreCase(parts[1])) {
+					throw new MagicAPIException("游标分页的排序列不合法：" + item.trim());
+				}
+			}
+			columns.add(parts[0]);
+			descending.add(desc);
+		}
+		return new Keyset(columns, descending);
+	}
+
+	public int size() {
+		return columns.size();
+	}
+
+	/**
+	 * 获取排序列，已去掉表别名，用于包装后的查询
+	 */
+	public String getColumn(int index) {
+		String column = columns.get(index);
+		return column.substring(column.lastIndexOf('.') + 1);
+	}
+
+	public boolean isDescending(int index) {
+		return descending.get(index);
+	}
+
+	/**
+	 * 所有排序列方向是否一致
+	 */
+	public boolean isSameDirection() {
+		return !descending.contains(!descending.get(0));
+	}
+
+	/**
+	 * 包装后查询的排序语句，不含 order by
+	 */
+	public String getOrderBy() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(getColumn(i));
+			if (descending.get(i)) {
+				builder.append(" desc");
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 解析游标中的值，游标为空时返回 null
+	 */
+	public Object[] decodeCursor(String cursor) {
+		if (StringUtils.isBlank(cursor)) {
+			return null;
+		}
+		String[] items;
+		try {
+			items = JsonUtils.readValue(Base64.getUrlDecoder().decode(cursor), String[].class);
+		} catch (IllegalArgumentException e) {
+			items = null;
+		}
+		if (items == null || items.length != columns.size()) {
+			throw new MagicAPIException("游标不合法：" + cursor);
+		}
+		Object[] values = new Object[items.length];
+		for (int i = 0; i < items.length; i++) {
+			int index = items[i] == null ? -1 : items[i].indexOf(TYPE_SEPARATOR);
+			if (index < 0) {
+				throw new MagicAPIException("游标不合法：" + cursor);
+			}
+			try {
+				values[i] = decodeValue(items[i].substring(0, index), items[i].substring(index + 1));
+			} catch (RuntimeException e) {
+				throw new MagicAPIException("游标不合法：" + cursor);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * 根据最后一行生成游标
+	 *
+	 * @param keyMapper 列名转换为结果中的 key
+	 */
+	public String encodeCursor(Map<String, Object> row, Function<String, String> keyMapper) {
+		String[] values = new String[columns.size()];
+		for (int i = 0; i < values.length; i++) {
+			// 去掉引号后按结果中的列名取值
+			String column = getColumn(i).replaceAll("[`\"\\[\\]]", "");
+			String key = keyMapper.apply(column);
+			Object value = row.containsKey(key) ? row.get(key) : row.get(column);
+			if (value == null) {
+				throw new MagicAPIException("游标分页的排序列的值不能为 null：" + columns.get(i));
+			}
+			values[i] = encodeValue(columns.get(i), value);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(JsonUtils.toJsonStringWithoutPretty(values).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 按类型编码为 类型:值 的形式，时间类型使用 ISO 格式保留精度
+	 */
+	private static String encodeValue(String column, Object value) {
+		String type;
+		String text;
+		if (value instanceof String) {
+			type = "s";
+			text = (String) value;
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			type = "l";
+			text = value.toString();
+		} else if (value instanceof BigDecimal) {
+			type = "n";
+			text = value.toString();
+		} else if (value instanceof BigInteger) {
+			type = "bi";
+			text = value.toString();
+		} else if (value instanceof Double || value instanceof Float) {
+			type = "f";
+			text = value.toString();
+		} else if (value instanceof Boolean) {
+			type = "b";
+			text = value.toString();
+		} else if (value instanceof Timestamp) {
+			type = "ts";
+			text = ((Timestamp) value).toLocalDateTime().toString();
+		} else if (value instanceof java.sql.Date) {
+			type = "sd";
+			text = ((java.sql.Date) value).toLocalDate().toString();
+		} else if (value instanceof Time) {
+			type = "st";
+			text = ((Time) value).toLocalTime().toString();
+		} else if (value instanceof Date) {
+			type = "ts";
+			text = new Timestamp(((Date) value).getTime()).toLocalDateTime().toString();
+		} else if (value instanceof LocalDateTime) {
+			type = "ts";
+			text = value.toString();
+		} else if (value instanceof LocalDate) {
+			type = "sd";
+			text = value.toString();
+		} else if (value instanceof LocalTime) {
+			type = "st";
+			text = value.toString();
+		} else if (value instanceof OffsetDateTime) {
+			type = "odt";
+			text = value.toString();
+		} else if (value instanceof Instant) {
+			type = "odt";
+			text = ((Instant) value).atOffset(ZoneOffset.UTC).toString();
+		} else if (value instanceof UUID) {
+			type = "uuid";
+			text = value.toString();
+		} else {
+			throw new MagicAPIException("游标分页的排序列不支持类型" + value.getClass().getName() + "：" + column);
+		}
+		return type + TYPE_SEPARATOR + text;
+	}
+
+	/**
+	 * 还原为编码前的类型，日期时间类型还原为对应的 java.sql 类型以兼容各驱动
+	 */
+	private static Object decodeValue(String type, String text) {
+		switch (type) {
+			case "s":
+				return text;
+			case "l":
+				return Long.valueOf(text);
+			case "n":
+				return new BigDecimal(text);
+			case "bi":
+				return new BigInteger(text);
+			case "f":
+				return Double.valueOf(text);
+			case "b":
+				return Boolean.valueOf(text);
+			case "ts":
+				return Timestamp.valueOf(LocalDateTime.parse(text));
+			case "sd":
+				return java.sql.Date.valueOf(LocalDate.parse(text));
+			case "st":
+				return Time.valueOf(LocalTime.parse(text));
+			case "odt":
+				return OffsetDateTime.parse(text);
+			case "uuid":
+				return UUID.fromString(text);
+			default:
+				throw new IllegalArgumentException(type);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getOrderBy();
+	}
+}
@@ -11,6 +11,11 @@ public class Page {
 
 	private long offset;
 
+	/**
+	 * 游标分页时上一页返回的游标
+	 */
+	private String cursor;
+
 	public Page() {
 	}
 
@@ -37,4 +42,12 @@ public class Page {
 	public void setOffset(long offset) {
 		this.offset = offset;
 	}
+
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
 }
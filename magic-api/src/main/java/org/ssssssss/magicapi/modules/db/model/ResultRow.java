@@ -0,0 +1,190 @@
+package org.ssssssss.magicapi.modules.db.model;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * 查询结果行
+ * <p>
+ * 列名保存在共享的 {@link RowSchema} 中，行内只保存值数组。修改已有列的值或删除列时仍使用数组，
+ * 新增列时转换为 {@link LinkedHashMap}，对外行为与 {@link LinkedHashMap} 一致，序列化时也写出为 {@link LinkedHashMap}。
+ *
+ * @author mxd
+ */
+public class ResultRow extends AbstractMap<String, Object> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 已删除的列
+	 */
+	private static final Object REMOVED = new Object();
+
+	private final transient RowSchema schema;
+
+	private final transient Object[] values;
+
+	private transient int size;
+
+	/**
+	 * 新增列之后的数据
+	 */
+	private transient LinkedHashMap<String, Object> detached;
+
+	private transient Set<Entry<String, Object>> entrySet;
+
+	public ResultRow(RowSchema schema, Object[] values) {
+		this.schema = schema;
+		this.values = values;
+		this.size = values.length;
+	}
+
+	@Override
+	public int size() {
+		return detached != null ? detached.size() : size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (detached != null) {
+			return detached.containsKey(key);
+		}
+		int index = schema.indexOf(key);
+		return index >= 0 && values[index] != REMOVED;
+	}
+
+	@Override
+	public Object get(Object key) {
+		if (detached != null) {
+			return detached.get(key);
+		}
+		int index = schema.indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		Object value = values[index];
+		return value == REMOVED ? null : value;
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		if (detached == null) {
+			int index = schema.indexOf(key);
+			if (index >= 0 && values[index] != REMOVED) {
+				Object oldValue = values[index];
+				values[index] = value;
+				return oldValue;
+			}
+		}
+		return detach().put(key, value);
+	}
+
+	@Override
+	public Object remove(Object key) {
+		if (detached != null) {
+			return detached.remove(key);
+		}
+		int index = schema.indexOf(key);
+		if (index < 0 || values[index] == REMOVED) {
+			return null;
+		}
+		Object oldValue = values[index];
+		values[index] = REMOVED;
+		size--;
+		return oldValue;
+	}
+
+	@Override
+	public void clear() {
+		if (detached != null) {
+			detached.clear();
+		} else {
+			Arrays.fill(values, REMOVED);
+			size = 0;
+		}
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		if (detached != null) {
+			return detached.entrySet();
+		}
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Entry<String, Object>>() {
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					return detached != null ? detached.entrySet().iterator() : new EntryIterator();
+				}
+
+				@Override
+				public int size() {
+					return ResultRow.this.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	private Map<String, Object> detach() {
+		if (detached == null) {
+			LinkedHashMap<String, Object> map = new LinkedHashMap<>((int) ((size + 1) / 0.75f) + 1);
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != REMOVED) {
+					map.put(schema.getColumn(i), values[i]);
+				}
+			}
+			detached = map;
+		}
+		return detached;
+	}
+
+	private Object writeReplace() {
+		return new LinkedHashMap<>(this);
+	}
+
+	private class EntryIterator implements Iterator<Entry<String, Object>> {
+
+		private int next = advance(0);
+
+		private int current = -1;
+
+		private int advance(int index) {
+			while (index < values.length && values[index] == REMOVED) {
+				index++;
+			}
+			return index;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < values.length;
+		}
+
+		@Override
+		public Entry<String, Object> next() {
+			if (next >= values.length) {
+				throw new NoSuchElementException();
+			}
+			int index = current = next;
+			next = advance(next + 1);
+			return new SimpleEntry<String, Object>(schema.getColumn(index), values[index]) {
+				@Override
+				public Object setValue(Object value) {
+					super.setValue(value);
+					Object oldValue = values[index];
+					values[index] = value;
+					return oldValue;
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (current < 0 || values[current] == REMOVED) {
+				throw new IllegalStateException();
+			}
+			values[current] = REMOVED;
+			size--;
+		}
+	}
+}
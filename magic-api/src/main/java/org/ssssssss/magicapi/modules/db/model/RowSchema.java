@@ -0,0 +1,97 @@
+package org.ssssssss.magicapi.modules.db.model;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 查询结果的列信息，同一结果集的所有 {@link ResultRow} 共享
+ *
+ * @author mxd
+ */
+public class RowSchema {
+
+	/**
+	 * 转换后的列名
+	 */
+	private final String[] columns;
+
+	/**
+	 * 列名对应的 ResultSet 列索引（从1开始），非查询得到的结构为 null
+	 */
+	private final int[] columnIndexes;
+
+	private final Map<String, Integer> indexes;
+
+	public RowSchema(String[] columns) {
+		this(columns, null);
+	}
+
+	private RowSchema(String[] columns, int[] columnIndexes) {
+		this.columns = columns;
+		this.columnIndexes = columnIndexes;
+		this.indexes = new HashMap<>((int) (columns.length / 0.75f) + 1);
+		for (int i = 0; i < columns.length; i++) {
+			this.indexes.put(columns[i], i);
+		}
+	}
+
+	/**
+	 * 根据结果集创建列信息
+	 *
+	 * @param mapping        列名转换
+	 * @param excludeColumns 排除的列（转换后的列名），可为 null
+	 */
+	public static RowSchema of(ResultSet rs, Function<String, String> mapping, Set<String> excludeColumns) throws SQLException {
+		ResultSetMetaData metaData = rs.getMetaData();
+		int columnCount = metaData.getColumnCount();
+		List<String> columns = new ArrayList<>(columnCount);
+		List<Integer> columnIndexes = new ArrayList<>(columnCount);
+		for (int i = 1; i <= columnCount; i++) {
+			String column = mapping.apply(JdbcUtils.lookupColumnName(metaData, i));
+			if (excludeColumns != null && excludeColumns.contains(column)) {
+				continue;
+			}
+			int index = columns.indexOf(column);
+			if (index >= 0) {
+				// 列名重复时与 LinkedHashMap 一致：保留首次出现的位置，取最后一列的值
+				columnIndexes.set(index, i);
+			} else {
+				columns.add(column);
+				columnIndexes.add(i);
+			}
+		}
+		return new RowSchema(columns.toArray(new String[0]), columnIndexes.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * 读取当前行
+	 */
+	public ResultRow readRow(ResultSet rs) throws SQLException {
+		Object[] values = new Object[columns.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = JdbcUtils.getResultSetValue(rs, columnIndexes[i]);
+		}
+		return new ResultRow(this, values);
+	}
+
+	public int size() {
+		return columns.length;
+	}
+
+	public String getColumn(int index) {
+		return columns[index];
+	}
+
+	/**
+	 * 获取列名对应的位置，不存在时返回 -1
+	 */
+	public int indexOf(Object column) {
+		Integer index = indexes.get(column);
+		return index == null ? -1 : index;
+	}
+}
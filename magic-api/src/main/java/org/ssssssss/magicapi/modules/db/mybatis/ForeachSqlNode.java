@@ -2,6 +2,7 @@ package org.ssssssss.magicapi.modules.db.mybatis;
 
 import org.apache.commons.lang3.StringUtils;
 import org.ssssssss.magicapi.utils.ScriptManager;
+import org.ssssssss.script.MagicScript;
 
 import java.lang.reflect.Array;
 import java.util.Collection;
@@ -18,7 +19,7 @@ public class ForeachSqlNode extends SqlNode {
 	/**
 	 * 数据集合，支持Collection、数组
 	 */
-	private String collection;
+	private MagicScript collection;
 	/**
 	 * item 变量名
 	 */
@@ -26,15 +27,15 @@ public class ForeachSqlNode extends SqlNode {
 	/**
 	 * 拼接起始SQL
 	 */
-	private String open;
+	private String open = "";
 	/**
 	 * 拼接结束SQL
 	 */
-	private String close;
+	private String close = "";
 	/**
 	 * 分隔符
 	 */
-	private String separator;
+	private String separator = "";
 
 	/**
 	 * 序号
@@ -42,7 +43,7 @@ public class ForeachSqlNode extends SqlNode {
 	private String index;
 
 	public void setCollection(String collection) {
-		this.collection = collection;
+		this.collection = ScriptManager.createExpression(collection);
 	}
 
 	public void setItem(String item) {
@@ -50,15 +51,15 @@ public class ForeachSqlNode extends SqlNode {
 	}
 
 	public void setOpen(String open) {
-		this.open = open;
+		this.open = StringUtils.defaultString(open);
 	}
 
 	public void setClose(String close) {
-		this.close = close;
+		this.close = StringUtils.defaultString(close);
 	}
 
 	public void setSeparator(String separator) {
-		this.separator = separator;
+		this.separator = StringUtils.defaultString(separator);
 	}
 
 	public void setIndex(String index) {
@@ -68,7 +69,7 @@ public class ForeachSqlNode extends SqlNode {
 	@Override
 	public String getSql(Map<String, Object> paramMap, List<Object> parameters) {
 		// 提取集合
-		Object value = ScriptManager.executeExpression(this.collection, paramMap);
+		Object value = this.collection == null ? null : ScriptManager.executeExpression(this.collection, paramMap);
 		// 如果集合为空，则过滤该节点
 		if (value == null) {
 			return "";
@@ -82,7 +83,7 @@ public class ForeachSqlNode extends SqlNode {
 			return "";
 		}
 		// 开始拼接SQL,
-		StringBuilder sqlBuilder = new StringBuilder(StringUtils.defaultString(this.open));
+		StringBuilder sqlBuilder = new StringBuilder(64).append(this.open);
 		boolean hasIndex = index != null && index.length() > 0;
 		// 获取数组长度
 		int len = Array.getLength(value);
@@ -96,11 +97,11 @@ public class ForeachSqlNode extends SqlNode {
 			sqlBuilder.append(executeChildren(paramMap, parameters));
 			// 拼接分隔符
 			if (i + 1 < len) {
-				sqlBuilder.append(StringUtils.defaultString(this.separator));
+				sqlBuilder.append(this.separator);
 			}
 		}
 		// 拼接结束SQL
-		sqlBuilder.append(StringUtils.defaultString(this.close));
+		sqlBuilder.append(this.close);
 		return sqlBuilder.toString();
 	}
 }
@@ -1,6 +1,7 @@
 package org.ssssssss.magicapi.modules.db.mybatis;
 
 import org.ssssssss.magicapi.utils.ScriptManager;
+import org.ssssssss.script.MagicScript;
 import org.ssssssss.script.parsing.ast.literal.BooleanLiteral;
 
 import java.util.List;
@@ -16,12 +17,12 @@ public class IfSqlNode extends SqlNode {
 	/**
 	 * 判断表达式
 	 */
-	private final String test;
+	private final MagicScript test;
 
 	private final SqlNode nextNode;
 
 	public IfSqlNode(String test, SqlNode nextNode) {
-		this.test = test;
+		this.test = ScriptManager.createExpression(test);
 		this.nextNode = nextNode;
 	}
 
@@ -4,9 +4,10 @@ import org.ssssssss.magicapi.core.exception.MagicAPIException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
-import javax.xml.parsers.DocumentBuilder;
+import org.xml.sax.InputSource;
+
 import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
+import java.io.StringReader;
 import java.util.regex.Pattern;
 
 public class MybatisParser {
@@ -15,11 +16,18 @@ public class MybatisParser {
 
 	private static final String ESCAPE_LT_REPLACEMENT = "&lt;$1";
 
+	private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+
+	/**
+	 * 解析SQL，每次调用都会重新解析，执行SQL时请使用 {@link SqlTemplateCache#getMybatisNode(String)}
+	 */
 	public static SqlNode parse(String xml) {
 		try {
 			xml = "<magic-api>" + escapeXml(xml) + "</magic-api>";
-			DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			Document document = documentBuilder.parse(new ByteArrayInputStream(xml.getBytes()));
+			Document document;
+			synchronized (DOCUMENT_BUILDER_FACTORY) {
+				document = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+			}
 			SqlNode sqlNode = new TextSqlNode("");
 			parseNodeList(sqlNode, new NodeStream(document.getDocumentElement().getChildNodes()));
 			return sqlNode;
@@ -31,7 +31,7 @@ public abstract class SqlNode {
 	}
 
 	/**
-	 * 获取该节点的SQL
+	 * 获取该节点的SQL，参数保存在节点中，节点被多个线程共享时请使用 {@link #getSql(Map, List)}
 	 */
 	public String getSql(Map<String, Object> paramMap) {
 		this.parameters = new ArrayList<>();
@@ -0,0 +1,90 @@
+package org.ssssssss.magicapi.modules.db.mybatis;
+
+import org.ssssssss.magicapi.modules.db.cache.TinyLFUCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL模板缓存
+ * <p>
+ * 按SQL文本缓存解析后的 {@link SqlNode} 以及非Mybatis语法SQL的 {@link TextSqlTemplate}，
+ * 使用分段加锁的 {@link TinyLFUCache}，不同SQL的读取不会互相阻塞。
+ * 缓存的节点会被多个线程共享执行，执行时只能使用 {@link SqlNode#getSql(Map, java.util.List)}。
+ *
+ * @author mxd
+ */
+public class SqlTemplateCache {
+
+	private static final int CAPACITY = 2048;
+
+	/**
+	 * 缓存中的名称，每个缓存只使用一个名称
+	 */
+	private static final String NAME = "sql";
+
+	private static final String[] MYBATIS_TAGS = {"where>", "if>", "trim>", "set>", "foreach>"};
+
+	/**
+	 * 非Mybatis语法的SQL
+	 */
+	private static final SqlNode NONE = new TextSqlNode("");
+
+	private static final TinyLFUCache CACHE = new TinyLFUCache(CAPACITY, -1);
+
+	private static final TinyLFUCache TEXT_CACHE = new TinyLFUCache(CAPACITY, -1);
+
+	/**
+	 * 获取SQL对应的Mybatis节点
+	 *
+	 * @return 不包含Mybatis标签时返回 null
+	 */
+	public static SqlNode getMybatisNode(String sql) {
+		SqlNode sqlNode = (SqlNode) CACHE.get(NAME, sql);
+		if (sqlNode == null) {
+			// 并发解析同一SQL时结果相同，后写入的覆盖先写入的即可
+			sqlNode = isMybatis(sql) ? MybatisParser.parse(sql) : NONE;
+			CACHE.put(NAME, sql, sqlNode);
+		}
+		return sqlNode == NONE ? null : sqlNode;
+	}
+
+	/**
+	 * 获取SQL对应的预编译文本模板
+	 */
+	public static TextSqlTemplate getTextTemplate(String sql) {
+		TextSqlTemplate template = (TextSqlTemplate) TEXT_CACHE.get(NAME, sql);
+		if (template == null) {
+			template = TextSqlTemplate.compile(sql);
+			TEXT_CACHE.put(NAME, sql, template);
+		}
+		return template;
+	}
+
+	/**
+	 * 是否包含Mybatis结束标签，只扫描一次 &lt;/
+	 */
+	static boolean isMybatis(String sql) {
+		int index = sql.indexOf("</");
+		while (index >= 0) {
+			for (String tag : MYBATIS_TAGS) {
+				if (sql.startsWith(tag, index + 2)) {
+					return true;
+				}
+			}
+			index = sql.indexOf("</", index + 2);
+		}
+		return false;
+	}
+
+	/**
+	 * 缓存统计信息
+	 */
+	public static Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("capacity", CAPACITY);
+		stats.put("mybatis", CACHE.stats());
+		stats.put("text", TEXT_CACHE.stats());
+		return stats;
+	}
+}
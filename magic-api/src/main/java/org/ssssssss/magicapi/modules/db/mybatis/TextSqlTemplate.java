@@ -0,0 +1,365 @@
+package org.ssssssss.magicapi.modules.db.mybatis;
+
+import org.springframework.jdbc.core.SqlInOutParameter;
+import org.springframework.jdbc.core.SqlOutParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.ssssssss.magicapi.modules.db.model.SqlTypes;
+import org.ssssssss.magicapi.utils.ScriptManager;
+import org.ssssssss.script.MagicScript;
+import org.ssssssss.script.functions.StreamExtension;
+import org.ssssssss.script.parsing.ast.literal.BooleanLiteral;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的SQL文本模板
+ * <p>
+ * 将SQL中的 ?{}、${}、#{}、@{} 一次性解析为片段列表，表达式预先编译为 {@link MagicScript}，
+ * 执行时只需单次遍历片段，所有状态均保存在调用方传入的参数中，可被多个线程共享。
+ * <p>
+ * 与原有逐个标记替换的方式一致，${} 的结果中含有 #{}、@{} 时会继续解析，如：
+ * <pre>
+ * var where = "id = #{id}"
+ * db.select("select * from t where ${where}")
+ * </pre>
+ *
+ * @author mxd
+ */
+public class TextSqlTemplate {
+
+	private static final Segment[] EMPTY = new Segment[0];
+
+	/**
+	 * SQL模板中解析的标记
+	 */
+	private static final String ALL_TOKENS = "?$#@";
+
+	/**
+	 * ${} 的结果中继续解析的标记
+	 */
+	private static final String CONCAT_TOKENS = "#@";
+
+	private final Segment[] segments;
+
+	private TextSqlTemplate(Segment[] segments) {
+		this.segments = segments;
+	}
+
+	/**
+	 * 编译SQL模板，执行时请使用 {@link SqlTemplateCache#getTextTemplate(String)} 获取缓存的模板
+	 */
+	public static TextSqlTemplate compile(String sql) {
+		if (sql == null || sql.isEmpty()) {
+			return new TextSqlTemplate(EMPTY);
+		}
+		return new TextSqlTemplate(parseSegments(sql, ALL_TOKENS));
+	}
+
+	/**
+	 * 渲染SQL，参数追加到 parameters 中
+	 */
+	public String render(Map<String, Object> varMap, List<Object> parameters) {
+		if (segments.length == 1 && segments[0] instanceof TextSegment) {
+			return ((TextSegment) segments[0]).text;
+		}
+		StringBuilder builder = new StringBuilder();
+		render(segments, varMap, parameters, builder);
+		return builder.toString();
+	}
+
+	private static void render(Segment[] segments, Map<String, Object> varMap, List<Object> parameters, StringBuilder builder) {
+		for (Segment segment : segments) {
+			segment.render(varMap, parameters, builder);
+		}
+	}
+
+	/**
+	 * 解析为片段列表
+	 *
+	 * @param tokens 需要解析的标记类型，其余标记按普通文本处理
+	 */
+	private static Segment[] parseSegments(String sql, String tokens) {
+		List<Segment> segments = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		int length = sql.length();
+		int offset = 0;
+		while (offset < length) {
+			int start = nextToken(sql, offset, tokens);
+			if (start == -1) {
+				text.append(sql, offset, length);
+				break;
+			}
+			char type = sql.charAt(start);
+			if (start > 0 && sql.charAt(start - 1) == '\\') {
+				// 转义的开始标记，原样输出
+				text.append(sql, offset, start - 1).append(type).append('{');
+				offset = start + 2;
+				continue;
+			}
+			// ${} 不处理嵌套，其余标记按括号匹配结束位置
+			int end = type == '$' ? sql.indexOf('}', start + 2) : findClose(sql, start + 2, '}');
+			if (end == -1) {
+				text.append(sql, offset, length);
+				break;
+			}
+			text.append(sql, offset, start);
+			if (text.length() > 0) {
+				segments.add(new TextSegment(text.toString()));
+				text.setLength(0);
+			}
+			String content = sql.substring(start + 2, end);
+			Segment segment = createSegment(type, content);
+			if (segment != null) {
+				segments.add(segment);
+			}
+			offset = end + 1;
+		}
+		if (text.length() > 0) {
+			segments.add(new TextSegment(text.toString()));
+		}
+		return segments.toArray(EMPTY);
+	}
+
+	private static Segment createSegment(char type, String content) {
+		switch (type) {
+			case '?':
+				int comma = findClose(content, 0, ',');
+				// 没有条件分隔符时整体忽略
+				return comma == -1 ? null : new IfSegment(ScriptManager.createExpression(content.substring(0, comma)), parseSegments(content.substring(comma + 1), ALL_TOKENS));
+			case '$':
+				return new ConcatSegment(ScriptManager.createExpression(content));
+			case '#':
+				return new BindSegment(ScriptManager.createExpression(content));
+			default:
+				return createOutSegment(content);
+		}
+	}
+
+	/**
+	 * 解析 @{name, type} 或 @{name(value), type}
+	 */
+	private static Segment createOutSegment(String content) {
+		int comma = findClose(content, 0, ',');
+		String name = (comma == -1 ? content : content.substring(0, comma)).trim();
+		int sqlType = comma == -1 ? Types.NULL : SqlTypes.getSqlType(content.substring(comma + 1).trim(), true);
+		int index = name.indexOf('(');
+		if (index > 0) {
+			MagicScript value = ScriptManager.createExpression(name.substring(index + 1, name.lastIndexOf(')')));
+			return new InOutSegment(name.substring(0, index).trim(), sqlType, value);
+		}
+		return new OutSegment(name, sqlType);
+	}
+
+	/**
+	 * 查找下一个 ?{、${、#{、@{ 中指定类型标记的位置
+	 */
+	private static int nextToken(String sql, int offset, String tokens) {
+		int length = sql.length() - 1;
+		for (int i = offset; i < length; i++) {
+			char c = sql.charAt(i);
+			if (sql.charAt(i + 1) == '{' && tokens.indexOf(c) >= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 查找与当前层级匹配的结束字符，跳过字符串以及 ()、[]、{} 中的内容
+	 */
+	private static int findClose(String text, int offset, char close) {
+		int depth = 0;
+		int length = text.length();
+		for (int i = offset; i < length; i++) {
+			char c = text.charAt(i);
+			if (depth == 0 && c == close) {
+				return i;
+			}
+			switch (c) {
+				case '(':
+				case '[':
+				case '{':
+					depth++;
+					break;
+				case ')':
+				case ']':
+				case '}':
+					depth--;
+					break;
+				case '"':
+				case '\'':
+					i = skipString(text, i, c);
+					break;
+				default:
+			}
+		}
+		return -1;
+	}
+
+	private static int skipString(String text, int start, char quote) {
+		int length = text.length();
+		for (int i = start + 1; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == quote) {
+				return i;
+			}
+		}
+		return length;
+	}
+
+	private interface Segment {
+
+		void render(Map<String, Object> varMap, List<Object> parameters, StringBuilder builder);
+	}
+
+	/**
+	 * 普通文本
+	 */
+	private static class TextSegment implements Segment {
+
+		private final String text;
+
+		TextSegment(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public void render(Map<String, Object> varMap, List<Object> parameters, StringBuilder builder) {
+			builder.append(text);
+		}
+	}
+
+	/**
+	 * ?{condition, sql}
+	 */
+	private static class IfSegment implements Segment {
+
+		private final MagicScript condition;
+
+		private final Segment[] children;
+
+		IfSegment(MagicScript condition, Segment[] children) {
+			this.condition = condition;
+			this.children = children;
+		}
+
+		@Override
+		public void render(Map<String, Object> varMap, List<Object> parameters, StringBuilder builder) {
+			if (BooleanLiteral.isTrue(ScriptManager.executeExpression(condition, varMap))) {
+				TextSqlTemplate.render(children, varMap, parameters, builder);
+			}
+		}
+	}
+
+	/**
+	 * ${expression}
+	 */
+	private static class ConcatSegment implements Segment {
+
+		private final MagicScript expression;
+
+		ConcatSegment(MagicScript expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		public void render(Map<String, Object> varMap, List<Object> parameters, StringBuilder builder) {
+			String text = String.valueOf(ScriptManager.executeExpression(expression, varMap));
+			if (text.contains("#{") || text.contains("@{")) {
+				// 拼接的内容是动态的，不缓存
+				TextSqlTemplate.render(parseSegments(text, CONCAT_TOKENS), varMap, parameters, builder);
+			} else {
+				builder.append(text);
+			}
+		}
+	}
+
+	/**
+	 * #{expression}
+	 */
+	private static class BindSegment implements Segment {
+
+		private final MagicScript expression;
+
+		BindSegment(MagicScript expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		public void render(Map<String, Object> varMap, List<Object> parameters, StringBuilder builder) {
+			Object value = ScriptManager.executeExpression(expression, varMap);
+			if (value == null) {
+				parameters.add(null);
+				builder.append('?');
+				return;
+			}
+			List<Object> objects;
+			try {
+				//对集合自动展开
+				objects = StreamExtension.arrayLikeToList(value);
+			} catch (Exception e) {
+				parameters.add(value);
+				builder.append('?');
+				return;
+			}
+			parameters.addAll(objects);
+			for (int i = 0, size = objects.size(); i < size; i++) {
+				if (i > 0) {
+					builder.append(',');
+				}
+				builder.append('?');
+			}
+		}
+	}
+
+	/**
+	 * @{name, type}
+	 */
+	private static class OutSegment implements Segment {
+
+		private final String name;
+
+		private final int sqlType;
+
+		OutSegment(String name, int sqlType) {
+			this.name = name;
+			this.sqlType = sqlType;
+		}
+
+		@Override
+		public void render(Map<String, Object> varMap, List<Object> parameters, StringBuilder builder) {
+			parameters.add(new SqlOutParameter(name, sqlType));
+			builder.append('?');
+		}
+	}
+
+	/**
+	 * @{name(value), type}
+	 */
+	private static class InOutSegment implements Segment {
+
+		private final String name;
+
+		private final int sqlType;
+
+		private final MagicScript value;
+
+		InOutSegment(String name, int sqlType, MagicScript value) {
+			this.name = name;
+			this.sqlType = sqlType;
+			this.value = value;
+		}
+
+		@Override
+		public void render(Map<String, Object> varMap, List<Object> parameters, StringBuilder builder) {
+			SqlInOutParameter parameter = new SqlInOutParameter(name, sqlType);
+			parameters.add(new SqlParameterValue(parameter, ScriptManager.executeExpression(value, varMap)));
+			builder.append('?');
+		}
+	}
+}
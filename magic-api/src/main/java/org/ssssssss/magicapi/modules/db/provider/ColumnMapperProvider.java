@@ -2,8 +2,6 @@ package org.ssssssss.magicapi.modules.db.provider;
 
 import org.springframework.jdbc.core.ColumnMapRowMapper;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.function.Function;
 
 /**
@@ -53,17 +51,7 @@ public interface ColumnMapperProvider {
 	 * @return ColumnMapRowMapper
 	 */
 	default ColumnMapRowMapper getColumnMapRowMapper() {
-		return new ColumnMapRowMapper() {
-			@Override
-			protected Map<String, Object> createColumnMap(int columnCount) {
-				return new LinkedHashMap<>(columnCount);
-			}
-
-			@Override
-			protected String getColumnKey(String columnName) {
-				return mapping(columnName);
-			}
-		};
+		return new ResultRowMapper(this::mapping);
 	}
 
 }
@@ -36,12 +36,22 @@ public class DefaultPageProvider implements PageProvider {
 	 */
 	private final long maxPageSize;
 
+	/**
+	 * 游标参数名
+	 */
+	private final String cursorName;
+
 	public DefaultPageProvider(String pageName, String pageSize, long defaultPage, long defaultPageSize, long maxPageSize) {
+		this(pageName, pageSize, defaultPage, defaultPageSize, maxPageSize, null);
+	}
+
+	public DefaultPageProvider(String pageName, String pageSize, long defaultPage, long defaultPageSize, long maxPageSize, String cursorName) {
 		this.pageName = pageName;
 		this.pageSize = pageSize;
 		this.defaultPageSize = defaultPageSize;
 		this.defaultPage = defaultPage;
 		this.maxPageSize = maxPageSize;
+		this.cursorName = cursorName;
 	}
 
 
@@ -54,7 +64,11 @@ public class DefaultPageProvider implements PageProvider {
 			pageSize = Math.min(pageSize, this.maxPageSize);
 		}
 		// 计算limit以及offset
-		return new Page(pageSize, (page - 1) * pageSize);
+		Page result = new Page(pageSize, (page - 1) * pageSize);
+		if (this.cursorName != null) {
+			result.setCursor(Objects.toString(context.eval(this.cursorName), null));
+		}
+		return result;
 
 	}
 }
@@ -0,0 +1,100 @@
+package org.ssssssss.magicapi.modules.db.provider;
+
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.ssssssss.magicapi.modules.db.model.ResultRow;
+import org.ssssssss.magicapi.modules.db.model.RowSchema;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 将结果转换为 {@link ResultRow}，列名每个结果集只转换一次
+ *
+ * @author mxd
+ */
+public class ResultRowMapper extends ColumnMapRowMapper {
+
+	private final Function<String, String> mapping;
+
+	/**
+	 * 作为普通 RowMapper 使用时最近一个结果集的列信息，弱引用结果集，避免保留已读取的数据
+	 */
+	private volatile CachedSchema lastSchema;
+
+	public ResultRowMapper(Function<String, String> mapping) {
+		this.mapping = mapping;
+	}
+
+	/**
+	 * 逐行调用时同一结果集只创建一次列信息，多个线程交替使用时退化为每行创建
+	 */
+	@Override
+	public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+		CachedSchema cached = this.lastSchema;
+		if (rowNum == 0 || cached == null || cached.resultSet.get() != rs) {
+			cached = new CachedSchema(rs, createSchema(rs, null));
+			this.lastSchema = cached;
+		}
+		return cached.schema.readRow(rs);
+	}
+
+	@Override
+	public String getColumnKey(String columnName) {
+		return mapping.apply(columnName);
+	}
+
+	/**
+	 * 创建结果集的列信息
+	 *
+	 * @param excludeColumns 排除的列，可为 null
+	 */
+	public RowSchema createSchema(ResultSet rs, Set<String> excludeColumns) throws SQLException {
+		return RowSchema.of(rs, this::getColumnKey, excludeColumns);
+	}
+
+	/**
+	 * 多行结果抽取
+	 *
+	 * @param excludeColumns 排除的列，可为 null
+	 */
+	public ResultSetExtractor<List<Map<String, Object>>> listExtractor(Set<String> excludeColumns) {
+		return rs -> {
+			List<Map<String, Object>> rows = new ArrayList<>();
+			if (rs.next()) {
+				RowSchema schema = createSchema(rs, excludeColumns);
+				do {
+					rows.add(schema.readRow(rs));
+				} while (rs.next());
+			}
+			return rows;
+		};
+	}
+
+	/**
+	 * 单行结果抽取，查不到返回 null
+	 *
+	 * @param excludeColumns 排除的列，可为 null
+	 */
+	public ResultSetExtractor<Map<String, Object>> singleRowExtractor(Set<String> excludeColumns) {
+		return rs -> rs.next() ? createSchema(rs, excludeColumns).readRow(rs) : null;
+	}
+
+	private static class CachedSchema {
+
+		private final WeakReference<ResultSet> resultSet;
+
+		private final RowSchema schema;
+
+		CachedSchema(ResultSet resultSet, RowSchema schema) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.schema = schema;
+		}
+	}
+}
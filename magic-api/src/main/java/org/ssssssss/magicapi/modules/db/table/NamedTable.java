@@ -6,6 +6,7 @@ import org.ssssssss.magicapi.core.exception.MagicAPIException;
 import org.ssssssss.magicapi.core.model.Attributes;
 import org.ssssssss.magicapi.core.context.RequestEntity;
 import org.ssssssss.magicapi.modules.db.BoundSql;
+import org.ssssssss.magicapi.modules.db.dialect.Dialect;
 import org.ssssssss.magicapi.modules.db.inteceptor.NamedTableInterceptor;
 import org.ssssssss.magicapi.modules.db.SQLModule;
 import org.ssssssss.magicapi.modules.db.model.Page;
@@ -17,6 +18,7 @@ import java.beans.Transient;
 import java.io.Serializable;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -238,13 +240,7 @@ public class NamedTable extends Attributes<Object> {
 		if (data != null) {
 			data.forEach((key, value) -> this.columns.put(rowMapColumnMapper.apply(key), value));
 		}
-		if (this.defaultPrimaryValue != null && StringUtils.isBlank(Objects.toString(this.columns.getOrDefault(this.primary, "")))) {
-			if (this.defaultPrimaryValue instanceof Supplier) {
-				this.columns.put(this.primary, ((Supplier<?>) this.defaultPrimaryValue).get());
-			} else {
-				this.columns.put(this.primary, this.defaultPrimaryValue);
-			}
-		}
+		fillDefaultPrimaryValue();
 		preHandle(SqlMode.INSERT);
 		Collection<Map.Entry<String, Object>> entries = filterNotBlanks();
 		if (entries.isEmpty()) {
@@ -304,9 +300,15 @@ public class NamedTable extends Attributes<Object> {
 		}
 		if (beforeQuery) {
 			if (primaryValue != null && StringUtils.isNotBlank(Objects.toString(primaryValue))) {
+				// 方言支持时一条语句完成查询及插入或修改
+				if (where.isEmpty() && upsert(runtimeContext, primaryValue)) {
+					return primaryValue;
+				}
 				List<Object> params = new ArrayList<>();
 				params.add(primaryValue);
-				Integer count = sqlModule.selectInt(new BoundSql(runtimeContext, "select count(*) count from " + this.tableName + " where " + this.primary + " = ?", params, sqlModule));
+				// 根据查询结果写入，需查询主库
+				SQLModule primaryModule = sqlModule.primary();
+				Integer count = primaryModule.selectInt(new BoundSql(runtimeContext, "select count(*) count from " + this.tableName + " where " + this.primary + " = ?", params, primaryModule));
 				if (count == 0) {
 					return insert(runtimeContext, data);
 				}
@@ -322,6 +324,64 @@ public class NamedTable extends Attributes<Object> {
 		return insert(runtimeContext, data);
 	}
 
+	/**
+	 * 使用方言的 upsert 语句一次完成插入或修改，插入的列及值按 INSERT 处理，修改的列及值按 UPDATE 处理
+	 *
+	 * @return 方言不支持时返回 false
+	 */
+	private boolean upsert(RuntimeContext runtimeContext, Object primaryValue) {
+		UpsertRow row = prepareUpsert(primaryValue);
+		String sql = sqlModule.getDialect().getUpsertSql(this.tableName, this.primary, row.insertColumns, row.updateColumns);
+		if (sql == null) {
+			return false;
+		}
+		sqlModule.update(new BoundSql(runtimeContext, sql, row.params, sqlModule));
+		return true;
+	}
+
+	/**
+	 * 分别执行 INSERT、UPDATE 拦截器后取得插入及修改的列和值，插入的列以主键开头，其余列按名称排序
+	 */
+	private UpsertRow prepareUpsert(Object primaryValue) {
+		NamedTable insertTable = clone();
+		insertTable.preHandle(SqlMode.INSERT);
+		NamedTable updateTable = clone();
+		updateTable.preHandle(SqlMode.UPDATE);
+		UpsertRow row = new UpsertRow();
+		row.insertColumns.add(this.primary);
+		row.params.add(primaryValue);
+		insertTable.sortedNotBlanks().forEach(it -> {
+			row.insertColumns.add(it.getKey());
+			row.params.add(it.getValue());
+		});
+		// 修改的值单独绑定，拦截器对插入和修改设置的值可以不同
+		updateTable.sortedNotBlanks().forEach(it -> {
+			row.updateColumns.add(it.getKey());
+			row.params.add(it.getValue());
+		});
+		return row;
+	}
+
+	/**
+	 * 按列名排序且不含主键的非空列
+	 */
+	private List<Map.Entry<String, Object>> sortedNotBlanks() {
+		return filterNotBlanks().stream()
+				.filter(it -> !this.primary.equals(it.getKey()))
+				.sorted(Map.Entry.comparingByKey())
+				.collect(Collectors.toList());
+	}
+
+	private void fillDefaultPrimaryValue() {
+		if (this.defaultPrimaryValue != null && StringUtils.isBlank(Objects.toString(this.columns.getOrDefault(this.primary, "")))) {
+			if (this.defaultPrimaryValue instanceof Supplier) {
+				this.columns.put(this.primary, ((Supplier<?>) this.defaultPrimaryValue).get());
+			} else {
+				this.columns.put(this.primary, this.defaultPrimaryValue);
+			}
+		}
+	}
+
 	@Comment("保存到表中，当主键有值时则修改，否则插入")
 	public Object save(RuntimeContext runtimeContext,
 					   @Comment(name = "beforeQuery", value = "是否根据id查询有没有数据") boolean beforeQuery) {
@@ -334,24 +394,110 @@ public class NamedTable extends Attributes<Object> {
 		return this.save(runtimeContext, data, false);
 	}
 
+	@Comment("批量保存到表中，主键有值且已存在时修改，否则插入，返回保存的条数")
+	public int batchSave(RuntimeContext runtimeContext,
+						 @Comment(name = "collection", value = "各项列和值") Collection<Map<String, Object>> collection,
+						 @Comment(name = "batchSize", value = "每批条数") int batchSize) {
+		if (StringUtils.isBlank(this.primary)) {
+			throw new MagicAPIException("请设置主键");
+		}
+		Dialect dialect = sqlModule.getDialect();
+		if (dialect.getUpsertSql(this.tableName, this.primary, Collections.singletonList(this.primary), Collections.emptyList()) == null) {
+			// 不支持 upsert 时逐条查询后插入或修改
+			collection.forEach(data -> clone().save(runtimeContext, data, true));
+			return collection.size();
+		}
+		// 每行与 save 一致：合并 column() 设置的值并执行拦截器，按插入及修改的列分组，只修改传入的列
+		Map<List<List<String>>, List<Object[]>> upserts = new LinkedHashMap<>();
+		Map<List<String>, List<Object[]>> inserts = new LinkedHashMap<>();
+		for (Map<String, Object> data : collection) {
+			NamedTable table = clone();
+			data.forEach((key, value) -> table.columns.put(rowMapColumnMapper.apply(key), value));
+			table.fillDefaultPrimaryValue();
+			Object primaryValue = table.columns.get(this.primary);
+			if (StringUtils.isNotBlank(Objects.toString(primaryValue, ""))) {
+				UpsertRow row = table.prepareUpsert(primaryValue);
+				upserts.computeIfAbsent(Arrays.asList(row.insertColumns, row.updateColumns), key -> new ArrayList<>()).add(row.params.toArray());
+				continue;
+			}
+			table.preHandle(SqlMode.INSERT);
+			List<Map.Entry<String, Object>> entries = table.sortedNotBlanks();
+			if (entries.isEmpty()) {
+				throw new MagicAPIException("要保存的列不能为空");
+			}
+			List<String> columns = entries.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+			inserts.computeIfAbsent(columns, key -> new ArrayList<>()).add(entries.stream().map(Map.Entry::getValue).toArray());
+		}
+		upserts.forEach((columns, args) -> {
+			String sql = dialect.getUpsertSql(this.tableName, this.primary, columns.get(0), columns.get(1));
+			this.sqlModule.batchUpdate(runtimeContext, sql, batchSize, args);
+		});
+		inserts.forEach((columns, args) -> this.sqlModule.batchUpdate(runtimeContext, buildInsertSql(columns), batchSize, args));
+		return collection.size();
+	}
+
+	@Comment("批量保存到表中，主键有值且已存在时修改，否则插入，返回保存的条数")
+	public int batchSave(RuntimeContext runtimeContext,
+						 @Comment(name = "collection", value = "各项列和值") Collection<Map<String, Object>> collection) {
+		return batchSave(runtimeContext, collection, 100);
+	}
+
+	private String buildInsertSql(List<String> columns) {
+		return "insert into " + tableName + "(" + String.join(",", columns) + ") values (" + StringUtils.join(Collections.nCopies(columns.size(), "?"), ",") + ")";
+	}
+
 	@Comment("批量插入")
 	public int batchInsert(RuntimeContext runtimeContext,
 						   @Comment(name = "collection", value = "各项列和值") Collection<Map<String, Object>> collection, @Comment("batchSize") int batchSize) {
-		Set<String> keys = collection.stream().flatMap(it -> it.keySet().stream()).collect(Collectors.toSet());
-		if (keys.isEmpty()) {
-			throw new MagicAPIException("要插入的列不能为空");
+		return batchInsert(runtimeContext, collection.iterator(), batchSize, null);
+	}
+
+	@Comment("批量插入，每批插入后回调progress，参数为{count: 本批条数, total: 已插入条数}")
+	public int batchInsert(RuntimeContext runtimeContext,
+						   @Comment(name = "collection", value = "各项列和值") Collection<Map<String, Object>> collection,
+						   @Comment("batchSize") int batchSize,
+						   @Comment(name = "progress", value = "进度回调，如：(e) => log.info('已插入' + e.total)") Function<Object, Object> progress) {
+		return batchInsert(runtimeContext, collection.iterator(), batchSize, progress);
+	}
+
+	@Comment("批量插入，逐条读取数据，可传入游标")
+	public int batchInsert(RuntimeContext runtimeContext,
+						   @Comment(name = "iterator", value = "各项列和值，如：db.stream(...)") Iterator<Map<String, Object>> iterator,
+						   @Comment("batchSize") int batchSize) {
+		return batchInsert(runtimeContext, iterator, batchSize, null);
+	}
+
+	@Comment("批量插入，逐条读取数据，可传入游标，每批插入后回调progress，参数为{count: 本批条数, total: 已插入条数}")
+	public int batchInsert(RuntimeContext runtimeContext,
+						   @Comment(name = "iterator", value = "各项列和值，如：db.stream(...)") Iterator<Map<String, Object>> iterator,
+						   @Comment("batchSize") int batchSize,
+						   @Comment(name = "progress", value = "进度回调，如：(e) => log.info('已插入' + e.total)") Function<Object, Object> progress) {
+		IntConsumer listener = null;
+		if (progress != null) {
+			int[] total = {0};
+			listener = count -> {
+				total[0] += count;
+				Map<String, Object> event = new HashMap<>();
+				event.put("count", count);
+				event.put("total", total[0]);
+				progress.apply(event);
+			};
 		}
-		StringBuilder builder = new StringBuilder();
-		builder.append("insert into ");
-		builder.append(tableName);
-		builder.append("(");
-		builder.append(StringUtils.join(keys.stream().map(rowMapColumnMapper).collect(Collectors.toList()), ","));
-		builder.append(") values (");
-		builder.append(StringUtils.join(Collections.nCopies(keys.size(), "?"), ","));
-		builder.append(")");
-		return this.sqlModule.batchUpdate(runtimeContext, builder.toString(), batchSize, collection.stream()
-				.map(it -> keys.stream().map(it::get).toArray())
-				.collect(Collectors.toList()));
+		// 逐行转换列名，每批中列相同的行使用同一语句插入
+		Iterator<Map<String, Object>> rows = new Iterator<Map<String, Object>>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Map<String, Object> next() {
+				Map<String, Object> row = new LinkedHashMap<>();
+				iterator.next().forEach((key, value) -> row.put(rowMapColumnMapper.apply(key), value));
+				return row;
+			}
+		};
+		return this.sqlModule.bulkInsert(runtimeContext, this.tableName, rows, batchSize, listener);
 	}
 
 	@Comment("批量插入")
@@ -385,6 +531,30 @@ public class NamedTable extends Attributes<Object> {
 		return sqlModule.page(buildSelect(runtimeContext), new Page(limit, offset));
 	}
 
+	@Comment("执行分页查询，不查询总条数，多查询一条判断是否有下一页")
+	public Object pageWithoutCount(RuntimeContext runtimeContext) {
+		preHandle(SqlMode.PAGE);
+		return sqlModule.pageWithoutCount(buildSelect(runtimeContext), sqlModule.getPageProvider().getPage(runtimeContext));
+	}
+
+	@Comment("执行游标分页查询，按排序列的值定位下一页，游标参数自动获取")
+	public Object keysetPage(RuntimeContext runtimeContext,
+							 @Comment(name = "orderColumns", value = "排序列，需唯一确定一行且值不为null，如：`create_time desc, id desc`") String orderColumns) {
+		preHandle(SqlMode.PAGE);
+		return sqlModule.keysetPage(buildSelect(runtimeContext), orderColumns, sqlModule.getPageProvider().getPage(runtimeContext));
+	}
+
+	@Comment("执行游标分页查询，条数和游标手动传入")
+	public Object keysetPage(RuntimeContext runtimeContext,
+							 @Comment(name = "orderColumns", value = "排序列，需唯一确定一行且值不为null，如：`create_time desc, id desc`") String orderColumns,
+							 @Comment(name = "limit", value = "限制条数") long limit,
+							 @Comment(name = "cursor", value = "上一页返回的游标，首页为null") String cursor) {
+		preHandle(SqlMode.PAGE);
+		Page page = new Page(limit, 0);
+		page.setCursor(cursor);
+		return sqlModule.keysetPage(buildSelect(runtimeContext), orderColumns, page);
+	}
+
 	@Comment("执行update语句")
 	public int update(RuntimeContext runtimeContext) {
 		return update(runtimeContext, null);
@@ -704,4 +874,16 @@ public class NamedTable extends Attributes<Object> {
 	public RequestEntity getRequestEntity() {
 		return RequestContext.getRequestEntity();
 	}
+
+	/**
+	 * upsert 语句的列及参数，参数依次为插入列及修改列对应的值
+	 */
+	private static class UpsertRow {
+
+		private final List<String> insertColumns = new ArrayList<>();
+
+		private final List<String> updateColumns = new ArrayList<>();
+
+		private final List<Object> params = new ArrayList<>();
+	}
 }
@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.ssssssss.magicapi.core.annotation.MagicModule;
 import org.ssssssss.magicapi.core.context.RequestContext;
 import org.ssssssss.magicapi.core.interceptor.ResultProvider;
+import org.ssssssss.magicapi.core.model.StreamingResult;
 import org.ssssssss.magicapi.core.servlet.MagicHttpServletResponse;
 import org.ssssssss.script.annotation.Comment;
 
@@ -67,6 +68,28 @@ public class ResponseModule {
 		return ResponseEntity.ok(value);
 	}
 
+	/**
+	 * 流式输出JSON结果
+	 *
+	 * @param rows 数据内容，如 db.stream 返回的游标
+	 */
+	@Comment("流式输出JSON结果，逐行写出，如`db.stream(...)`的返回值")
+	public StreamingResult stream(@Comment(name = "rows", value = "数据内容，如游标") Iterable<Map<String, Object>> rows) {
+		return StreamingResult.json(rows);
+	}
+
+	/**
+	 * 流式输出CSV
+	 *
+	 * @param rows     数据内容，如 db.stream 返回的游标
+	 * @param filename 下载的文件名，为空时直接输出
+	 */
+	@Comment("流式输出CSV，逐行写出，如`db.stream(...)`的返回值")
+	public StreamingResult csv(@Comment(name = "rows", value = "数据内容，如游标") Iterable<Map<String, Object>> rows,
+							   @Comment(name = "filename", value = "下载的文件名") String filename) {
+		return new StreamingResult(rows, StreamingResult.Format.CSV, filename);
+	}
+
 	/**
 	 * 添加Header
 	 */
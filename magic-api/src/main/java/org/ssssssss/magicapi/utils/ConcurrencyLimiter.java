@@ -0,0 +1,123 @@
+package org.ssssssss.magicapi.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并发隔离（舱壁），限制最大并发数及排队数，超出时快速失败
+ *
+ * @author mxd
+ */
+public class ConcurrencyLimiter {
+
+	private final int maxConcurrent;
+
+	private final int maxWaiting;
+
+	private final long waitTimeout;
+
+	private final Semaphore semaphore;
+
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * @param maxConcurrent 最大并发数
+	 * @param maxWaiting    最大排队数，0 为不排队
+	 * @param waitTimeout   排队超时时间，单位为毫秒，<=0 时一直等待
+	 */
+	public ConcurrencyLimiter(int maxConcurrent, int maxWaiting, long waitTimeout) {
+		this.maxConcurrent = maxConcurrent;
+		this.maxWaiting = Math.max(maxWaiting, 0);
+		this.waitTimeout = waitTimeout;
+		this.semaphore = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * 尝试获取执行许可，成功后必须调用 {@link #release()}
+	 *
+	 * @return 是否获取成功，已满且排队已满或排队超时时返回 false
+	 */
+	public boolean tryAcquire() {
+		if (semaphore.tryAcquire()) {
+			return true;
+		}
+		if (maxWaiting > 0) {
+			if (waiting.incrementAndGet() <= maxWaiting) {
+				try {
+					if (waitTimeout > 0) {
+						if (semaphore.tryAcquire(waitTimeout, TimeUnit.MILLISECONDS)) {
+							return true;
+						}
+					} else {
+						semaphore.acquire();
+						return true;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					waiting.decrementAndGet();
+				}
+			} else {
+				waiting.decrementAndGet();
+			}
+		}
+		rejected.increment();
+		return false;
+	}
+
+	public void release() {
+		semaphore.release();
+	}
+
+	/**
+	 * 配置是否一致
+	 */
+	public boolean isSameConfig(int maxConcurrent, int maxWaiting, long waitTimeout) {
+		return this.maxConcurrent == maxConcurrent && this.maxWaiting == Math.max(maxWaiting, 0) && this.waitTimeout == waitTimeout;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public int getMaxWaiting() {
+		return maxWaiting;
+	}
+
+	/**
+	 * 正在执行数
+	 */
+	public int getInFlight() {
+		return maxConcurrent - semaphore.availablePermits();
+	}
+
+	/**
+	 * 正在排队数
+	 */
+	public int getWaiting() {
+		return Math.min(waiting.get(), maxWaiting);
+	}
+
+	/**
+	 * 累计拒绝数
+	 */
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("maxConcurrent", maxConcurrent);
+		stats.put("maxWaiting", maxWaiting);
+		stats.put("inFlight", getInFlight());
+		stats.put("waiting", getWaiting());
+		stats.put("rejected", getRejected());
+		return stats;
+	}
+}
@@ -0,0 +1,241 @@
+package org.ssssssss.magicapi.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁、固定内存的耗时直方图，统计最近一段时间（默认60秒）内的耗时
+ * <p>
+ * 以微秒为单位，按2的幂分段，约16秒以内每段再线性分为8个桶，相对误差不超过 12.5%，超过后每段一个桶，最大记录约9.5小时。
+ * 时间窗口分为若干段轮换使用，查询时合并仍在窗口内的段，轮换时可能丢失极少量并发写入的记录。
+ * 每段使用 int 计数，共187个桶，默认4段约3KB。
+ *
+ * @author mxd
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * 小于该值时每个值一个桶
+	 */
+	private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+
+	/**
+	 * 大于等于 2^24 微秒（约16.8秒）时每个2的幂一个桶
+	 */
+	private static final int COARSE_EXPONENT = 24;
+
+	private static final int MAX_EXPONENT = 34;
+
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private static final int FINE_BUCKETS = LINEAR_LIMIT + (COARSE_EXPONENT - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+	private static final int BUCKETS = FINE_BUCKETS + MAX_EXPONENT - COARSE_EXPONENT + 1;
+
+	/**
+	 * 默认时间窗口，单位为毫秒
+	 */
+	private static final long DEFAULT_WINDOW = 60000;
+
+	private static final int DEFAULT_SLICES = 4;
+
+	private final Slice[] slices;
+
+	/**
+	 * 每段的时长，单位为毫秒
+	 */
+	private final long sliceMillis;
+
+	public LatencyHistogram() {
+		this(DEFAULT_WINDOW, DEFAULT_SLICES);
+	}
+
+	/**
+	 * @param window     时间窗口，单位为毫秒
+	 * @param sliceCount 窗口分为几段轮换
+	 */
+	public LatencyHistogram(long window, int sliceCount) {
+		int count = Math.max(sliceCount, 1);
+		this.sliceMillis = Math.max(window / count, 1);
+		this.slices = new Slice[count];
+		for (int i = 0; i < count; i++) {
+			slices[i] = new Slice();
+		}
+	}
+
+	/**
+	 * 记录耗时
+	 *
+	 * @param nanos 耗时，单位为纳秒
+	 */
+	public void record(long nanos) {
+		long micros = Math.min(Math.max(nanos / 1000, 0), MAX_VALUE);
+		long epoch = System.currentTimeMillis() / sliceMillis;
+		Slice slice = slices[(int) (epoch % slices.length)];
+		long sliceEpoch = slice.epoch.get();
+		if (sliceEpoch < epoch && slice.epoch.compareAndSet(sliceEpoch, epoch)) {
+			// 该段已过期，清空后重新使用
+			slice.reset();
+		}
+		slice.counts.incrementAndGet(index(micros));
+		slice.count.increment();
+		slice.sum.add(micros);
+		slice.max.accumulate(micros);
+	}
+
+	private static int index(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent >= COARSE_EXPONENT) {
+			return FINE_BUCKETS + exponent - COARSE_EXPONENT;
+		}
+		int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		if (index >= FINE_BUCKETS) {
+			return (1L << (index - FINE_BUCKETS + COARSE_EXPONENT + 1)) - 1;
+		}
+		int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+		int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * 仍在时间窗口内的段
+	 */
+	private List<Slice> activeSlices() {
+		long epoch = System.currentTimeMillis() / sliceMillis;
+		List<Slice> active = new ArrayList<>(slices.length);
+		for (Slice slice : slices) {
+			long sliceEpoch = slice.epoch.get();
+			if (sliceEpoch <= epoch && epoch - sliceEpoch < slices.length) {
+				active.add(slice);
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * 时间窗口内的记录数
+	 */
+	public long getCount() {
+		long total = 0;
+		for (Slice slice : activeSlices()) {
+			total += slice.count.sum();
+		}
+		return total;
+	}
+
+	/**
+	 * 获取时间窗口内的百分位耗时，单位为微秒
+	 *
+	 * @param percentile 百分位，如 0.99
+	 */
+	public long getPercentile(double percentile) {
+		List<Slice> active = activeSlices();
+		long total = 0;
+		long maxValue = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (Slice slice : active) {
+			for (int i = 0; i < BUCKETS; i++) {
+				long value = slice.counts.get(i);
+				snapshot[i] += value;
+				total += value;
+			}
+			maxValue = Math.max(maxValue, slice.max.get());
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max((long) Math.ceil(percentile * total), 1);
+		for (int i = 0; i < BUCKETS; i++) {
+			if ((rank -= snapshot[i]) <= 0) {
+				return Math.min(upperBound(i), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	/**
+	 * 时间窗口内的最大耗时，单位为微秒
+	 */
+	public long getMax() {
+		long maxValue = 0;
+		for (Slice slice : activeSlices()) {
+			maxValue = Math.max(maxValue, slice.max.get());
+		}
+		return maxValue;
+	}
+
+	/**
+	 * 时间窗口内的平均耗时，单位为微秒
+	 */
+	public double getMean() {
+		long total = 0;
+		long sum = 0;
+		for (Slice slice : activeSlices()) {
+			total += slice.count.sum();
+			sum += slice.sum.sum();
+		}
+		return total == 0 ? 0 : (double) sum / total;
+	}
+
+	/**
+	 * 时间窗口内的统计信息，耗时单位为毫秒
+	 */
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("count", getCount());
+		stats.put("mean", getMean() / 1000);
+		stats.put("p50", getPercentile(0.5) / 1000.0);
+		stats.put("p90", getPercentile(0.9) / 1000.0);
+		stats.put("p99", getPercentile(0.99) / 1000.0);
+		stats.put("max", getMax() / 1000.0);
+		return stats;
+	}
+
+	/**
+	 * 时间窗口中的一段
+	 */
+	private static class Slice {
+
+		/**
+		 * 所属时间段的序号，为当前时间除以每段时长
+		 */
+		private final AtomicLong epoch = new AtomicLong(Long.MIN_VALUE);
+
+		private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKETS);
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder sum = new LongAdder();
+
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void reset() {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts.set(i, 0);
+			}
+			count.reset();
+			sum.reset();
+			max.reset();
+		}
+	}
+}
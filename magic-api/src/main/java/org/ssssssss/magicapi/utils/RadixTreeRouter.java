@@ -0,0 +1,476 @@
+package org.ssssssss.magicapi.utils;
+
+import java.util.*;
+
+/**
+ * 基于压缩前缀树（radix tree）的路由表
+ * <p>
+ * 按请求方法分别建树，静态部分按公共前缀压缩。路径变量只支持占用整段的 {name} 形式，
+ * 通配符只支持占用整段的 * 以及末尾的 /**。匹配时静态路径优先，其次为路径变量及 *，最后为 /**，
+ * 与 Spring MVC 的优先级一致；HEAD 请求没有对应路由时按 GET 查找。
+ * 修改时复制变更路径上的节点后整体替换根节点，查找时无锁。
+ *
+ * @author mxd
+ */
+public class RadixTreeRouter<T> {
+
+	private volatile Map<String, Node<T>> trees = Collections.emptyMap();
+
+	private static final String HEAD = "HEAD";
+
+	private static final String GET = "GET";
+
+	/**
+	 * 判断路径模板是否可由路由表处理（不含 ?、正则变量、非整段变量及非整段或不在末尾的通配符）
+	 */
+	public static boolean supports(String pattern) {
+		if (pattern == null || !pattern.startsWith("/") || pattern.indexOf('?') > -1) {
+			return false;
+		}
+		try {
+			parse(pattern);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 注册路由
+	 *
+	 * @return 与之冲突（路径结构相同）的已注册路由值，无冲突时返回 null 并完成注册
+	 */
+	public synchronized T register(String method, String pattern, T value) {
+		Template template = parse(pattern);
+		Node<T> root = trees.get(method);
+		Route<T> exists = root == null ? null : find(root, template, template.tokens, 0);
+		if (exists != null) {
+			return exists.value;
+		}
+		Node<T> newRoot = insert(root == null ? new Node<>("", false, null, null, null, null) : root, template, 0, new Route<>(value, pattern, template.names));
+		Map<String, Node<T>> newTrees = new HashMap<>(trees);
+		newTrees.put(method, newRoot);
+		trees = newTrees;
+		return null;
+	}
+
+	/**
+	 * 移除路由
+	 */
+	public synchronized boolean unregister(String method, String pattern) {
+		Node<T> root = trees.get(method);
+		if (root == null) {
+			return false;
+		}
+		Template template = parse(pattern);
+		if (find(root, template, template.tokens, 0) == null) {
+			return false;
+		}
+		Node<T> newRoot = remove(root, template, template.tokens, 0);
+		Map<String, Node<T>> newTrees = new HashMap<>(trees);
+		if (newRoot == null) {
+			newTrees.remove(method);
+		} else {
+			newTrees.put(method, newRoot);
+		}
+		trees = newTrees;
+		return true;
+	}
+
+	public synchronized void clear() {
+		trees = Collections.emptyMap();
+	}
+
+	/**
+	 * 查找路由
+	 *
+	 * @param method 请求方法
+	 * @param path   请求路径
+	 * @return 未找到时返回 null
+	 */
+	public Match<T> match(String method, String path) {
+		Match<T> match = match(trees.get(method), path);
+		if (match == null && HEAD.equals(method)) {
+			// 与 Spring MVC 一致，HEAD 请求可由 GET 接口处理
+			match = match(trees.get(GET), path);
+		}
+		return match;
+	}
+
+	private static <T> Match<T> match(Node<T> root, String path) {
+		if (root == null || path == null) {
+			return null;
+		}
+		List<String> values = new ArrayList<>(4);
+		Route<T> route = match(root, path, 0, values, false);
+		if (route == null && path.length() > 1 && path.charAt(path.length() - 1) == '/') {
+			// 兼容末尾带 / 的请求
+			values.clear();
+			route = match(root, path.substring(0, path.length() - 1), 0, values, false);
+		}
+		if (route == null) {
+			// 其它路由均不匹配时才使用 /** 路由
+			values.clear();
+			route = match(root, path, 0, values, true);
+		}
+		if (route == null) {
+			return null;
+		}
+		Map<String, String> variables;
+		if (route.names.length == 0) {
+			variables = Collections.emptyMap();
+		} else {
+			variables = new LinkedHashMap<>(route.names.length * 2);
+			for (int i = 0; i < route.names.length; i++) {
+				// 通配符 * 没有名称
+				if (route.names[i] != null) {
+					variables.put(route.names[i], values.get(i));
+				}
+			}
+		}
+		return new Match<>(route.value, route.pattern, variables);
+	}
+
+	/**
+	 * @param catchAll 是否匹配 /** 路由
+	 */
+	private static <T> Route<T> match(Node<T> node, String path, int pos, List<String> values, boolean catchAll) {
+		int length = path.length();
+		if (pos == length) {
+			return catchAll ? node.catchAll : node.route;
+		}
+		// 静态节点优先
+		Node<T> child = node.staticChild(path.charAt(pos));
+		if (child != null && path.startsWith(child.label, pos)) {
+			Route<T> route = match(child, path, pos + child.label.length(), values, catchAll);
+			if (route != null) {
+				return route;
+			}
+		}
+		if (node.paramChild != null) {
+			int end = path.indexOf('/', pos);
+			if (end < 0) {
+				end = length;
+			}
+			if (end > pos) {
+				values.add(path.substring(pos, end));
+				Route<T> route = match(node.paramChild, path, end, values, catchAll);
+				if (route != null) {
+					return route;
+				}
+				values.remove(values.size() - 1);
+			}
+		}
+		// /** 匹配剩余的任意路径
+		return catchAll && path.charAt(pos) == '/' ? node.catchAll : null;
+	}
+
+	private static <T> Route<T> find(Node<T> node, Template template, List<String> tokens, int index) {
+		if (index == tokens.size()) {
+			return template.catchAll ? node.catchAll : node.route;
+		}
+		String token = tokens.get(index);
+		if (token == null) {
+			return node.paramChild == null ? null : find(node.paramChild, template, tokens, index + 1);
+		}
+		Node<T> child = node.staticChild(token.charAt(0));
+		if (child == null || !token.startsWith(child.label)) {
+			return null;
+		}
+		if (token.length() == child.label.length()) {
+			return find(child, template, tokens, index + 1);
+		}
+		return find(child, template, replace(tokens, index, token.substring(child.label.length())), index);
+	}
+
+	private static <T> Node<T> insert(Node<T> node, Template template, int index, Route<T> route) {
+		return insert(node, template, template.tokens, index, route);
+	}
+
+	private static <T> Node<T> insert(Node<T> node, Template template, List<String> tokens, int index, Route<T> route) {
+		if (index == tokens.size()) {
+			return template.catchAll ? node.withCatchAll(route) : node.withRoute(route);
+		}
+		String token = tokens.get(index);
+		if (token == null) {
+			Node<T> param = node.paramChild == null ? new Node<T>("", true, null, null, null, null) : node.paramChild;
+			return node.withParamChild(insert(param, template, tokens, index + 1, route));
+		}
+		Node<T> child = node.staticChild(token.charAt(0));
+		if (child == null) {
+			return node.withStaticChild(insert(new Node<T>(token, false, null, null, null, null), template, tokens, index + 1, route));
+		}
+		int common = commonPrefix(child.label, token);
+		if (common < child.label.length()) {
+			// 拆分已有节点
+			Node<T> tail = new Node<>(child.label.substring(common), false, child.statics, child.paramChild, child.route, child.catchAll);
+			child = new Node<T>(child.label.substring(0, common), false, null, null, null, null).withStaticChild(tail);
+		}
+		if (common == token.length()) {
+			return node.withStaticChild(insert(child, template, tokens, index + 1, route));
+		}
+		return node.withStaticChild(insert(child, template, replace(tokens, index, token.substring(common)), index, route));
+	}
+
+	private static <T> Node<T> remove(Node<T> node, Template template, List<String> tokens, int index) {
+		Node<T> result;
+		if (index == tokens.size()) {
+			result = template.catchAll ? node.withCatchAll(null) : node.withRoute(null);
+		} else {
+			String token = tokens.get(index);
+			if (token == null) {
+				result = node.withParamChild(remove(node.paramChild, template, tokens, index + 1));
+			} else {
+				Node<T> child = node.staticChild(token.charAt(0));
+				Node<T> newChild = token.length() == child.label.length()
+						? remove(child, template, tokens, index + 1)
+						: remove(child, template, replace(tokens, index, token.substring(child.label.length())), index);
+				result = newChild == null ? node.withoutStaticChild(child.label.charAt(0)) : node.withStaticChild(newChild);
+			}
+		}
+		return result.compact();
+	}
+
+	private static List<String> replace(List<String> tokens, int index, String token) {
+		List<String> copy = new ArrayList<>(tokens);
+		copy.set(index, token);
+		return copy;
+	}
+
+	private static int commonPrefix(String a, String b) {
+		int max = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < max && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * 将路径模板拆分为静态文本与变量，变量及通配符 * 在 tokens 中以 null 表示，末尾的 /** 单独记录
+	 */
+	private static Template parse(String pattern) {
+		List<String> tokens = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		boolean catchAll = pattern.endsWith("/**");
+		int length = catchAll ? pattern.length() - 3 : pattern.length();
+		int i = 0;
+		while (i < length) {
+			char c = pattern.charAt(i);
+			if (c == '*') {
+				if (pattern.charAt(i - 1) != '/' || (i + 1 < length && pattern.charAt(i + 1) != '/')) {
+					throw new IllegalArgumentException("unsupported wildcard: " + pattern);
+				}
+				tokens.add(text.toString());
+				text.setLength(0);
+				tokens.add(null);
+				names.add(null);
+				i++;
+			} else if (c == '{') {
+				int end = pattern.indexOf('}', i);
+				if (end < 0 || i == 0 || pattern.charAt(i - 1) != '/' || (end + 1 < length && pattern.charAt(end + 1) != '/')) {
+					throw new IllegalArgumentException("unsupported path variable: " + pattern);
+				}
+				String name = pattern.substring(i + 1, end);
+				if (name.isEmpty() || name.indexOf(':') > -1 || name.indexOf('{') > -1) {
+					throw new IllegalArgumentException("unsupported path variable: " + pattern);
+				}
+				tokens.add(text.toString());
+				text.setLength(0);
+				tokens.add(null);
+				names.add(name);
+				i = end + 1;
+			} else if (c == '}') {
+				throw new IllegalArgumentException("unsupported path variable: " + pattern);
+			} else {
+				text.append(c);
+				i++;
+			}
+		}
+		if (text.length() > 0) {
+			tokens.add(text.toString());
+		}
+		tokens.removeIf(it -> it != null && it.isEmpty());
+		return new Template(tokens, names.toArray(new String[0]), catchAll);
+	}
+
+	private static class Template {
+
+		private final List<String> tokens;
+
+		private final String[] names;
+
+		/**
+		 * 是否以 /** 结尾
+		 */
+		private final boolean catchAll;
+
+		Template(List<String> tokens, String[] names, boolean catchAll) {
+			this.tokens = tokens;
+			this.names = names;
+			this.catchAll = catchAll;
+		}
+	}
+
+	private static class Route<T> {
+
+		private final T value;
+
+		private final String pattern;
+
+		private final String[] names;
+
+		Route(T value, String pattern, String[] names) {
+			this.value = value;
+			this.pattern = pattern;
+			this.names = names;
+		}
+	}
+
+	/**
+	 * 树节点，创建后不再修改
+	 */
+	private static class Node<T> {
+
+		private final String label;
+
+		private final boolean param;
+
+		/**
+		 * 静态子节点，按首字符排序
+		 */
+		private final Node<T>[] statics;
+
+		private final Node<T> paramChild;
+
+		private final Route<T> route;
+
+		/**
+		 * 以当前节点为前缀、以 /** 结尾的路由
+		 */
+		private final Route<T> catchAll;
+
+		@SuppressWarnings("unchecked")
+		Node(String label, boolean param, Node<T>[] statics, Node<T> paramChild, Route<T> route, Route<T> catchAll) {
+			this.label = label;
+			this.param = param;
+			this.statics = statics == null ? new Node[0] : statics;
+			this.paramChild = paramChild;
+			this.route = route;
+			this.catchAll = catchAll;
+		}
+
+		Node<T> staticChild(char c) {
+			int index = indexOf(c);
+			return index < 0 ? null : statics[index];
+		}
+
+		private int indexOf(char c) {
+			int low = 0;
+			int high = statics.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				char value = statics[mid].label.charAt(0);
+				if (value < c) {
+					low = mid + 1;
+				} else if (value > c) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		Node<T> withRoute(Route<T> route) {
+			return new Node<>(label, param, statics, paramChild, route, catchAll);
+		}
+
+		Node<T> withCatchAll(Route<T> catchAll) {
+			return new Node<>(label, param, statics, paramChild, route, catchAll);
+		}
+
+		Node<T> withParamChild(Node<T> paramChild) {
+			return new Node<>(label, param, statics, paramChild, route, catchAll);
+		}
+
+		@SuppressWarnings("unchecked")
+		Node<T> withStaticChild(Node<T> child) {
+			int index = indexOf(child.label.charAt(0));
+			Node<T>[] children;
+			if (index >= 0) {
+				children = statics.clone();
+				children[index] = child;
+			} else {
+				index = -(index + 1);
+				children = new Node[statics.length + 1];
+				System.arraycopy(statics, 0, children, 0, index);
+				children[index] = child;
+				System.arraycopy(statics, index, children, index + 1, statics.length - index);
+			}
+			return new Node<>(label, param, children, paramChild, route, catchAll);
+		}
+
+		@SuppressWarnings("unchecked")
+		Node<T> withoutStaticChild(char c) {
+			int index = indexOf(c);
+			if (index < 0) {
+				return this;
+			}
+			Node<T>[] children = new Node[statics.length - 1];
+			System.arraycopy(statics, 0, children, 0, index);
+			System.arraycopy(statics, index + 1, children, index, statics.length - index - 1);
+			return new Node<>(label, param, children, paramChild, route, catchAll);
+		}
+
+		/**
+		 * 删除后整理节点：空节点移除，只剩单个静态子节点的静态节点与子节点合并
+		 */
+		Node<T> compact() {
+			if (route == null && catchAll == null && paramChild == null) {
+				if (statics.length == 0) {
+					return label.isEmpty() && !param ? this : null;
+				}
+				if (statics.length == 1 && !param && !label.isEmpty()) {
+					Node<T> child = statics[0];
+					return new Node<>(label + child.label, false, child.statics, child.paramChild, child.route, child.catchAll);
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * 路由匹配结果
+	 */
+	public static class Match<T> {
+
+		private final T value;
+
+		private final String pattern;
+
+		private final Map<String, String> variables;
+
+		Match(T value, String pattern, Map<String, String> variables) {
+			this.value = value;
+			this.pattern = pattern;
+			this.variables = variables;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		/**
+		 * 注册时的路径模板
+		 */
+		public String getPattern() {
+			return pattern;
+		}
+
+		public Map<String, String> getVariables() {
+			return variables;
+		}
+	}
+}
@@ -25,6 +25,13 @@ public class ScriptManager {
 		return magicScript.execute(context);
 	}
 
+	/**
+	 * 创建表达式脚本，可重复执行
+	 */
+	public static MagicScript createExpression(String expression) {
+		return MagicScript.create(EXPRESSION_PREFIX + expression, null);
+	}
+
 	/**
 	 * 执行脚本
 	 */
@@ -38,4 +45,11 @@ public class ScriptManager {
 	public static Object executeExpression(String script, Map<String, Object> paramMap) {
 		return executeExpression(script, new MagicScriptContext(paramMap));
 	}
+
+	/**
+	 * 执行已创建的表达式脚本
+	 */
+	public static Object executeExpression(MagicScript expression, Map<String, Object> paramMap) {
+		return expression.execute(new MagicScriptContext(paramMap));
+	}
 }
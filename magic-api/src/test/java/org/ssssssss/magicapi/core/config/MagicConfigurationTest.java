@@ -0,0 +1,46 @@
+package org.ssssssss.magicapi.core.config;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MagicConfigurationTest {
+
+	@Test
+	public void createAsyncExecutorOnFirstUse() {
+		MagicConfiguration configuration = new MagicConfiguration();
+		AtomicInteger created = new AtomicInteger();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			configuration.setAsyncExecutorSupplier(() -> {
+				created.incrementAndGet();
+				return executor;
+			});
+			// 设置时不创建线程池
+			assertEquals(0, created.get());
+			assertSame(executor, configuration.getAsyncExecutor());
+			assertEquals(1, created.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void fixedAsyncExecutor() {
+		MagicConfiguration configuration = new MagicConfiguration();
+		assertNull(configuration.getAsyncExecutor());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			configuration.setAsyncExecutor(executor);
+			assertSame(executor, configuration.getAsyncExecutor());
+			configuration.setAsyncExecutor(null);
+			assertNull(configuration.getAsyncExecutor());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package org.ssssssss.magicapi.core.context;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.servlet.MagicCookie;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CookieContextTest {
+
+	private final AtomicInteger parsed = new AtomicInteger();
+
+	@Test
+	public void parseOnFirstRead() {
+		CookieContext context = new CookieContext(request(cookie("JSESSIONID", "1"), cookie("token", "abc")));
+		assertEquals(0, parsed.get());
+		assertEquals("abc", context.get("TOKEN"));
+		assertEquals("1", context.get("JSESSIONID"));
+		assertNull(context.get("other"));
+		assertEquals(1, parsed.get());
+	}
+
+	@Test
+	public void noCookies() {
+		CookieContext context = new CookieContext(request((MagicCookie[]) null));
+		assertNull(context.get("token"));
+	}
+
+	private MagicHttpServletRequest request(MagicCookie... cookies) {
+		return (MagicHttpServletRequest) Proxy.newProxyInstance(MagicHttpServletRequest.class.getClassLoader(),
+				new Class[]{MagicHttpServletRequest.class}, (proxy, method, args) -> {
+					if ("getCookies".equals(method.getName())) {
+						parsed.incrementAndGet();
+						return cookies;
+					}
+					return null;
+				});
+	}
+
+	private static MagicCookie cookie(String name, String value) {
+		return (MagicCookie) Proxy.newProxyInstance(MagicCookie.class.getClassLoader(),
+				new Class[]{MagicCookie.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getName":
+							return name;
+						case "getValue":
+							return value;
+						default:
+							return null;
+					}
+				});
+	}
+}
@@ -0,0 +1,58 @@
+package org.ssssssss.magicapi.core.context;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HeaderContextTest {
+
+	private final List<String> calls = new ArrayList<>();
+
+	@Test
+	public void readSingleHeader() {
+		HeaderContext context = new HeaderContext(request());
+		assertEquals("Bearer 1", context.get("authorization"));
+		assertTrue(context.containsKey("X-Tenant"));
+		assertFalse(context.containsKey("X-Other"));
+		assertNull(context.get(null));
+		// 按名称读取时不复制全部 header
+		assertFalse(calls.contains("getHeaderNames"));
+	}
+
+	@Test
+	public void copyOnIterateOrModify() {
+		HeaderContext context = new HeaderContext(request());
+		assertEquals(2, context.size());
+		assertTrue(calls.contains("getHeaderNames"));
+		assertEquals(new HashSet<>(Arrays.asList("Authorization", "X-Tenant")), context.keySet());
+		context.put("x-tenant", "2");
+		assertEquals("2", context.get("X-TENANT"));
+		context.remove("AUTHORIZATION");
+		assertNull(context.get("Authorization"));
+		assertFalse(context.containsKey("Authorization"));
+		context.clear();
+		assertTrue(context.isEmpty());
+	}
+
+	private MagicHttpServletRequest request() {
+		Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		headers.put("Authorization", "Bearer 1");
+		headers.put("X-Tenant", "1");
+		return (MagicHttpServletRequest) Proxy.newProxyInstance(MagicHttpServletRequest.class.getClassLoader(),
+				new Class[]{MagicHttpServletRequest.class}, (proxy, method, args) -> {
+					calls.add(method.getName());
+					switch (method.getName()) {
+						case "getHeader":
+							return headers.get((String) args[0]);
+						case "getHeaderNames":
+							return Collections.enumeration(headers.keySet());
+						default:
+							return null;
+					}
+				});
+	}
+}
@@ -0,0 +1,56 @@
+package org.ssssssss.magicapi.core.context;
+
+import org.junit.Test;
+import org.ssssssss.script.MagicScriptContext;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LazyBindingScriptContextTest {
+
+	@Test
+	public void resolveOnFirstAccess() {
+		AtomicInteger calls = new AtomicInteger();
+		LazyBindingScriptContext context = new LazyBindingScriptContext();
+		context.bind("body", () -> {
+			calls.incrementAndGet();
+			return "data";
+		});
+		assertEquals(0, calls.get());
+		assertEquals("data", context.get("body"));
+		assertEquals("data", context.get("body"));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void setOverridesBinding() {
+		AtomicInteger calls = new AtomicInteger();
+		LazyBindingScriptContext context = new LazyBindingScriptContext();
+		context.bind("body", calls::incrementAndGet);
+		context.set("body", "value");
+		assertEquals("value", context.get("body"));
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	public void resolveAllForRootVariables() {
+		LazyBindingScriptContext context = new LazyBindingScriptContext();
+		context.bind("header", () -> "h");
+		context.bind("session", () -> null);
+		assertEquals("h", context.getRootVariables().get("header"));
+		assertFalse(context.getRootVariables().containsKey("session"));
+	}
+
+	@Test
+	public void bindEagerlyOnPlainContext() {
+		AtomicInteger calls = new AtomicInteger();
+		MagicScriptContext context = new MagicScriptContext();
+		LazyBindingScriptContext.bind(context, "cookie", () -> {
+			calls.incrementAndGet();
+			return "c";
+		});
+		assertEquals(1, calls.get());
+		assertEquals("c", context.get("cookie"));
+	}
+}
@@ -0,0 +1,63 @@
+package org.ssssssss.magicapi.core.context;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
+import org.ssssssss.magicapi.core.servlet.MagicHttpSession;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SessionContextTest {
+
+	private final Map<String, Object> attributes = new HashMap<>();
+
+	private MagicHttpSession session;
+
+	@Test
+	public void readWithoutCreatingSession() {
+		SessionContext context = new SessionContext(request());
+		assertNull(context.get("user"));
+		assertNull(session);
+	}
+
+	@Test
+	public void createSessionOnWrite() {
+		SessionContext context = new SessionContext(request());
+		assertNull(context.put("user", "1"));
+		assertNotNull(session);
+		assertEquals("1", context.get("user"));
+		assertEquals("1", context.put("user", "2"));
+		assertEquals("2", attributes.get("user"));
+	}
+
+	private MagicHttpServletRequest request() {
+		return (MagicHttpServletRequest) Proxy.newProxyInstance(MagicHttpServletRequest.class.getClassLoader(),
+				new Class[]{MagicHttpServletRequest.class}, (proxy, method, args) -> {
+					if ("getSession".equals(method.getName())) {
+						if (session == null && (args == null || (Boolean) args[0])) {
+							session = session();
+						}
+						return session;
+					}
+					return null;
+				});
+	}
+
+	private MagicHttpSession session() {
+		return (MagicHttpSession) Proxy.newProxyInstance(MagicHttpSession.class.getClassLoader(),
+				new Class[]{MagicHttpSession.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getAttribute":
+							return attributes.get((String) args[0]);
+						case "setAttribute":
+							attributes.put((String) args[0], args[1]);
+							return null;
+						default:
+							return null;
+					}
+				});
+	}
+}
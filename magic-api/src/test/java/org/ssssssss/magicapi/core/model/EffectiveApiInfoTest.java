@@ -0,0 +1,83 @@
+package org.ssssssss.magicapi.core.model;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.service.MagicResourceService;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EffectiveApiInfoTest {
+
+	@Test
+	public void optionPrecedence() {
+		ApiInfo info = api();
+		info.setOption(Arrays.asList(new Option("cache_ttl", "1000"), new Option(null, "ignored")));
+		Group parent = group(Collections.singletonList(new Path("tenant", "1")), new Option("cache_ttl", "3000"), new Option("require_login", "true"), new Option("wrap_request_parameter", "data"));
+		Group child = group(Collections.emptyList(), new Option("cache_ttl", "2000"), new Option("require_login", "false"));
+		// 由近及远
+		EffectiveApiInfo effective = EffectiveApiInfo.resolve(info, resourceService(Arrays.asList(child, parent)));
+		assertSame(info, effective.getApiInfo());
+		assertEquals("1000", effective.getOptionValue(Options.CACHE_TTL));
+		assertEquals("false", effective.getOptionValue("require_login"));
+		assertEquals("data", effective.getOptionValue("wrap_request_parameter"));
+		assertNull(effective.getOptionValue("other"));
+		assertEquals(3, effective.getOptions().size());
+		assertEquals("/user/list.ms", effective.getScriptName());
+	}
+
+	@Test
+	public void mergePaths() {
+		ApiInfo info = api();
+		Path id = new Path("id", "1");
+		info.setPaths(Collections.singletonList(id));
+		Group child = group(Arrays.asList(new Path("id", "1"), new Path("tenant", "1")));
+		Group parent = group(Collections.singletonList(new Path("tenant", "1")));
+		EffectiveApiInfo effective = EffectiveApiInfo.resolve(info, resourceService(Arrays.asList(child, parent)));
+		assertEquals(Arrays.asList(id, new Path("tenant", "1")), effective.getPaths());
+		// 合并结果不可修改，接口自身的路径变量不受影响
+		try {
+			effective.getPaths().add(new Path("other", "1"));
+			fail();
+		} catch (UnsupportedOperationException ignored) {
+		}
+		assertEquals(1, info.getPaths().size());
+	}
+
+	@Test
+	public void noGroups() {
+		ApiInfo info = api();
+		EffectiveApiInfo effective = EffectiveApiInfo.resolve(info, resourceService(Collections.emptyList()));
+		assertTrue(effective.getOptions().isEmpty());
+		assertTrue(effective.getPaths().isEmpty());
+	}
+
+	private static ApiInfo api() {
+		ApiInfo info = new ApiInfo();
+		info.setId("1");
+		info.setOption(new ArrayList<>());
+		info.setPaths(new ArrayList<>());
+		return info;
+	}
+
+	private static Group group(List<Path> paths, Option... options) {
+		Group group = new Group();
+		group.setPaths(paths);
+		group.setOptions(new ArrayList<>(Arrays.asList(options)));
+		return group;
+	}
+
+	private static MagicResourceService resourceService(List<Group> groups) {
+		return (MagicResourceService) Proxy.newProxyInstance(MagicResourceService.class.getClassLoader(), new Class[]{MagicResourceService.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getGroupsByFileId":
+					return groups;
+				case "getScriptName":
+					return "/user/list.ms";
+				default:
+					return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,70 @@
+package org.ssssssss.magicapi.core.service.impl;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.model.ApiInfo;
+import org.ssssssss.script.MagicScript;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ApiScriptCacheTest {
+
+	private final ApiScriptCache cache = new ApiScriptCache();
+
+	@Test
+	public void reuseCompiledScript() {
+		ApiInfo info = api("1", "return 1");
+		MagicScript script = cache.get(info, false);
+		assertSame(script, cache.get(info, false));
+		// 内容相同的新对象（如重新加载接口）也命中缓存
+		assertSame(script, cache.get(api("1", new String("return 1")), false));
+		Map<String, Object> stats = cache.stats();
+		assertEquals(1, stats.get("size"));
+		assertEquals(2L, stats.get("hits"));
+		assertEquals(1L, stats.get("misses"));
+	}
+
+	@Test
+	public void separateDebugScript() {
+		ApiInfo info = api("1", "return 1");
+		MagicScript normal = cache.get(info, false);
+		MagicScript debug = cache.get(info, true);
+		assertNotSame(normal, debug);
+		assertSame(debug, cache.get(info, true));
+		assertSame(normal, cache.get(info, false));
+	}
+
+	@Test
+	public void rebuildWhenScriptChanged() {
+		ApiInfo info = api("1", "return 1");
+		MagicScript script = cache.get(info, false);
+		info.setScript("return 2");
+		MagicScript changed = cache.get(info, false);
+		assertNotSame(script, changed);
+		assertSame(changed, cache.get(info, false));
+		assertEquals(1, cache.stats().get("size"));
+	}
+
+	@Test
+	public void invalidate() {
+		ApiInfo info = api("1", "return 1");
+		MagicScript script = cache.get(info, false);
+		cache.get(api("2", "return 2"), false);
+		cache.invalidate("1");
+		cache.invalidate("1");
+		cache.invalidate(null);
+		assertEquals(1L, cache.stats().get("evictions"));
+		assertNotSame(script, cache.get(info, false));
+		cache.clear();
+		assertEquals(0, cache.stats().get("size"));
+		assertEquals(3L, cache.stats().get("evictions"));
+	}
+
+	private static ApiInfo api(String id, String script) {
+		ApiInfo info = new ApiInfo();
+		info.setId(id);
+		info.setScript(script);
+		return info;
+	}
+}
@@ -0,0 +1,150 @@
+package org.ssssssss.magicapi.core.service.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class RequestCoalescerTest {
+
+	@Test
+	public void executeOnceForConcurrentRequests() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		Call leader = new Call(coalescer, "key", 0, 0, () -> {
+			calls.incrementAndGet();
+			release.await();
+			return "result";
+		});
+		waitUntil(() -> calls.get() == 1);
+		Call[] followers = new Call[7];
+		for (int i = 0; i < followers.length; i++) {
+			followers[i] = new Call(coalescer, "key", 0, 0, () -> {
+				calls.incrementAndGet();
+				return "other";
+			});
+		}
+		for (Call follower : followers) {
+			follower.awaitBlocked();
+		}
+		release.countDown();
+		assertEquals("result", leader.join());
+		for (Call follower : followers) {
+			assertEquals("result", follower.join());
+		}
+		assertEquals(1, calls.get());
+		assertEquals(1L, coalescer.stats().get("executions"));
+		assertEquals((long) followers.length, coalescer.stats().get("coalesced"));
+		assertEquals(0, coalescer.stats().get("inFlight"));
+	}
+
+	@Test
+	public void propagateExceptionToWaiters() throws Throwable {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Call leader = new Call(coalescer, "key", 0, 0, () -> {
+			started.countDown();
+			release.await();
+			throw new IllegalStateException("failed");
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Call follower = new Call(coalescer, "key", 0, 0, () -> "other");
+		follower.awaitBlocked();
+		release.countDown();
+		assertTrue(leader.join() instanceof IllegalStateException);
+		assertTrue(follower.join() instanceof IllegalStateException);
+		// 出错后不再合并
+		assertEquals("next", coalescer.execute("key", 0, 0, () -> "next"));
+	}
+
+	@Test
+	public void overflowExecutesAlone() throws Throwable {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Call leader = new Call(coalescer, "key", 1, 0, () -> {
+			started.countDown();
+			release.await();
+			return "leader";
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Call waiter = new Call(coalescer, "key", 1, 0, () -> "waiter");
+		waiter.awaitBlocked();
+		// 唯一的等待位置已被占用
+		assertEquals("overflow", coalescer.execute("key", 1, 0, () -> "overflow"));
+		release.countDown();
+		assertEquals("leader", leader.join());
+		assertEquals("leader", waiter.join());
+		assertEquals(1L, coalescer.stats().get("overflows"));
+		assertEquals(1L, coalescer.stats().get("coalesced"));
+	}
+
+	@Test
+	public void timeoutExecutesAlone() throws Throwable {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Call leader = new Call(coalescer, "key", 0, 0, () -> {
+			started.countDown();
+			release.await();
+			return "leader";
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertEquals("alone", coalescer.execute("key", 0, 50, () -> "alone"));
+		assertEquals(1L, coalescer.stats().get("timeouts"));
+		release.countDown();
+		assertEquals("leader", leader.join());
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("等待超时");
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * 在单独的线程中执行，结果为返回值或抛出的异常
+	 */
+	private static class Call {
+
+		private final Thread thread;
+
+		private volatile Object result;
+
+		Call(RequestCoalescer coalescer, String key, int maxWaiters, long timeout, Callable<Object> callable) {
+			this.thread = new Thread(() -> {
+				try {
+					result = coalescer.execute(key, maxWaiters, timeout, callable);
+				} catch (Throwable e) {
+					result = e;
+				}
+			});
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		/**
+		 * 等待线程阻塞在执行结果上
+		 */
+		void awaitBlocked() throws InterruptedException {
+			waitUntil(() -> thread.getState() == Thread.State.WAITING);
+		}
+
+		Object join() throws InterruptedException {
+			thread.join(5000);
+			assertFalse("执行超时", thread.isAlive());
+			return result;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package org.ssssssss.magicapi.core.web;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.model.ApiInfo;
+import org.ssssssss.magicapi.core.model.EffectiveApiInfo;
+import org.ssssssss.magicapi.core.model.Option;
+import org.ssssssss.magicapi.core.model.Options;
+import org.ssssssss.magicapi.core.service.MagicResourceService;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletRequest;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ResponseCachePolicyTest {
+
+	@Test
+	public void keyByIdentity() {
+		ResponseCachePolicy policy = policy();
+		Map<String, Object> parameters = Collections.singletonMap("id", 1);
+		String user1 = policy.buildKey(request("Authorization", "Bearer 1"), parameters);
+		String user2 = policy.buildKey(request("Authorization", "Bearer 2"), parameters);
+		assertNotEquals(user1, user2);
+		assertEquals(user1, policy.buildKey(request("authorization", "Bearer 1"), parameters));
+		assertNotEquals(policy.buildKey(request("Cookie", "JSESSIONID=1"), parameters), policy.buildKey(request("Cookie", "JSESSIONID=2"), parameters));
+		assertNotEquals(policy.buildKey(request("X-Token", "1"), parameters), policy.buildKey(request("X-Token", "2"), parameters));
+		// 缓存key已区分用户身份
+		assertEquals(user1, policy.buildCoalesceKey(request("Authorization", "Bearer 1"), user1));
+	}
+
+	@Test
+	public void sharedIgnoresIdentity() {
+		ResponseCachePolicy policy = policy(new Option(Options.CACHE_SHARED.getValue(), "true"));
+		Map<String, Object> parameters = Collections.singletonMap("id", 1);
+		String user1 = policy.buildKey(request("Authorization", "Bearer 1"), parameters);
+		assertEquals(user1, policy.buildKey(request("Authorization", "Bearer 2"), parameters));
+		// 合并请求仍按用户身份区分
+		assertNotEquals(policy.buildCoalesceKey(request("Authorization", "Bearer 1"), user1),
+				policy.buildCoalesceKey(request("Authorization", "Bearer 2"), user1));
+	}
+
+	@Test
+	public void keyByParametersAndHeaders() {
+		ResponseCachePolicy policy = policy(new Option(Options.CACHE_KEY_PARAMETERS.getValue(), "id"),
+				new Option(Options.CACHE_VARY_HEADERS.getValue(), "X-Tenant"));
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("id", 1);
+		parameters.put("_t", 1);
+		String key = policy.buildKey(request("X-Tenant", "a"), parameters);
+		parameters.put("_t", 2);
+		assertEquals(key, policy.buildKey(request("X-Tenant", "a"), parameters));
+		assertNotEquals(key, policy.buildKey(request("X-Tenant", "b"), parameters));
+	}
+
+	private static ResponseCachePolicy policy(Option... options) {
+		ApiInfo info = new ApiInfo();
+		List<Option> list = new ArrayList<>(Arrays.asList(options));
+		list.add(new Option(Options.CACHE_TTL.getValue(), "1000"));
+		info.setOption(list);
+		MagicResourceService resourceService = (MagicResourceService) Proxy.newProxyInstance(MagicResourceService.class.getClassLoader(),
+				new Class[]{MagicResourceService.class}, (proxy, method, args) -> "getGroupsByFileId".equals(method.getName()) ? Collections.emptyList() : null);
+		ResponseCachePolicy policy = ResponseCachePolicy.resolve(EffectiveApiInfo.resolve(info, resourceService));
+		assertTrue(policy.isEnabled());
+		return policy;
+	}
+
+	private static MagicHttpServletRequest request(String header, String value) {
+		Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		headers.put(header, value);
+		return (MagicHttpServletRequest) Proxy.newProxyInstance(MagicHttpServletRequest.class.getClassLoader(),
+				new Class[]{MagicHttpServletRequest.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getMethod":
+							return "GET";
+						case "getRequestURI":
+							return "/api/user";
+						case "getHeader":
+							return headers.get((String) args[0]);
+						case "getHeaderNames":
+							return Collections.enumeration(headers.keySet());
+						default:
+							return null;
+					}
+				});
+	}
+}
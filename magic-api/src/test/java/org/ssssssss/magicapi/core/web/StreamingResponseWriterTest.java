@@ -0,0 +1,122 @@
+package org.ssssssss.magicapi.core.web;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ssssssss.magicapi.core.config.MagicConfiguration;
+import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.core.model.StreamingResult;
+import org.ssssssss.magicapi.core.servlet.MagicCookie;
+import org.ssssssss.magicapi.core.servlet.MagicHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StreamingResponseWriterTest {
+
+	private RecordingResponse response;
+
+	private RequestEntity requestEntity;
+
+	private StreamingResponseWriter writer;
+
+	@Before
+	public void setUp() {
+		response = new RecordingResponse();
+		requestEntity = RequestEntity.create().response(response);
+		writer = new StreamingResponseWriter(null, new MagicConfiguration());
+	}
+
+	@Test
+	public void csv() throws Exception {
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("id", 1);
+		row.put("name", "a,\"b\"");
+		row.put("remark", null);
+		assertNull(writer.write(requestEntity, new StreamingResult(Collections.singletonList(row), StreamingResult.Format.CSV, null)));
+		assertEquals("text/csv;charset=UTF-8", response.contentType);
+		assertEquals("id,name,remark\r\n1,\"a,\"\"b\"\"\",\r\n", response.body());
+		assertFalse(response.headers.containsKey("Content-Disposition"));
+	}
+
+	@Test
+	public void csvFilename() throws Exception {
+		writer.write(requestEntity, new StreamingResult(Collections.emptyList(), StreamingResult.Format.CSV, "用户.csv"));
+		assertEquals("attachment; filename*=UTF-8''%E7%94%A8%E6%88%B7.csv", response.headers.get("Content-Disposition"));
+	}
+
+	@Test
+	public void closeRows() throws Exception {
+		ClosableRows rows = new ClosableRows();
+		writer.write(requestEntity, new StreamingResult(rows, StreamingResult.Format.CSV, null));
+		assertTrue(rows.closed);
+	}
+
+	private static class ClosableRows extends ArrayList<Map<String, Object>> implements AutoCloseable {
+
+		private boolean closed;
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	private static class RecordingResponse implements MagicHttpServletResponse {
+
+		private final Map<String, String> headers = new LinkedHashMap<>();
+
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		private String contentType;
+
+		String body() {
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			headers.put(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			headers.put(name, value);
+		}
+
+		@Override
+		public void sendRedirect(String location) {
+		}
+
+		@Override
+		public void addCookie(MagicCookie cookie) {
+		}
+
+		@Override
+		public void setContentType(String contentType) {
+			this.contentType = contentType;
+		}
+
+		@Override
+		public void setCharacterEncoding(String characterEncoding) {
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return out;
+		}
+
+		@Override
+		public Collection<String> getHeaderNames() {
+			return headers.keySet();
+		}
+
+		@Override
+		public <T> T getResponse() {
+			return null;
+		}
+	}
+}
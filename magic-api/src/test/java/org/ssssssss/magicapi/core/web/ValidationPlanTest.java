@@ -0,0 +1,149 @@
+package org.ssssssss.magicapi.core.web;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.config.JsonCodeConstants;
+import org.ssssssss.magicapi.core.exception.ValidateException;
+import org.ssssssss.magicapi.core.model.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ValidationPlanTest {
+
+	@Test
+	public void convertParameters() {
+		Parameter id = parameter("id", DataType.Integer);
+		id.setRequired(true);
+		Parameter size = parameter("size", DataType.Long);
+		size.setDefaultValue("10");
+		Parameter enabled = parameter("enabled", DataType.Boolean);
+		ValidationPlan plan = plan(Arrays.asList(id, size, enabled, parameter("name", DataType.String)));
+		Map<String, Object> values = new HashMap<>();
+		values.put("id", "1");
+		values.put("enabled", "true");
+		plan.validateParameters(values, false);
+		assertEquals(1, values.get("id"));
+		assertEquals(10L, values.get("size"));
+		assertEquals(true, values.get("enabled"));
+		// 非必填且无值时不处理
+		assertFalse(values.containsKey("name"));
+	}
+
+	@Test
+	public void requiredAndInvalid() {
+		Parameter id = parameter("id", DataType.Integer);
+		id.setRequired(true);
+		ValidationPlan plan = plan(Collections.singletonList(id));
+		assertInvalid(plan, Collections.emptyMap(), "参数[id]为必填项");
+		assertInvalid(plan, Collections.singletonMap("id", "a"), "参数[id]不合法");
+		id.setError("id错误");
+		assertInvalid(plan(Collections.singletonList(id)), Collections.emptyMap(), "id错误");
+	}
+
+	@Test
+	public void pattern() {
+		Parameter phone = parameter("phone", DataType.String);
+		phone.setValidateType("pattern");
+		phone.setExpression("^1\\d{10}$");
+		ValidationPlan plan = plan(Collections.singletonList(phone));
+		plan.validateParameters(new HashMap<>(Collections.singletonMap("phone", "13800000000")), false);
+		assertInvalid(plan, Collections.singletonMap("phone", "123"), "参数[phone]不满足正则表达式");
+		// 正则本身有误时按不合法处理
+		phone.setExpression("[");
+		assertInvalid(plan(Collections.singletonList(phone)), Collections.singletonMap("phone", "1"), "参数[phone]不合法");
+	}
+
+	@Test
+	public void expression() {
+		Parameter age = parameter("age", DataType.Integer);
+		age.setValidateType("expression");
+		age.setExpression("value > 0 && value < max");
+		ValidationPlan plan = plan(Arrays.asList(age, parameter("max", DataType.Integer)));
+		Map<String, Object> values = new HashMap<>();
+		values.put("age", "18");
+		values.put("max", "100");
+		plan.validateParameters(values, false);
+		values.put("age", "200");
+		try {
+			plan.validateParameters(values, false);
+			fail();
+		} catch (ValidateException e) {
+			assertEquals("参数[age]不满足表达式", e.getMessage());
+		}
+	}
+
+	@Test
+	public void disabledUnknownParameter() {
+		ValidationPlan plan = plan(Collections.singletonList(parameter("id", DataType.Integer)));
+		Map<String, Object> values = new HashMap<>();
+		values.put("id", "1");
+		values.put("other", "1");
+		plan.validateParameters(values, true);
+		assertEquals(Collections.singletonMap("id", 1), values);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void requestBody() {
+		BaseDefinition id = definition("id", DataType.Integer);
+		id.setRequired(true);
+		BaseDefinition roles = definition("roles", DataType.Array);
+		roles.setChildren(new ArrayList<>(Collections.singletonList(definition("", DataType.Long))));
+		BaseDefinition root = definition(null, DataType.Object);
+		root.setChildren(new ArrayList<>(Arrays.asList(id, roles)));
+		ApiInfo info = new ApiInfo();
+		info.setRequestBodyDefinition(root);
+		ValidationPlan plan = new ValidationPlan(info, Collections.emptyList(), "/test.ms");
+		assertTrue(plan.hasRequestBody());
+		Map<String, Object> body = new HashMap<>();
+		body.put("id", "1");
+		body.put("roles", new ArrayList<>(Arrays.asList("1", "2")));
+		plan.validateRequestBody(body, false);
+		assertEquals(1, body.get("id"));
+		assertEquals(Arrays.asList(1L, 2L), body.get("roles"));
+		try {
+			plan.validateRequestBody(new HashMap<>(Collections.singletonMap("roles", new ArrayList<>())), false);
+			fail();
+		} catch (ValidateException e) {
+			assertEquals(JsonCodeConstants.BODY_INVALID.getCode(), e.getJsonCode().getCode());
+		}
+		try {
+			plan.validateRequestBody(Collections.singletonList(1), false);
+			fail();
+		} catch (ValidateException e) {
+			assertEquals("body[root]数据类型错误", e.getMessage());
+		}
+		assertFalse(new ValidationPlan(new ApiInfo(), Collections.emptyList(), "/test.ms").hasRequestBody());
+	}
+
+	private static void assertInvalid(ValidationPlan plan, Map<String, Object> values, String message) {
+		try {
+			plan.validateParameters(new HashMap<>(values), false);
+			fail();
+		} catch (ValidateException e) {
+			assertEquals(JsonCodeConstants.PARAMETER_INVALID.getCode(), e.getJsonCode().getCode());
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	private static ValidationPlan plan(List<Parameter> parameters) {
+		ApiInfo info = new ApiInfo();
+		info.setParameters(parameters);
+		return new ValidationPlan(info, Collections.emptyList(), "/test.ms");
+	}
+
+	private static Parameter parameter(String name, DataType dataType) {
+		Parameter parameter = new Parameter();
+		parameter.setName(name);
+		parameter.setDataType(dataType);
+		return parameter;
+	}
+
+	private static BaseDefinition definition(String name, DataType dataType) {
+		BaseDefinition definition = new BaseDefinition();
+		definition.setName(name);
+		definition.setDataType(dataType);
+		return definition;
+	}
+}
@@ -0,0 +1,160 @@
+package org.ssssssss.magicapi.datasource.model;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource.DataSourceNode;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ReplicaSetTest {
+
+	@Test
+	public void roundRobin() {
+		ReplicaSet replicaSet = replicaSet(ReplicaSet.LoadBalance.ROUND_ROBIN, dataSource(), dataSource());
+		List<DataSourceNode> replicas = replicaSet.getReplicas();
+		DataSourceNode first = replicaSet.choose();
+		DataSourceNode second = replicaSet.choose();
+		assertNotSame(first, second);
+		assertSame(first, replicaSet.choose());
+		assertEquals(new HashSet<>(replicas), new HashSet<>(Arrays.asList(first, second)));
+		assertEquals("default:replica1", replicas.get(0).getKey());
+		assertEquals("default:replica2", replicas.get(1).getKey());
+	}
+
+	@Test
+	public void skipUnhealthy() {
+		ReplicaSet replicaSet = replicaSet(ReplicaSet.LoadBalance.ROUND_ROBIN, dataSource(), dataSource());
+		DataSourceNode replica1 = replicaSet.getReplicas().get(0);
+		DataSourceNode replica2 = replicaSet.getReplicas().get(1);
+		replica1.getReplicaDataSource().setHealthy(false);
+		for (int i = 0; i < 4; i++) {
+			assertSame(replica2, replicaSet.choose());
+		}
+		replica2.getReplicaDataSource().setHealthy(false);
+		// 没有可用的从库时使用主库
+		assertNull(replicaSet.choose());
+	}
+
+	@Test
+	public void leastInFlight() throws SQLException {
+		ReplicaSet replicaSet = replicaSet(ReplicaSet.LoadBalance.LEAST_IN_FLIGHT, dataSource(), dataSource());
+		DataSourceNode replica1 = replicaSet.getReplicas().get(0);
+		DataSourceNode replica2 = replicaSet.getReplicas().get(1);
+		Connection connection = replica1.getReplicaDataSource().getConnection();
+		assertEquals(1, replica1.getReplicaDataSource().getInFlight());
+		for (int i = 0; i < 4; i++) {
+			assertSame(replica2, replicaSet.choose());
+		}
+		connection.close();
+		assertEquals(0, replica1.getReplicaDataSource().getInFlight());
+		Set<DataSourceNode> chosen = new HashSet<>();
+		for (int i = 0; i < 4; i++) {
+			chosen.add(replicaSet.choose());
+		}
+		assertEquals(2, chosen.size());
+	}
+
+	@Test
+	public void latency() {
+		ReplicaSet replicaSet = replicaSet(ReplicaSet.LoadBalance.LATENCY, dataSource(), dataSource());
+		replicaSet.getReplicas().get(0).getReplicaDataSource().setHealthy(false);
+		for (int i = 0; i < 4; i++) {
+			assertSame(replicaSet.getReplicas().get(1), replicaSet.choose());
+		}
+		replicaSet.getReplicas().get(1).getReplicaDataSource().setHealthy(false);
+		assertNull(replicaSet.choose());
+	}
+
+	@Test
+	public void markUnhealthyOnConnectionFailureAndRecover() {
+		AtomicBoolean down = new AtomicBoolean(true);
+		ReplicaSet replicaSet = replicaSet(ReplicaSet.LoadBalance.ROUND_ROBIN, dataSource(down));
+		ReplicaDataSource replica = replicaSet.getReplicas().get(0).getReplicaDataSource();
+		try {
+			replica.getConnection();
+			fail();
+		} catch (SQLException e) {
+			assertEquals("08001", e.getSQLState());
+		}
+		assertFalse(replica.isHealthy());
+		assertEquals(0, replica.getInFlight());
+		assertNull(replicaSet.choose());
+		// 健康检查恢复
+		replicaSet.checkHealth(1);
+		assertFalse(replica.isHealthy());
+		down.set(false);
+		replicaSet.checkHealth(1);
+		assertTrue(replica.isHealthy());
+		assertSame(replicaSet.getReplicas().get(0), replicaSet.choose());
+	}
+
+	@Test
+	public void keepHealthyOnTransientFailure() {
+		ReplicaSet replicaSet = replicaSet(ReplicaSet.LoadBalance.ROUND_ROBIN, (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[]{DataSource.class}, (proxy, method, args) -> {
+			if ("getConnection".equals(method.getName())) {
+				throw new SQLTransientConnectionException("Connection is not available, request timed out");
+			}
+			return null;
+		}));
+		ReplicaDataSource replica = replicaSet.getReplicas().get(0).getReplicaDataSource();
+		// 偶发的获取连接超时不会直接摘除，连续失败3次后摘除
+		for (int i = 0; i < 3; i++) {
+			assertTrue(replica.isHealthy());
+			try {
+				replica.getConnection();
+				fail();
+			} catch (SQLException ignored) {
+			}
+		}
+		assertFalse(replica.isHealthy());
+	}
+
+	private static ReplicaSet replicaSet(ReplicaSet.LoadBalance loadBalance, DataSource... replicas) {
+		MagicDynamicDataSource dynamicDataSource = new MagicDynamicDataSource();
+		dynamicDataSource.setReplicaHealthCheck(0, 1);
+		dynamicDataSource.put(null, "", "default", dataSource(), -1, 0, 0, Arrays.asList(replicas), loadBalance);
+		return dynamicDataSource.getDataSource().getReplicaSet();
+	}
+
+	private static DataSource dataSource() {
+		return dataSource(new AtomicBoolean());
+	}
+
+	/**
+	 * @param down 为 true 时获取连接抛出连接级错误
+	 */
+	private static DataSource dataSource(AtomicBoolean down) {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[]{DataSource.class}, (proxy, method, args) -> {
+			if ("getConnection".equals(method.getName())) {
+				if (down.get()) {
+					throw new SQLException("Connection refused", "08001");
+				}
+				return connection();
+			}
+			return null;
+		});
+	}
+
+	private static Connection connection() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "isValid":
+					return true;
+				case "isClosed":
+					return false;
+				default:
+					return null;
+			}
+		});
+	}
+}
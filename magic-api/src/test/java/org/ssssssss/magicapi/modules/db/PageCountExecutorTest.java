@@ -0,0 +1,98 @@
+package org.ssssssss.magicapi.modules.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ssssssss.magicapi.core.context.RequestContext;
+import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.core.logging.MagicLoggerContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PageCountExecutorTest {
+
+	@Test
+	public void sequentialWhenNotParallel() {
+		PageCountExecutor executor = new PageCountExecutor(false, 1, 0);
+		assertFalse(executor.isParallel());
+		assertNull(executor.submit(() -> 1));
+		// 未开启缓存
+		executor.cacheCount("", "select count(*) from t_user", new Object[0], 10);
+		assertNull(executor.getCachedCount("", "select count(*) from t_user", new Object[0]));
+	}
+
+	@Test
+	public void propagateContext() throws Exception {
+		PageCountExecutor executor = new PageCountExecutor(true, 1, 0);
+		RequestEntity requestEntity = RequestEntity.create();
+		RequestContext.setRequestEntity(requestEntity);
+		MagicLoggerContext.SESSION.set("client");
+		try {
+			Future<Integer> future = executor.submit(() -> {
+				assertSame(requestEntity, RequestContext.getRequestEntity());
+				assertEquals("client", MagicLoggerContext.SESSION.get());
+				return 1;
+			});
+			assertEquals(1, (int) future.get(5, TimeUnit.SECONDS));
+		} finally {
+			RequestContext.remove();
+			MagicLoggerContext.remove();
+		}
+		// 执行完成后清理线程池中的上下文
+		Future<Integer> future = executor.submit(() -> RequestContext.getRequestEntity() == null && MagicLoggerContext.SESSION.get() == null ? 1 : 0);
+		assertEquals(1, (int) future.get(5, TimeUnit.SECONDS));
+		executor.destroy();
+	}
+
+	@Test
+	public void runInCallerWhenFull() throws Exception {
+		// 1个线程，队列长度为4
+		PageCountExecutor executor = new PageCountExecutor(true, 1, 0);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			futures.add(executor.submit(() -> {
+				release.await();
+				return 1;
+			}));
+		}
+		futures.forEach(Assert::assertNotNull);
+		assertNull(executor.submit(() -> 1));
+		release.countDown();
+		for (Future<Integer> future : futures) {
+			assertEquals(1, (int) future.get(5, TimeUnit.SECONDS));
+		}
+		executor.destroy();
+	}
+
+	@Test
+	public void destroy() throws Exception {
+		PageCountExecutor executor = new PageCountExecutor(true, 1, 0);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Integer> running = executor.submit(() -> {
+			release.await();
+			return 1;
+		});
+		executor.destroy();
+		// 关闭后不再接收新的查询，已提交的查询继续执行完成
+		assertNull(executor.submit(() -> 1));
+		release.countDown();
+		assertEquals(1, (int) running.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void cacheCount() {
+		PageCountExecutor executor = new PageCountExecutor(false, 1, 60000);
+		String sql = "select count(*) from t_user where id > ?";
+		assertNull(executor.getCachedCount("", sql, new Object[]{1}));
+		executor.cacheCount("", sql, new Object[]{1}, 10);
+		assertEquals(10, (int) executor.getCachedCount("", sql, new Object[]{1}));
+		assertNull(executor.getCachedCount("", sql, new Object[]{2}));
+		assertNull(executor.getCachedCount("slave", sql, new Object[]{1}));
+	}
+}
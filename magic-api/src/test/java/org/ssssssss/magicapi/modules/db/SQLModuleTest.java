@@ -0,0 +1,96 @@
+package org.ssssssss.magicapi.modules.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ssssssss.magicapi.core.context.RequestContext;
+import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource;
+import org.ssssssss.magicapi.datasource.model.MagicDynamicDataSource.DataSourceNode;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SQLModuleTest {
+
+	private PageCountExecutor pageCountExecutor;
+
+	private DataSourceNode primary;
+
+	private DataSourceNode replica;
+
+	private SQLModule sqlModule;
+
+	@Before
+	public void setUp() {
+		MagicDynamicDataSource dynamicDataSource = new MagicDynamicDataSource();
+		dynamicDataSource.setReplicaHealthCheck(0, 1);
+		// 主库与从库各自最多2个并发
+		dynamicDataSource.put(null, "", "default", dataSource(), -1, 2, 0, Collections.singletonList(dataSource()), null);
+		primary = dynamicDataSource.getDataSource();
+		replica = primary.getReplicaSet().getReplicas().get(0);
+		pageCountExecutor = new PageCountExecutor(true, 1, 0);
+		sqlModule = new SQLModule(dynamicDataSource);
+		sqlModule.setDataSourceNode(primary);
+		sqlModule.setPageCountExecutor(pageCountExecutor);
+	}
+
+	@After
+	public void tearDown() {
+		pageCountExecutor.destroy();
+	}
+
+	@Test
+	public void readFromReplica() {
+		assertSame(replica, sqlModule.getReadDataSourceNode());
+		// 指定使用主库
+		assertSame(primary, sqlModule.primary().getReadDataSourceNode());
+		// 结果会写入缓存时使用主库，避免缓存从库未同步的数据
+		assertSame(primary, sqlModule.cache("user").getReadDataSourceNode());
+	}
+
+	@Test
+	public void readFromPrimaryAfterWrite() {
+		RequestEntity requestEntity = RequestEntity.create();
+		RequestContext.setRequestEntity(requestEntity);
+		try {
+			assertSame(replica, sqlModule.getReadDataSourceNode());
+			requestEntity.markWritten(primary.getKey());
+			assertSame(primary, sqlModule.getReadDataSourceNode());
+		} finally {
+			RequestContext.remove();
+		}
+		// 其它请求不受影响
+		assertSame(replica, sqlModule.getReadDataSourceNode());
+	}
+
+	@Test
+	public void parallelCountByExecutingNode() {
+		assertTrue(sqlModule.isParallelCountAvailable(primary));
+		assertTrue(sqlModule.isParallelCountAvailable(replica));
+		assertTrue(replica.getConcurrencyLimiter().tryAcquire());
+		try {
+			// 从库只剩1个连接，主库仍有空闲
+			assertFalse(sqlModule.isParallelCountAvailable(replica));
+			assertTrue(sqlModule.isParallelCountAvailable(primary));
+		} finally {
+			replica.getConcurrencyLimiter().release();
+		}
+	}
+
+	@Test
+	public void sequentialWhenNotParallel() {
+		PageCountExecutor executor = new PageCountExecutor(false, 1, 0);
+		sqlModule.setPageCountExecutor(executor);
+		assertFalse(sqlModule.isParallelCountAvailable(primary));
+	}
+
+	private static DataSource dataSource() {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[]{DataSource.class}, (proxy, method, args) -> {
+			throw new UnsupportedOperationException(method.getName());
+		});
+	}
+}
@@ -0,0 +1,179 @@
+package org.ssssssss.magicapi.modules.db;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.ssssssss.magicapi.core.context.RequestEntity;
+import org.ssssssss.magicapi.core.exception.MagicAPIException;
+import org.ssssssss.magicapi.modules.db.dialect.MySQLDialect;
+import org.ssssssss.magicapi.modules.db.inteceptor.SQLInterceptor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SqlCursorTest {
+
+	private static final String[] COLUMNS = {"id", "name"};
+
+	private final List<Object[]> rows = new ArrayList<>();
+
+	private final AtomicInteger openConnections = new AtomicInteger();
+
+	private final List<String> events = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		rows.add(new Object[]{1, "a"});
+		rows.add(new Object[]{2, "b"});
+		rows.add(new Object[]{3, "c"});
+	}
+
+	@Test
+	public void postHandleEachRow() {
+		SQLInterceptor interceptor = new SQLInterceptor() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public Object postHandle(BoundSql boundSql, Object result, RequestEntity requestEntity) {
+				Map<String, Object> row = (Map<String, Object>) result;
+				events.add("postHandle:" + row.get("id"));
+				if (Integer.valueOf(2).equals(row.get("id"))) {
+					// 返回 null 时跳过该行
+					return null;
+				}
+				row.put("name", row.get("name").toString().toUpperCase());
+				return row;
+			}
+		};
+		SqlCursor cursor = open(interceptor);
+		assertEquals(Arrays.asList("preHandle"), events);
+		List<Map<String, Object>> result = cursor.toList();
+		assertEquals(2, result.size());
+		assertEquals("A", result.get(0).get("name"));
+		assertEquals("C", result.get(1).get("name"));
+		assertEquals(Arrays.asList("preHandle", "postHandle:1", "postHandle:2", "postHandle:3"), events);
+		assertTrue(cursor.isClosed());
+		assertEquals(0, openConnections.get());
+	}
+
+	@Test
+	public void rejectNonMapResult() {
+		SqlCursor cursor = open(new SQLInterceptor() {
+			@Override
+			public Object postHandle(BoundSql boundSql, Object result, RequestEntity requestEntity) {
+				return Collections.singletonList(result);
+			}
+		});
+		try {
+			cursor.hasNext();
+			fail();
+		} catch (MagicAPIException e) {
+			assertTrue(events.contains("handleException"));
+		}
+		assertTrue(cursor.isClosed());
+		assertEquals(0, openConnections.get());
+	}
+
+	private SqlCursor open(SQLInterceptor interceptor) {
+		SQLInterceptor recorder = new SQLInterceptor() {
+			@Override
+			public void preHandle(BoundSql boundSql, RequestEntity requestEntity) {
+				events.add("preHandle");
+			}
+
+			@Override
+			public void handleException(BoundSql boundSql, Throwable throwable, RequestEntity requestEntity) {
+				events.add("handleException");
+			}
+		};
+		List<SQLInterceptor> interceptors = Arrays.asList(recorder, interceptor);
+		BoundSql boundSql = new BoundSql(null, "select id, name from t_user", new ArrayList<>(), null);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource());
+		return boundSql.stream(interceptors, requestEntity -> new SqlCursor(boundSql, jdbcTemplate, new MySQLDialect(), new ColumnMapRowMapper(), 100, interceptors, requestEntity));
+	}
+
+	private DataSource dataSource() {
+		return proxy(DataSource.class, (method, args) -> {
+			if ("getConnection".equals(method)) {
+				openConnections.incrementAndGet();
+				return connection();
+			}
+			return null;
+		});
+	}
+
+	private Connection connection() {
+		return proxy(Connection.class, (method, args) -> {
+			switch (method) {
+				case "prepareStatement":
+					return statement();
+				case "getAutoCommit":
+					return true;
+				case "close":
+					openConnections.decrementAndGet();
+					return null;
+				default:
+					return null;
+			}
+		});
+	}
+
+	private PreparedStatement statement() {
+		return proxy(PreparedStatement.class, (method, args) -> "executeQuery".equals(method) ? resultSet() : null);
+	}
+
+	private ResultSet resultSet() {
+		Iterator<Object[]> iterator = rows.iterator();
+		Object[][] current = new Object[1][];
+		ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (method, args) -> {
+			switch (method) {
+				case "getColumnCount":
+					return COLUMNS.length;
+				case "getColumnLabel":
+				case "getColumnName":
+					return COLUMNS[(Integer) args[0] - 1];
+				default:
+					return null;
+			}
+		});
+		return proxy(ResultSet.class, (method, args) -> {
+			switch (method) {
+				case "next":
+					current[0] = iterator.hasNext() ? iterator.next() : null;
+					return current[0] != null;
+				case "getMetaData":
+					return metaData;
+				case "getObject":
+					return current[0][(Integer) args[0] - 1];
+				default:
+					return null;
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+			Object value = handler.invoke(method.getName(), args);
+			Class<?> returnType = method.getReturnType();
+			if (value != null || !returnType.isPrimitive() || returnType == void.class) {
+				return value;
+			}
+			return returnType == boolean.class ? (Object) false : Array.get(Array.newInstance(returnType, 1), 0);
+		});
+	}
+
+	private interface Handler {
+
+		Object invoke(String method, Object[] args);
+	}
+}
@@ -0,0 +1,90 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrequencySketchTest {
+
+	@Test
+	public void countUpToFifteen() {
+		FrequencySketch sketch = new FrequencySketch(1024);
+		int hash = "hot".hashCode();
+		for (int i = 1; i <= 5; i++) {
+			sketch.increment(hash);
+			assertTrue(sketch.frequency(hash) >= i);
+		}
+		for (int i = 0; i < 20; i++) {
+			sketch.increment(hash);
+		}
+		assertEquals(15, sketch.frequency(hash));
+	}
+
+	@Test
+	public void hotKeyHigherThanColdKeys() {
+		FrequencySketch sketch = new FrequencySketch(1024);
+		int hot = "hot".hashCode();
+		for (int i = 0; i < 10; i++) {
+			sketch.increment(hot);
+		}
+		int colder = 0;
+		for (int i = 0; i < 100; i++) {
+			int hash = ("cold" + i).hashCode();
+			sketch.increment(hash);
+			if (sketch.frequency(hash) < sketch.frequency(hot)) {
+				colder++;
+			}
+		}
+		assertEquals(100, colder);
+	}
+
+	@Test
+	public void halveOnSample() {
+		// 容量16时计数表为16个long，采样数为160
+		FrequencySketch sketch = new FrequencySketch(16);
+		int hot = "hot".hashCode();
+		for (int i = 0; i < 15; i++) {
+			sketch.increment(hot);
+		}
+		assertEquals(15, sketch.frequency(hot));
+		for (int i = 0; i < 200; i++) {
+			sketch.increment(("cold" + i).hashCode());
+		}
+		assertTrue(sketch.frequency(hot) < 15);
+	}
+
+	@Test
+	public void concurrentIncrementNotOverflow() throws InterruptedException {
+		FrequencySketch sketch = new FrequencySketch(1 << 16);
+		int hot = "hot".hashCode();
+		int threads = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			executor.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < 1000; i++) {
+					sketch.increment(hot);
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		assertEquals(15, sketch.frequency(hot));
+		// 计数器溢出时会进位到相邻计数器
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(0, sketch.frequency(("cold" + i).hashCode()));
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class SqlCacheLoaderTest {
+
+	@Test
+	public void loadOnceForConcurrentMisses() throws Exception {
+		SqlCacheLoader loader = new SqlCacheLoader(-1, 0, 0, false);
+		MapSqlCache cache = new MapSqlCache();
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		Get leader = new Get(loader, cache, () -> {
+			loads.incrementAndGet();
+			await(release);
+			return "value";
+		});
+		waitUntil(() -> loads.get() == 1);
+		Get follower = new Get(loader, cache, () -> {
+			loads.incrementAndGet();
+			return "other";
+		});
+		follower.awaitBlocked();
+		release.countDown();
+		assertEquals("value", leader.join());
+		assertEquals("value", follower.join());
+		assertEquals(1, loads.get());
+		assertEquals("value", cache.get("test", "key"));
+	}
+
+	@Test
+	public void loadDirectlyWhenWaitTimeout() throws Exception {
+		SqlCacheLoader loader = new SqlCacheLoader(-1, 0, 0, false, 50);
+		MapSqlCache cache = new MapSqlCache();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Get leader = new Get(loader, cache, () -> {
+			started.countDown();
+			await(release);
+			return "slow";
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		// 等待超时后直接查询，结果不写入缓存
+		assertEquals("direct", loader.get(cache, "test", "key", -1, -1, -1, () -> "direct"));
+		assertNull(cache.get("test", "key"));
+		release.countDown();
+		assertEquals("slow", leader.join());
+		assertEquals("slow", cache.get("test", "key"));
+	}
+
+	@Test
+	public void returnStaleValueAndRefreshInBackground() throws Exception {
+		SqlCacheLoader loader = new SqlCacheLoader(1000, 60000, 0, false);
+		MapSqlCache cache = new MapSqlCache();
+		long now = System.currentTimeMillis();
+		cache.put("test", "key", new CachedValue("stale", now - 1, 0));
+		AtomicReference<String> refreshThread = new AtomicReference<>();
+		CountDownLatch refreshed = new CountDownLatch(1);
+		Object value = loader.get(cache, "test", "key", -1, -1, -1, () -> {
+			refreshThread.set(Thread.currentThread().getName());
+			refreshed.countDown();
+			return "fresh";
+		});
+		assertEquals("stale", value);
+		assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+		waitUntil(() -> cache.get("test", "key") instanceof CachedValue && "fresh".equals(((CachedValue) cache.get("test", "key")).getValue()));
+		assertTrue(refreshThread.get().startsWith("magic-sql-cache-refresh-"));
+		loader.shutdown();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue("condition not met in time", System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	/**
+	 * 在单独线程中读取缓存
+	 */
+	private static class Get {
+
+		private final Thread thread;
+
+		private final AtomicReference<Object> result = new AtomicReference<>();
+
+		Get(SqlCacheLoader loader, SqlCache cache, Supplier<Object> supplier) {
+			this.thread = new Thread(() -> result.set(loader.get(cache, "test", "key", -1, -1, -1, supplier)));
+			this.thread.start();
+		}
+
+		void awaitBlocked() throws InterruptedException {
+			waitUntil(() -> thread.getState() == Thread.State.WAITING || thread.getState() == Thread.State.TIMED_WAITING);
+		}
+
+		Object join() throws InterruptedException {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+			assertFalse(thread.isAlive());
+			return result.get();
+		}
+	}
+
+	private static class MapSqlCache implements SqlCache {
+
+		private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+		@Override
+		public void put(String name, String key, Object value) {
+			values.put(name + ":" + key, value);
+		}
+
+		@Override
+		public void put(String name, String key, Object value, long ttl) {
+			put(name, key, value);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T get(String name, String key) {
+			return (T) values.get(name + ":" + key);
+		}
+
+		@Override
+		public void delete(String name) {
+			values.keySet().removeIf(it -> it.startsWith(name + ":"));
+		}
+	}
+}
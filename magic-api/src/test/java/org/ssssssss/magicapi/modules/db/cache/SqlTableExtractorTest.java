@@ -0,0 +1,65 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SqlTableExtractorTest {
+
+	@Test
+	public void select() {
+		assertTables("select * from sys_user u left join sys_role r on u.role_id = r.id where u.id = ?", "sys_user", "sys_role");
+		assertTables("select * from a, b c, d where a.id = c.id", "a", "b", "d");
+		assertTables("select * from (select * from t_inner) x", "t_inner");
+	}
+
+	@Test
+	public void quotedAndSchema() {
+		assertTables("SELECT * FROM `db`.`T_User`", "t_user");
+	}
+
+	@Test
+	public void write() {
+		assertTables("insert into t_log(id, name) values (?, ?)", "t_log");
+		assertTables("update t_user set name = ? where id = ?", "t_user");
+		assertTables("delete from t_user where id in (select user_id from t_ban)", "t_user", "t_ban");
+		assertTables("merge into t_target t using t_source s on (t.id = s.id) when matched then update set t.a = s.a", "t_target", "t_source");
+		assertTables("truncate table t_user", "t_user");
+	}
+
+	@Test
+	public void ignoreUpdateKeyword() {
+		assertTables("select * from t_user for update", "t_user");
+		assertTables("insert into t_user(id) values(?) on duplicate key update id = id", "t_user");
+	}
+
+	@Test
+	public void ignoreStringAndComment() {
+		assertTables("select * from t_user where name = 'from t_fake' -- join t_comment\n and id = ?", "t_user");
+		assertTables("select * /* from t_fake */ from t_user", "t_user");
+	}
+
+	@Test
+	public void blockCommentInTableList() {
+		assertTables("select * from a /* x */, b where a.id = b.id", "a", "b");
+		assertTables("select * from a x /* alias */, b y", "a", "b");
+		assertTables("select * from a /* x */ join b on a.id = b.id", "a", "b");
+		assertTables("update /* hint */ t_user set a = 1", "t_user");
+	}
+
+	@Test
+	public void cached() {
+		String sql = "select * from t_cached";
+		assertSame(SqlTableExtractor.extract(sql), SqlTableExtractor.extract(sql));
+		assertTrue(SqlTableExtractor.extract(null).isEmpty());
+	}
+
+	private static void assertTables(String sql, String... tables) {
+		Set<String> expected = new LinkedHashSet<>(Arrays.asList(tables));
+		assertEquals(sql, expected, SqlTableExtractor.extract(sql));
+	}
+}
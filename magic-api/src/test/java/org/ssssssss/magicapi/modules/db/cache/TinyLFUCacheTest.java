@@ -0,0 +1,132 @@
+package org.ssssssss.magicapi.modules.db.cache;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TinyLFUCacheTest {
+
+	@Test
+	public void putAndGet() {
+		TinyLFUCache cache = new TinyLFUCache(100, -1);
+		cache.put("user", "1", "a");
+		cache.put("user", "1", "b");
+		assertEquals("b", cache.get("user", "1"));
+		assertNull(cache.get("user", "2"));
+		assertNull(cache.get("order", "1"));
+		assertEquals(1, cache.size());
+		Map<String, Object> stats = cache.stats();
+		assertEquals(1L, stats.get("hits"));
+		assertEquals(2L, stats.get("misses"));
+		assertEquals(2L, stats.get("puts"));
+	}
+
+	@Test
+	public void deleteByName() {
+		TinyLFUCache cache = new TinyLFUCache(100, -1);
+		for (int i = 0; i < 10; i++) {
+			cache.put("user", "key" + i, i);
+			cache.put("order", "key" + i, i);
+		}
+		cache.delete("user");
+		for (int i = 0; i < 10; i++) {
+			assertNull(cache.get("user", "key" + i));
+			assertEquals(i, cache.get("order", "key" + i));
+		}
+		assertEquals(10, cache.size());
+		assertEquals(1, cache.stats().get("names"));
+	}
+
+	@Test
+	public void expire() throws InterruptedException {
+		TinyLFUCache cache = new TinyLFUCache(100, -1);
+		cache.put("user", "1", "a", 1);
+		cache.put("user", "2", "b");
+		Thread.sleep(20);
+		assertNull(cache.get("user", "1"));
+		assertEquals("b", cache.get("user", "2"));
+		assertEquals(1L, cache.stats().get("expirations"));
+	}
+
+	@Test
+	public void expireOnRead() throws InterruptedException {
+		TinyLFUCache cache = new TinyLFUCache(100, -1);
+		cache.put("user", "1", "a", 1);
+		// 等待时间轮进入下一个刻度，只有读操作时也会清理过期数据
+		Thread.sleep(1100);
+		assertNull(cache.get("order", "1"));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.stats().get("names"));
+		assertEquals(1L, cache.stats().get("expirations"));
+	}
+
+	@Test
+	public void boundedByCapacity() {
+		TinyLFUCache cache = new TinyLFUCache(100, -1);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("user", "key" + i, i);
+		}
+		assertTrue(cache.size() <= 100);
+		assertEquals(1000L - cache.size(), cache.stats().get("evictions"));
+	}
+
+	@Test
+	public void keepFrequentlyUsedOnScan() {
+		TinyLFUCache cache = new TinyLFUCache(100, -1);
+		cache.put("user", "hot", "hot");
+		for (int i = 0; i < 10; i++) {
+			assertEquals("hot", cache.get("user", "hot"));
+		}
+		// 只访问一次的数据不会挤掉访问频率高的数据
+		for (int i = 0; i < 1000; i++) {
+			cache.put("user", "scan" + i, i);
+		}
+		assertEquals("hot", cache.get("user", "hot"));
+	}
+
+	@Test
+	public void concurrentAccess() throws InterruptedException {
+		TinyLFUCache cache = new TinyLFUCache(256, -1);
+		int threads = 8;
+		AtomicInteger mismatches = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			int offset = t;
+			executor.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < 2000; i++) {
+					String key = "key" + ((i * 31 + offset) % 512);
+					Object value = cache.get("user", key);
+					if (value == null) {
+						cache.put("user", key, key);
+					} else if (!key.equals(value)) {
+						mismatches.incrementAndGet();
+					}
+					if (i % 500 == 0) {
+						cache.delete("order");
+					}
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		assertEquals(0, mismatches.get());
+		assertTrue(cache.size() <= 256);
+		Map<String, Object> stats = cache.stats();
+		assertEquals((long) threads * 2000, (long) stats.get("hits") + (long) stats.get("misses"));
+	}
+}
@@ -0,0 +1,66 @@
+package org.ssssssss.magicapi.modules.db.dialect;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class BulkInsertSqlTest {
+
+	@Test
+	public void bulkInsertSql() {
+		Dialect dialect = new MySQLDialect();
+		assertEquals("insert into t_user(id,name) values (?,?)", dialect.getBulkInsertSql("t_user", Arrays.asList("id", "name"), 1));
+		assertEquals("insert into t_user(id,name) values (?,?),(?,?),(?,?)", dialect.getBulkInsertSql("t_user", Arrays.asList("id", "name"), 3));
+		assertEquals("insert into t_user(id) values (?),(?)", new PostgreSQLDialect().getBulkInsertSql("t_user", Collections.singletonList("id"), 2));
+	}
+
+	@Test
+	public void mysqlRows() throws SQLException {
+		MySQLDialect dialect = new MySQLDialect();
+		assertEquals(65535 / 10, dialect.getBulkInsertRows(connection("jdbc:mysql://localhost/test"), 10));
+		// 驱动会改写批处理
+		assertEquals(1, dialect.getBulkInsertRows(connection("jdbc:mysql://localhost/test?rewriteBatchedStatements=true"), 10));
+		assertEquals(1, dialect.getBulkInsertRows(connection("jdbc:mysql://localhost/test"), 100000));
+	}
+
+	@Test
+	public void postgresqlRows() throws SQLException {
+		PostgreSQLDialect dialect = new PostgreSQLDialect();
+		assertEquals(32767 / 10, dialect.getBulkInsertRows(connection("jdbc:postgresql://localhost/test"), 10));
+		assertEquals(1, dialect.getBulkInsertRows(connection("jdbc:postgresql://localhost/test?reWriteBatchedInserts=true"), 10));
+	}
+
+	@Test
+	public void otherRows() throws SQLException {
+		// SQL Server 单条语句最多 2100 个参数，VALUES 最多 1000 行
+		assertEquals(200, new SQLServerDialect().getBulkInsertRows(null, 10));
+		assertEquals(1000, new SQLServerDialect().getBulkInsertRows(null, 1));
+		assertEquals(1, new ClickhouseDialect().getBulkInsertRows(null, 10));
+		assertEquals(1, new OracleDialect().getBulkInsertRows(null, 10));
+	}
+
+	/**
+	 * 只提供 jdbc url 的连接
+	 */
+	private static Connection connection(String url) {
+		DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(BulkInsertSqlTest.class.getClassLoader(), new Class[]{DatabaseMetaData.class}, (proxy, method, args) -> {
+			if ("getURL".equals(method.getName())) {
+				return url;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+		return (Connection) Proxy.newProxyInstance(BulkInsertSqlTest.class.getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+			if ("getMetaData".equals(method.getName())) {
+				return metaData;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+	}
+}
@@ -0,0 +1,99 @@
+package org.ssssssss.magicapi.modules.db.dialect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CountSqlParserTest {
+
+	private static final CountSqlParser PARSER = CountSqlParser.of(false);
+
+	private static final CountSqlParser REMOVE_LEFT_JOIN = CountSqlParser.of(true);
+
+	@Test
+	public void replaceSelectItems() {
+		assertCount(PARSER, "select id, name from t_user where status = ? order by id desc", "select count(*) from t_user where status = ?");
+		assertCount(PARSER, "select * from t_user where name = 'it''s' order by id", "select count(*) from t_user where name = 'it''s'");
+	}
+
+	@Test
+	public void removeNestedOrderBy() {
+		assertCount(PARSER, "select * from t_user where id in (select user_id from t_role order by id)", "select count(*) from t_user where id in (select user_id from t_role )");
+	}
+
+	@Test
+	public void wrapWhenRowsAffected() {
+		for (String sql : new String[]{
+				"select distinct name from t_user",
+				"select dept, count(*) from t_user group by dept",
+				// 带 LIMIT 时保留 ORDER BY
+				"select * from t_user order by id limit 10",
+				"select * from t_user union select * from t_admin",
+				"select ?, id from t_user"
+		}) {
+			assertCount(PARSER, sql, "select count(*) from ( " + sql + " ) count_");
+		}
+	}
+
+	@Test
+	public void unsupported() {
+		assertNull(PARSER.parse("update t_user set a = 1"));
+		assertNull(PARSER.parse("select * from t_user; delete from t_user"));
+		assertNull(PARSER.parse("select * from t_user where name = 'a\\'b'"));
+		assertNull(PARSER.parse(null));
+	}
+
+	@Test
+	public void keepLeftJoinByDefault() {
+		String sql = "select u.* from t_user u left join t_dept d on u.dept_id = d.id where u.status = ?";
+		assertCount(PARSER, sql, "select count(*) from t_user u left join t_dept d on u.dept_id = d.id where u.status = ?");
+	}
+
+	@Test
+	public void removeUnreferencedLeftJoin() {
+		assertCount(REMOVE_LEFT_JOIN, "select u.* from t_user u left join t_dept d on u.dept_id = d.id where u.status = ?", "select count(*) from t_user u where u.status = ?");
+		assertCount(REMOVE_LEFT_JOIN, "select u.*, d.name from t_user u left join t_dept d on u.dept_id = d.id", "select count(*) from t_user u");
+		assertCount(REMOVE_LEFT_JOIN, "select u.* from t_user u left join (select * from t_dept) d on u.dept_id = d.id where u.status = 1", "select count(*) from t_user u where u.status = 1");
+		// 只在 ORDER BY 中引用
+		assertCount(REMOVE_LEFT_JOIN, "select u.* from t_user u left join t_dept d on u.dept_id = d.id where u.status = 1 order by d.name", "select count(*) from t_user u where u.status = 1");
+		// 去掉后面的 JOIN 后前面的 JOIN 也不再被引用
+		assertCount(REMOVE_LEFT_JOIN, "select u.* from t_user u left join t_dept d on u.dept_id = d.id left join t_org o on d.org_id = o.id", "select count(*) from t_user u");
+		// 函数名及 date '...' 常量不是列名
+		assertCount(REMOVE_LEFT_JOIN, "select u.* from t_user u left join t_dept d on u.dept_id = d.id where date '2020-01-01' < u.created and upper(u.name) = ?", "select count(*) from t_user u where date '2020-01-01' < u.created and upper(u.name) = ?");
+	}
+
+	@Test
+	public void keepReferencedLeftJoin() {
+		for (String sql : new String[]{
+				// 条件中引用
+				"select u.* from t_user u left join t_dept d on u.dept_id = d.id where d.status = 1",
+				// 不带表别名的列可能来自关联表
+				"select u.* from t_user u left join t_dept d on u.dept_id = d.id where name = ?",
+				"select u.* from t_user u left join t_dept d on u.dept_id = d.id where u.status = 1 and `name` = ?",
+				// ON 条件中含有参数
+				"select u.* from t_user u left join t_dept d on u.dept_id = d.id and d.type = ? where u.status = 1",
+				// 不是 LEFT JOIN
+				"select u.* from t_user u inner join t_dept d on u.dept_id = d.id"
+		}) {
+			assertCount(REMOVE_LEFT_JOIN, sql, "select count(*) " + sql.substring(sql.indexOf("from")));
+		}
+	}
+
+	@Test
+	public void cachedPerParser() {
+		String sql = "select u.* from t_user u left join t_dept d on u.dept_id = d.id";
+		assertSame(PARSER, CountSqlParser.of(false));
+		assertEquals(PARSER.parse(sql), PARSER.parse(sql));
+		assertFalse(PARSER.parse(sql).equals(REMOVE_LEFT_JOIN.parse(sql)));
+	}
+
+	private static void assertCount(CountSqlParser parser, String sql, String expected) {
+		String countSql = parser.parse(sql);
+		assertNotNull(sql, countSql);
+		assertEquals(sql, normalize(expected), normalize(countSql));
+	}
+
+	private static String normalize(String sql) {
+		return sql.replaceAll("\\s+", " ").trim();
+	}
+}
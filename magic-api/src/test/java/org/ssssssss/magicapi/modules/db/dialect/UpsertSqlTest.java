@@ -0,0 +1,60 @@
+package org.ssssssss.magicapi.modules.db.dialect;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UpsertSqlTest {
+
+	private static final List<String> COLUMNS = Arrays.asList("id", "name", "age");
+
+	private static final List<String> UPDATE_COLUMNS = Arrays.asList("name", "age");
+
+	@Test
+	public void mysql() {
+		MySQLDialect dialect = new MySQLDialect();
+		assertEquals("insert into t_user(id,name,age) values (?,?,?) on duplicate key update name = ?,age = ?",
+				dialect.getUpsertSql("t_user", "id", COLUMNS, UPDATE_COLUMNS));
+		assertEquals("insert into t_user(id) values (?) on duplicate key update id = id",
+				dialect.getUpsertSql("t_user", "id", Collections.singletonList("id"), Collections.emptyList()));
+	}
+
+	@Test
+	public void postgresql() {
+		PostgreSQLDialect dialect = new PostgreSQLDialect();
+		assertEquals("insert into t_user(id,name,age) values (?,?,?) on conflict (id) do update set name = ?,age = ?",
+				dialect.getUpsertSql("t_user", "id", COLUMNS, UPDATE_COLUMNS));
+		assertEquals("insert into t_user(id) values (?) on conflict (id) do nothing",
+				dialect.getUpsertSql("t_user", "id", Collections.singletonList("id"), Collections.emptyList()));
+	}
+
+	@Test
+	public void oracle() {
+		assertEquals("merge into t_user t_ using (select ? id,? name,? age from dual) s_ on (t_.id = s_.id)"
+						+ " when matched then update set t_.name = ?,t_.age = ?"
+						+ " when not matched then insert (id,name,age) values (s_.id,s_.name,s_.age)",
+				new OracleDialect().getUpsertSql("t_user", "id", COLUMNS, UPDATE_COLUMNS));
+	}
+
+	@Test
+	public void sqlServer() {
+		assertEquals("merge into t_user t_ using (values (?,?,?)) s_ (id,name,age) on (t_.id = s_.id)"
+						+ " when matched then update set t_.name = ?,t_.age = ?"
+						+ " when not matched then insert (id,name,age) values (s_.id,s_.name,s_.age);",
+				new SQLServerDialect().getUpsertSql("t_user", "id", COLUMNS, UPDATE_COLUMNS));
+		// 没有更新列时只插入
+		assertEquals("merge into t_user t_ using (values (?)) s_ (id) on (t_.id = s_.id)"
+						+ " when not matched then insert (id) values (s_.id);",
+				new SQLServerDialect().getUpsertSql("t_user", "id", Collections.singletonList("id"), Collections.emptyList()));
+	}
+
+	@Test
+	public void unsupported() {
+		assertNull(new ClickhouseDialect().getUpsertSql("t_user", "id", COLUMNS, UPDATE_COLUMNS));
+		assertNull(new SQLServer2005Dialect().getUpsertSql("t_user", "id", COLUMNS, UPDATE_COLUMNS));
+	}
+}
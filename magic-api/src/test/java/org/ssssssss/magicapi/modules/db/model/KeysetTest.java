@@ -0,0 +1,123 @@
+package org.ssssssss.magicapi.modules.db.model;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.core.exception.MagicAPIException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class KeysetTest {
+
+	@Test
+	public void parse() {
+		Keyset keyset = Keyset.parse("u.create_time desc, `id` ASC, name");
+		assertEquals(3, keyset.size());
+		assertEquals("create_time", keyset.getColumn(0));
+		assertTrue(keyset.isDescending(0));
+		assertFalse(keyset.isDescending(1));
+		assertFalse(keyset.isSameDirection());
+		assertEquals("create_time desc, `id`, name", keyset.getOrderBy());
+		assertTrue(Keyset.parse("a desc, b desc").isSameDirection());
+	}
+
+	@Test
+	public void rejectInvalidColumns() {
+		for (String columns : Arrays.asList("", "id; drop table t", "id desc nulls", "id random", "f(id)")) {
+			try {
+				Keyset.parse(columns);
+				fail(columns);
+			} catch (MagicAPIException ignored) {
+			}
+		}
+	}
+
+	@Test
+	public void roundTrip() {
+		LocalDateTime dateTime = LocalDateTime.of(2021, 5, 1, 12, 30, 15, 123456789);
+		OffsetDateTime offsetDateTime = OffsetDateTime.of(dateTime, ZoneOffset.ofHours(8));
+		UUID uuid = UUID.randomUUID();
+		Object[][] cases = {
+				{"s", "a,b\"c"},
+				{"i", 1},
+				{"l", Long.MAX_VALUE},
+				{"n", new BigDecimal("12.3400")},
+				{"bi", new BigInteger("123456789012345678901234567890")},
+				{"f", 1.5d},
+				{"b", true},
+				{"ts", Timestamp.valueOf(dateTime)},
+				{"ldt", dateTime},
+				{"sd", java.sql.Date.valueOf("2021-05-01")},
+				{"ld", LocalDate.of(2021, 5, 1)},
+				{"st", Time.valueOf("12:30:15")},
+				{"lt", LocalTime.of(12, 30, 15)},
+				{"odt", offsetDateTime},
+				{"uuid", uuid}
+		};
+		StringBuilder columns = new StringBuilder();
+		Map<String, Object> row = new HashMap<>();
+		for (Object[] item : cases) {
+			if (columns.length() > 0) {
+				columns.append(",");
+			}
+			columns.append("t.").append(item[0]);
+			row.put((String) item[0], item[1]);
+		}
+		Keyset keyset = Keyset.parse(columns.toString());
+		String cursor = keyset.encodeCursor(row, Function.identity());
+		assertTrue(cursor.matches("[\\w-]+"));
+		Object[] values = keyset.decodeCursor(cursor);
+		assertArrayEquals(new Object[]{
+				"a,b\"c",
+				1L,
+				Long.MAX_VALUE,
+				new BigDecimal("12.3400"),
+				new BigInteger("123456789012345678901234567890"),
+				1.5d,
+				true,
+				Timestamp.valueOf(dateTime),
+				Timestamp.valueOf(dateTime),
+				java.sql.Date.valueOf("2021-05-01"),
+				java.sql.Date.valueOf("2021-05-01"),
+				Time.valueOf("12:30:15"),
+				Time.valueOf("12:30:15"),
+				offsetDateTime,
+				uuid
+		}, values);
+	}
+
+	@Test
+	public void keyMapper() {
+		Keyset keyset = Keyset.parse("`create_time` desc");
+		Map<String, Object> row = Collections.singletonMap("createTime", 1);
+		String cursor = keyset.encodeCursor(row, it -> "createTime");
+		assertArrayEquals(new Object[]{1L}, keyset.decodeCursor(cursor));
+	}
+
+	@Test(expected = MagicAPIException.class)
+	public void rejectNullValue() {
+		Keyset.parse("id").encodeCursor(Collections.singletonMap("id", null), Function.identity());
+	}
+
+	@Test
+	public void rejectInvalidCursor() {
+		Keyset keyset = Keyset.parse("a, b");
+		String oneValue = Keyset.parse("a").encodeCursor(Collections.singletonMap("a", 1), Function.identity());
+		String unknownType = Base64.getUrlEncoder().encodeToString("[\"x:1\",\"l:1\"]".getBytes());
+		String badValue = Base64.getUrlEncoder().encodeToString("[\"l:abc\",\"l:1\"]".getBytes());
+		for (String cursor : Arrays.asList("!!!", oneValue, unknownType, badValue)) {
+			try {
+				keyset.decodeCursor(cursor);
+				fail(cursor);
+			} catch (MagicAPIException ignored) {
+			}
+		}
+		assertNull(keyset.decodeCursor(""));
+	}
+}
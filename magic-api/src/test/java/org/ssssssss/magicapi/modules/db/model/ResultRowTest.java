@@ -0,0 +1,103 @@
+package org.ssssssss.magicapi.modules.db.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ResultRowTest {
+
+	private static final RowSchema SCHEMA = new RowSchema(new String[]{"id", "name", "age"});
+
+	@Test
+	public void sameAsLinkedHashMap() {
+		ResultRow row = row();
+		Map<String, Object> expected = expected();
+		assertEquals(expected, row);
+		assertEquals(row, expected);
+		assertEquals(expected.hashCode(), row.hashCode());
+		assertEquals(expected.toString(), row.toString());
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(row.keySet()));
+		assertEquals(3, row.size());
+		assertTrue(row.containsKey("age"));
+		// 值为 null 的列仍然存在
+		assertNull(row.get("age"));
+		assertFalse(row.containsKey("other"));
+		assertNull(row.get("other"));
+	}
+
+	@Test
+	public void putAndRemove() {
+		ResultRow row = row();
+		Map<String, Object> expected = expected();
+		assertEquals(expected.put("name", "b"), row.put("name", "b"));
+		assertEquals(expected.remove("id"), row.remove("id"));
+		assertEquals(expected.remove("id"), row.remove("id"));
+		assertEquals(expected, row);
+		assertEquals(2, row.size());
+		assertFalse(row.containsKey("id"));
+		// 删除后重新添加的列排在最后
+		assertEquals(expected.put("id", 2), row.put("id", 2));
+		assertEquals(expected.put("sex", 1), row.put("sex", 1));
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(row.keySet()));
+		assertEquals(expected, row);
+		row.clear();
+		assertTrue(row.isEmpty());
+	}
+
+	@Test
+	public void iterator() {
+		ResultRow row = row();
+		Iterator<Map.Entry<String, Object>> iterator = row.entrySet().iterator();
+		Map.Entry<String, Object> entry = iterator.next();
+		assertEquals("id", entry.getKey());
+		assertEquals(1, entry.setValue(2));
+		assertEquals(2, row.get("id"));
+		iterator.next();
+		iterator.remove();
+		try {
+			iterator.remove();
+			fail();
+		} catch (IllegalStateException ignored) {
+		}
+		assertEquals("age", iterator.next().getKey());
+		assertFalse(iterator.hasNext());
+		try {
+			iterator.next();
+			fail();
+		} catch (NoSuchElementException ignored) {
+		}
+		assertEquals(Arrays.asList("id", "age"), new ArrayList<>(row.keySet()));
+		assertEquals(2, row.entrySet().size());
+	}
+
+	@Test
+	public void serializeAsLinkedHashMap() throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+			out.writeObject(row());
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+			Object value = in.readObject();
+			assertSame(LinkedHashMap.class, value.getClass());
+			assertEquals(expected(), value);
+		}
+	}
+
+	private static ResultRow row() {
+		return new ResultRow(SCHEMA, new Object[]{1, "a", null});
+	}
+
+	private static Map<String, Object> expected() {
+		Map<String, Object> expected = new LinkedHashMap<>();
+		expected.put("id", 1);
+		expected.put("name", "a");
+		expected.put("age", null);
+		return expected;
+	}
+}
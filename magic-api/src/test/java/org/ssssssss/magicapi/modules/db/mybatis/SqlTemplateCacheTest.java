@@ -0,0 +1,48 @@
+package org.ssssssss.magicapi.modules.db.mybatis;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SqlTemplateCacheTest {
+
+	@Test
+	public void isMybatis() {
+		assertTrue(SqlTemplateCache.isMybatis("select * from t_user <where><if test=\"id != null\">id = #{id}</if></where>"));
+		assertFalse(SqlTemplateCache.isMybatis("select * from t_user where a </ b"));
+		assertFalse(SqlTemplateCache.isMybatis("select * from t_user"));
+	}
+
+	@Test
+	public void cacheMybatisNode() {
+		String sql = "select * from t_cache_node <where><if test=\"id != null\">id = #{id}</if></where>";
+		SqlNode sqlNode = SqlTemplateCache.getMybatisNode(sql);
+		assertNotNull(sqlNode);
+		assertSame(sqlNode, SqlTemplateCache.getMybatisNode(sql));
+		// 非Mybatis语法也会缓存，返回 null
+		assertNull(SqlTemplateCache.getMybatisNode("select * from t_cache_node"));
+		assertNull(SqlTemplateCache.getMybatisNode("select * from t_cache_node"));
+	}
+
+	@Test
+	public void separateStats() {
+		long mybatisHits = count("mybatis", "hits");
+		long mybatisMisses = count("mybatis", "misses");
+		long textHits = count("text", "hits");
+		long textMisses = count("text", "misses");
+		String sql = "select * from t_cache_stats where id = #{id}";
+		TextSqlTemplate template = SqlTemplateCache.getTextTemplate(sql);
+		assertSame(template, SqlTemplateCache.getTextTemplate(sql));
+		assertEquals(textMisses + 1, count("text", "misses"));
+		assertEquals(textHits + 1, count("text", "hits"));
+		assertEquals(mybatisHits, count("mybatis", "hits"));
+		assertEquals(mybatisMisses, count("mybatis", "misses"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static long count(String cache, String name) {
+		return (Long) ((Map<String, Object>) SqlTemplateCache.stats().get(cache)).get(name);
+	}
+}
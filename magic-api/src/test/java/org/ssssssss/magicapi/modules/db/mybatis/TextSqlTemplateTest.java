@@ -0,0 +1,123 @@
+package org.ssssssss.magicapi.modules.db.mybatis;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.SqlOutParameter;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TextSqlTemplateTest {
+
+	@Test
+	public void plainText() {
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("select * from t_user", render("select * from t_user", new HashMap<>(), parameters));
+		assertTrue(parameters.isEmpty());
+		assertEquals("", render("", new HashMap<>(), parameters));
+	}
+
+	@Test
+	public void bind() {
+		Map<String, Object> varMap = new HashMap<>();
+		varMap.put("id", 1);
+		varMap.put("name", null);
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("select * from t_user where id = ? and name = ?", render("select * from t_user where id = #{id} and name = #{name}", varMap, parameters));
+		assertEquals(Arrays.asList(1, null), parameters);
+	}
+
+	@Test
+	public void bindCollection() {
+		Map<String, Object> varMap = new HashMap<>();
+		varMap.put("ids", Arrays.asList(1, 2, 3));
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("select * from t_user where id in (?,?,?)", render("select * from t_user where id in (#{ids})", varMap, parameters));
+		assertEquals(Arrays.asList(1, 2, 3), parameters);
+	}
+
+	@Test
+	public void condition() {
+		String sql = "select * from t_user where 1 = 1 ?{flag, and name = #{name}}";
+		Map<String, Object> varMap = new HashMap<>();
+		varMap.put("name", "mxd");
+		varMap.put("flag", true);
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("select * from t_user where 1 = 1  and name = ?", render(sql, varMap, parameters));
+		assertEquals(Collections.singletonList("mxd"), parameters);
+		varMap.put("flag", false);
+		parameters.clear();
+		assertEquals("select * from t_user where 1 = 1 ", render(sql, varMap, parameters));
+		assertTrue(parameters.isEmpty());
+	}
+
+	@Test
+	public void concat() {
+		Map<String, Object> varMap = new HashMap<>();
+		varMap.put("table", "t_user");
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("select * from t_user", render("select * from ${table}", varMap, parameters));
+		assertTrue(parameters.isEmpty());
+	}
+
+	@Test
+	public void concatRescan() {
+		Map<String, Object> varMap = new HashMap<>();
+		varMap.put("where", "id = #{id}");
+		varMap.put("id", 1);
+		List<Object> parameters = new ArrayList<>();
+		String sql = "select * from t_user where ${where}";
+		assertEquals("select * from t_user where id = ?", render(sql, varMap, parameters));
+		assertEquals(Collections.singletonList(1), parameters);
+		// 拼接的内容每次重新解析
+		varMap.put("where", "name = #{name}");
+		varMap.put("name", "mxd");
+		parameters.clear();
+		assertEquals("select * from t_user where name = ?", render(sql, varMap, parameters));
+		assertEquals(Collections.singletonList("mxd"), parameters);
+	}
+
+	@Test
+	public void concatRescanOnlyBindAndOut() {
+		Map<String, Object> varMap = new HashMap<>();
+		varMap.put("text", "?{flag, a} ${b} #{id}");
+		varMap.put("id", 1);
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("select '?{flag, a} ${b} ?'", render("select '${text}'", varMap, parameters));
+		assertEquals(Collections.singletonList(1), parameters);
+	}
+
+	@Test
+	public void escape() {
+		Map<String, Object> varMap = new HashMap<>();
+		varMap.put("id", 1);
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("select '#{id}', ?", render("select '\\#{id}', #{id}", varMap, parameters));
+		assertEquals(Collections.singletonList(1), parameters);
+	}
+
+	@Test
+	public void out() {
+		List<Object> parameters = new ArrayList<>();
+		assertEquals("call test(?)", render("call test(@{result, varchar})", new HashMap<>(), parameters));
+		assertEquals(1, parameters.size());
+		assertTrue(parameters.get(0) instanceof SqlOutParameter);
+		assertEquals("result", ((SqlOutParameter) parameters.get(0)).getName());
+	}
+
+	@Test
+	public void reuseAcrossRenders() {
+		TextSqlTemplate template = TextSqlTemplate.compile("select * from t_user where id = #{id}");
+		Map<String, Object> varMap = new HashMap<>();
+		for (int i = 0; i < 3; i++) {
+			varMap.put("id", i);
+			List<Object> parameters = new ArrayList<>();
+			assertEquals("select * from t_user where id = ?", template.render(varMap, parameters));
+			assertEquals(Collections.singletonList(i), parameters);
+		}
+	}
+
+	private static String render(String sql, Map<String, Object> varMap, List<Object> parameters) {
+		return TextSqlTemplate.compile(sql).render(varMap, parameters);
+	}
+}
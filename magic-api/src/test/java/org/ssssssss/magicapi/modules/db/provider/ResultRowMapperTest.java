@@ -0,0 +1,105 @@
+package org.ssssssss.magicapi.modules.db.provider;
+
+import org.junit.Test;
+import org.ssssssss.magicapi.modules.db.model.ResultRow;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ResultRowMapperTest {
+
+	private final ResultRowMapper mapper = new ResultRowMapper(String::toUpperCase);
+
+	@Test
+	public void listExtractor() throws Exception {
+		ResultSet rs = resultSet(new String[]{"id", "name", "password"}, new Object[]{1, "a", "x"}, new Object[]{2, "b", "y"});
+		List<Map<String, Object>> rows = mapper.listExtractor(Collections.singleton("PASSWORD")).extractData(rs);
+		assertEquals(2, rows.size());
+		assertTrue(rows.get(0) instanceof ResultRow);
+		assertEquals(Arrays.asList("ID", "NAME"), new ArrayList<>(rows.get(0).keySet()));
+		assertEquals(2, rows.get(1).get("ID"));
+		assertEquals("b", rows.get(1).get("NAME"));
+		assertTrue(mapper.listExtractor(null).extractData(resultSet(new String[]{"id"})).isEmpty());
+	}
+
+	@Test
+	public void duplicateColumns() throws Exception {
+		ResultSet rs = resultSet(new String[]{"id", "name", "ID"}, new Object[]{1, "a", 2});
+		Map<String, Object> row = mapper.singleRowExtractor(null).extractData(rs);
+		Map<String, Object> expected = new LinkedHashMap<>();
+		expected.put("ID", 1);
+		expected.put("NAME", "a");
+		expected.put("ID", 2);
+		// 与 LinkedHashMap 一致：保留首次出现的位置，取最后一列的值
+		assertEquals(expected, row);
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(row.keySet()));
+		assertNull(mapper.singleRowExtractor(null).extractData(resultSet(new String[]{"id"})));
+	}
+
+	@Test
+	public void mapRowPerResultSet() throws Exception {
+		ResultSet users = resultSet(new String[]{"id", "name"}, new Object[]{1, "a"}, new Object[]{2, "b"});
+		ResultSet roles = resultSet(new String[]{"role_id"}, new Object[]{3});
+		assertTrue(users.next());
+		assertEquals(Arrays.asList("ID", "NAME"), new ArrayList<>(mapper.mapRow(users, 0).keySet()));
+		// 交替读取不同结果集时使用各自的列信息
+		assertTrue(roles.next());
+		assertEquals(Collections.singletonMap("ROLE_ID", 3), mapper.mapRow(roles, 0));
+		assertTrue(users.next());
+		Map<String, Object> expected = new LinkedHashMap<>();
+		expected.put("ID", 2);
+		expected.put("NAME", "b");
+		assertEquals(expected, mapper.mapRow(users, 1));
+	}
+
+	private static ResultSet resultSet(String[] columns, Object[]... rows) {
+		Iterator<Object[]> iterator = Arrays.asList(rows).iterator();
+		Object[][] current = new Object[1][];
+		ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (method, args) -> {
+			switch (method) {
+				case "getColumnCount":
+					return columns.length;
+				case "getColumnLabel":
+				case "getColumnName":
+					return columns[(Integer) args[0] - 1];
+				default:
+					return null;
+			}
+		});
+		return proxy(ResultSet.class, (method, args) -> {
+			switch (method) {
+				case "next":
+					current[0] = iterator.hasNext() ? iterator.next() : null;
+					return current[0] != null;
+				case "getMetaData":
+					return metaData;
+				case "getObject":
+					return current[0][(Integer) args[0] - 1];
+				default:
+					return null;
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+			Object value = handler.invoke(method.getName(), args);
+			Class<?> returnType = method.getReturnType();
+			if (value != null || !returnType.isPrimitive() || returnType == void.class) {
+				return value;
+			}
+			return returnType == boolean.class ? (Object) false : Array.get(Array.newInstance(returnType, 1), 0);
+		});
+	}
+
+	private interface Handler {
+
+		Object invoke(String method, Object[] args);
+	}
+}
@@ -0,0 +1,155 @@
+package org.ssssssss.magicapi.modules.db.table;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ssssssss.magicapi.modules.db.BoundSql;
+import org.ssssssss.magicapi.modules.db.SQLModule;
+import org.ssssssss.magicapi.modules.db.dialect.ClickhouseDialect;
+import org.ssssssss.magicapi.modules.db.dialect.Dialect;
+import org.ssssssss.magicapi.modules.db.dialect.MySQLDialect;
+import org.ssssssss.magicapi.modules.db.inteceptor.NamedTableInterceptor;
+import org.ssssssss.magicapi.modules.db.model.SqlMode;
+import org.ssssssss.script.runtime.RuntimeContext;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class NamedTableTest {
+
+	private RecordingSQLModule sqlModule;
+
+	private NamedTable table;
+
+	@Before
+	public void setUp() {
+		sqlModule = new RecordingSQLModule(new MySQLDialect());
+		// 模拟填充租户、创建时间、修改时间的拦截器
+		NamedTableInterceptor interceptor = (sqlMode, namedTable) -> {
+			if (sqlMode == SqlMode.INSERT) {
+				namedTable.column("tenant_id", 7);
+				namedTable.column("create_time", "created");
+			} else if (sqlMode == SqlMode.UPDATE) {
+				namedTable.column("update_time", "updated");
+			}
+		};
+		table = new NamedTable("t_user", sqlModule, Function.identity(), Collections.singletonList(interceptor))
+				.primary("id")
+				.column("status", 1);
+	}
+
+	@Test
+	public void saveUpsertRunsInterceptors() {
+		table.save(null, row(1, "a"), true);
+		assertEquals(1, sqlModule.updates.size());
+		assertEquals("insert into t_user(id,create_time,name,status,tenant_id) values (?,?,?,?,?) on duplicate key update name = ?,status = ?,update_time = ?",
+				sqlModule.updates.get(0).getSql());
+		assertArrayEquals(new Object[]{1, "created", "a", 1, 7, "a", 1, "updated"}, sqlModule.updates.get(0).getParameters());
+	}
+
+	@Test
+	public void batchSaveRunsInterceptorsPerRow() {
+		Map<String, Object> withAge = row(3, "c");
+		withAge.put("age", 20);
+		table.batchSave(null, Arrays.asList(row(1, "a"), row(null, "b"), row(2, "b"), withAge));
+		assertEquals(3, sqlModule.batches.size());
+		Batch upsert = sqlModule.batches.get(0);
+		assertEquals("insert into t_user(id,create_time,name,status,tenant_id) values (?,?,?,?,?) on duplicate key update name = ?,status = ?,update_time = ?", upsert.sql);
+		assertEquals(2, upsert.args.size());
+		assertArrayEquals(new Object[]{1, "created", "a", 1, 7, "a", 1, "updated"}, upsert.args.get(0));
+		assertArrayEquals(new Object[]{2, "created", "b", 1, 7, "b", 1, "updated"}, upsert.args.get(1));
+		Batch upsertWithAge = sqlModule.batches.get(1);
+		assertEquals("insert into t_user(id,age,create_time,name,status,tenant_id) values (?,?,?,?,?,?) on duplicate key update age = ?,name = ?,status = ?,update_time = ?", upsertWithAge.sql);
+		assertArrayEquals(new Object[]{3, 20, "created", "c", 1, 7, 20, "c", 1, "updated"}, upsertWithAge.args.get(0));
+		Batch insert = sqlModule.batches.get(2);
+		assertEquals("insert into t_user(create_time,name,status,tenant_id) values (?,?,?,?)", insert.sql);
+		assertArrayEquals(new Object[]{"created", "b", 1, 7}, insert.args.get(0));
+		// 拦截器只作用于每行的副本
+		assertEquals(Collections.singletonMap("status", 1), table.columns);
+	}
+
+	@Test
+	public void batchSaveDefaultPrimaryValue() {
+		table.primary("id", () -> 99);
+		table.batchSave(null, Collections.singletonList(row(null, "a")));
+		assertEquals(1, sqlModule.batches.size());
+		assertArrayEquals(new Object[]{99, "created", "a", 1, 7, "a", 1, "updated"}, sqlModule.batches.get(0).args.get(0));
+	}
+
+	@Test
+	public void batchSaveWithoutUpsert() {
+		sqlModule = new RecordingSQLModule(new ClickhouseDialect()) {
+			@Override
+			public Integer selectInt(BoundSql boundSql) {
+				return 0;
+			}
+		};
+		table.sqlModule = sqlModule;
+		table.batchSave(null, Collections.singletonList(row(null, "a")));
+		assertTrue(sqlModule.batches.isEmpty());
+		assertEquals(1, sqlModule.inserts.size());
+		assertEquals("insert into t_user(", sqlModule.inserts.get(0).getSql().substring(0, 19));
+		assertTrue(sqlModule.inserts.get(0).getSql().contains("tenant_id"));
+	}
+
+	private static Map<String, Object> row(Object id, String name) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("id", id);
+		row.put("name", name);
+		return row;
+	}
+
+	private static class Batch {
+
+		private final String sql;
+
+		private final List<Object[]> args;
+
+		Batch(String sql, List<Object[]> args) {
+			this.sql = sql;
+			this.args = args;
+		}
+	}
+
+	/**
+	 * 记录执行的SQL，不访问数据库
+	 */
+	private static class RecordingSQLModule extends SQLModule {
+
+		private final Dialect dialect;
+
+		private final List<BoundSql> updates = new ArrayList<>();
+
+		private final List<BoundSql> inserts = new ArrayList<>();
+
+		private final List<Batch> batches = new ArrayList<>();
+
+		RecordingSQLModule(Dialect dialect) {
+			this.dialect = dialect;
+		}
+
+		@Override
+		public Dialect getDialect() {
+			return dialect;
+		}
+
+		@Override
+		public int update(BoundSql boundSql) {
+			updates.add(boundSql);
+			return 1;
+		}
+
+		@Override
+		public Object insert(BoundSql boundSql, String primary) {
+			inserts.add(boundSql);
+			return null;
+		}
+
+		@Override
+		public int batchUpdate(RuntimeContext runtimeContext, String sql, int batchSize, List<Object[]> args) {
+			batches.add(new Batch(sql, args));
+			return args.size();
+		}
+	}
+}
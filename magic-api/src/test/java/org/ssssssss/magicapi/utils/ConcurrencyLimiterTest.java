@@ -0,0 +1,119 @@
+package org.ssssssss.magicapi.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyLimiterTest {
+
+	@Test
+	public void rejectWithoutWaiting() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 0, 0);
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(2, limiter.getInFlight());
+		assertEquals(1, limiter.getRejected());
+		limiter.release();
+		assertTrue(limiter.tryAcquire());
+		assertEquals(1, limiter.getRejected());
+	}
+
+	@Test
+	public void waitTimeout() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 50);
+		assertTrue(limiter.tryAcquire());
+		long start = System.nanoTime();
+		assertFalse(limiter.tryAcquire());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40);
+		assertEquals(0, limiter.getWaiting());
+		assertEquals(1, limiter.getRejected());
+	}
+
+	@Test
+	public void waiterAcquiresAfterRelease() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 5000);
+		assertTrue(limiter.tryAcquire());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Boolean> waiter = executor.submit(limiter::tryAcquire);
+			waitUntil(() -> limiter.getWaiting() == 1);
+			// 排队已满
+			assertFalse(limiter.tryAcquire());
+			limiter.release();
+			assertTrue(waiter.get(5, TimeUnit.SECONDS));
+			assertEquals(1, limiter.getInFlight());
+			assertEquals(0, limiter.getWaiting());
+			assertEquals(1, limiter.getRejected());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void neverExceedMaxConcurrent() throws Exception {
+		int maxConcurrent = 4;
+		int threads = 16;
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(maxConcurrent, threads, 0);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		AtomicInteger completed = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < threads; i++) {
+				executor.execute(() -> {
+					try {
+						start.await();
+						for (int j = 0; j < 50; j++) {
+							if (limiter.tryAcquire()) {
+								try {
+									peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+									Thread.yield();
+									running.decrementAndGet();
+									completed.incrementAndGet();
+								} finally {
+									limiter.release();
+								}
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			start.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(peak.get() <= maxConcurrent);
+		// 排队数足够且一直等待，不会被拒绝
+		assertEquals(threads * 50, completed.get());
+		assertEquals(0, limiter.getRejected());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void sameConfig() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, -1, 100);
+		assertTrue(limiter.isSameConfig(2, 0, 100));
+		assertFalse(limiter.isSameConfig(2, 1, 100));
+		assertFalse(limiter.isSameConfig(3, 0, 100));
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("等待超时");
+			}
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package org.ssssssss.magicapi.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		assertEquals(1000, histogram.getCount());
+		assertWithin(500000, histogram.getPercentile(0.5));
+		assertWithin(900000, histogram.getPercentile(0.9));
+		assertWithin(990000, histogram.getPercentile(0.99));
+		assertEquals(1000000, histogram.getMax());
+		assertEquals(500500, histogram.getMean(), 0.001);
+	}
+
+	@Test
+	public void smallValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 16; i++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+		}
+		// 16微秒以内每个值一个桶
+		assertEquals(7, histogram.getPercentile(0.5));
+		assertEquals(15, histogram.getPercentile(1));
+	}
+
+	@Test
+	public void coarseBucketsAboveSixteenSeconds() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.SECONDS.toNanos(20));
+		histogram.record(TimeUnit.SECONDS.toNanos(30));
+		long p50 = histogram.getPercentile(0.5);
+		assertTrue(p50 >= 20000000 && p50 <= 30000000);
+		assertEquals(30000000, histogram.getPercentile(1));
+		// 超过最大值时按最大值记录
+		histogram.record(TimeUnit.DAYS.toNanos(1));
+		assertEquals((1L << 35) - 1, histogram.getMax());
+		assertEquals((1L << 35) - 1, histogram.getPercentile(1));
+	}
+
+	@Test
+	public void slidingWindow() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram(100, 2);
+		histogram.record(1000000);
+		assertEquals(1, histogram.getCount());
+		Thread.sleep(250);
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(0.99));
+		histogram.record(2000000);
+		assertEquals(1, histogram.getCount());
+		assertEquals(2000, histogram.getMax());
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / 8);
+	}
+}
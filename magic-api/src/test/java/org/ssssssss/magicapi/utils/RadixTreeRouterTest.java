@@ -0,0 +1,153 @@
+package org.ssssssss.magicapi.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class RadixTreeRouterTest {
+
+	private RadixTreeRouter<String> router;
+
+	@Before
+	public void setUp() {
+		router = new RadixTreeRouter<>();
+	}
+
+	@Test
+	public void staticRoutes() {
+		register("GET", "/api/user");
+		register("GET", "/api/users");
+		register("GET", "/api/user/list");
+		assertRoute("GET", "/api/user", "/api/user");
+		assertRoute("GET", "/api/users", "/api/users");
+		assertRoute("GET", "/api/user/list", "/api/user/list");
+		// 兼容末尾带 / 的请求
+		assertRoute("GET", "/api/user/list/", "/api/user/list");
+		assertNull(router.match("GET", "/api/use"));
+		assertNull(router.match("GET", "/api/user/lists"));
+	}
+
+	@Test
+	public void pathVariables() {
+		register("GET", "/api/user/{id}");
+		register("GET", "/api/user/{id}/role/{roleId}");
+		RadixTreeRouter.Match<String> match = router.match("GET", "/api/user/1/role/2");
+		assertEquals("/api/user/{id}/role/{roleId}", match.getPattern());
+		assertEquals("1", match.getVariables().get("id"));
+		assertEquals("2", match.getVariables().get("roleId"));
+		assertEquals(Collections.singletonMap("id", "abc"), router.match("GET", "/api/user/abc").getVariables());
+		// 变量不能为空
+		assertNull(router.match("GET", "/api/user//role/2"));
+	}
+
+	@Test
+	public void staticBeforeVariableBeforeWildcard() {
+		register("GET", "/api/user/list");
+		register("GET", "/api/user/{id}");
+		register("GET", "/api/user/**");
+		register("GET", "/api/{module}/list");
+		assertRoute("GET", "/api/user/list", "/api/user/list");
+		assertRoute("GET", "/api/user/1", "/api/user/{id}");
+		assertRoute("GET", "/api/user/1/role", "/api/user/**");
+		assertRoute("GET", "/api/user", "/api/user/**");
+		assertRoute("GET", "/api/role/list", "/api/{module}/list");
+		// 静态部分匹配后回退到路径变量
+		register("GET", "/api/user/list/export");
+		assertRoute("GET", "/api/user/list/export", "/api/user/list/export");
+		assertRoute("GET", "/api/user/list/import", "/api/user/**");
+	}
+
+	@Test
+	public void catchAllAfterOtherRoutes() {
+		register("GET", "/api/a/b/**");
+		register("GET", "/api/a/{x}/c");
+		// 与 Spring MVC 一致，/** 的优先级低于其它路由
+		assertRoute("GET", "/api/a/b/c", "/api/a/{x}/c");
+		assertRoute("GET", "/api/a/b/d", "/api/a/b/**");
+		assertNull(router.match("GET", "/api/a/bc"));
+	}
+
+	@Test
+	public void singleSegmentWildcard() {
+		register("GET", "/api/*/detail");
+		RadixTreeRouter.Match<String> match = router.match("GET", "/api/user/detail");
+		assertEquals("/api/*/detail", match.getPattern());
+		assertTrue(match.getVariables().isEmpty());
+		assertNull(router.match("GET", "/api/user/role/detail"));
+	}
+
+	@Test
+	public void methods() {
+		register("GET", "/api/user");
+		register("POST", "/api/user");
+		assertEquals("GET:/api/user", router.match("GET", "/api/user").getValue());
+		assertEquals("POST:/api/user", router.match("POST", "/api/user").getValue());
+		assertNull(router.match("DELETE", "/api/user"));
+	}
+
+	@Test
+	public void headFallbackToGet() {
+		register("GET", "/api/user/{id}");
+		RadixTreeRouter.Match<String> match = router.match("HEAD", "/api/user/1");
+		assertEquals("GET:/api/user/{id}", match.getValue());
+		assertEquals("1", match.getVariables().get("id"));
+		// 有 HEAD 接口时优先使用
+		register("HEAD", "/api/user/{id}");
+		assertEquals("HEAD:/api/user/{id}", router.match("HEAD", "/api/user/1").getValue());
+		assertNull(router.match("HEAD", "/api/role/1"));
+	}
+
+	@Test
+	public void conflicts() {
+		assertNull(router.register("GET", "/api/user/{id}", "first"));
+		assertEquals("first", router.register("GET", "/api/user/{userId}", "second"));
+		assertEquals("first", router.register("GET", "/api/user/*", "third"));
+		assertNull(router.register("POST", "/api/user/{userId}", "post"));
+		assertNull(router.register("GET", "/api/user/**", "catchAll"));
+		assertEquals("catchAll", router.register("GET", "/api/user/**", "other"));
+		assertEquals("first", router.match("GET", "/api/user/1").getValue());
+	}
+
+	@Test
+	public void unregister() {
+		register("GET", "/api/user");
+		register("GET", "/api/user/{id}");
+		register("GET", "/api/user/**");
+		assertTrue(router.unregister("GET", "/api/user/{id}"));
+		assertFalse(router.unregister("GET", "/api/user/{id}"));
+		assertRoute("GET", "/api/user/1", "/api/user/**");
+		assertTrue(router.unregister("GET", "/api/user/**"));
+		assertNull(router.match("GET", "/api/user/1"));
+		assertRoute("GET", "/api/user", "/api/user");
+		assertTrue(router.unregister("GET", "/api/user"));
+		assertNull(router.match("GET", "/api/user"));
+		assertFalse(router.unregister("POST", "/api/user"));
+	}
+
+	@Test
+	public void supports() {
+		assertTrue(RadixTreeRouter.supports("/api/user/{id}"));
+		assertTrue(RadixTreeRouter.supports("/api/*/detail"));
+		assertTrue(RadixTreeRouter.supports("/api/user/**"));
+		assertFalse(RadixTreeRouter.supports("/api/user/{id:\\d+}"));
+		assertFalse(RadixTreeRouter.supports("/api/user/id-{id}"));
+		assertFalse(RadixTreeRouter.supports("/api/**/detail"));
+		assertFalse(RadixTreeRouter.supports("/api/user*"));
+		assertFalse(RadixTreeRouter.supports("/api/user?"));
+		assertFalse(RadixTreeRouter.supports("api/user"));
+	}
+
+	private void register(String method, String pattern) {
+		assertNull(router.register(method, pattern, method + ":" + pattern));
+	}
+
+	private void assertRoute(String method, String path, String expected) {
+		RadixTreeRouter.Match<String> match = router.match(method, path);
+		assertNotNull(path, match);
+		assertEquals(path, expected, match.getPattern());
+		assertEquals(method + ":" + expected, match.getValue());
+	}
+}